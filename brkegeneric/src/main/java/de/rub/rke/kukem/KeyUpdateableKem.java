@@ -1,6 +1,8 @@
 package de.rub.rke.kukem;
 
 import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
 
 import de.rub.rke.variables.KeySeed;
 import de.rub.rke.variables.SymmetricKey;
@@ -55,6 +57,30 @@ public interface KeyUpdateableKem {
 	 */
 	public KuKemSecretKey updateSecretKey(KuKemSecretKey secretKey, KuKemAssociatedData associatedData);
 
+	/**
+	 * Updates every secret key depending on the same associated data. The updated
+	 * keys are returned in the order of the secret keys. Implementations may
+	 * override this to update all keys at once. The returned list never contains
+	 * null, a single failed update fails the whole batch.
+	 * 
+	 * @param secretKeys
+	 * @param associatedData
+	 * @return updated keys in the order of the secret keys, or null if an update
+	 *         failed
+	 */
+	public default List<KuKemSecretKey> updateSecretKeys(List<KuKemSecretKey> secretKeys,
+			KuKemAssociatedData associatedData) {
+		List<KuKemSecretKey> updatedSecretKeys = new ArrayList<KuKemSecretKey>(secretKeys.size());
+		for (KuKemSecretKey secretKey : secretKeys) {
+			KuKemSecretKey updatedSecretKey = updateSecretKey(secretKey, associatedData);
+			if (updatedSecretKey == null) {
+				return null;
+			}
+			updatedSecretKeys.add(updatedSecretKey);
+		}
+		return updatedSecretKeys;
+	}
+
 	/**
 	 * Generates a random symmetric key and encrypts it with the public key
 	 * 
@@ -63,6 +89,28 @@ public interface KeyUpdateableKem {
 	 */
 	public KuKemOutput encapsulate(KuKemPublicKey publicKey);
 
+	/**
+	 * Generates and encapsulates a symmetric key under every public key. The
+	 * outputs are returned in the order of the public keys. Implementations may
+	 * override this to encapsulate the whole batch at once. The returned list
+	 * never contains null, a single failed encapsulation fails the whole batch.
+	 * 
+	 * @param publicKeys
+	 * @return outputs in the order of the public keys, or null if an encapsulation
+	 *         failed
+	 */
+	public default List<KuKemOutput> encapsulateAll(List<KuKemPublicKey> publicKeys) {
+		List<KuKemOutput> outputs = new ArrayList<KuKemOutput>(publicKeys.size());
+		for (KuKemPublicKey publicKey : publicKeys) {
+			KuKemOutput output = encapsulate(publicKey);
+			if (output == null) {
+				return null;
+			}
+			outputs.add(output);
+		}
+		return outputs;
+	}
+
 	/**
 	 * Decapsulates the symmetric key
 	 * 
@@ -0,0 +1,199 @@
+package de.rub.rke.kukem;
+
+import java.security.SecureRandom;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import de.rub.rke.variables.KeySeed;
+import de.rub.rke.variables.SymmetricKey;
+
+/**
+ * Decorator for a kuKem, which generates random key pairs in the background.
+ *
+ * The generated key pairs are kept in a bounded pool. If the pool holds less
+ * than 'lowWatermark' key pairs (including the ones that are currently
+ * generated), it is refilled up to 'highWatermark' key pairs by the executor.
+ * If the pool is drained, the key pair is generated inline. All other functions
+ * are passed to the decorated kuKem.
+ *
+ * The key pairs in the pool are generated with the randomness of the
+ * decorator, not with the randomness passed to gen. The decorated kuKem has to
+ * support calls to gen from several threads.
+ *
+ * @author Marco Smeets
+ *
+ */
+public class PregeneratingKuKem implements KeyUpdateableKem {
+
+	private KeyUpdateableKem kuKemAlgorithm;
+	private SecureRandom randomness;
+	private Executor executor;
+	private int lowWatermark;
+	private int highWatermark;
+	private BlockingQueue<KuKemKeyPair> pool;
+	/**
+	 * Number of key pairs, which are generated, but not in the pool yet.
+	 */
+	private AtomicInteger pendingKeyPairs;
+	private AtomicLong poolHits;
+	private AtomicLong poolMisses;
+
+	/**
+	 * Constructs the decorator and starts filling the pool.
+	 *
+	 * @param kuKemAlgorithm - decorated kuKem
+	 * @param randomness     - randomness used for the generation in the
+	 *                       background
+	 * @param lowWatermark   - the pool is refilled, if it holds less key pairs
+	 * @param highWatermark  - maximum number of key pairs in the pool (at least
+	 *                       lowWatermark)
+	 * @param executor       - executor that generates the key pairs
+	 */
+	public PregeneratingKuKem(KeyUpdateableKem kuKemAlgorithm, SecureRandom randomness, int lowWatermark,
+			int highWatermark, Executor executor) {
+		this.kuKemAlgorithm = kuKemAlgorithm;
+		this.randomness = randomness;
+		this.lowWatermark = lowWatermark;
+		this.highWatermark = Math.max(lowWatermark, highWatermark);
+		this.executor = executor;
+		pool = new LinkedBlockingQueue<KuKemKeyPair>(Math.max(1, this.highWatermark));
+		pendingKeyPairs = new AtomicInteger();
+		poolHits = new AtomicLong();
+		poolMisses = new AtomicLong();
+		refill(this.highWatermark);
+	}
+
+	/**
+	 * Takes a key pair from the pool. If the pool is drained, the key pair is
+	 * generated inline with the given randomness.
+	 */
+	@Override
+	public KuKemKeyPair gen(SecureRandom randomness) {
+		KuKemKeyPair keyPair = pool.poll();
+		if (keyPair != null) {
+			poolHits.incrementAndGet();
+		} else {
+			poolMisses.incrementAndGet();
+			keyPair = kuKemAlgorithm.gen(randomness);
+		}
+		if (pool.size() + pendingKeyPairs.get() < lowWatermark) {
+			refill(highWatermark);
+		}
+		return keyPair;
+	}
+
+	/**
+	 * Schedules the generation of the key pairs, which are missing to reach the
+	 * watermark. The missing key pairs are reserved in 'pendingKeyPairs' before
+	 * they are scheduled, so concurrent calls do not schedule the same shortfall
+	 * and the watermark bounds the scheduled generations.
+	 *
+	 * @param watermark
+	 */
+	private void refill(int watermark) {
+		int missingKeyPairs;
+		while (true) {
+			int pending = pendingKeyPairs.get();
+			missingKeyPairs = watermark - pool.size() - pending;
+			if (missingKeyPairs <= 0) {
+				return;
+			}
+			if (pendingKeyPairs.compareAndSet(pending, pending + missingKeyPairs)) {
+				break;
+			}
+		}
+		for (int i = 0; i < missingKeyPairs; i++) {
+			try {
+				executor.execute(this::generateKeyPair);
+			} catch (RejectedExecutionException e) {
+				/**
+				 * The executor is shut down, key pairs are generated inline from now on. The
+				 * reservations, which are not scheduled, are released.
+				 */
+				pendingKeyPairs.addAndGet(i - missingKeyPairs);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Generates a key pair and puts it in the pool.
+	 */
+	private void generateKeyPair() {
+		try {
+			KuKemKeyPair keyPair = kuKemAlgorithm.gen(randomness);
+			if (keyPair != null) {
+				pool.offer(keyPair);
+			}
+		} finally {
+			pendingKeyPairs.decrementAndGet();
+		}
+	}
+
+	@Override
+	public KuKemKeyPair gen(KeySeed seed) {
+		return kuKemAlgorithm.gen(seed);
+	}
+
+	@Override
+	public KuKemPublicKey gen(KuKemSecretKey secretKey) {
+		return kuKemAlgorithm.gen(secretKey);
+	}
+
+	@Override
+	public KuKemPublicKey updatePublicKey(KuKemPublicKey publicKey, KuKemAssociatedData associatedData) {
+		return kuKemAlgorithm.updatePublicKey(publicKey, associatedData);
+	}
+
+	@Override
+	public KuKemSecretKey updateSecretKey(KuKemSecretKey secretKey, KuKemAssociatedData associatedData) {
+		return kuKemAlgorithm.updateSecretKey(secretKey, associatedData);
+	}
+
+	@Override
+	public List<KuKemSecretKey> updateSecretKeys(List<KuKemSecretKey> secretKeys,
+			KuKemAssociatedData associatedData) {
+		return kuKemAlgorithm.updateSecretKeys(secretKeys, associatedData);
+	}
+
+	@Override
+	public KuKemOutput encapsulate(KuKemPublicKey publicKey) {
+		return kuKemAlgorithm.encapsulate(publicKey);
+	}
+
+	@Override
+	public List<KuKemOutput> encapsulateAll(List<KuKemPublicKey> publicKeys) {
+		return kuKemAlgorithm.encapsulateAll(publicKeys);
+	}
+
+	@Override
+	public SymmetricKey decapsulate(KuKemSecretKey secretKey, KuKemCiphertext ciphertext) {
+		return kuKemAlgorithm.decapsulate(secretKey, ciphertext);
+	}
+
+	/**
+	 * @return number of key pairs taken from the pool
+	 */
+	public long getPoolHits() {
+		return poolHits.get();
+	}
+
+	/**
+	 * @return number of key pairs generated inline, because the pool was drained
+	 */
+	public long getPoolMisses() {
+		return poolMisses.get();
+	}
+
+	/**
+	 * @return number of key pairs currently in the pool
+	 */
+	public int getPoolSize() {
+		return pool.size();
+	}
+}
@@ -1,7 +1,9 @@
 package de.rub.rke.queuedkukem;
 
 import java.security.SecureRandom;
+import java.util.ArrayList;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Queue;
 
 import de.rub.rke.brke.BrkeCiphertext;
@@ -119,14 +121,26 @@ public class QueuedKuKem {
 			// TODO: Throw Exception
 			return null;
 		}
+		/**
+		 * Encapsulate to all queued public keys at once, before any key is discarded.
+		 * The outputs are mixed in the order of the queue.
+		 */
+		List<KuKemOutput> kuKemOutputs = null;
+		if (!communicationPartnerPublicKeys.isEmpty()) {
+			kuKemOutputs = kuKemAlgorithm
+					.encapsulateAll(new ArrayList<KuKemPublicKey>(communicationPartnerPublicKeys));
+			if (kuKemOutputs == null) {
+				throw new IllegalStateException("Encapsulation to the queued kuKem public keys failed.");
+			}
+		}
 		KemOutput kemOutput = kemAlgorithm.encapsulate(communicationPartnerKemPublicKey);
 		communicationPartnerKemPublicKey = null;
 		int numberOfEncapsulations = 1;
 		SymmetricKey generatedKey = kemOutput.getKey();
-		if (!communicationPartnerPublicKeys.isEmpty()) {
+		if (kuKemOutputs != null) {
 			Queue<KuKemCiphertext> ciphertext = new LinkedList<KuKemCiphertext>();
-			while (!communicationPartnerPublicKeys.isEmpty()) {
-				KuKemOutput kuKemOutput = kuKemAlgorithm.encapsulate(communicationPartnerPublicKeys.poll());
+			communicationPartnerPublicKeys.clear();
+			for (KuKemOutput kuKemOutput : kuKemOutputs) {
 				numberOfEncapsulations++;
 				generatedKey.mixToKey(kuKemOutput.getKey());
 				ciphertext.add(kuKemOutput.getCiphertext());
@@ -170,13 +184,20 @@ public class QueuedKuKem {
 	 * @param ciphertext - ciphertext used for the key update
 	 */
 	public void updateSecretKeys(KeySeed seed, AssociatedData ad, BrkeCiphertext ciphertext) {
-		kemSecretKey = kemAlgorithm.gen(seed).getSecretKey();
-		Queue<KuKemSecretKey> updatedSecretKeys = new LinkedList<KuKemSecretKey>();
-		KuKemAssociatedData kuKemAssociatedData = associatedDataFactory.createAssociatedData(ad, ciphertext);
-		while (!secretKeys.isEmpty()) {
-			updatedSecretKeys.add(kuKemAlgorithm.updateSecretKey(secretKeys.remove(), kuKemAssociatedData));
+		/**
+		 * Update all secret keys at once, before any key is replaced. The updated keys
+		 * keep the order of the queue.
+		 */
+		if (!secretKeys.isEmpty()) {
+			KuKemAssociatedData kuKemAssociatedData = associatedDataFactory.createAssociatedData(ad, ciphertext);
+			List<KuKemSecretKey> updatedSecretKeys = kuKemAlgorithm
+					.updateSecretKeys(new ArrayList<KuKemSecretKey>(secretKeys), kuKemAssociatedData);
+			if (updatedSecretKeys == null) {
+				throw new IllegalStateException("Update of the queued kuKem secret keys failed.");
+			}
+			secretKeys = new LinkedList<KuKemSecretKey>(updatedSecretKeys);
 		}
-		secretKeys = updatedSecretKeys;
+		kemSecretKey = kemAlgorithm.gen(seed).getSecretKey();
 	}
 
 	/**
@@ -4,11 +4,15 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.junit.jupiter.api.Test;
 
@@ -17,8 +21,13 @@ import de.rub.rke.brke.BrkeConstruction;
 import de.rub.rke.brke.BrkeSendOutput;
 import de.rub.rke.kem.KemKeyPair;
 import de.rub.rke.kem.KemOutput;
+import de.rub.rke.kukem.KuKemAssociatedData;
 import de.rub.rke.kukem.KuKemKeyPair;
 import de.rub.rke.kukem.KuKemOutput;
+import de.rub.rke.kukem.KuKemPublicKey;
+import de.rub.rke.kukem.KuKemSecretKey;
+import de.rub.rke.kukem.PregeneratingKuKem;
+import de.rub.rke.queuedkukem.QueuedKuKem;
 import de.rub.rke.queuedkukem.QueuedKuKemCiphertext;
 import de.rub.rke.signature.SignatureVerificationKey;
 import de.rub.rke.test.fakealgorithmset.factories.MockKemFactory;
@@ -131,6 +140,179 @@ public class TestBrke {
 		assertNull(kuKem.decapsulate(secretKeys[2], outputLevel1.getCiphertext()));
 	}
 
+	/**
+	 * Test the pool of the pregenerating kuKem. The executor only collects the
+	 * generation tasks, so the pool is filled when the test runs them.
+	 */
+	@Test
+	public void testPregeneratingKuKem() {
+		SecureRandom randomness = new SecureRandom();
+		MockKeyUpdateableKem mockKuKem = new MockKeyUpdateableKem(randomness);
+		List<Runnable> generationTasks = new ArrayList<Runnable>();
+		PregeneratingKuKem kuKem = new PregeneratingKuKem(mockKuKem, randomness, 1, 3, generationTasks::add);
+
+		/**
+		 * The pool is drained, until the scheduled key pairs are generated
+		 */
+		assertEquals(3, generationTasks.size());
+		KuKemKeyPair inlineKeyPair = kuKem.gen(randomness);
+		assertEquals(0, kuKem.getPoolHits());
+		assertEquals(1, kuKem.getPoolMisses());
+		assertEquals(3, generationTasks.size());
+
+		for (Runnable task : generationTasks) {
+			task.run();
+		}
+		generationTasks.clear();
+		assertEquals(3, kuKem.getPoolSize());
+
+		/**
+		 * The pool is refilled, once it falls below the low watermark
+		 */
+		KuKemKeyPair[] pooledKeyPairs = new KuKemKeyPair[3];
+		for (int i = 0; i < 3; i++) {
+			pooledKeyPairs[i] = kuKem.gen(randomness);
+		}
+		assertEquals(3, kuKem.getPoolHits());
+		assertEquals(1, kuKem.getPoolMisses());
+		assertEquals(3, generationTasks.size());
+
+		/**
+		 * Pooled key pairs are usable like generated ones
+		 */
+		for (KuKemKeyPair keyPair : pooledKeyPairs) {
+			KuKemOutput kuKemOutput = kuKem.encapsulate(keyPair.getPublicKey());
+			assertEquals(((MockSymmetricKey) kuKemOutput.getKey()).getId(),
+					((MockSymmetricKey) kuKem.decapsulate(keyPair.getSecretKey(), kuKemOutput.getCiphertext()))
+							.getId());
+			assertNull(kuKem.decapsulate(inlineKeyPair.getSecretKey(), kuKemOutput.getCiphertext()));
+		}
+	}
+
+	/**
+	 * Test that a refill of the PregeneratingKuKem reserves the missing key pairs
+	 * before they are scheduled, so a concurrent gen does not schedule the same
+	 * shortfall again.
+	 */
+	@Test
+	public void testPregeneratingKuKemReservesMissingKeyPairs() {
+		SecureRandom randomness = new SecureRandom();
+		MockKeyUpdateableKem mockKuKem = new MockKeyUpdateableKem(randomness);
+		List<Runnable> generationTasks = new ArrayList<Runnable>();
+		PregeneratingKuKem[] kuKem = new PregeneratingKuKem[1];
+		boolean[] rejectTasks = { true };
+		/**
+		 * The first scheduled key pair of a refill calls gen like a concurrent caller.
+		 * The pool starts empty, since the executor rejects the initial refill.
+		 */
+		kuKem[0] = new PregeneratingKuKem(mockKuKem, randomness, 3, 3, task -> {
+			if (rejectTasks[0]) {
+				throw new RejectedExecutionException();
+			}
+			generationTasks.add(task);
+			if (generationTasks.size() == 1) {
+				kuKem[0].gen(randomness);
+			}
+		});
+		assertEquals(0, generationTasks.size());
+
+		rejectTasks[0] = false;
+		kuKem[0].gen(randomness);
+		assertEquals(2, kuKem[0].getPoolMisses());
+		assertEquals(3, generationTasks.size());
+		for (Runnable task : generationTasks) {
+			task.run();
+		}
+		assertEquals(3, kuKem[0].getPoolSize());
+	}
+
+	/**
+	 * Test that a failed batch encapsulation of the QueuedKuKem throws, instead of
+	 * discarding the queued public keys.
+	 */
+	@Test
+	public void testFailedQueuedKuKemEncapsulation() {
+		SecureRandom randomness = new SecureRandom();
+		MockKeyUpdateableKem failingKuKem = new MockKeyUpdateableKem(randomness) {
+			@Override
+			public List<KuKemOutput> encapsulateAll(List<KuKemPublicKey> publicKeys) {
+				return null;
+			}
+		};
+		QueuedKuKem queuedKuKem = new QueuedKuKem(failingKuKem, new MockKeyEncapsulationMechanism(randomness),
+				new MockKuKemAssociatedDataFactory());
+		queuedKuKem.init(randomness, true);
+		queuedKuKem.addUpdatedPublicKey(failingKuKem.gen(randomness).getPublicKey(), 0, 0);
+
+		assertThrows(IllegalStateException.class, queuedKuKem::encapsulate);
+		assertEquals(2, queuedKuKem.getNumberOfSavedPublicKeys());
+	}
+
+	/**
+	 * Test that a failed batch update of the QueuedKuKem throws and keeps the Kem
+	 * secret key, so the keys are not replaced partially.
+	 */
+	@Test
+	public void testFailedQueuedKuKemUpdate() {
+		SecureRandom randomness = new SecureRandom();
+		MockKeyEncapsulationMechanism kem = new MockKeyEncapsulationMechanism(randomness);
+		MockKeyUpdateableKem failingKuKem = new MockKeyUpdateableKem(randomness) {
+			@Override
+			public List<KuKemSecretKey> updateSecretKeys(List<KuKemSecretKey> secretKeys,
+					KuKemAssociatedData associatedData) {
+				return null;
+			}
+		};
+		QueuedKuKem queuedKuKem = new QueuedKuKem(failingKuKem, kem, new MockKuKemAssociatedDataFactory());
+		queuedKuKem.init(randomness, true);
+		queuedKuKem.gen(randomness);
+
+		MockKeySeed seed = new MockKeySeed(randomness.nextInt());
+		assertThrows(IllegalStateException.class,
+				() -> queuedKuKem.updateSecretKeys(seed, new MockAssociatedData(1), null));
+		KemOutput kemOutput = kem.encapsulate(kem.gen(seed).getPublicKey());
+		assertNull(queuedKuKem.decapsulate(1, new QueuedKuKemCiphertext(kemOutput.getCiphertext(), 1, null)));
+	}
+
+	/**
+	 * Test that the default batch encapsulation fails as a whole, if a single
+	 * encapsulation fails.
+	 */
+	@Test
+	public void testFailedDefaultKuKemEncapsulation() {
+		SecureRandom randomness = new SecureRandom();
+		MockKeyUpdateableKem failingKuKem = new MockKeyUpdateableKem(randomness) {
+			@Override
+			public KuKemOutput encapsulate(KuKemPublicKey publicKey) {
+				return null;
+			}
+		};
+		List<KuKemPublicKey> publicKeys = new ArrayList<KuKemPublicKey>();
+		publicKeys.add(failingKuKem.gen(randomness).getPublicKey());
+		publicKeys.add(failingKuKem.gen(randomness).getPublicKey());
+		assertNull(failingKuKem.encapsulateAll(publicKeys));
+	}
+
+	/**
+	 * Test that the default batch update fails as a whole, if a single update
+	 * fails, so the QueuedKuKem never queues a missing secret key.
+	 */
+	@Test
+	public void testFailedDefaultKuKemUpdate() {
+		SecureRandom randomness = new SecureRandom();
+		MockKeyUpdateableKem failingKuKem = new MockKeyUpdateableKem(randomness) {
+			@Override
+			public KuKemSecretKey updateSecretKey(KuKemSecretKey secretKey, KuKemAssociatedData associatedData) {
+				return null;
+			}
+		};
+		List<KuKemSecretKey> secretKeys = new ArrayList<KuKemSecretKey>();
+		secretKeys.add(failingKuKem.gen(randomness).getSecretKey());
+		secretKeys.add(failingKuKem.gen(randomness).getSecretKey());
+		assertNull(failingKuKem.updateSecretKeys(secretKeys, new MockKuKemAssociatedDataFactory()
+				.createAssociatedData(new MockAssociatedData(1), null)));
+	}
+
 	/**
 	 * Test the mock Kem
 	 */
@@ -1,20 +1,22 @@
 package de.rub.rkeinstantiation.algorithmset;
 
 import de.rub.rke.brke.BrkeAlgorithmSet;
+import de.rub.rke.factories.KemFactory;
 
 import de.rub.rkeinstantiation.factories.BrkeKuKemAssociatedDataFactory;
 import de.rub.rkeinstantiation.factories.BrkeKuKemFactory;
 import de.rub.rkeinstantiation.factories.BrkeTranscriptFactory;
 import de.rub.rkeinstantiation.factories.DLPChameleonSignatureFactory;
-import de.rub.rkeinstantiation.factories.ECIESKemFactory;
+import de.rub.rkeinstantiation.factories.ECChameleonSignatureFactory;
 import de.rub.rkeinstantiation.factories.HKDFRandomOracleFactory;
 
 /**
  * Algorithm Set for the Brke Construction. Uses:
  * HIBE (for kuKem): Lewko-Waters Hibe (prime order translation)[1] 
- * Kem: ECIES-Kem[2]
+ * Kem: ECIES-Kem[2] (brainpoolp256r1, alternatively secp256r1 or a X25519 based Kem)
  * Hash/Rom: HKDF[3]
  * Signature: One-Time Signature based on DLP-Chameleon Hash Function[4]
+ * (alternatively over an elliptic curve group)
  * 
  * Hash Functions used within the algorithms: SHA256/SHA512 (currently)
  * 
@@ -34,10 +36,21 @@ import de.rub.rkeinstantiation.factories.HKDFRandomOracleFactory;
  */
 public class AlgorithmSet1 extends BrkeAlgorithmSet {
 
-	public AlgorithmSet1(BrkeKuKemFactory kuKemFactory, ECIESKemFactory kemFactory,
+	public AlgorithmSet1(BrkeKuKemFactory kuKemFactory, KemFactory kemFactory,
 			HKDFRandomOracleFactory randomOracle, BrkeKuKemAssociatedDataFactory associatedDataFactory,
 			DLPChameleonSignatureFactory signatureFactory, BrkeTranscriptFactory transcriptFactory) {
 		super(kuKemFactory, kemFactory, randomOracle, associatedDataFactory, signatureFactory, transcriptFactory);
 	}
 
+	/**
+	 * Uses the One-Time Signature based on a Chameleon Hash Function over an
+	 * elliptic curve group, which has smaller keys and signatures. Ciphertexts
+	 * have to be decoded with CiphertextEncoder.base64ToCiphertextWithECSignature.
+	 */
+	public AlgorithmSet1(BrkeKuKemFactory kuKemFactory, KemFactory kemFactory,
+			HKDFRandomOracleFactory randomOracle, BrkeKuKemAssociatedDataFactory associatedDataFactory,
+			ECChameleonSignatureFactory signatureFactory, BrkeTranscriptFactory transcriptFactory) {
+		super(kuKemFactory, kemFactory, randomOracle, associatedDataFactory, signatureFactory, transcriptFactory);
+	}
+
 }
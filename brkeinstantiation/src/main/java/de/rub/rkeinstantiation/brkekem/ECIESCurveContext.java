@@ -0,0 +1,88 @@
+package de.rub.rkeinstantiation.brkekem;
+
+import java.math.BigInteger;
+
+import org.bouncycastle.asn1.teletrust.TeleTrusTNamedCurves;
+import org.bouncycastle.asn1.x9.X9ECParameters;
+import org.bouncycastle.crypto.ec.CustomNamedCurves;
+import org.bouncycastle.crypto.params.ECDomainParameters;
+import org.bouncycastle.math.ec.ECMultiplier;
+import org.bouncycastle.math.ec.ECPoint;
+import org.bouncycastle.math.ec.FixedPointCombMultiplier;
+import org.bouncycastle.math.ec.FixedPointUtil;
+
+/**
+ * Immutable curve context for the ECIES Kem.
+ *
+ * Holds the domain parameters and a fixed-base comb multiplier for the
+ * generator. The comb table is precomputed once, when the context is created,
+ * and is stored with the generator. Thus, all Kems, which use the same context,
+ * share the table. The context can be used by several threads.
+ *
+ * @author Marco Smeets
+ *
+ */
+public final class ECIESCurveContext {
+
+	private static final ECIESCurveContext BRAINPOOLP256R1 = new ECIESCurveContext(
+			TeleTrusTNamedCurves.getByName("brainpoolp256r1"));
+	private static final ECIESCurveContext SECP256R1 = new ECIESCurveContext(
+			CustomNamedCurves.getByName("secp256r1"));
+
+	private final ECDomainParameters ecParameter;
+	private final ECMultiplier generatorMultiplier;
+
+	/**
+	 * Creates the context for the given curve and precomputes the comb table for
+	 * its generator.
+	 *
+	 * @param curveSpecs - specification of the curve
+	 */
+	public ECIESCurveContext(X9ECParameters curveSpecs) {
+		this(new ECDomainParameters(curveSpecs.getCurve(), curveSpecs.getG(), curveSpecs.getN()));
+	}
+
+	/**
+	 * Creates the context for the given domain parameters and precomputes the comb
+	 * table for the generator.
+	 *
+	 * @param ecParameter - domain parameters of the curve
+	 */
+	public ECIESCurveContext(ECDomainParameters ecParameter) {
+		this.ecParameter = ecParameter;
+		generatorMultiplier = new FixedPointCombMultiplier();
+		FixedPointUtil.precompute(ecParameter.getG());
+	}
+
+	/**
+	 * @return the shared context for the curve 'brainpoolp256r1'
+	 */
+	public static ECIESCurveContext getBrainpoolP256r1() {
+		return BRAINPOOLP256R1;
+	}
+
+	/**
+	 * @return the shared context for the curve 'secp256r1' (NIST P-256), which
+	 *         uses the custom curve arithmetic of bouncy castle
+	 */
+	public static ECIESCurveContext getSecp256r1() {
+		return SECP256R1;
+	}
+
+	/**
+	 * Multiplies the generator with the comb table.
+	 *
+	 * @param k - scalar
+	 * @return k*G
+	 */
+	public ECPoint multiplyGenerator(BigInteger k) {
+		return generatorMultiplier.multiply(ecParameter.getG(), k);
+	}
+
+	/**
+	 * @return the domain parameters of the curve
+	 */
+	public ECDomainParameters getParameters() {
+		return ecParameter;
+	}
+}
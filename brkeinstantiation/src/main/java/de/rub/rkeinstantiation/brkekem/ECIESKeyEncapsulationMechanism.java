@@ -1,17 +1,21 @@
 package de.rub.rkeinstantiation.brkekem;
 
+import java.math.BigInteger;
 import java.security.SecureRandom;
 
 import org.bouncycastle.crypto.AsymmetricCipherKeyPair;
 import org.bouncycastle.crypto.CipherParameters;
 import org.bouncycastle.crypto.DerivationFunction;
-import org.bouncycastle.crypto.generators.ECKeyPairGenerator;
 import org.bouncycastle.crypto.kems.ECIESKeyEncapsulation;
 import org.bouncycastle.crypto.params.ECDomainParameters;
-import org.bouncycastle.crypto.params.ECKeyGenerationParameters;
 import org.bouncycastle.crypto.params.ECPrivateKeyParameters;
 import org.bouncycastle.crypto.params.ECPublicKeyParameters;
+import org.bouncycastle.crypto.params.KDFParameters;
 import org.bouncycastle.crypto.params.KeyParameter;
+import org.bouncycastle.math.ec.ECPoint;
+import org.bouncycastle.math.ec.WNafUtil;
+import org.bouncycastle.util.Arrays;
+import org.bouncycastle.util.BigIntegers;
 
 import de.rub.rke.kem.KemCiphertext;
 import de.rub.rke.kem.KemKeyPair;
@@ -28,6 +32,10 @@ import de.rub.rkeinstantiation.variables.BrkeSymmetricKey;
  * Implementation of an ECIES Kem[1] (provided by bouncy castle) for the use in
  * the Brke construction.
  * 
+ * Key generation and encapsulation multiply the generator with the precomputed
+ * comb table of the curve context. The encapsulation produces the same
+ * ciphertexts and keys as the ECIES Kem of bouncy castle, which is used for the
+ * decapsulation.
  * 
  * [1] ISO/IEC 18033-2: Information techology - Security techniques 
  * Encryption algorithms - Part 2: Asymmetric Ciphers
@@ -39,18 +47,11 @@ import de.rub.rkeinstantiation.variables.BrkeSymmetricKey;
 public class ECIESKeyEncapsulationMechanism implements KeyEncapsulationMechanism {
 
 	private ECIESKeyEncapsulation eciesKem;
+	private ECIESCurveContext curveContext;
 	private ECDomainParameters ecParameter;
-	private int ciphertextSize;
+	private DerivationFunction kdf;
+	private SecureRandom randomness;
 	private int generatedKeyLength;
-	/**
-	 * To calculate the size of the ciphertext, we have to calculate the size of an encoded point.
-	 * We use the following formula for a point P on a curve for ECIES-Kem[1]:
-	 *  1+2*(log_256(F)) , where F is the field size.
-	 *  We store two coordinates (x & y) and one byte of information, wether the point is compressed or not.
-	 */
-	private final int SIZE_OF_BYTE = 8;
-	private final int NUMBER_OF_COORDINATES = 2;
-	private final int SIZE_OF_COMPRESSION_INFO = 1;
 
 	/**
 	 * Creates an ECIES Kem. Uses the provided elliptic curve and key derivation
@@ -63,28 +64,58 @@ public class ECIESKeyEncapsulationMechanism implements KeyEncapsulationMechanism
 	 */
 	public ECIESKeyEncapsulationMechanism(ECDomainParameters ecParameter, DerivationFunction kdf,
 			SecureRandom randomness, int generatedKeyLength) {
+		this(new ECIESCurveContext(ecParameter), kdf, randomness, generatedKeyLength);
+	}
+
+	/**
+	 * Creates an ECIES Kem. Uses the provided curve context, which may be shared
+	 * with other Kems, and key derivation function.
+	 * 
+	 * @param curveContext
+	 * @param kdf
+	 * @param randomness
+	 * @param generatedKeyLength
+	 */
+	public ECIESKeyEncapsulationMechanism(ECIESCurveContext curveContext, DerivationFunction kdf,
+			SecureRandom randomness, int generatedKeyLength) {
 		eciesKem = new ECIESKeyEncapsulation(kdf, randomness);
-		this.ecParameter = ecParameter;
-		ciphertextSize = (ecParameter.getCurve().getFieldSize() / SIZE_OF_BYTE) * NUMBER_OF_COORDINATES + SIZE_OF_COMPRESSION_INFO;
+		this.curveContext = curveContext;
+		this.ecParameter = curveContext.getParameters();
+		this.kdf = kdf;
+		this.randomness = randomness;
 		this.generatedKeyLength = generatedKeyLength;
 	}
 
 	@Override
 	public KemKeyPair gen(SecureRandom randomness) {
-		ECKeyPairGenerator keyPairGenerator = new ECKeyPairGenerator();
-		keyPairGenerator.init(new ECKeyGenerationParameters(ecParameter, randomness));
-		AsymmetricCipherKeyPair keyPair = keyPairGenerator.generateKeyPair();
-		return new ECIESKemKeyPair(keyPair);
+		return generateKeyPair(randomness);
 	}
 
 	@Override
 	public KemKeyPair gen(KeySeed seed) {
-		SecureRandom randomness = SecureRandomBuilder.createSeedableRandomness();
-		randomness.setSeed(seed.getSeedAsBytes());
-		ECKeyPairGenerator keyPairGenerator = new ECKeyPairGenerator();
-		keyPairGenerator.init(new ECKeyGenerationParameters(ecParameter, randomness));
-		AsymmetricCipherKeyPair keyPair = keyPairGenerator.generateKeyPair();
-		return new ECIESKemKeyPair(keyPair);
+		SecureRandom randomness = SecureRandomBuilder.createDeterministicRandomness(seed.getSeedAsBytes());
+		return generateKeyPair(randomness);
+	}
+
+	/**
+	 * Generates a key pair. The secret key is sampled like in the ECKeyPairGenerator
+	 * of bouncy castle, so a seed results in the same key pair as before.
+	 * 
+	 * @param randomness
+	 * @return generated key pair
+	 */
+	private KemKeyPair generateKeyPair(SecureRandom randomness) {
+		BigInteger n = ecParameter.getN();
+		int nBitLength = n.bitLength();
+		int minWeight = nBitLength >>> 2;
+		BigInteger d;
+		do {
+			d = BigIntegers.createRandomBigInteger(nBitLength, randomness);
+		} while (d.compareTo(BigInteger.valueOf(2)) < 0 || d.compareTo(n) >= 0
+				|| WNafUtil.getNafWeight(d) < minWeight);
+		ECPoint q = curveContext.multiplyGenerator(d);
+		return new ECIESKemKeyPair(new AsymmetricCipherKeyPair(new ECPublicKeyParameters(q, ecParameter),
+				new ECPrivateKeyParameters(d, ecParameter)));
 	}
 
 	/**
@@ -96,13 +127,23 @@ public class ECIESKeyEncapsulationMechanism implements KeyEncapsulationMechanism
 		return null;
 	}
 
+	/**
+	 * Encapsulates as described in [1]: The ciphertext is r*G (uncompressed) and
+	 * the key is derived from the ciphertext and the x-coordinate of r*Q.
+	 */
 	@Override
 	public KemOutput encapsulate(KemPublicKey publicKey) {
 		ECPublicKeyParameters ecPublicKey = ((ECIESKemPublicKey) publicKey).getECPublicParameter();
-		byte[] ciphertext = new byte[ciphertextSize];
-		eciesKem.init(ecPublicKey);
-		CipherParameters generatedKey = eciesKem.encrypt(ciphertext, generatedKeyLength);
-		return new ECIESKemOutput((KeyParameter) generatedKey, ciphertext);
+		BigInteger r = BigIntegers.createRandomInRange(BigInteger.ONE, ecParameter.getN(), randomness);
+		ECPoint[] points = new ECPoint[] { curveContext.multiplyGenerator(r), ecPublicKey.getQ().multiply(r) };
+		ecParameter.getCurve().normalizeAll(points);
+		byte[] ciphertext = points[0].getEncoded(false);
+		byte[] kdfInput = Arrays.concatenate(ciphertext, points[1].getAffineXCoord().getEncoded());
+		byte[] generatedKey = new byte[generatedKeyLength];
+		kdf.init(new KDFParameters(kdfInput, null));
+		kdf.generateBytes(generatedKey, 0, generatedKey.length);
+		Arrays.fill(kdfInput, (byte) 0);
+		return new ECIESKemOutput(new KeyParameter(generatedKey), ciphertext);
 	}
 
 	@Override
@@ -0,0 +1,35 @@
+package de.rub.rkeinstantiation.brkekem;
+
+import org.bouncycastle.crypto.params.X25519PrivateKeyParameters;
+
+import de.rub.rke.kem.KemKeyPair;
+import de.rub.rke.kem.KemPublicKey;
+import de.rub.rke.kem.KemSecretKey;
+
+/**
+ * Class that holds the key pair for a X25519 Kem
+ * 
+ * @author Marco Smeets
+ *
+ */
+public class X25519KemKeyPair implements KemKeyPair {
+
+	private X25519KemSecretKey secretKey;
+	private X25519KemPublicKey publicKey;
+
+	public X25519KemKeyPair(X25519PrivateKeyParameters secretKey) {
+		this.secretKey = new X25519KemSecretKey(secretKey);
+		publicKey = new X25519KemPublicKey(secretKey.generatePublicKey());
+	}
+
+	@Override
+	public KemSecretKey getSecretKey() {
+		return secretKey;
+	}
+
+	@Override
+	public KemPublicKey getPublicKey() {
+		return publicKey;
+	}
+
+}
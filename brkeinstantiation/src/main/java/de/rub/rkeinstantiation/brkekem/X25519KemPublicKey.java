@@ -0,0 +1,24 @@
+package de.rub.rkeinstantiation.brkekem;
+
+import org.bouncycastle.crypto.params.X25519PublicKeyParameters;
+
+import de.rub.rke.kem.KemPublicKey;
+
+/**
+ * Class that holds the public key of a X25519 Kem
+ * 
+ * @author Marco Smeets
+ *
+ */
+public class X25519KemPublicKey implements KemPublicKey {
+
+	private X25519PublicKeyParameters publicKey;
+
+	public X25519KemPublicKey(X25519PublicKeyParameters publicKey) {
+		this.publicKey = publicKey;
+	}
+
+	public X25519PublicKeyParameters getX25519PublicParameter() {
+		return publicKey;
+	}
+}
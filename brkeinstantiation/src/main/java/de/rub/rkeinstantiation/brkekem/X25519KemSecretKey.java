@@ -0,0 +1,25 @@
+package de.rub.rkeinstantiation.brkekem;
+
+import org.bouncycastle.crypto.params.X25519PrivateKeyParameters;
+
+import de.rub.rke.kem.KemSecretKey;
+
+/**
+ * Class that holds a Secret Key for a X25519 Kem
+ * 
+ * @author Marco Smeets
+ *
+ */
+public class X25519KemSecretKey implements KemSecretKey {
+
+	private X25519PrivateKeyParameters secretKey;
+
+	public X25519KemSecretKey(X25519PrivateKeyParameters secretKey) {
+		this.secretKey = secretKey;
+	}
+
+	public X25519PrivateKeyParameters getX25519SecretParameter() {
+		return secretKey;
+	}
+
+}
@@ -0,0 +1,144 @@
+package de.rub.rkeinstantiation.brkekem;
+
+import java.security.SecureRandom;
+
+import org.bouncycastle.crypto.DerivationFunction;
+import org.bouncycastle.crypto.params.KDFParameters;
+import org.bouncycastle.crypto.params.KeyParameter;
+import org.bouncycastle.crypto.params.X25519PrivateKeyParameters;
+import org.bouncycastle.crypto.params.X25519PublicKeyParameters;
+import org.bouncycastle.util.Arrays;
+
+import de.rub.rke.kem.KemCiphertext;
+import de.rub.rke.kem.KemKeyPair;
+import de.rub.rke.kem.KemOutput;
+import de.rub.rke.kem.KemPublicKey;
+import de.rub.rke.kem.KemSecretKey;
+import de.rub.rke.kem.KeyEncapsulationMechanism;
+import de.rub.rke.variables.KeySeed;
+import de.rub.rke.variables.SymmetricKey;
+import de.rub.rkeinstantiation.utility.SecureRandomBuilder;
+import de.rub.rkeinstantiation.variables.BrkeSymmetricKey;
+
+/**
+ * Implementation of a Diffie Hellman Kem over Curve25519 (X25519[1], provided by
+ * bouncy castle) for the use in the Brke construction.
+ *
+ * The Kem works like the ECIES Kem[2]: The ciphertext is the public key of an
+ * ephemeral key pair and the key is derived from the ciphertext and the shared
+ * secret of the ephemeral secret key and the public key. The ciphertexts use
+ * the ciphertext class of the ECIES Kem, thus, they are encoded like the
+ * ciphertexts of the ECIES Kem.
+ *
+ * [1] RFC 7748: Elliptic Curves for Security
+ * https://tools.ietf.org/html/rfc7748
+ * [2] ISO/IEC 18033-2: Information techology - Security techniques
+ * Encryption algorithms - Part 2: Asymmetric Ciphers
+ * https://www.shoup.net/iso/std4.pdf
+ *
+ * @author Marco Smeets
+ *
+ */
+public class X25519KeyEncapsulationMechanism implements KeyEncapsulationMechanism {
+
+	private DerivationFunction kdf;
+	private SecureRandom randomness;
+	private int generatedKeyLength;
+
+	/**
+	 * Creates a X25519 Kem. Uses the provided key derivation function.
+	 *
+	 * @param kdf
+	 * @param randomness
+	 * @param generatedKeyLength
+	 */
+	public X25519KeyEncapsulationMechanism(DerivationFunction kdf, SecureRandom randomness,
+			int generatedKeyLength) {
+		this.kdf = kdf;
+		this.randomness = randomness;
+		this.generatedKeyLength = generatedKeyLength;
+	}
+
+	@Override
+	public KemKeyPair gen(SecureRandom randomness) {
+		return new X25519KemKeyPair(new X25519PrivateKeyParameters(randomness));
+	}
+
+	@Override
+	public KemKeyPair gen(KeySeed seed) {
+		SecureRandom randomness = SecureRandomBuilder.createDeterministicRandomness(seed.getSeedAsBytes());
+		return new X25519KemKeyPair(new X25519PrivateKeyParameters(randomness));
+	}
+
+	/**
+	 * Computes the public key of the secret key.
+	 */
+	@Override
+	public KemPublicKey gen(KemSecretKey secretKey) {
+		return new X25519KemPublicKey(((X25519KemSecretKey) secretKey).getX25519SecretParameter().generatePublicKey());
+	}
+
+	/**
+	 * Encapsulates to the public key.
+	 *
+	 * @throws IllegalArgumentException if the public key is a point of small order
+	 */
+
+	@Override
+	public KemOutput encapsulate(KemPublicKey publicKey) {
+		X25519PublicKeyParameters x25519PublicKey = ((X25519KemPublicKey) publicKey).getX25519PublicParameter();
+		X25519PrivateKeyParameters ephemeralSecretKey = new X25519PrivateKeyParameters(randomness);
+		byte[] ciphertext = ephemeralSecretKey.generatePublicKey().getEncoded();
+		byte[] sharedSecret = new byte[X25519PrivateKeyParameters.SECRET_SIZE];
+		try {
+			ephemeralSecretKey.generateSecret(x25519PublicKey, sharedSecret, 0);
+		} catch (IllegalStateException e) {
+			/**
+			 * The public key is a point of small order.
+			 */
+			throw new IllegalArgumentException("X25519 public key is a point of small order.", e);
+		}
+		return new ECIESKemOutput(deriveKey(ciphertext, sharedSecret), ciphertext);
+	}
+
+	/**
+	 * Decapsulates the ciphertext.
+	 *
+	 * @throws IllegalArgumentException if the ciphertext has not the size of a
+	 *                                  X25519 public key or is a point of small
+	 *                                  order
+	 */
+	@Override
+	public SymmetricKey decapsulate(KemSecretKey secretKey, KemCiphertext ciphertext) {
+		X25519PrivateKeyParameters x25519SecretKey = ((X25519KemSecretKey) secretKey).getX25519SecretParameter();
+		byte[] encodedCiphertext = ((ECIESKemCiphertext) ciphertext).getCiphertext();
+		if (encodedCiphertext.length != X25519PublicKeyParameters.KEY_SIZE) {
+			throw new IllegalArgumentException("X25519 ciphertext has an invalid size.");
+		}
+		byte[] sharedSecret = new byte[X25519PrivateKeyParameters.SECRET_SIZE];
+		try {
+			x25519SecretKey.generateSecret(new X25519PublicKeyParameters(encodedCiphertext, 0), sharedSecret, 0);
+		} catch (IllegalStateException e) {
+			throw new IllegalArgumentException("X25519 ciphertext is a point of small order.", e);
+		}
+		return new BrkeSymmetricKey(deriveKey(encodedCiphertext, sharedSecret).getKey());
+	}
+
+	/**
+	 * Derives the key from the ciphertext and the shared secret.
+	 *
+	 * @param ciphertext
+	 * @param sharedSecret
+	 * @return derived key
+	 */
+	private KeyParameter deriveKey(byte[] ciphertext, byte[] sharedSecret) {
+		byte[] kdfInput = Arrays.concatenate(ciphertext, sharedSecret);
+		byte[] generatedKey = new byte[generatedKeyLength];
+		kdf.init(new KDFParameters(kdfInput, null));
+		kdf.generateBytes(generatedKey, 0, generatedKey.length);
+		Arrays.fill(kdfInput, (byte) 0);
+		Arrays.fill(sharedSecret, (byte) 0);
+		return new KeyParameter(generatedKey);
+	}
+
+}
@@ -1,6 +1,8 @@
 package de.rub.rkeinstantiation.brkekukem;
 
 import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
 
 import de.rub.rke.kukem.KeyUpdateableKem;
 import de.rub.rke.kukem.KuKemAssociatedData;
@@ -12,9 +14,12 @@ import de.rub.rke.kukem.KuKemSecretKey;
 import de.rub.rke.variables.KeySeed;
 import de.rub.rke.variables.SymmetricKey;
 import de.rub.rkeinstantiation.hibewrapper.Hibe;
+import de.rub.rkeinstantiation.hibewrapper.HibeIdentity;
 import de.rub.rkeinstantiation.hibewrapper.HibeKeyPair;
 import de.rub.rkeinstantiation.hibewrapper.HibeOutput;
+import de.rub.rkeinstantiation.hibewrapper.HibePublicParameter;
 import de.rub.rkeinstantiation.hibewrapper.HibeSecretKey;
+import de.rub.rkeinstantiation.utility.SecureRandomBuilder;
 import de.rub.rkeinstantiation.variables.BrkeSymmetricKey;
 
 /**
@@ -31,6 +36,11 @@ public class BrkeKuKem implements KeyUpdateableKem {
 	private Hibe hibeAlgorithm;
 	private SecureRandom randomness;
 	private int identitySize;
+	/**
+	 * Number of native threads, which are used to encapsulate to several public
+	 * keys or to update several secret keys at once.
+	 */
+	private int numberOfBatchThreads = 1;
 
 	/**
 	 * Constructs a kuKem.
@@ -44,6 +54,51 @@ public class BrkeKuKem implements KeyUpdateableKem {
 		this.randomness = randomness;
 	}
 
+	/**
+	 * Constructs a kuKem.
+	 * 
+	 * @param randomness      - internal randomness to generate keys.
+	 * @param identitySize    - Size of the identity Data
+	 * @param keepKeysDecoded - keep the Hibe keys decoded in native memory
+	 */
+	public BrkeKuKem(SecureRandom randomness, int identitySize, boolean keepKeysDecoded) {
+		this(randomness, identitySize, keepKeysDecoded, false);
+	}
+
+	/**
+	 * Constructs a kuKem.
+	 * 
+	 * @param randomness       - internal randomness to generate keys.
+	 * @param identitySize     - Size of the identity Data
+	 * @param keepKeysDecoded  - keep the Hibe keys decoded in native memory
+	 * @param useDirectBuffers - pass data to the Hibe in pooled direct buffers,
+	 *                         cannot be combined with 'keepKeysDecoded'
+	 */
+	public BrkeKuKem(SecureRandom randomness, int identitySize, boolean keepKeysDecoded, boolean useDirectBuffers) {
+		hibeAlgorithm = new Hibe(identitySize, keepKeysDecoded, useDirectBuffers);
+		this.identitySize = identitySize;
+		this.randomness = randomness;
+	}
+
+	/**
+	 * Constructs a kuKem.
+	 * 
+	 * @param randomness           - internal randomness to generate keys.
+	 * @param identitySize         - Size of the identity Data
+	 * @param keepKeysDecoded      - keep the Hibe keys decoded in native memory
+	 * @param useDirectBuffers     - pass data to the Hibe in pooled direct
+	 *                             buffers, cannot be combined with
+	 *                             'keepKeysDecoded'
+	 * @param numberOfBatchThreads - number of native threads used to encapsulate
+	 *                             to several public keys or to update several
+	 *                             secret keys
+	 */
+	public BrkeKuKem(SecureRandom randomness, int identitySize, boolean keepKeysDecoded, boolean useDirectBuffers,
+			int numberOfBatchThreads) {
+		this(randomness, identitySize, keepKeysDecoded, useDirectBuffers);
+		this.numberOfBatchThreads = numberOfBatchThreads;
+	}
+
 	/**
 	 * Generates a kuKem key pair. Uses {1}^32 as initial identity.
 	 */
@@ -63,7 +118,7 @@ public class BrkeKuKem implements KeyUpdateableKem {
 	 */
 	@Override
 	public KuKemKeyPair gen(KeySeed seed) {
-		SecureRandom randomness = new SecureRandom(seed.getSeedAsBytes());
+		SecureRandom randomness = SecureRandomBuilder.createDeterministicRandomness(seed.getSeedAsBytes());
 		byte[] initialIdentity = new byte[identitySize];
 		for (int i = 0; i < identitySize; i++) {
 			initialIdentity[i] = 1;
@@ -90,11 +145,9 @@ public class BrkeKuKem implements KeyUpdateableKem {
 	@Override
 	public KuKemPublicKey updatePublicKey(KuKemPublicKey publicKey, KuKemAssociatedData associatedData) {
 		BrkeKuKemAssociatedData ad = (BrkeKuKemAssociatedData) associatedData;
-		BrkeKuKemPublicKey updatedKey = new BrkeKuKemPublicKey(
-				((BrkeKuKemPublicKey) publicKey).getHibePublicParameter(),
-				((BrkeKuKemPublicKey) publicKey).getIdentityInformation(), ((BrkeKuKemPublicKey) publicKey).getLevel());
-		updatedKey.appendIdentityInformation(ad.getAssociatedData());
-		return updatedKey;
+		BrkeKuKemPublicKey brkePublicKey = (BrkeKuKemPublicKey) publicKey;
+		return new BrkeKuKemPublicKey(brkePublicKey.getHibePublicParameter(),
+				brkePublicKey.identity().append(ad.getAssociatedData()));
 	}
 
 	/**
@@ -105,13 +158,38 @@ public class BrkeKuKem implements KeyUpdateableKem {
 	public KuKemSecretKey updateSecretKey(KuKemSecretKey secretKey, KuKemAssociatedData associatedData) {
 		BrkeKuKemAssociatedData ad = (BrkeKuKemAssociatedData) associatedData;
 		BrkeKuKemSecretKey brkeSecretKey = (BrkeKuKemSecretKey) secretKey;
-		byte[] identity = brkeSecretKey.getIdentityInformation();
-		byte[] newIdentity = new byte[identity.length + ad.getAssociatedData().length];
-		System.arraycopy(identity, 0, newIdentity, 0, identity.length);
-		System.arraycopy(ad.getAssociatedData(), 0, newIdentity, identity.length, ad.getAssociatedData().length);
+		HibeIdentity newIdentity = brkeSecretKey.identity().append(ad.getAssociatedData());
 		HibeSecretKey newSecretKey = hibeAlgorithm.delegate(brkeSecretKey.getHibeSecretKey(), newIdentity,
-				brkeSecretKey.getLevel() + 1, randomness);
-		return new BrkeKuKemSecretKey(newSecretKey, newIdentity, brkeSecretKey.getLevel() + 1);
+				randomness);
+		return new BrkeKuKemSecretKey(newSecretKey, newIdentity);
+	}
+
+	/**
+	 * Updates several kuKem secret Keys using the same associated Data. The Hibe
+	 * delegates all keys at once.
+	 */
+	@Override
+	public List<KuKemSecretKey> updateSecretKeys(List<KuKemSecretKey> secretKeys,
+			KuKemAssociatedData associatedData) {
+		byte[] associatedDataBytes = ((BrkeKuKemAssociatedData) associatedData).getAssociatedData();
+		List<HibeSecretKey> hibeSecretKeys = new ArrayList<HibeSecretKey>(secretKeys.size());
+		List<HibeIdentity> identities = new ArrayList<HibeIdentity>(secretKeys.size());
+		for (int i = 0; i < secretKeys.size(); i++) {
+			BrkeKuKemSecretKey brkeSecretKey = (BrkeKuKemSecretKey) secretKeys.get(i);
+			hibeSecretKeys.add(brkeSecretKey.getHibeSecretKey());
+			identities.add(brkeSecretKey.identity());
+		}
+		List<HibeSecretKey> newSecretKeys = hibeAlgorithm.delegateAll(hibeSecretKeys, identities,
+				associatedDataBytes, randomness, numberOfBatchThreads);
+		if (newSecretKeys == null) {
+			return null;
+		}
+		List<KuKemSecretKey> updatedKeys = new ArrayList<KuKemSecretKey>(secretKeys.size());
+		for (int i = 0; i < secretKeys.size(); i++) {
+			updatedKeys.add(
+					new BrkeKuKemSecretKey(newSecretKeys.get(i), identities.get(i).append(associatedDataBytes)));
+		}
+		return updatedKeys;
 	}
 
 	/**
@@ -121,10 +199,36 @@ public class BrkeKuKem implements KeyUpdateableKem {
 	public KuKemOutput encapsulate(KuKemPublicKey publicKey) {
 		BrkeKuKemPublicKey brkePublicKey = (BrkeKuKemPublicKey) publicKey;
 		HibeOutput hibeOutput = hibeAlgorithm.encapsulate(brkePublicKey.getHibePublicParameter(),
-				brkePublicKey.getIdentityInformation(), brkePublicKey.getLevel(), randomness);
+				brkePublicKey.identity(), randomness);
 		return new BrkeKuKemOutput(hibeOutput.getGeneratedKey(), new BrkeKuKemCiphertext(hibeOutput.getCiphertext()));
 	}
 
+	/**
+	 * Generates and encapsulates a symmetric key under every public key. The Hibe
+	 * encapsulates the whole batch at once.
+	 */
+	@Override
+	public List<KuKemOutput> encapsulateAll(List<KuKemPublicKey> publicKeys) {
+		List<HibePublicParameter> publicParameters = new ArrayList<HibePublicParameter>(publicKeys.size());
+		List<HibeIdentity> identities = new ArrayList<HibeIdentity>(publicKeys.size());
+		for (int i = 0; i < publicKeys.size(); i++) {
+			BrkeKuKemPublicKey brkePublicKey = (BrkeKuKemPublicKey) publicKeys.get(i);
+			publicParameters.add(brkePublicKey.getHibePublicParameter());
+			identities.add(brkePublicKey.identity());
+		}
+		List<HibeOutput> hibeOutputs = hibeAlgorithm.encapsulateAll(publicParameters, identities, randomness,
+				numberOfBatchThreads);
+		if (hibeOutputs == null) {
+			return null;
+		}
+		List<KuKemOutput> outputs = new ArrayList<KuKemOutput>(hibeOutputs.size());
+		for (HibeOutput hibeOutput : hibeOutputs) {
+			outputs.add(new BrkeKuKemOutput(hibeOutput.getGeneratedKey(),
+					new BrkeKuKemCiphertext(hibeOutput.getCiphertext())));
+		}
+		return outputs;
+	}
+
 	/**
 	 * Decapsulates a kuKem Ciphertext using the kuKem Secret Key.
 	 */
@@ -133,7 +237,7 @@ public class BrkeKuKem implements KeyUpdateableKem {
 		BrkeKuKemSecretKey brkeSecretKey = (BrkeKuKemSecretKey) secretKey;
 		BrkeKuKemCiphertext brkeCiphertext = (BrkeKuKemCiphertext) ciphertext;
 		byte[] generatedKey = hibeAlgorithm.decapsulate(brkeSecretKey.getHibeSecretKey(),
-				brkeCiphertext.getCiphertext(), brkeSecretKey.getIdentityInformation(), brkeSecretKey.getLevel());
+				brkeCiphertext.getCiphertext(), brkeSecretKey.identity());
 		if (generatedKey == null) {
 			return null;
 		}
@@ -1,20 +1,30 @@
 package de.rub.rkeinstantiation.brkekukem;
 
-import org.bouncycastle.util.Arrays;
-
 import de.rub.rke.kukem.KuKemPublicKey;
+import de.rub.rkeinstantiation.hibewrapper.HibeIdentity;
 import de.rub.rkeinstantiation.hibewrapper.HibePublicParameter;
 
 /**
  * Class for the kuKem public key.
  * 
+ * The identities are kept in an append-only HibeIdentity, so an update does
+ * not copy the identities of the key. The identity information is only used to
+ * reconstruct the key from JSON. Updated keys share the public parameters of
+ * the key, and public parameters from JSON are interned, so all keys of the
+ * same parameters use one object.
+ * 
  * @author Marco Smeets
  *
  */
 public class BrkeKuKemPublicKey implements KuKemPublicKey {
 
 	private HibePublicParameter hibePublicParameter;
+	/**
+	 * Only set for keys, which were reconstructed from JSON. It is kept, so that
+	 * concurrent first calls of identity() can encode it.
+	 */
 	private byte[] identityInformation;
+	private volatile HibeIdentity identity;
 	private int level;
 
 	/**
@@ -25,17 +35,18 @@ public class BrkeKuKemPublicKey implements KuKemPublicKey {
 	}
 
 	public BrkeKuKemPublicKey(HibePublicParameter hibePublicParameter, byte[] identityInformation, int level) {
+		this(hibePublicParameter,
+				HibeIdentity.fromIdentityInformation(identityInformation, identityInformation.length / level, level));
+	}
+
+	public BrkeKuKemPublicKey(HibePublicParameter hibePublicParameter, HibeIdentity identity) {
 		this.hibePublicParameter = hibePublicParameter;
-		this.identityInformation = Arrays.copyOf(identityInformation, identityInformation.length);
-		this.level = level;
+		this.identity = identity;
+		this.level = identity.getLevel();
 	}
 
 	public void appendIdentityInformation(byte[] identityInformation) {
-		byte[] newIdentityInformation = new byte[this.identityInformation.length + identityInformation.length];
-		System.arraycopy(this.identityInformation, 0, newIdentityInformation, 0, this.identityInformation.length);
-		System.arraycopy(identityInformation, 0, newIdentityInformation, this.identityInformation.length,
-				identityInformation.length);
-		this.identityInformation = Arrays.copyOf(newIdentityInformation, newIdentityInformation.length);
+		identity = identity().append(identityInformation);
 		level++;
 	}
 
@@ -43,8 +54,33 @@ public class BrkeKuKemPublicKey implements KuKemPublicKey {
 		return hibePublicParameter;
 	}
 
+	/**
+	 * Used to reconstruct the key from JSON.
+	 */
+	@SuppressWarnings("unused")
+	private void setHibePublicParameter(HibePublicParameter hibePublicParameter) {
+		this.hibePublicParameter = HibePublicParameter.intern(hibePublicParameter);
+	}
+
 	public byte[] getIdentityInformation() {
-		return identityInformation;
+		return identity().getIdentityInformation();
+	}
+
+	/**
+	 * Returns the identity vector of the key. A key, which was reconstructed from
+	 * JSON, encodes its identity information on first use. Concurrent first calls
+	 * may encode it twice, but the results are equal.
+	 * 
+	 * @return identity vector
+	 */
+	public HibeIdentity identity() {
+		HibeIdentity currentIdentity = identity;
+		if (currentIdentity == null) {
+			currentIdentity = HibeIdentity.fromIdentityInformation(identityInformation,
+					identityInformation.length / level, level);
+			identity = currentIdentity;
+		}
+		return currentIdentity;
 	}
 
 	public int getLevel() {
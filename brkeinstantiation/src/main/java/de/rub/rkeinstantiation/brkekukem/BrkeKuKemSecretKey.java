@@ -1,8 +1,7 @@
 package de.rub.rkeinstantiation.brkekukem;
 
-import org.bouncycastle.util.Arrays;
-
 import de.rub.rke.kukem.KuKemSecretKey;
+import de.rub.rkeinstantiation.hibewrapper.HibeIdentity;
 import de.rub.rkeinstantiation.hibewrapper.HibeSecretKey;
 
 /**
@@ -14,13 +13,16 @@ import de.rub.rkeinstantiation.hibewrapper.HibeSecretKey;
 public class BrkeKuKemSecretKey implements KuKemSecretKey {
 
 	private HibeSecretKey hibeSecretKey;
-	private byte[] identityInformation;
-	private int level;
+	private HibeIdentity identity;
 
 	public BrkeKuKemSecretKey(HibeSecretKey hibeSecretKey, byte[] identityInformation, int level) {
+		this(hibeSecretKey,
+				HibeIdentity.fromIdentityInformation(identityInformation, identityInformation.length / level, level));
+	}
+
+	public BrkeKuKemSecretKey(HibeSecretKey hibeSecretKey, HibeIdentity identity) {
 		this.hibeSecretKey = hibeSecretKey;
-		this.identityInformation = Arrays.copyOf(identityInformation, identityInformation.length);
-		this.level = level;
+		this.identity = identity;
 	}
 
 	public HibeSecretKey getHibeSecretKey() {
@@ -28,10 +30,14 @@ public class BrkeKuKemSecretKey implements KuKemSecretKey {
 	}
 
 	public byte[] getIdentityInformation() {
-		return identityInformation;
+		return identity.getIdentityInformation();
+	}
+
+	public HibeIdentity identity() {
+		return identity;
 	}
 
 	public int getLevel() {
-		return level;
+		return identity.getLevel();
 	}
 }
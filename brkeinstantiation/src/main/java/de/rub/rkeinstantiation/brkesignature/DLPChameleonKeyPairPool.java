@@ -0,0 +1,231 @@
+package de.rub.rkeinstantiation.brkesignature;
+
+import java.security.SecureRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.bouncycastle.crypto.Digest;
+import org.bouncycastle.crypto.params.DHParameters;
+import org.bouncycastle.util.Memoable;
+
+/**
+ * Pool of key pairs for the DLP-Based Signature, which are generated in the
+ * background. The key generation does not depend on the signed message, so it
+ * is moved out of the send path of the Brke construction.
+ *
+ * The pool is filled up to 'capacity' key pairs by the executor, when it is
+ * constructed and whenever a key pair is taken. Every scheduled generation
+ * creates a single key pair with its own copy of the hash function. The
+ * missing key pairs are reserved before they are scheduled, so concurrent
+ * refills do not generate more key pairs than the pool can hold. A pool can be
+ * shared by several signature managers, if they use the same group parameters
+ * and hash function.
+ *
+ * @author Marco Smeets
+ *
+ */
+public class DLPChameleonKeyPairPool {
+
+	private DHParameters groupParameters;
+	private Digest hash;
+	private SecureRandom randomness;
+	private int capacity;
+	private BlockingQueue<DLPChameleonKeyPair> keyPairs;
+	private Executor executor;
+	/**
+	 * Set, if the pool created the executor. Only then it is shut down by the
+	 * pool.
+	 */
+	private ExecutorService ownedExecutor;
+	/**
+	 * Number of key pairs, which are scheduled, but not in the pool yet.
+	 */
+	private AtomicInteger pendingKeyPairs;
+	private volatile boolean shutdown;
+	private AtomicLong poolHits;
+	private AtomicLong poolMisses;
+
+	/**
+	 * Constructs the pool with its own threads and starts the generation of key
+	 * pairs.
+	 *
+	 * @param groupParameters - Diffie Hellman group parameter
+	 * @param hash            - hash function, has to implement Memoable, since
+	 *                        every generation uses its own copy
+	 * @param randomness      - randomness used for key generation
+	 * @param capacity        - maximum number of key pairs in the pool
+	 * @param numberOfThreads - number of threads, which generate key pairs
+	 * @throws IllegalArgumentException if the hash function does not implement
+	 *                                  Memoable
+	 */
+	public DLPChameleonKeyPairPool(DHParameters groupParameters, Digest hash, SecureRandom randomness, int capacity,
+			int numberOfThreads) {
+		this(groupParameters, requireMemoable(hash), randomness, capacity,
+				Executors.newFixedThreadPool(numberOfThreads, runnable -> {
+					Thread thread = new Thread(runnable, "dlp-chameleon-pregeneration");
+					thread.setDaemon(true);
+					return thread;
+				}), true);
+	}
+
+	/**
+	 * Constructs the pool and starts the generation of key pairs with the given
+	 * executor. The executor is not shut down by the pool.
+	 *
+	 * @param groupParameters - Diffie Hellman group parameter
+	 * @param hash            - hash function, has to implement Memoable, since
+	 *                        every generation uses its own copy
+	 * @param randomness      - randomness used for key generation
+	 * @param capacity        - maximum number of key pairs in the pool
+	 * @param executor        - executor, which generates the key pairs
+	 * @throws IllegalArgumentException if the hash function does not implement
+	 *                                  Memoable
+	 */
+	public DLPChameleonKeyPairPool(DHParameters groupParameters, Digest hash, SecureRandom randomness, int capacity,
+			Executor executor) {
+		this(groupParameters, requireMemoable(hash), randomness, capacity, executor, false);
+	}
+
+	private DLPChameleonKeyPairPool(DHParameters groupParameters, Digest hash, SecureRandom randomness, int capacity,
+			Executor executor, boolean ownsExecutor) {
+		this.groupParameters = groupParameters;
+		this.hash = hash;
+		this.randomness = randomness;
+		this.capacity = capacity;
+		this.executor = executor;
+		if (ownsExecutor) {
+			ownedExecutor = (ExecutorService) executor;
+		}
+		keyPairs = new ArrayBlockingQueue<DLPChameleonKeyPair>(capacity);
+		pendingKeyPairs = new AtomicInteger();
+		poolHits = new AtomicLong();
+		poolMisses = new AtomicLong();
+		refill();
+	}
+
+	/**
+	 * Checks, that the hash function can be copied for every generation.
+	 *
+	 * @param hash - hash function
+	 * @return the hash function
+	 * @throws IllegalArgumentException if the hash function does not implement
+	 *                                  Memoable
+	 */
+	private static Digest requireMemoable(Digest hash) {
+		if (!(hash instanceof Memoable)) {
+			throw new IllegalArgumentException("The hash function has to implement Memoable.");
+		}
+		return hash;
+	}
+
+	/**
+	 * Schedules the generation of the key pairs, which are missing to fill the
+	 * pool. They are reserved in 'pendingKeyPairs' before they are scheduled.
+	 */
+	private void refill() {
+		int missingKeyPairs;
+		while (true) {
+			int pending = pendingKeyPairs.get();
+			missingKeyPairs = capacity - keyPairs.size() - pending;
+			if (shutdown || missingKeyPairs <= 0) {
+				return;
+			}
+			if (pendingKeyPairs.compareAndSet(pending, pending + missingKeyPairs)) {
+				break;
+			}
+		}
+		for (int i = 0; i < missingKeyPairs; i++) {
+			try {
+				executor.execute(this::generateKeyPair);
+			} catch (RejectedExecutionException e) {
+				/**
+				 * The executor is shut down, the reservations, which are not scheduled, are
+				 * released.
+				 */
+				pendingKeyPairs.addAndGet(i - missingKeyPairs);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Generates a key pair and puts it in the pool, unless the pool is shut down.
+	 */
+	private void generateKeyPair() {
+		try {
+			if (!shutdown) {
+				Digest hashOfGeneration = (Digest) ((Memoable) hash).copy();
+				keyPairs.offer(
+						DLPChameleonOTSignatureManager.generateKeyPair(groupParameters, hashOfGeneration, randomness));
+			}
+		} finally {
+			pendingKeyPairs.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Takes a key pair from the pool and schedules its replacement.
+	 *
+	 * @return key pair, or null if the pool is drained
+	 */
+	public DLPChameleonKeyPair poll() {
+		DLPChameleonKeyPair keyPair = keyPairs.poll();
+		if (keyPair != null) {
+			poolHits.incrementAndGet();
+		} else {
+			poolMisses.incrementAndGet();
+		}
+		refill();
+		return keyPair;
+	}
+
+	/**
+	 * Stops the generation of key pairs. Scheduled generations, which have not
+	 * started yet, are skipped. If the pool created its executor, it waits, until
+	 * the running generations are finished, so afterwards no key pairs are added
+	 * to the pool. Key pairs in the pool can still be taken.
+	 */
+	public void shutdown() {
+		shutdown = true;
+		if (ownedExecutor == null) {
+			return;
+		}
+		ownedExecutor.shutdownNow();
+		try {
+			/**
+			 * A key generation is not interruptible, so we wait for it.
+			 */
+			ownedExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * @return number of key pairs taken from the pool
+	 */
+	public long getPoolHits() {
+		return poolHits.get();
+	}
+
+	/**
+	 * @return number of requests, which found the pool drained
+	 */
+	public long getPoolMisses() {
+		return poolMisses.get();
+	}
+
+	/**
+	 * @return number of key pairs currently in the pool
+	 */
+	public int getPoolSize() {
+		return keyPairs.size();
+	}
+}
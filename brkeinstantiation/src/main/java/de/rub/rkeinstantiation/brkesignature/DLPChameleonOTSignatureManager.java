@@ -21,6 +21,7 @@ import de.rub.rke.signature.SignatureVerificationKey;
 import de.rub.rke.variables.AssociatedData;
 import de.rub.rke.variables.KeySeed;
 import de.rub.rkeinstantiation.utility.CiphertextEncoder;
+import de.rub.rkeinstantiation.utility.FixedBaseExponentiation;
 
 /**
  * Class which implements the One-Time Signature, which is used in the Brke
@@ -40,11 +41,11 @@ public class DLPChameleonOTSignatureManager implements SignatureManager {
 	private Digest hash;
 	private BigInteger p;
 	private BigInteger order;
-	private BigInteger generator;
-	private int bitlength;
+	private FixedBaseExponentiation generatorPowers;
 
 	private Queue<DLPChameleonSigningKey> signingKeys;
 	private DLPChameleonVerificationKey communicationPartnerVerificationKey;
+	private DLPChameleonKeyPairPool keyPairPool;
 
 	/**
 	 * Constructs a One-Time Signature scheme based on a DLP Chameleon Hash
@@ -62,82 +63,89 @@ public class DLPChameleonOTSignatureManager implements SignatureManager {
 		this.hash = hash;
 		p = groupParameters.getP();
 		order = groupParameters.getQ();
-		generator = groupParameters.getG();
-		bitlength = order.bitLength();
+		generatorPowers = FixedBaseExponentiation.forGroup(groupParameters);
 		signingKeys = new LinkedList<DLPChameleonSigningKey>();
 	}
 
+	/**
+	 * Constructs a One-Time Signature scheme, which takes its key pairs from a
+	 * pool. Key pairs are only generated inline, if the pool is drained.
+	 * 
+	 * @param groupParameters - Diffie Hellman group parameter
+	 * @param hash            - hash function
+	 * @param keyPairPool     - pool of key pairs generated with the same group
+	 *                        parameters and hash function
+	 */
+	public DLPChameleonOTSignatureManager(DHParameters groupParameters, Digest hash,
+			DLPChameleonKeyPairPool keyPairPool) {
+		this(groupParameters, hash);
+		this.keyPairPool = keyPairPool;
+	}
+
 	/**
 	 * Initializes the Signature Scheme. Key Generation is performed as described in
 	 * [1].
 	 */
 	@Override
 	public void init(SecureRandom randomness, boolean initiator) {
-		DHKeyGenerationParameters generationParameters = new DHKeyGenerationParameters(randomness, groupParameters);
-		DHKeyPairGenerator dhKeyGenerator = new DHKeyPairGenerator();
-		dhKeyGenerator.init(generationParameters);
-		DLPChameleonSigningKey signingKey[] = new DLPChameleonSigningKey[2];
-		DLPChameleonVerificationKey verificationKey[] = new DLPChameleonVerificationKey[2];
-		for (int i = 0; i < 2; i++) {
-			BigInteger x1 = ((DHPrivateKeyParameters) dhKeyGenerator.generateKeyPair().getPrivate()).getX();
-			BigInteger x2 = ((DHPrivateKeyParameters) dhKeyGenerator.generateKeyPair().getPrivate()).getX();
-			BigInteger g2 = generator.modPow(x1, p);
-			BigInteger g3 = generator.modPow(x2, p);
-			BigInteger r1 = new BigInteger(bitlength, randomness);
-			BigInteger r2 = new BigInteger(bitlength, randomness);
-			BigInteger g2r = g2.modPow(r1, p);
-			BigInteger g3r = g3.modPow(r2, p);
-
-			BigInteger g1g2r = generator.multiply(g2r).mod(p);
-			BigInteger g1g3r = generator.multiply(g3r).mod(p);
-
-			byte[] encodedg1g2r = g1g2r.toByteArray();
-			byte[] encodedg1g3r = g1g3r.toByteArray();
-
-			byte[] z0 = new byte[hash.getDigestSize()];
-			byte[] z1 = new byte[hash.getDigestSize()];
-
-			hash.update(encodedg1g2r, 0, encodedg1g2r.length);
-			hash.doFinal(z0, 0);
-			hash.reset();
-			hash.update(encodedg1g3r, 0, encodedg1g3r.length);
-			hash.doFinal(z1, 0);
-			hash.reset();
-
-			BigInteger invx1 = x1.modInverse(order);
-			BigInteger invx2 = x2.modInverse(order);
-			signingKey[i] = new DLPChameleonSigningKey(invx1, invx2, r1, r2, z1);
-			verificationKey[i] = new DLPChameleonVerificationKey(generator, g2, g3, z0);
-		}
+		DLPChameleonKeyPair keyPair1 = generateKeyPair(groupParameters, hash, randomness);
+		DLPChameleonKeyPair keyPair2 = generateKeyPair(groupParameters, hash, randomness);
 		if (initiator) {
-			signingKeys.add(signingKey[0]);
-			communicationPartnerVerificationKey = verificationKey[1];
+			signingKeys.add((DLPChameleonSigningKey) keyPair1.getSigningKey());
+			communicationPartnerVerificationKey = (DLPChameleonVerificationKey) keyPair2.getVerificationKey();
 		} else {
-			signingKeys.add(signingKey[1]);
-			communicationPartnerVerificationKey = verificationKey[0];
+			signingKeys.add((DLPChameleonSigningKey) keyPair2.getSigningKey());
+			communicationPartnerVerificationKey = (DLPChameleonVerificationKey) keyPair1.getVerificationKey();
 		}
 	}
 
 	/**
 	 * Generates a key Pair for the Signature, saves the signing key and outputs the
-	 * verification key.
+	 * verification key. If a pool is used, the key pair is taken from the pool.
 	 */
 	@Override
 	public SignatureVerificationKey gen(SecureRandom randomness) {
+		DLPChameleonKeyPair keyPair = null;
+		if (keyPairPool != null) {
+			keyPair = keyPairPool.poll();
+		}
+		if (keyPair == null) {
+			keyPair = generateKeyPair(groupParameters, hash, randomness);
+		}
+		signingKeys.add((DLPChameleonSigningKey) keyPair.getSigningKey());
+		return keyPair.getVerificationKey();
+	}
+
+	/**
+	 * Generates a key Pair for the Signature as described in [1].
+	 * 
+	 * @param groupParameters - Diffie Hellman group parameter
+	 * @param hash            - hash function, is not used concurrently
+	 * @param randomness      - randomness used for key generation
+	 * @return generated key pair
+	 */
+	static DLPChameleonKeyPair generateKeyPair(DHParameters groupParameters, Digest hash,
+			SecureRandom randomness) {
+		BigInteger order = groupParameters.getQ();
+		BigInteger generator = groupParameters.getG();
+		FixedBaseExponentiation generatorPowers = FixedBaseExponentiation.forGroup(groupParameters);
+		int bitlength = order.bitLength();
 		DHKeyGenerationParameters generationParameters = new DHKeyGenerationParameters(randomness, groupParameters);
 		DHKeyPairGenerator dhKeyGenerator = new DHKeyPairGenerator();
 		dhKeyGenerator.init(generationParameters);
 		BigInteger x1 = ((DHPrivateKeyParameters) dhKeyGenerator.generateKeyPair().getPrivate()).getX();
 		BigInteger x2 = ((DHPrivateKeyParameters) dhKeyGenerator.generateKeyPair().getPrivate()).getX();
-		BigInteger g2 = generator.modPow(x1, p);
-		BigInteger g3 = generator.modPow(x2, p);
+		BigInteger g2 = generatorPowers.modPow(x1);
+		BigInteger g3 = generatorPowers.modPow(x2);
 		BigInteger r1 = new BigInteger(bitlength, randomness);
 		BigInteger r2 = new BigInteger(bitlength, randomness);
-		BigInteger g2r = g2.modPow(r1, p);
-		BigInteger g3r = g3.modPow(r2, p);
 
-		BigInteger g1g2r = (generator.multiply(g2r)).mod(p);
-		BigInteger g1g3r = generator.multiply(g3r).mod(p);
+		/**
+		 * The generator has order q, so g1*g2^r1 = g1^(1+x1*r1 mod q). Both products
+		 * are computed with the precomputed powers of the generator.
+		 */
+		BigInteger g1g2r = generatorPowers.modPow(x1.multiply(r1).add(BigInteger.ONE).mod(order));
+		BigInteger g1g3r = generatorPowers.modPow(x2.multiply(r2).add(BigInteger.ONE).mod(order));
 
 		byte[] encodedg1g2r = g1g2r.toByteArray();
 		byte[] encodedg1g3r = g1g3r.toByteArray();
@@ -155,8 +163,8 @@ public class DLPChameleonOTSignatureManager implements SignatureManager {
 		BigInteger invx1 = x1.modInverse(order);
 		BigInteger invx2 = x2.modInverse(order);
 
-		signingKeys.add(new DLPChameleonSigningKey(invx1, invx2, r1, r2, z1));
-		return new DLPChameleonVerificationKey(generator, g2, g3, z0);
+		return new DLPChameleonKeyPair(new DLPChameleonSigningKey(invx1, invx2, r1, r2, z1),
+				new DLPChameleonVerificationKey(generator, g2, g3, z0));
 	}
 
 	/**
@@ -214,7 +222,7 @@ public class DLPChameleonOTSignatureManager implements SignatureManager {
 			return false;
 		}
 		BigInteger message = new BigInteger(hashedInput);
-		BigInteger g1m = communicationPartnerVerificationKey.getG1().modPow(message, p);
+		BigInteger g1m = powerOfG1(message);
 		BigInteger g3sign0 = communicationPartnerVerificationKey.getG3().modPow(signatureOutput.getSign0(), p);
 		BigInteger g1mg3sign0 = g1m.multiply(g3sign0).mod(p);
 		byte[] encodedg1mg3sign0 = g1mg3sign0.toByteArray();
@@ -224,7 +232,7 @@ public class DLPChameleonOTSignatureManager implements SignatureManager {
 		hash.doFinal(hashVer, 0);
 		hash.reset();
 		BigInteger hashInt = new BigInteger(hashVer);
-		BigInteger g1hashInt = communicationPartnerVerificationKey.getG1().modPow(hashInt, p);
+		BigInteger g1hashInt = powerOfG1(hashInt);
 		BigInteger g2Sign1 = communicationPartnerVerificationKey.getG2().modPow(signatureOutput.getSign1(), p);
 		BigInteger finalInt = (g1hashInt.multiply(g2Sign1)).mod(p);
 		byte[] encodedfinalInt = finalInt.toByteArray();
@@ -239,4 +247,19 @@ public class DLPChameleonOTSignatureManager implements SignatureManager {
 		return false;
 	}
 
+	/**
+	 * Raises g1 of the verification key to the exponent. Uses the precomputed
+	 * powers, if g1 is the generator of the group.
+	 * 
+	 * @param exponent
+	 * @return g1^exponent mod p
+	 */
+	private BigInteger powerOfG1(BigInteger exponent) {
+		BigInteger g1 = communicationPartnerVerificationKey.getG1();
+		if (g1.equals(generatorPowers.getBase())) {
+			return generatorPowers.modPow(exponent);
+		}
+		return g1.modPow(exponent, p);
+	}
+
 }
@@ -0,0 +1,32 @@
+package de.rub.rkeinstantiation.brkesignature;
+
+import de.rub.rke.signature.SignatureKeyPair;
+import de.rub.rke.signature.SignatureSigningKey;
+import de.rub.rke.signature.SignatureVerificationKey;
+
+/**
+ * Class for a key pair of the EC-Based Signature
+ * 
+ * @author Marco Smeets
+ *
+ */
+public class ECChameleonKeyPair implements SignatureKeyPair {
+
+	private ECChameleonSigningKey signingKey;
+	private ECChameleonVerificationKey verificationKey;
+
+	public ECChameleonKeyPair(ECChameleonSigningKey signingKey, ECChameleonVerificationKey verificationKey) {
+		this.signingKey = signingKey;
+		this.verificationKey = verificationKey;
+	}
+
+	@Override
+	public SignatureSigningKey getSigningKey() {
+		return signingKey;
+	}
+
+	@Override
+	public SignatureVerificationKey getVerificationKey() {
+		return verificationKey;
+	}
+}
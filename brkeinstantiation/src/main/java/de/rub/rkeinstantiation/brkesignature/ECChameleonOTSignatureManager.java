@@ -0,0 +1,256 @@
+package de.rub.rkeinstantiation.brkesignature;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.Queue;
+
+import org.bouncycastle.crypto.Digest;
+import org.bouncycastle.crypto.params.ECDomainParameters;
+import org.bouncycastle.math.ec.ECAlgorithms;
+import org.bouncycastle.math.ec.ECMultiplier;
+import org.bouncycastle.math.ec.ECPoint;
+import org.bouncycastle.math.ec.FixedPointCombMultiplier;
+import org.bouncycastle.util.BigIntegers;
+
+import de.rub.rke.brke.BrkeCiphertext;
+import de.rub.rke.kukem.KuKemPublicKey;
+import de.rub.rke.queuedkukem.QueuedKuKemCiphertext;
+import de.rub.rke.signature.SignatureManager;
+import de.rub.rke.signature.SignatureOutput;
+import de.rub.rke.signature.SignatureVerificationKey;
+import de.rub.rke.variables.AssociatedData;
+import de.rub.rke.variables.KeySeed;
+import de.rub.rkeinstantiation.utility.CiphertextEncoder;
+import de.rub.rkeinstantiation.utility.SecureRandomBuilder;
+
+/**
+ * Class which implements the One-Time Signature, which is used in the Brke
+ * construction. This is the construction of Mohassel[1] used by the
+ * DLPChameleonOTSignatureManager, but the Chameleon Hash function is based on
+ * the DLP Problem in a prime order elliptic curve group.
+ * 
+ * Multiplications of the generator use a precomputed comb, which is shared by
+ * all users of the curve. The verification computes both sums of two
+ * multiplications with interleaved multiplications (Shamir's trick).
+ * 
+ * [1] One-Time Signatures and Chameleon Hash Functions
+ * https://link.springer.com/content/pdf/10.1007/978-3-642-19574-7_21.pdf
+ * 
+ * @author Marco Smeets
+ *
+ */
+public class ECChameleonOTSignatureManager implements SignatureManager {
+
+	private ECDomainParameters ecParameter;
+	private Digest hash;
+	private BigInteger order;
+	private ECPoint generator;
+	private ECMultiplier generatorMultiplier;
+
+	private Queue<ECChameleonSigningKey> signingKeys;
+	private ECChameleonVerificationKey communicationPartnerVerificationKey;
+
+	/**
+	 * Constructs a One-Time Signature scheme based on an EC Chameleon Hash
+	 * function. As for the DLP-Based Signature, we have to provide a hash function
+	 * to the signature algorithm, so that the signature is SUF-CMA secure.
+	 * 
+	 * @param ecParameter - prime order elliptic curve group
+	 * @param hash        - hash function
+	 */
+	public ECChameleonOTSignatureManager(ECDomainParameters ecParameter, Digest hash) {
+		this.ecParameter = ecParameter;
+		this.hash = hash;
+		order = ecParameter.getN();
+		generator = ecParameter.getG();
+		generatorMultiplier = new FixedPointCombMultiplier();
+		signingKeys = new LinkedList<ECChameleonSigningKey>();
+	}
+
+	/**
+	 * Initializes the Signature Scheme. Key Generation is performed as described in
+	 * [1].
+	 */
+	@Override
+	public void init(SecureRandom randomness, boolean initiator) {
+		ECChameleonKeyPair keyPair1 = generateKeyPair(randomness);
+		ECChameleonKeyPair keyPair2 = generateKeyPair(randomness);
+		if (initiator) {
+			signingKeys.add((ECChameleonSigningKey) keyPair1.getSigningKey());
+			communicationPartnerVerificationKey = (ECChameleonVerificationKey) keyPair2.getVerificationKey();
+		} else {
+			signingKeys.add((ECChameleonSigningKey) keyPair2.getSigningKey());
+			communicationPartnerVerificationKey = (ECChameleonVerificationKey) keyPair1.getVerificationKey();
+		}
+	}
+
+	/**
+	 * Generates a key Pair for the Signature, saves the signing key and outputs the
+	 * verification key.
+	 */
+	@Override
+	public SignatureVerificationKey gen(SecureRandom randomness) {
+		ECChameleonKeyPair keyPair = generateKeyPair(randomness);
+		signingKeys.add((ECChameleonSigningKey) keyPair.getSigningKey());
+		return keyPair.getVerificationKey();
+	}
+
+	/**
+	 * Generates a key Pair for the Signature as described in [1]. Since g1 is the
+	 * generator, g1+r1*g2 = (1+x1*r1 mod n)*g1.
+	 * 
+	 * @param randomness - randomness used for key generation
+	 * @return generated key pair
+	 */
+	private ECChameleonKeyPair generateKeyPair(SecureRandom randomness) {
+		BigInteger maximum = order.subtract(BigInteger.ONE);
+		BigInteger x1 = BigIntegers.createRandomInRange(BigInteger.ONE, maximum, randomness);
+		BigInteger x2 = BigIntegers.createRandomInRange(BigInteger.ONE, maximum, randomness);
+		ECPoint g2 = generatorMultiplier.multiply(generator, x1);
+		ECPoint g3 = generatorMultiplier.multiply(generator, x2);
+		BigInteger r1 = BigIntegers.createRandomInRange(BigInteger.ZERO, maximum, randomness);
+		BigInteger r2 = BigIntegers.createRandomInRange(BigInteger.ZERO, maximum, randomness);
+
+		ECPoint g1g2r = generatorMultiplier.multiply(generator, x1.multiply(r1).add(BigInteger.ONE).mod(order));
+		ECPoint g1g3r = generatorMultiplier.multiply(generator, x2.multiply(r2).add(BigInteger.ONE).mod(order));
+
+		byte[] z0 = hashPoint(g1g2r);
+		byte[] z1 = hashPoint(g1g3r);
+
+		BigInteger invx1 = x1.modInverse(order);
+		BigInteger invx2 = x2.modInverse(order);
+
+		return new ECChameleonKeyPair(new ECChameleonSigningKey(invx1, invx2, r1, r2, z1),
+				new ECChameleonVerificationKey(g2.getEncoded(true), g3.getEncoded(true), z0));
+	}
+
+	/**
+	 * Generates a key Pair for the Signature from a seed, saves the signing key and
+	 * outputs the verification key. The same seed always results in the same key
+	 * pair.
+	 */
+	@Override
+	public SignatureVerificationKey gen(KeySeed seed) {
+		return gen(SecureRandomBuilder.createDeterministicRandomness(seed.getSeedAsBytes()));
+	}
+
+	/**
+	 * Saves a verification key.
+	 */
+	@Override
+	public void setVerificationKey(SignatureVerificationKey verificationKey) {
+		this.communicationPartnerVerificationKey = (ECChameleonVerificationKey) verificationKey;
+	}
+
+	/**
+	 * Signs the provided brke ciphertext parts and associated data as described in
+	 * [1].
+	 * 
+	 * @throws IllegalStateException if no signing key is left
+	 */
+	@Override
+	public SignatureOutput sign(AssociatedData associatedData, int numberOfReceivedMessages, KuKemPublicKey publicKey,
+			SignatureVerificationKey verificationKey, int numberOfUsedKeys, QueuedKuKemCiphertext ciphertext) {
+		byte[] hashedInput = CiphertextEncoder.hashAdCiphertextPartsForSigning(associatedData, numberOfReceivedMessages,
+				publicKey, verificationKey, numberOfUsedKeys, ciphertext);
+		ECChameleonSigningKey signingKey = signingKeys.poll();
+		if (signingKey == null) {
+			throw new IllegalStateException("No signing key left for the EC Chameleon signature.");
+		}
+		BigInteger message = new BigInteger(hashedInput);
+		BigInteger sign0 = signingKey.getX2Inv().multiply(BigInteger.ONE.subtract(message).mod(order)).mod(order);
+		sign0 = (sign0.add(signingKey.getR2())).mod(order);
+		BigInteger z1Int = new BigInteger(signingKey.getZ1());
+		BigInteger sign1 = signingKey.getX1Inv().multiply(BigInteger.ONE.subtract(z1Int).mod(order)).mod(order);
+		sign1 = (sign1.add(signingKey.getR1())).mod(order);
+
+		return new ECChameleonSignatureOutput(sign0, sign1);
+	}
+
+	/**
+	 * Verifies a signed brke ciphertext as described in [1].
+	 * 
+	 * @throws IllegalStateException    if no verification key is set
+	 * @throws IllegalArgumentException if the verification key contains an invalid
+	 *                                  point or the signature values are not in
+	 *                                  the range of the group order
+	 */
+	@Override
+	public boolean verify(AssociatedData associatedData, BrkeCiphertext ciphertext) {
+		ECChameleonSignatureOutput signatureOutput = (ECChameleonSignatureOutput) ciphertext.getSignature();
+		byte[] hashedInput = CiphertextEncoder.hashAdCiphertextPartsForSigning(associatedData,
+				ciphertext.getNumberOfReceivedMessages(), ciphertext.getPublicKey(), ciphertext.getVerificationKey(),
+				ciphertext.getNumberOfUsedKeys(), ciphertext.getCiphertext());
+		if (communicationPartnerVerificationKey == null) {
+			throw new IllegalStateException("No verification key set for the EC Chameleon signature.");
+		}
+		ECPoint g2 = decodePoint(communicationPartnerVerificationKey.getG2());
+		ECPoint g3 = decodePoint(communicationPartnerVerificationKey.getG3());
+		BigInteger sign0 = signatureOutput.getSign0();
+		BigInteger sign1 = signatureOutput.getSign1();
+		if (!isInRange(sign0) || !isInRange(sign1)) {
+			throw new IllegalArgumentException("EC Chameleon signature values are not in the range of the group order.");
+		}
+		BigInteger message = new BigInteger(hashedInput).mod(order);
+		ECPoint g1mg3sign0 = ECAlgorithms.sumOfTwoMultiplies(generator, message, g3, sign0);
+		byte[] hashVer = hashPoint(g1mg3sign0);
+
+		BigInteger hashInt = new BigInteger(hashVer).mod(order);
+		ECPoint finalPoint = ECAlgorithms.sumOfTwoMultiplies(generator, hashInt, g2, sign1);
+		byte[] result = hashPoint(finalPoint);
+
+		if (Arrays.equals(result, communicationPartnerVerificationKey.getZ0())) {
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Decodes a point of the verification key. The point has to be on the curve
+	 * and must not be the point at infinity.
+	 * 
+	 * @param encodedPoint
+	 * @return decoded point
+	 * @throws IllegalArgumentException if the point is invalid
+	 */
+	private ECPoint decodePoint(byte[] encodedPoint) {
+		ECPoint point;
+		try {
+			point = ecParameter.getCurve().decodePoint(encodedPoint);
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("Invalid point in the EC Chameleon verification key.", e);
+		}
+		if (point.isInfinity()) {
+			throw new IllegalArgumentException("EC Chameleon verification key contains the point at infinity.");
+		}
+		return point;
+	}
+
+	/**
+	 * Checks, if a signature value is in [0, n-1].
+	 * 
+	 * @param value
+	 * @return true, if the value is in range
+	 */
+	private boolean isInRange(BigInteger value) {
+		return value != null && value.signum() >= 0 && value.compareTo(order) < 0;
+	}
+
+	/**
+	 * Hashes the compressed encoding of a point.
+	 * 
+	 * @param point
+	 * @return hash of the point
+	 */
+	private byte[] hashPoint(ECPoint point) {
+		byte[] encodedPoint = point.getEncoded(true);
+		byte[] output = new byte[hash.getDigestSize()];
+		hash.update(encodedPoint, 0, encodedPoint.length);
+		hash.doFinal(output, 0);
+		hash.reset();
+		return output;
+	}
+
+}
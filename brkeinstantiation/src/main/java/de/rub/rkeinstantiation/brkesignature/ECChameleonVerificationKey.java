@@ -0,0 +1,45 @@
+package de.rub.rkeinstantiation.brkesignature;
+
+import java.util.Arrays;
+
+import de.rub.rke.signature.SignatureVerificationKey;
+
+/**
+ * Class for the verification key of the EC-Based Signature. The points are
+ * stored in compressed encoding. g1 is the generator of the curve, so it is not
+ * part of the key.
+ * 
+ * @author Marco Smeets
+ *
+ */
+public class ECChameleonVerificationKey implements SignatureVerificationKey {
+
+	private byte[] g2;
+	private byte[] g3;
+	private byte[] z0;
+
+	/**
+	 * We need a empty constructor to reconstruct the objects from JSON.
+	 */
+	@SuppressWarnings("unused")
+	private ECChameleonVerificationKey() {
+	}
+
+	public ECChameleonVerificationKey(byte[] g2, byte[] g3, byte[] z0) {
+		this.g2 = Arrays.copyOf(g2, g2.length);
+		this.g3 = Arrays.copyOf(g3, g3.length);
+		this.z0 = Arrays.copyOf(z0, z0.length);
+	}
+
+	public byte[] getG2() {
+		return g2;
+	}
+
+	public byte[] getG3() {
+		return g3;
+	}
+
+	public byte[] getZ0() {
+		return z0;
+	}
+}
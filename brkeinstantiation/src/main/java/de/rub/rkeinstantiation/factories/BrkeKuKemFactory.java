@@ -1,14 +1,21 @@
 package de.rub.rkeinstantiation.factories;
 
 import java.security.SecureRandom;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import de.rub.rke.factories.KuKemFactory;
 import de.rub.rke.kukem.KeyUpdateableKem;
+import de.rub.rke.kukem.PregeneratingKuKem;
 import de.rub.rkeinstantiation.brkekukem.BrkeKuKem;
 
 /**
  * Factory for the BrkeKuKem.
- * 
+ *
+ * Factories with other options than the defaults are created with a
+ * {@link Builder}.
+ *
  * @author Marco Smeets
  *
  */
@@ -19,11 +26,172 @@ public class BrkeKuKemFactory implements KuKemFactory {
 	 * BrkeKuKemAssociatedData.
 	 */
 	private final int IDENTITIY_SIZE = 32;
+	private boolean keepKeysDecoded;
+	private boolean useDirectBuffers;
+	private int numberOfBatchThreads = 1;
+	/**
+	 * If set, the created kuKems take generated key pairs from a pool, which is
+	 * refilled by this executor.
+	 */
+	private Executor pregenerationExecutor;
+	/**
+	 * Set, if the factory created the executor. Only then it is shut down by the
+	 * factory.
+	 */
+	private ExecutorService ownedPregenerationExecutor;
+	private int lowWatermark;
+	private int highWatermark;
+
+	public BrkeKuKemFactory() {
+		keepKeysDecoded = false;
+		useDirectBuffers = false;
+	}
+
+	private BrkeKuKemFactory(Builder builder) {
+		keepKeysDecoded = builder.keepKeysDecoded;
+		useDirectBuffers = builder.useDirectBuffers;
+		numberOfBatchThreads = builder.numberOfBatchThreads;
+		lowWatermark = builder.lowWatermark;
+		highWatermark = builder.highWatermark;
+		if (builder.pregenerationExecutor != null) {
+			pregenerationExecutor = builder.pregenerationExecutor;
+		} else if (builder.numberOfPregenerationThreads > 0) {
+			ownedPregenerationExecutor = Executors.newFixedThreadPool(builder.numberOfPregenerationThreads,
+					runnable -> {
+						Thread thread = new Thread(runnable, "kuKem-pregeneration");
+						thread.setDaemon(true);
+						return thread;
+					});
+			pregenerationExecutor = ownedPregenerationExecutor;
+		}
+	}
+
+	/**
+	 * @return builder for a factory with the default options
+	 */
+	public static Builder builder() {
+		return new Builder();
+	}
 
 	@Override
 	public KeyUpdateableKem createKuKemAlgorithm() {
 		SecureRandom randomness = new SecureRandom();
-		return new BrkeKuKem(randomness, IDENTITIY_SIZE);
+		BrkeKuKem kuKem = new BrkeKuKem(randomness, IDENTITIY_SIZE, keepKeysDecoded, useDirectBuffers,
+				numberOfBatchThreads);
+		if (pregenerationExecutor != null) {
+			return new PregeneratingKuKem(kuKem, new SecureRandom(), lowWatermark, highWatermark,
+					pregenerationExecutor);
+		}
+		return kuKem;
+	}
+
+	/**
+	 * Stops the threads, which refill the pools of the created kuKems. The kuKems
+	 * generate their key pairs inline, once their pools are drained. An executor
+	 * passed to the builder is not shut down.
+	 */
+	public void shutdownPregeneration() {
+		if (ownedPregenerationExecutor != null) {
+			ownedPregenerationExecutor.shutdown();
+		}
+	}
+
+	/**
+	 * Builder for a BrkeKuKemFactory. Options, which are not set, keep the
+	 * defaults of the BrkeKuKem.
+	 */
+	public static class Builder {
+
+		private boolean keepKeysDecoded;
+		private boolean useDirectBuffers;
+		private int numberOfBatchThreads = 1;
+		private Executor pregenerationExecutor;
+		private int numberOfPregenerationThreads;
+		private int lowWatermark;
+		private int highWatermark;
+
+		private Builder() {
+		}
+
+		/**
+		 * @param keepKeysDecoded - if set, the created kuKems keep the Hibe keys
+		 *                        decoded in native memory
+		 * @return this builder
+		 */
+		public Builder keepKeysDecoded(boolean keepKeysDecoded) {
+			this.keepKeysDecoded = keepKeysDecoded;
+			return this;
+		}
+
+		/**
+		 * @param useDirectBuffers - if set, the created kuKems pass data to the Hibe
+		 *                         in pooled direct buffers. Cannot be combined with
+		 *                         'keepKeysDecoded'.
+		 * @return this builder
+		 */
+		public Builder useDirectBuffers(boolean useDirectBuffers) {
+			this.useDirectBuffers = useDirectBuffers;
+			return this;
+		}
+
+		/**
+		 * @param numberOfBatchThreads - number of native threads the created kuKems
+		 *                             use to encapsulate to several public keys or to
+		 *                             update several secret keys, at most the number
+		 *                             of available cores
+		 * @return this builder
+		 */
+		public Builder numberOfBatchThreads(int numberOfBatchThreads) {
+			this.numberOfBatchThreads = numberOfBatchThreads;
+			return this;
+		}
+
+		/**
+		 * The created kuKems take their key pairs from pools, which are refilled by
+		 * threads of the factory. The threads are stopped with
+		 * {@link BrkeKuKemFactory#shutdownPregeneration()}.
+		 *
+		 * @param lowWatermark    - the pool of generated key pairs of a kuKem is
+		 *                        refilled, if it holds less key pairs
+		 * @param highWatermark   - maximum number of generated key pairs in the pool
+		 *                        of a kuKem
+		 * @param numberOfThreads - number of threads, which are shared by all
+		 *                        created kuKems to refill their pools
+		 * @return this builder
+		 */
+		public Builder pregeneration(int lowWatermark, int highWatermark, int numberOfThreads) {
+			this.lowWatermark = lowWatermark;
+			this.highWatermark = highWatermark;
+			numberOfPregenerationThreads = numberOfThreads;
+			pregenerationExecutor = null;
+			return this;
+		}
+
+		/**
+		 * The created kuKems take their key pairs from pools, which are refilled by
+		 * the given executor. The executor is not shut down by the factory.
+		 *
+		 * @param lowWatermark  - the pool of generated key pairs of a kuKem is
+		 *                      refilled, if it holds less key pairs
+		 * @param highWatermark - maximum number of generated key pairs in the pool of
+		 *                      a kuKem
+		 * @param executor      - executor, which refills the pools
+		 * @return this builder
+		 */
+		public Builder pregeneration(int lowWatermark, int highWatermark, Executor executor) {
+			this.lowWatermark = lowWatermark;
+			this.highWatermark = highWatermark;
+			pregenerationExecutor = executor;
+			numberOfPregenerationThreads = 0;
+			return this;
+		}
+
+		/**
+		 * @return factory with the options of this builder
+		 */
+		public BrkeKuKemFactory build() {
+			return new BrkeKuKemFactory(this);
+		}
 	}
 
 }
@@ -1,11 +1,15 @@
 package de.rub.rkeinstantiation.factories;
 
+import java.security.SecureRandom;
+import java.util.concurrent.Executor;
+
 import org.bouncycastle.crypto.agreement.DHStandardGroups;
 import org.bouncycastle.crypto.digests.SHA256Digest;
 import org.bouncycastle.crypto.params.DHParameters;
 
 import de.rub.rke.factories.SignatureFactory;
 import de.rub.rke.signature.SignatureManager;
+import de.rub.rkeinstantiation.brkesignature.DLPChameleonKeyPairPool;
 import de.rub.rkeinstantiation.brkesignature.DLPChameleonOTSignatureManager;
 
 /**
@@ -22,6 +26,40 @@ import de.rub.rkeinstantiation.brkesignature.DLPChameleonOTSignatureManager;
  */
 public class DLPChameleonSignatureFactory implements SignatureFactory {
 
+	/**
+	 * If set, the created signature algorithms take their key pairs from this
+	 * pool.
+	 */
+	private DLPChameleonKeyPairPool keyPairPool;
+
+	public DLPChameleonSignatureFactory() {
+	}
+
+	/**
+	 * Creates a factory, whose signature algorithms share a pool of key pairs,
+	 * which are generated in the background.
+	 * 
+	 * @param poolCapacity        - maximum number of key pairs in the pool
+	 * @param numberOfPoolThreads - number of threads, which generate key pairs
+	 */
+	public DLPChameleonSignatureFactory(int poolCapacity, int numberOfPoolThreads) {
+		keyPairPool = new DLPChameleonKeyPairPool(DHStandardGroups.rfc7919_ffdhe3072, new SHA256Digest(),
+				new SecureRandom(), poolCapacity, numberOfPoolThreads);
+	}
+
+	/**
+	 * Creates a factory, whose signature algorithms share a pool of key pairs,
+	 * which are generated by the given executor. The executor is not shut down by
+	 * the factory.
+	 * 
+	 * @param poolCapacity - maximum number of key pairs in the pool
+	 * @param executor     - executor, which generates the key pairs
+	 */
+	public DLPChameleonSignatureFactory(int poolCapacity, Executor executor) {
+		keyPairPool = new DLPChameleonKeyPairPool(DHStandardGroups.rfc7919_ffdhe3072, new SHA256Digest(),
+				new SecureRandom(), poolCapacity, executor);
+	}
+
 	/**
 	 * Creates a DLP-Based Signature Algorithm with the SHA256 as hash function and
 	 * the Diffie Hellman group from RFC7919[1], which uses a group with a 3072 Bit
@@ -31,7 +69,27 @@ public class DLPChameleonSignatureFactory implements SignatureFactory {
 	public SignatureManager createSignatureManager() {
 		DHParameters groupParameters = DHStandardGroups.rfc7919_ffdhe3072;
 		SHA256Digest hash = new SHA256Digest();
+		if (keyPairPool != null) {
+			return new DLPChameleonOTSignatureManager(groupParameters, hash, keyPairPool);
+		}
 		return new DLPChameleonOTSignatureManager(groupParameters, hash);
 	}
 
+	/**
+	 * @return pool of key pairs, or null if the key pairs are generated inline
+	 */
+	public DLPChameleonKeyPairPool getKeyPairPool() {
+		return keyPairPool;
+	}
+
+	/**
+	 * Stops the generation of key pairs for the pool. The created signature
+	 * algorithms generate their key pairs inline, once the pool is drained.
+	 */
+	public void shutdownKeyPairPool() {
+		if (keyPairPool != null) {
+			keyPairPool.shutdown();
+		}
+	}
+
 }
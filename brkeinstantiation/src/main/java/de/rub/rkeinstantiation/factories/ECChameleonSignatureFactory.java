@@ -0,0 +1,38 @@
+package de.rub.rkeinstantiation.factories;
+
+import org.bouncycastle.asn1.x9.X9ECParameters;
+import org.bouncycastle.crypto.digests.SHA256Digest;
+import org.bouncycastle.crypto.ec.CustomNamedCurves;
+import org.bouncycastle.crypto.params.ECDomainParameters;
+
+import de.rub.rke.factories.SignatureFactory;
+import de.rub.rke.signature.SignatureManager;
+import de.rub.rkeinstantiation.brkesignature.ECChameleonOTSignatureManager;
+
+/**
+ * Factory for the EC-Based Signature.
+ * 
+ * [1] Algorithms, Key Size and Protocols Report (2018)
+ * http://www.ecrypt.eu.org/csa/documents/D5.4-FinalAlgKeySizeProt.pdf
+ * 
+ * @author Marco Smeets
+ *
+ */
+public class ECChameleonSignatureFactory implements SignatureFactory {
+
+	/**
+	 * Creates an EC-Based Signature Algorithm with SHA256 as hash function and the
+	 * elliptic curve 'secp256r1', which complies to the recommendations in [1],
+	 * since it uses a 256 Bit group. The curve is taken from the custom curves of
+	 * bouncy castle, which provide a faster field arithmetic.
+	 */
+	@Override
+	public SignatureManager createSignatureManager() {
+		X9ECParameters curveSpecs = CustomNamedCurves.getByName("secp256r1");
+		ECDomainParameters ecParameter = new ECDomainParameters(curveSpecs.getCurve(), curveSpecs.getG(),
+				curveSpecs.getN());
+		SHA256Digest hash = new SHA256Digest();
+		return new ECChameleonOTSignatureManager(ecParameter, hash);
+	}
+
+}
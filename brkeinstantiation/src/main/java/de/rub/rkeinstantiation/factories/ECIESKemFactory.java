@@ -2,14 +2,12 @@ package de.rub.rkeinstantiation.factories;
 
 import java.security.SecureRandom;
 
-import org.bouncycastle.asn1.teletrust.TeleTrusTNamedCurves;
-import org.bouncycastle.asn1.x9.X9ECParameters;
 import org.bouncycastle.crypto.digests.SHA256Digest;
 import org.bouncycastle.crypto.generators.KDF2BytesGenerator;
-import org.bouncycastle.crypto.params.ECDomainParameters;
 
 import de.rub.rke.factories.KemFactory;
 import de.rub.rke.kem.KeyEncapsulationMechanism;
+import de.rub.rkeinstantiation.brkekem.ECIESCurveContext;
 import de.rub.rkeinstantiation.brkekem.ECIESKeyEncapsulationMechanism;
 
 /**
@@ -34,22 +32,44 @@ public class ECIESKemFactory implements KemFactory {
 	private final int GENERATED_KEY_LENGTH = 16;
 
 	/**
-	 * Creates an Ecies Kem. Uses the elliptic curve 'brainpoolp256r1', which is
+	 * Randomness for the encapsulation, shared by all created Kems.
+	 */
+	private SecureRandom randomness = new SecureRandom();
+	private ECIESCurveContext curveContext;
+
+	/**
+	 * Creates the factory for the elliptic curve 'brainpoolp256r1', which is
 	 * recommended by [1] and complies to the recommendations in [2], since it uses
 	 * a 256 Bit group.
+	 */
+	public ECIESKemFactory() {
+		this(ECIESCurveContext.getBrainpoolP256r1());
+	}
+
+	/**
+	 * Creates the factory for another curve, e.g.
+	 * ECIESCurveContext.getSecp256r1(), which uses the faster arithmetic of the
+	 * custom curves of bouncy castle.
+	 * 
+	 * @param curveContext - shared curve context
+	 */
+	public ECIESKemFactory(ECIESCurveContext curveContext) {
+		this.curveContext = curveContext;
+	}
+
+	/**
+	 * Creates an Ecies Kem over the curve of the factory.
 	 * 
 	 * As the kdf we use kdf2 described in [3], which is also recommended by [1].
 	 * Internally the kdf uses SHA256.
 	 * 
+	 * All Kems share the curve context, which holds the precomputed table for the
+	 * generator. Only the kdf, which is not thread-safe, is created per Kem.
 	 */
 	@Override
 	public KeyEncapsulationMechanism createKem() {
-		X9ECParameters curveSpecs = TeleTrusTNamedCurves.getByName("brainpoolp256r1");
-		ECDomainParameters ecParameter = new ECDomainParameters(curveSpecs.getCurve(), curveSpecs.getG(),
-				curveSpecs.getN());
-		SecureRandom randomness = new SecureRandom();
 		KDF2BytesGenerator kdf = new KDF2BytesGenerator(new SHA256Digest());
-		return new ECIESKeyEncapsulationMechanism(ecParameter, kdf, randomness, GENERATED_KEY_LENGTH);
+		return new ECIESKeyEncapsulationMechanism(curveContext, kdf, randomness, GENERATED_KEY_LENGTH);
 	}
 
 }
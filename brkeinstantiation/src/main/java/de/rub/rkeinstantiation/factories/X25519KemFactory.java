@@ -0,0 +1,48 @@
+package de.rub.rkeinstantiation.factories;
+
+import java.security.SecureRandom;
+
+import org.bouncycastle.crypto.digests.SHA256Digest;
+import org.bouncycastle.crypto.generators.KDF2BytesGenerator;
+
+import de.rub.rke.factories.KemFactory;
+import de.rub.rke.kem.KeyEncapsulationMechanism;
+import de.rub.rkeinstantiation.brkekem.X25519KeyEncapsulationMechanism;
+
+/**
+ * Factory for the X25519 based Kem.
+ *
+ * [1] RFC 7748: Elliptic Curves for Security
+ * https://tools.ietf.org/html/rfc7748
+ * [2] ISO/IEC 18033-2: Information techology - Security techniques
+ * Encryption algorithms - Part 2: Asymmetric Ciphers
+ * https://www.shoup.net/iso/std4.pdf
+ *
+ * @author Marco Smeets
+ *
+ */
+public class X25519KemFactory implements KemFactory {
+
+	/**
+	 * Specifies the key length generated by the Kem (in Bytes).
+	 */
+	private final int GENERATED_KEY_LENGTH = 16;
+
+	/**
+	 * Randomness for the encapsulation, shared by all created Kems.
+	 */
+	private SecureRandom randomness = new SecureRandom();
+
+	/**
+	 * Creates a Kem over Curve25519[1], which provides about 128 Bit security
+	 * like the 256 Bit curves of the ECIES Kem.
+	 *
+	 * As the kdf we use kdf2 described in [2] with SHA256, like the ECIES Kem.
+	 */
+	@Override
+	public KeyEncapsulationMechanism createKem() {
+		KDF2BytesGenerator kdf = new KDF2BytesGenerator(new SHA256Digest());
+		return new X25519KeyEncapsulationMechanism(kdf, randomness, GENERATED_KEY_LENGTH);
+	}
+
+}
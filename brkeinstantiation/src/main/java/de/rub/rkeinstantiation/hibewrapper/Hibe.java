@@ -1,16 +1,16 @@
 package de.rub.rkeinstantiation.hibewrapper;
 
+import java.nio.ByteBuffer;
 import java.security.SecureRandom;
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.List;
 
 import cz.adamh.utils.NativeUtils;
 import java.io.*;
 import org.bouncycastle.crypto.Digest;
+import org.bouncycastle.crypto.ExtendedDigest;
 import org.bouncycastle.crypto.digests.SHA256Digest;
-import org.bouncycastle.crypto.generators.HKDFBytesGenerator;
-import org.bouncycastle.crypto.macs.HMac;
-import org.bouncycastle.crypto.params.HKDFParameters;
-import org.bouncycastle.crypto.params.KeyParameter;
+import org.bouncycastle.util.Memoable;
 
 /**
  * Wrapper for C++ Implementation of the Lewko-Waters Hibe [1].
@@ -36,6 +36,21 @@ import org.bouncycastle.crypto.params.KeyParameter;
  */
 public class Hibe {
 
+	/**
+	 * The native library is loaded once per class loader. The library initializes
+	 * the relic context when it is loaded and keeps it alive for all calls. If it
+	 * cannot be loaded, the class cannot be initialized, instead of failing later
+	 * at the first native call.
+	 */
+	static {
+		try {
+			NativeUtils.loadLibraryFromJar("/liblwhibe11.so");
+		} catch (IOException e) {
+			throw new ExceptionInInitializerError(
+					new UncheckedIOException("Could not load the native library liblwhibe11.so.", e));
+		}
+	}
+
 	private static native int getSizeOfBnModZp();
 
 	private static native int getSizeOfG1();
@@ -58,53 +73,163 @@ public class Hibe {
 	private static native byte[] delegate(byte[] delegatorSecretKey, byte[] identity, int identityLength,
 			int numberOfIdentities, byte[] seed);
 
+	/**
+	 * Functions which work on keys that are kept decoded in native memory. The
+	 * keys are referenced by pointers, which are managed by {@link NativeHandle}.
+	 */
+	static native long decodePublicParameterHandle(byte[] publicParameter);
+
+	static native void freePublicParameterHandle(long publicParameter);
+
+	static native long decodeSecretKeyHandle(byte[] secretKey, int numberOfIdentities);
+
+	static native byte[] encodeSecretKeyHandle(long secretKey);
+
+	static native void freeSecretKeyHandle(long secretKey);
+
+	private static native byte[] encryptWithHandle(long publicParameter, byte[] message, byte[] identity,
+			int identityLength, int numberOfIdentities, byte[] seed);
+
+	private static native long delegateWithHandle(long delegatorSecretKey, byte[] identity, int identityLength,
+			int numberOfIdentities, byte[] seed);
+
+	/**
+	 * Functions which work on direct buffers. The results are written into the
+	 * output buffer and the size of the result is returned(0 if the function
+	 * failed).
+	 */
+	private static native int encryptDirect(ByteBuffer publicParameter, ByteBuffer message, int messageLength,
+			ByteBuffer identity, int identityLength, int numberOfIdentities, ByteBuffer seed, int seedLength,
+			ByteBuffer ciphertext);
+
+	private static native int delegateDirect(ByteBuffer delegatorSecretKey, ByteBuffer identity, int identityLength,
+			int numberOfIdentities, ByteBuffer seed, int seedLength, ByteBuffer delegatedSecretKey);
+
+	/**
+	 * Functions which sample the random element, compute 'com' and encrypt the
+	 * random element in a single call. They return the encoded random element,
+	 * 'com' and the ciphertext. 'com' is computed with HKDF and SHA-256 by the
+	 * native library and 'com' is appended as a 32 byte identity, so they are only
+	 * used with the default hash functions and identities of that size.
+	 */
+	private static native byte[] encapsulate(byte[] publicParameter, byte[] encapsulationKey, byte[] identity,
+			int identityLength, int numberOfIdentities, byte[] seed);
+
+	private static native byte[] encapsulateWithHandle(long publicParameter, byte[] encapsulationKey,
+			byte[] identity, int identityLength, int numberOfIdentities, byte[] seed);
+
+	private static native int encapsulateDirect(ByteBuffer publicParameter, ByteBuffer encapsulationKey,
+			int encapsulationKeyLength, ByteBuffer identity, int identityLength, int numberOfIdentities,
+			ByteBuffer seed, int seedLength, ByteBuffer output);
+
+	/**
+	 * Functions which perform a batch of encapsulations in a single call. The seeds
+	 * of the encapsulations are concatenated. They return the output of every
+	 * encapsulation as the functions above. Encoded public parameters are decoded
+	 * once per distinct encoding, decoded ones are passed as handles.
+	 */
+	private static native byte[][] encapsulateBatch(byte[][] publicParameters, byte[][] encapsulationKeys,
+			byte[][] identities, int identityLength, int[] levels, byte[] seeds, int numberOfThreads);
+
+	private static native byte[][] encapsulateBatchWithHandles(long[] publicParameters, byte[][] encapsulationKeys,
+			byte[][] identities, int identityLength, int[] levels, byte[] seeds, int numberOfThreads);
+
+	/**
+	 * Functions which delegate a batch of keys in a single call. All keys are
+	 * delegated to their identities with the same identity appended. The levels
+	 * are those of the delegated keys.
+	 */
+	private static native byte[][] delegateBatch(byte[][] delegatorSecretKeys, byte[][] identities,
+			int identityLength, int[] levels, byte[] appendedIdentity, byte[] seeds, int numberOfThreads);
+
+	private static native long[] delegateBatchWithHandles(long[] delegatorSecretKeys, byte[][] identities,
+			int identityLength, int[] levels, byte[] appendedIdentity, byte[] seeds, int numberOfThreads);
+
+	/**
+	 * Functions which decrypt a ciphertext for the identities of the secret key,
+	 * extended by the last identity. Instead of delegating a key for the extended
+	 * identities, only the key component for the last identity is derived, so the
+	 * cost does not grow with the level. The identities of the secret key are
+	 * already part of its key components, so 'identity' only contains the last
+	 * identity. Only the encoded message is returned.
+	 */
+	private static native byte[] decryptAtExtendedIdentity(byte[] secretKey, byte[] identity, int identityLength,
+			int numberOfIdentities, byte[] ciphertext, byte[] seed);
+
+	private static native byte[] decryptAtExtendedIdentityWithHandle(long secretKey, byte[] identity,
+			int identityLength, int numberOfIdentities, byte[] ciphertext, byte[] seed);
+
+	private static native int decryptAtExtendedIdentityDirect(ByteBuffer secretKey, ByteBuffer identity,
+			int identityLength, int numberOfIdentities, ByteBuffer ciphertext, ByteBuffer seed, int seedLength,
+			ByteBuffer message);
+
 	/**
 	 * GeneratedKeyLength, sizeOfSeed, k, k1 are temporarily set to these values.
 	 * k,k1 are required for the CCA transformation[4].
 	 */
 	private final int generatedKeyLength = 32;
-	private final int dpvsDimension = 6;
+	private static final int DPVS_DIMENSION = 6;
 	private final int sizeOfSeed = 32;
 	private final int k = 32;
 	private final int k1 = 96;
-	private int sizeOfG1;
-	private int sizeOfG2;
-	private int sizeOfcompressedGT;
-	private int sizeOfuncompressedGt;
+	/**
+	 * The sizes of encoded elements only depend on the curve. The native library
+	 * computes them once when it is loaded, so they are constants here.
+	 */
+	public static final int SIZE_OF_BN_MOD_ZP = getSizeOfBnModZp();
+	public static final int SIZE_OF_G1 = getSizeOfG1();
+	public static final int SIZE_OF_G2 = getSizeOfG2();
+	public static final int SIZE_OF_COMPRESSED_GT = getSizeOfGT();
+	public static final int SIZE_OF_UNCOMPRESSED_GT = getSizeOfuncompressedGT();
 	private int sizeOfCCAIdentityData;
+	/**
+	 * If set, public parameters and secret keys are kept decoded in native memory
+	 * and are only encoded, if they are persisted or sent.
+	 */
+	private boolean keepKeysDecoded;
+	/**
+	 * If set, encoded keys, identities, seeds and ciphertexts are passed to the
+	 * native library in direct buffers, which are pooled per thread.
+	 */
+	private boolean useDirectBuffers;
+	/**
+	 * Set, if SHA256 is used for the encapsulation and an identity has the size of
+	 * 'com'. Then the encapsulation is performed with a single call into the native
+	 * library, which appends 'com' as identity. Otherwise 'com' is computed in Java
+	 * and the random element is encrypted in a second call.
+	 */
+	private boolean usesFusedEncapsulation;
 	/**
 	 * Might change those algorithms later. These are required for the CCA
-	 * transformation[4].
+	 * transformation[4]. The context keeps the hash functions and scratch buffers,
+	 * so every thread uses its own instance.
 	 */
-	private SHA256Digest encapsulationHash;
-	private HKDFBytesGenerator keyedHash;
-	private HKDFBytesGenerator keyGenerator;
-	private HMac hmacAlgorithm;
+	private ThreadLocal<HibeCcaContext> ccaContexts;
 
 	/**
 	 * Constructor - Can be used to set specific hash functions (Not sure if
 	 * required)
 	 * 
+	 * The hash functions are copied for every thread, so they have to implement
+	 * ExtendedDigest and Memoable, like the digests of Bouncy Castle.
+	 * 
 	 * @param sizeOfIdentityData   - Size of the data used as identity information
 	 * @param hashForEncapsulation - hash function, which is used for the
 	 *                             encapsulation
 	 * @param hashForKeyGen        - hash function, which is used for key generation
 	 * @param hashForHmac          - hash function, which is used for the HMac
+	 * @throws IllegalArgumentException if a hash function does not implement
+	 *                                  ExtendedDigest and Memoable
 	 */
 	public Hibe(int sizeOfIdentityData, Digest hashForEncapsulation, Digest hashForKeyGen, Digest hashForHmac) {
-		try {
-			NativeUtils.loadLibraryFromJar("/liblwhibe11.so");
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
-		sizeOfG1 = getSizeOfG1();
-		sizeOfG2 = getSizeOfG2();
-		sizeOfcompressedGT = getSizeOfGT();
-		sizeOfuncompressedGt = getSizeOfuncompressedGT();
+		checkCopyable(hashForEncapsulation, "hashForEncapsulation");
+		checkCopyable(hashForKeyGen, "hashForKeyGen");
+		checkCopyable(hashForHmac, "hashForHmac");
 		sizeOfCCAIdentityData = sizeOfIdentityData + 1;
-		keyedHash = new HKDFBytesGenerator(hashForEncapsulation);
-		keyGenerator = new HKDFBytesGenerator(hashForKeyGen);
-		hmacAlgorithm = new HMac(hashForHmac);
+		ccaContexts = ThreadLocal.withInitial(
+				() -> new HibeCcaContext(copyOf((ExtendedDigest & Memoable) hashForEncapsulation),
+						copyOf((ExtendedDigest & Memoable) hashForKeyGen),
+						copyOf((ExtendedDigest & Memoable) hashForHmac), sizeOfSeed, k, k1, generatedKeyLength));
 
 	}
 
@@ -115,25 +240,47 @@ public class Hibe {
 	 * @param sizeOfIdentityData - Size of the data used as identity information
 	 */
 	public Hibe(int sizeOfIdentityData) {
-		try {
-			NativeUtils.loadLibraryFromJar("/liblwhibe11.so");
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
-		sizeOfG1 = getSizeOfG1();
-		sizeOfG2 = getSizeOfG2();
-		sizeOfcompressedGT = getSizeOfGT();
-		sizeOfuncompressedGt = getSizeOfuncompressedGT();
 		sizeOfCCAIdentityData = sizeOfIdentityData + 1;
-		SHA256Digest hashForEncapsulation = new SHA256Digest();
-		SHA256Digest hashForKeyGen = new SHA256Digest();
-		SHA256Digest hashForHmac = new SHA256Digest();
-		keyedHash = new HKDFBytesGenerator(hashForEncapsulation);
-		keyGenerator = new HKDFBytesGenerator(hashForKeyGen);
-		hmacAlgorithm = new HMac(hashForHmac);
+		usesFusedEncapsulation = sizeOfIdentityData == k;
+		ccaContexts = ThreadLocal.withInitial(() -> new HibeCcaContext(new SHA256Digest(), new SHA256Digest(),
+				new SHA256Digest(), sizeOfSeed, k, k1, generatedKeyLength));
 
 	}
 
+	/**
+	 * Constructor - Uses SHA256 as default hash function in encapsulation, key
+	 * generation, and HMac
+	 * 
+	 * @param sizeOfIdentityData - Size of the data used as identity information
+	 * @param keepKeysDecoded    - keep keys decoded in native memory, instead of
+	 *                           decoding them in every call
+	 */
+	public Hibe(int sizeOfIdentityData, boolean keepKeysDecoded) {
+		this(sizeOfIdentityData, keepKeysDecoded, false);
+	}
+
+	/**
+	 * Constructor - Uses SHA256 as default hash function in encapsulation, key
+	 * generation, and HMac
+	 * 
+	 * @param sizeOfIdentityData - Size of the data used as identity information
+	 * @param keepKeysDecoded    - keep keys decoded in native memory, instead of
+	 *                           decoding them in every call
+	 * @param useDirectBuffers   - pass encoded data in pooled direct buffers to the
+	 *                           native library. Cannot be combined with
+	 *                           'keepKeysDecoded', since decoded keys are passed
+	 *                           as pointers.
+	 * @throws IllegalArgumentException if both options are set
+	 */
+	public Hibe(int sizeOfIdentityData, boolean keepKeysDecoded, boolean useDirectBuffers) {
+		this(sizeOfIdentityData);
+		if (keepKeysDecoded && useDirectBuffers) {
+			throw new IllegalArgumentException("Keys kept decoded cannot be passed in direct buffers.");
+		}
+		this.keepKeysDecoded = keepKeysDecoded;
+		this.useDirectBuffers = useDirectBuffers;
+	}
+
 	/**
 	 * Calls the setup algorithm of the LWHIBE.
 	 * 
@@ -168,15 +315,15 @@ public class Hibe {
 		 * both the public parameters and the secret key. We have to save them
 		 * seperately.
 		 */
-		int sizeOfEncodedPublicKey = sizeOfcompressedGT * 2 + sizeOfG1 * (dpvsDimension * dpvsDimension);
-		int sizeOfEncodedSecretKey = sizeOfG2 * (dpvsDimension * dpvsDimension) + sizeOfG2 * dpvsDimension;
+		int sizeOfEncodedPublicKey = getSizeOfEncodedPublicParameter();
+		int sizeOfEncodedSecretKey = getSizeOfEncodedSecretKey(1);
 		byte[] publicParameter = new byte[sizeOfEncodedPublicKey];
 		byte[] secretKey = new byte[sizeOfEncodedSecretKey];
 
 		System.arraycopy(encodedKeys, 0, publicParameter, 0, sizeOfEncodedPublicKey);
 		System.arraycopy(encodedKeys, sizeOfEncodedPublicKey, secretKey, 0, sizeOfEncodedSecretKey);
 		return new HibeKeyPair(new HibeSecretKey(secretKey, encapsulationKey),
-				new HibePublicParameter(publicParameter, encapsulationKey));
+				HibePublicParameter.intern(new HibePublicParameter(publicParameter, encapsulationKey)));
 	}
 
 	/**
@@ -190,169 +337,477 @@ public class Hibe {
 	 */
 	public HibeOutput encapsulate(HibePublicParameter publicParameter, byte[] identity, int level,
 			SecureRandom randomness) {
-		byte[] seed = new byte[sizeOfSeed];
-		randomness.nextBytes(seed);
-		/**
-		 * Since the message space is GT, we generate a random GT Element used to
-		 * generate a key, and 'dec' for the encapsulation[4].
-		 */
-		byte[] randomElement = getRandomGtElement(seed);
+		HibeCcaContext context = ccaContexts.get();
+		return encapsulate(context, publicParameter,
+				context.encodeIdentities(identity, level, sizeOfCCAIdentityData), level, randomness);
+	}
 
-		/**
-		 * Encapsulate 'dec' for the CCA Transformation[4].
-		 */
-		byte[] com = new byte[k];
-		byte[] r = new byte[k];
-		/**
-		 * Dec are the first 'k1' bytes of the random element.
-		 */
-		byte[] dec = Arrays.copyOf(randomElement, k1);
-		byte[] inputForBytesGeneration = new byte[dec.length
-				+ publicParameter.getEncapsulationPublicParameter().length];
-		System.arraycopy(publicParameter.getEncapsulationPublicParameter(), 0, inputForBytesGeneration, 0,
-				publicParameter.getEncapsulationPublicParameter().length);
-		System.arraycopy(dec, 0, inputForBytesGeneration, publicParameter.getEncapsulationPublicParameter().length,
-				dec.length);
-		keyedHash.init(new HKDFParameters(inputForBytesGeneration, null, null));
-
-		keyedHash.generateBytes(com, 0, k);
-		encapsulationHash = new SHA256Digest();
-		encapsulationHash.update(dec, 0, k1);
-		encapsulationHash.doFinal(r, 0);
+	/**
+	 * This function generates a random key, and encrypts it with the LWHIBE. The
+	 * identity vector is already encoded, so it is passed without copying it.
+	 * 
+	 * @param publicParameter - public Parameters used for encryption
+	 * @param identity        - identity vector to encrypt to
+	 * @param randomness      - randomness used for generating keys.
+	 * @return key and encrypted key
+	 */
+	public HibeOutput encapsulate(HibePublicParameter publicParameter, HibeIdentity identity,
+			SecureRandom randomness) {
+		return encapsulate(ccaContexts.get(), publicParameter, identity.getEncodedIdentities(), identity.getLevel(),
+				randomness);
+	}
 
-		/**
-		 * Encode the identites for encryption[4]
-		 */
-		byte[] encodedIdentities = new byte[sizeOfCCAIdentityData * level + sizeOfCCAIdentityData];
+	/**
+	 * Generates a random key and encrypts it for the encoded identities.
+	 * 
+	 * @param context           - CCA context of the thread
+	 * @param publicParameter   - public Parameters used for encryption
+	 * @param encodedIdentities - encoded identities without 'com'
+	 * @param level             - 'depth' of the user
+	 * @param randomness        - randomness used for generating keys.
+	 * @return key and encrypted key
+	 */
+	private HibeOutput encapsulate(HibeCcaContext context, HibePublicParameter publicParameter,
+			byte[] encodedIdentities, int level, SecureRandom randomness) {
+		byte[] seed = context.nextSeed(randomness);
+		if (usesFusedEncapsulation) {
+			/**
+			 * Sample the random element, compute 'com' and encrypt the random element in a
+			 * single call. The native library appends 'com' to the encoded identities.
+			 */
+			byte[] encapsulation = encapsulateRandomElement(publicParameter, encodedIdentities, level, seed);
+			if (encapsulation == null) {
+				return null;
+			}
+			return completeEncapsulation(encapsulation);
+		} else {
+			/**
+			 * Since the message space is GT, we generate a random GT Element used to
+			 * generate a key, and 'dec' for the encapsulation[4].
+			 */
+			byte[] randomElement = getRandomGtElement(seed);
+
+			/**
+			 * Encapsulate 'dec', the first 'k1' bytes of the random element, for the CCA
+			 * Transformation[4].
+			 */
+			byte[] com = context.computeCom(publicParameter.getEncapsulationPublicParameter(), randomElement);
+
+			/**
+			 * Append 'com' to the identity information[4].
+			 */
+			byte[] encodedIdentitiesWithCom = context.appendCom(encodedIdentities, level, sizeOfCCAIdentityData, com);
+
+			/**
+			 * Encrypt the random Element
+			 */
+			seed = context.nextSeed(randomness);
+			byte[] ciphertext = encryptRandomElement(publicParameter, randomElement, encodedIdentitiesWithCom, level,
+					seed);
+			if (ciphertext == null) {
+				return null;
+			}
+			return completeEncapsulation(context, randomElement, com, ciphertext);
+		}
+	}
+
+	/**
+	 * Generates random keys and encrypts them with the LWHIBE, one for every public
+	 * parameter. If SHA256 is used for the encapsulation and identities have the
+	 * size of 'com', the whole batch is encapsulated with a single call into the
+	 * native library, which spreads the encapsulations over 'numberOfThreads'
+	 * native threads.
+	 * 
+	 * Every encapsulation uses its own seed, which is drawn from the randomness in
+	 * the order of the batch. So the outputs match those of consecutive calls of
+	 * encapsulate, independent of the number of threads.
+	 * 
+	 * @param publicParameters - public Parameters used for encryption
+	 * @param identities       - identities to encrypt to
+	 * @param levels           - 'depth' of the users
+	 * @param randomness       - randomness used for generating keys.
+	 * @param numberOfThreads  - number of native threads used for the batch
+	 * @return keys and encrypted keys in the order of the public parameters, or
+	 *         null if an encapsulation failed
+	 */
+	public List<HibeOutput> encapsulateAll(List<HibePublicParameter> publicParameters, List<byte[]> identities,
+			int[] levels, SecureRandom randomness, int numberOfThreads) {
+		byte[][] encodedIdentities = new byte[identities.size()][];
+		for (int i = 0; i < encodedIdentities.length; i++) {
+			encodedIdentities[i] = encodeIdentities(identities.get(i), levels[i]);
+		}
+		return encapsulateAll(publicParameters, encodedIdentities, levels, randomness, numberOfThreads);
+	}
+
+	/**
+	 * Generates random keys and encrypts them with the LWHIBE, one for every public
+	 * parameter, like encapsulateAll with identity information. The identity
+	 * vectors are already encoded, so they are passed without copying them.
+	 * 
+	 * @param publicParameters - public Parameters used for encryption
+	 * @param identities       - identity vectors to encrypt to
+	 * @param randomness       - randomness used for generating keys.
+	 * @param numberOfThreads  - number of native threads used for the batch
+	 * @return keys and encrypted keys in the order of the public parameters, or
+	 *         null if an encapsulation failed
+	 */
+	public List<HibeOutput> encapsulateAll(List<HibePublicParameter> publicParameters, List<HibeIdentity> identities,
+			SecureRandom randomness, int numberOfThreads) {
+		byte[][] encodedIdentities = new byte[identities.size()][];
+		int[] levels = new int[identities.size()];
+		for (int i = 0; i < encodedIdentities.length; i++) {
+			encodedIdentities[i] = identities.get(i).getEncodedIdentities();
+			levels[i] = identities.get(i).getLevel();
+		}
+		return encapsulateAll(publicParameters, encodedIdentities, levels, randomness, numberOfThreads);
+	}
+
+	/**
+	 * Encapsulates to the encoded identities.
+	 * 
+	 * @param publicParameters  - public Parameters used for encryption
+	 * @param encodedIdentities - encoded identities without 'com'
+	 * @param levels            - 'depth' of the users
+	 * @param randomness        - randomness used for generating keys.
+	 * @param numberOfThreads   - number of native threads used for the batch
+	 * @return keys and encrypted keys in the order of the public parameters, or
+	 *         null if an encapsulation failed
+	 */
+	private List<HibeOutput> encapsulateAll(List<HibePublicParameter> publicParameters, byte[][] encodedIdentities,
+			int[] levels, SecureRandom randomness, int numberOfThreads) {
+		int numberOfEncapsulations = publicParameters.size();
+		List<HibeOutput> outputs = new ArrayList<HibeOutput>(numberOfEncapsulations);
+		if (!usesFusedEncapsulation) {
+			HibeCcaContext context = ccaContexts.get();
+			for (int i = 0; i < numberOfEncapsulations; i++) {
+				HibeOutput output = encapsulate(context, publicParameters.get(i), encodedIdentities[i], levels[i],
+						randomness);
+				if (output == null) {
+					return null;
+				}
+				outputs.add(output);
+			}
+			return outputs;
+		}
+		byte[] seeds = new byte[sizeOfSeed * numberOfEncapsulations];
+		byte[] seed = new byte[sizeOfSeed];
+		byte[][] encapsulationKeys = new byte[numberOfEncapsulations][];
+		for (int i = 0; i < numberOfEncapsulations; i++) {
+			randomness.nextBytes(seed);
+			System.arraycopy(seed, 0, seeds, i * sizeOfSeed, sizeOfSeed);
+			encapsulationKeys[i] = publicParameters.get(i).getEncapsulationPublicParameter();
+		}
+		byte[][] encapsulations;
+		if (keepKeysDecoded) {
+			long[] publicParameterHandles = new long[numberOfEncapsulations];
+			for (int i = 0; i < numberOfEncapsulations; i++) {
+				publicParameterHandles[i] = publicParameters.get(i).nativePointer();
+			}
+			encapsulations = encapsulateBatchWithHandles(publicParameterHandles, encapsulationKeys, encodedIdentities,
+					sizeOfCCAIdentityData, levels, seeds, numberOfThreads);
+			NativeHandle.keepReachable(publicParameters);
+		} else {
+			byte[][] encodedPublicParameters = new byte[numberOfEncapsulations][];
+			for (int i = 0; i < numberOfEncapsulations; i++) {
+				encodedPublicParameters[i] = publicParameters.get(i).getEncodedHibePublicParameter();
+			}
+			encapsulations = encapsulateBatch(encodedPublicParameters, encapsulationKeys, encodedIdentities,
+					sizeOfCCAIdentityData, levels, seeds, numberOfThreads);
+		}
+		if (encapsulations == null) {
+			return null;
+		}
+		for (byte[] encapsulation : encapsulations) {
+			outputs.add(completeEncapsulation(encapsulation));
+		}
+		return outputs;
+	}
+
+	/**
+	 * Encodes the identites for the encryption[4] without 'com'.
+	 * 
+	 * @param identity - identity vector
+	 * @param level    - 'depth' of the user
+	 * @return encoded identities
+	 */
+	private byte[] encodeIdentities(byte[] identity, int level) {
+		byte[] encodedIdentities = new byte[sizeOfCCAIdentityData * level];
 		for (int i = 0; i < level; i++) {
 			encodedIdentities[i * sizeOfCCAIdentityData] = 0;
 			System.arraycopy(identity, i * (sizeOfCCAIdentityData - 1), encodedIdentities,
 					i * sizeOfCCAIdentityData + 1, sizeOfCCAIdentityData - 1);
 		}
-		/**
-		 * Append 'com' to the identity information
-		 */
-		encodedIdentities[sizeOfCCAIdentityData * level] = 1;
-		System.arraycopy(com, 0, encodedIdentities, sizeOfCCAIdentityData * level + 1, sizeOfCCAIdentityData - 1);
+		return encodedIdentities;
+	}
 
+	/**
+	 * Completes an encapsulation of the native library, which contains the random
+	 * element, 'com' and the ciphertext. The random element and the ciphertext are
+	 * read in place.
+	 * 
+	 * @param encapsulation - output of the native encapsulation
+	 * @return key and encrypted key
+	 */
+	private HibeOutput completeEncapsulation(byte[] encapsulation) {
+		HibeCcaContext context = ccaContexts.get();
+		int ciphertextOffset = SIZE_OF_COMPRESSED_GT + k;
+		byte[] mactag = context.computeMacTag(encapsulation, encapsulation, ciphertextOffset,
+				encapsulation.length - ciphertextOffset);
+		byte[] generatedKey = context.deriveKey(encapsulation, SIZE_OF_COMPRESSED_GT);
+		return new HibeOutput(generatedKey,
+				new HibeCiphertext(encapsulation, SIZE_OF_COMPRESSED_GT, ciphertextOffset, mactag));
+	}
+
+	/**
+	 * Computes the Mac Tag of the ciphertext and the generated key from the random
+	 * element[4].
+	 * 
+	 * @param context       - CCA context of the thread
+	 * @param randomElement - encoded random GT element
+	 * @param com           - 'com' of the encapsulation
+	 * @param ciphertext    - encrypted random element
+	 * @return key and encrypted key
+	 */
+	private HibeOutput completeEncapsulation(HibeCcaContext context, byte[] randomElement, byte[] com,
+			byte[] ciphertext) {
 		/**
-		 * Encrypt the random Element
-		 */
-		randomness.nextBytes(seed);
-		byte[] ciphertext = encrypt(publicParameter.getEncodedHibePublicParameter(), randomElement, encodedIdentities,
-				sizeOfCCAIdentityData, level + 1, seed);
-		/**
-		 * Compute the Mac Tag of the ciphertext[4].
+		 * Compute r from 'dec' and the Mac Tag of the ciphertext[4].
 		 */
-		hmacAlgorithm.init(new KeyParameter(r));
-		hmacAlgorithm.update(ciphertext, 0, ciphertext.length);
-		byte[] mactag = new byte[hmacAlgorithm.getMacSize()];
-		hmacAlgorithm.doFinal(mactag, 0);
+		byte[] mactag = context.computeMacTag(randomElement, ciphertext, 0, ciphertext.length);
 
 		/**
 		 * Use the remaining bytes of the random element to generate a key.
 		 */
-		byte[] keyGenerationSeed = new byte[randomElement.length - k1];
-		System.arraycopy(randomElement, k1, keyGenerationSeed, 0, randomElement.length - k1);
-		keyGenerator.init(new HKDFParameters(keyGenerationSeed, null, null));
-		byte[] generatedKey = new byte[generatedKeyLength];
-		keyGenerator.generateBytes(generatedKey, 0, generatedKeyLength);
+		byte[] generatedKey = context.deriveKey(randomElement, randomElement.length);
 
 		return new HibeOutput(generatedKey, new HibeCiphertext(com, ciphertext, mactag));
 	}
 
+	/**
+	 * Encrypts the random element with the configured native functions.
+	 * 
+	 * @param publicParameter   - public Parameters used for encryption
+	 * @param randomElement     - encoded random GT element
+	 * @param encodedIdentities - encoded identities including 'com'
+	 * @param level             - 'depth' of the user
+	 * @param seed              - seed for the randomness of the encryption
+	 * @return ciphertext, or null if the encryption failed
+	 */
+	private byte[] encryptRandomElement(HibePublicParameter publicParameter, byte[] randomElement,
+			byte[] encodedIdentities, int level, byte[] seed) {
+		if (keepKeysDecoded) {
+			byte[] ciphertext = encryptWithHandle(publicParameter.nativePointer(), randomElement, encodedIdentities,
+					sizeOfCCAIdentityData, level + 1, seed);
+			NativeHandle.keepReachable(publicParameter);
+			return ciphertext;
+		} else if (useDirectBuffers) {
+			HibeDirectBuffers buffers = HibeDirectBuffers.get();
+			int sizeOfCiphertext = encryptDirect(
+					checkRemaining(buffers.input(HibeDirectBuffers.KEY, publicParameter.getEncodedHibePublicParameter()),
+							getSizeOfEncodedPublicParameter(), "public parameter"),
+					checkRemaining(buffers.input(HibeDirectBuffers.MESSAGE, randomElement), SIZE_OF_COMPRESSED_GT,
+							"message"),
+					randomElement.length,
+					buffers.input(HibeDirectBuffers.IDENTITY, encodedIdentities, sizeOfCCAIdentityData * (level + 1)),
+					sizeOfCCAIdentityData, level + 1, buffers.input(HibeDirectBuffers.SEED, seed), seed.length,
+					buffers.output(HibeDirectBuffers.CIPHERTEXT, getSizeOfEncodedCiphertext(level + 1)));
+			if (sizeOfCiphertext == 0) {
+				return null;
+			}
+			return buffers.copy(HibeDirectBuffers.CIPHERTEXT, sizeOfCiphertext);
+		}
+		return encrypt(publicParameter.getEncodedHibePublicParameter(), randomElement, encodedIdentities,
+				sizeOfCCAIdentityData, level + 1, seed);
+	}
+
+	/**
+	 * Samples a random element, computes 'com' and encrypts the random element with
+	 * a single call of the configured native functions.
+	 * 
+	 * @param publicParameter   - public Parameters used for encryption
+	 * @param encodedIdentities - encoded identities without 'com'
+	 * @param level             - 'depth' of the user
+	 * @param seed              - seed for the randomness of the encapsulation
+	 * @return random element, 'com' and ciphertext, or null if the encapsulation
+	 *         failed
+	 */
+	private byte[] encapsulateRandomElement(HibePublicParameter publicParameter, byte[] encodedIdentities, int level,
+			byte[] seed) {
+		if (keepKeysDecoded) {
+			byte[] encapsulation = encapsulateWithHandle(publicParameter.nativePointer(),
+					publicParameter.getEncapsulationPublicParameter(), encodedIdentities, sizeOfCCAIdentityData, level,
+					seed);
+			NativeHandle.keepReachable(publicParameter);
+			return encapsulation;
+		} else if (useDirectBuffers) {
+			HibeDirectBuffers buffers = HibeDirectBuffers.get();
+			byte[] encapsulationKey = publicParameter.getEncapsulationPublicParameter();
+			int sizeOfEncapsulation = encapsulateDirect(
+					checkRemaining(buffers.input(HibeDirectBuffers.KEY, publicParameter.getEncodedHibePublicParameter()),
+							getSizeOfEncodedPublicParameter(), "public parameter"),
+					buffers.input(HibeDirectBuffers.ENCAPSULATION_KEY, encapsulationKey), encapsulationKey.length,
+					buffers.input(HibeDirectBuffers.IDENTITY, encodedIdentities, sizeOfCCAIdentityData * level),
+					sizeOfCCAIdentityData, level, buffers.input(HibeDirectBuffers.SEED, seed), seed.length,
+					buffers.output(HibeDirectBuffers.CIPHERTEXT,
+							SIZE_OF_COMPRESSED_GT + k + getSizeOfEncodedCiphertext(level + 1)));
+			if (sizeOfEncapsulation == 0) {
+				return null;
+			}
+			return buffers.copy(HibeDirectBuffers.CIPHERTEXT, sizeOfEncapsulation);
+		}
+		return encapsulate(publicParameter.getEncodedHibePublicParameter(),
+				publicParameter.getEncapsulationPublicParameter(), encodedIdentities, sizeOfCCAIdentityData, level,
+				seed);
+	}
+
+	/**
+	 * Decapsulates a Hibe ciphertext. The identities of the user are already part
+	 * of the secret key, so only its level is used.
+	 * 
+	 * @param secretKey  - secret key used for decryption
+	 * @param ciphertext - hibe ciphertext
+	 * @param identity   - identity vector, not used
+	 * @param level      - 'depth' of the user
+	 * @return decrypted key
+	 * @deprecated the identity is ignored, use
+	 *             {@link #decapsulate(HibeSecretKey, HibeCiphertext, HibeIdentity)}
+	 */
+	@Deprecated
+	public byte[] decapsulate(HibeSecretKey secretKey, HibeCiphertext ciphertext, byte[] identity, int level) {
+		HibeCcaContext context = ccaContexts.get();
+		return decapsulate(context, secretKey, ciphertext, level, context.nextDelegationSeed());
+	}
+
 	/**
 	 * Decapsulates a Hibe ciphertext
 	 * 
+	 * The decryption derives the key component for 'com' from the secret key, which
+	 * is re-randomized with a seed. The seed is drawn from a fast DRBG of the
+	 * thread, which is seeded once with the system randomness. This is safe,
+	 * because the key component is only used for this decryption and never leaves
+	 * the native library, and the decrypted key does not depend on the seed. So
+	 * the caller does not have to provide a randomness.
+	 * 
 	 * @param secretKey  - secret key used for decryption
 	 * @param ciphertext - hibe ciphertext
 	 * @param identity   - identity vector
+	 * @return decrypted key
+	 */
+	public byte[] decapsulate(HibeSecretKey secretKey, HibeCiphertext ciphertext, HibeIdentity identity) {
+		HibeCcaContext context = ccaContexts.get();
+		return decapsulate(context, secretKey, ciphertext, identity.getLevel(), context.nextDelegationSeed());
+	}
+
+	/**
+	 * Decapsulates a Hibe ciphertext. Uses the randomness of the caller for the
+	 * seed of the key component for 'com'.
+	 * 
+	 * @param secretKey  - secret key used for decryption
+	 * @param ciphertext - hibe ciphertext
+	 * @param identity   - identity vector
+	 * @param randomness - randomness used for the key component for 'com'
+	 * @return decrypted key
+	 */
+	public byte[] decapsulate(HibeSecretKey secretKey, HibeCiphertext ciphertext, HibeIdentity identity,
+			SecureRandom randomness) {
+		HibeCcaContext context = ccaContexts.get();
+		return decapsulate(context, secretKey, ciphertext, identity.getLevel(), context.nextSeed(randomness));
+	}
+
+	/**
+	 * Decapsulates a Hibe ciphertext. Uses the randomness of the caller for the
+	 * seed of the key component for 'com'.
+	 * 
+	 * @param secretKey  - secret key used for decryption
+	 * @param ciphertext - hibe ciphertext
+	 * @param identity   - identity vector, not used
 	 * @param level      - 'depth' of the user
+	 * @param randomness - randomness used for the key component for 'com'
 	 * @return decrypted key
+	 * @deprecated the identity is ignored, use
+	 *             {@link #decapsulate(HibeSecretKey, HibeCiphertext, HibeIdentity, SecureRandom)}
 	 */
-	public byte[] decapsulate(HibeSecretKey secretKey, HibeCiphertext ciphertext, byte[] identity, int level) {
-		/**
-		 * Encode the identites[4].
-		 */
-		byte[] encodedIdentities = new byte[sizeOfCCAIdentityData * level + sizeOfCCAIdentityData];
-		for (int i = 0; i < level; i++) {
-			encodedIdentities[i * sizeOfCCAIdentityData] = 0;
-			System.arraycopy(identity, i * (sizeOfCCAIdentityData - 1), encodedIdentities,
-					i * sizeOfCCAIdentityData + 1, sizeOfCCAIdentityData - 1);
-		}
-		/**
-		 * Append com to identites[4].
-		 */
-		encodedIdentities[sizeOfCCAIdentityData * level] = 1;
-		System.arraycopy(ciphertext.getCom(), 0, encodedIdentities, sizeOfCCAIdentityData * level + 1,
-				sizeOfCCAIdentityData - 1);
+	@Deprecated
+	public byte[] decapsulate(HibeSecretKey secretKey, HibeCiphertext ciphertext, byte[] identity, int level,
+			SecureRandom randomness) {
+		HibeCcaContext context = ccaContexts.get();
+		return decapsulate(context, secretKey, ciphertext, level, context.nextSeed(randomness));
+	}
 
+	/**
+	 * Decapsulates a Hibe ciphertext with the given seed for the key component for
+	 * 'com'.
+	 * 
+	 * @param context    - CCA context of the thread
+	 * @param secretKey  - secret key used for decryption
+	 * @param ciphertext - hibe ciphertext
+	 * @param level      - 'depth' of the user
+	 * @param seed       - seed for the key component for 'com'
+	 * @return decrypted key, or null if the ciphertext is invalid
+	 */
+	private byte[] decapsulate(HibeCcaContext context, HibeSecretKey secretKey, HibeCiphertext ciphertext, int level,
+			byte[] seed) {
 		/**
-		 * Key Delegation needs a seed. Since this key is only used once, I think we can
-		 * generate a randomness here, use it once and discard it. Since the decryption
-		 * is deterministic I think it is unpleasent to let the caller of the
-		 * decapsulate function provide a randomness.
-		 */
-		SecureRandom randomness = new SecureRandom();
-		byte[] seed = new byte[sizeOfSeed];
-		randomness.nextBytes(seed);
-		/**
-		 * Delegate a key for the encoded identity[4].
+		 * The ciphertext is received from the peer. Its size has to match the level,
+		 * since the native library decodes the components of a ciphertext at 'level'+1.
 		 */
-		byte[] decryptionKey = delegate(secretKey.getEncodedHibeSecretKey(), encodedIdentities, sizeOfCCAIdentityData,
-				level + 1, seed);
-
+		if (ciphertext.getCiphertext().length != getSizeOfEncodedCiphertext(level + 1)) {
+			return null;
+		}
 		/**
-		 * Decrypt the message(which is a random GT Element).
+		 * Encode com, which is appended to the identites[4]. The identities of the
+		 * user are already part of the secret key, so they are not encoded.
 		 */
-		byte[] message = decrypt(decryptionKey, ciphertext.getCiphertext(), level + 1);
+		byte[] encodedCom = context.encodeCom(sizeOfCCAIdentityData, ciphertext.getCom());
 
 		/**
-		 * Perform encapsulation check[4]
+		 * Decrypt the message(which is a random GT Element) at the encoded identity[4].
+		 * The native library derives the key component for 'com' from the secret key,
+		 * instead of delegating a whole key.
 		 */
-		byte[] compareCom = new byte[k];
-		byte[] r = new byte[k];
-		byte[] dec = Arrays.copyOf(message, k1);
-		byte[] inputForBytesGeneration = new byte[dec.length + secretKey.getEncapsulationKey().length];
-		System.arraycopy(secretKey.getEncapsulationKey(), 0, inputForBytesGeneration, 0,
-				secretKey.getEncapsulationKey().length);
-		System.arraycopy(dec, 0, inputForBytesGeneration, secretKey.getEncapsulationKey().length, dec.length);
-		keyedHash.init(new HKDFParameters(inputForBytesGeneration, null, null));
+		byte[] message;
+		if (keepKeysDecoded) {
+			message = decryptAtExtendedIdentityWithHandle(secretKey.nativePointer(), encodedCom, sizeOfCCAIdentityData,
+					level + 1, ciphertext.getCiphertext(), seed);
+			NativeHandle.keepReachable(secretKey);
+		} else if (useDirectBuffers) {
+			HibeDirectBuffers buffers = HibeDirectBuffers.get();
+			int sizeOfMessage = decryptAtExtendedIdentityDirect(
+					checkRemaining(buffers.input(HibeDirectBuffers.KEY, secretKey.getEncodedHibeSecretKey()),
+							getSizeOfEncodedSecretKey(level), "secret key"),
+					buffers.input(HibeDirectBuffers.IDENTITY, encodedCom, sizeOfCCAIdentityData),
+					sizeOfCCAIdentityData, level + 1,
+					buffers.input(HibeDirectBuffers.CIPHERTEXT, ciphertext.getCiphertext()),
+					buffers.input(HibeDirectBuffers.SEED, seed), seed.length,
+					buffers.output(HibeDirectBuffers.MESSAGE, SIZE_OF_COMPRESSED_GT));
+			if (sizeOfMessage == 0) {
+				return null;
+			}
+			message = buffers.copy(HibeDirectBuffers.MESSAGE, sizeOfMessage);
+		} else {
+			message = decryptAtExtendedIdentity(secretKey.getEncodedHibeSecretKey(), encodedCom, sizeOfCCAIdentityData,
+					level + 1, ciphertext.getCiphertext(), seed);
+		}
+		if (message == null) {
+			return null;
+		}
 
 		/**
-		 * Check if com' = com (from ciphertext)[4]
+		 * Perform encapsulation check, check if com' = com (from ciphertext)[4]
 		 */
-		keyedHash.generateBytes(compareCom, 0, k);
-		if (!Arrays.equals(compareCom, ciphertext.getCom())) {
+		if (!context.checkCom(secretKey.getEncapsulationKey(), message, ciphertext.getCom())) {
 			return null;
 		}
 		/**
-		 * Compute r[4]
-		 */
-		encapsulationHash = new SHA256Digest();
-		encapsulationHash.update(dec, 0, k1);
-		encapsulationHash.doFinal(r, 0);
-
-		/**
-		 * Check the Mac Tag[4]
+		 * Compute r and check the Mac Tag[4]
 		 */
-		hmacAlgorithm.init(new KeyParameter(r));
-		hmacAlgorithm.update(ciphertext.getCiphertext(), 0, ciphertext.getCiphertext().length);
-		byte[] mactag = new byte[hmacAlgorithm.getMacSize()];
-		hmacAlgorithm.doFinal(mactag, 0);
-		if (!Arrays.equals(mactag, ciphertext.getMacTag())) {
+		if (!context.checkMacTag(message, ciphertext.getCiphertext(), ciphertext.getMacTag())) {
 			return null;
 		}
 		/**
 		 * Compute the key
 		 */
-		byte[] keyGenerationSeed = new byte[message.length - k1];
-		System.arraycopy(message, k1, keyGenerationSeed, 0, message.length - k1);
-		keyGenerator.init(new HKDFParameters(keyGenerationSeed, null, null));
-		byte[] generatedKey = new byte[generatedKeyLength];
-		keyGenerator.generateBytes(generatedKey, 0, generatedKeyLength);
-
-		return generatedKey;
+		return context.deriveKey(message, message.length);
 	}
 
 	/**
@@ -365,25 +820,265 @@ public class Hibe {
 	 * @return secret key for 'identity'
 	 */
 	public HibeSecretKey delegate(HibeSecretKey secretKey, byte[] identity, int level, SecureRandom randomness) {
-		byte[] seed = new byte[sizeOfSeed];
-		randomness.nextBytes(seed);
-
 		/**
 		 * Encode identity[4]
 		 */
-		byte[] encodedIdentities = new byte[sizeOfCCAIdentityData * level];
-		for (int i = 0; i < level; i++) {
-			encodedIdentities[i * sizeOfCCAIdentityData] = 0;
-			System.arraycopy(identity, i * (sizeOfCCAIdentityData - 1), encodedIdentities,
-					i * sizeOfCCAIdentityData + 1, sizeOfCCAIdentityData - 1);
-		}
+		return delegateToEncodedIdentities(secretKey, encodeIdentities(identity, level), level, randomness);
+	}
+
+	/**
+	 * Performs the delegation algorithm, like delegate with identity information.
+	 * 
+	 * @param secretKey  - secret key of the delegator
+	 * @param identity   - identity vector, which gets a secret key
+	 * @param randomness - randomness used for value generation
+	 * @return secret key for 'identity'
+	 */
+	public HibeSecretKey delegate(HibeSecretKey secretKey, HibeIdentity identity, SecureRandom randomness) {
+		return delegateToEncodedIdentities(secretKey, identity.getEncodedIdentities(), identity.getLevel(),
+				randomness);
+	}
+
+	/**
+	 * Delegates to the encoded identities.
+	 * 
+	 * @param secretKey         - secret key of the delegator
+	 * @param encodedIdentities - encoded identities
+	 * @param level             - 'depth' of the new user
+	 * @param randomness        - randomness used for value generation
+	 * @return secret key for the identities
+	 */
+	private HibeSecretKey delegateToEncodedIdentities(HibeSecretKey secretKey, byte[] encodedIdentities, int level,
+			SecureRandom randomness) {
+		byte[] seed = new byte[sizeOfSeed];
+		randomness.nextBytes(seed);
+
 		/**
 		 * Delegate Secret Key
 		 */
+		if (keepKeysDecoded) {
+			long delegatedSecretKey = delegateWithHandle(secretKey.nativePointer(), encodedIdentities,
+					sizeOfCCAIdentityData, level, seed);
+			NativeHandle.keepReachable(secretKey);
+			if (delegatedSecretKey == 0) {
+				return null;
+			}
+			return new HibeSecretKey(delegatedSecretKey, secretKey.getEncapsulationKey());
+		}
+		if (useDirectBuffers) {
+			HibeDirectBuffers buffers = HibeDirectBuffers.get();
+			int sizeOfSecretKey = delegateDirect(
+					checkRemaining(buffers.input(HibeDirectBuffers.KEY, secretKey.getEncodedHibeSecretKey()),
+							getSizeOfEncodedSecretKey(level - 1), "delegator secret key"),
+					buffers.input(HibeDirectBuffers.IDENTITY, encodedIdentities, sizeOfCCAIdentityData * level),
+					sizeOfCCAIdentityData, level, buffers.input(HibeDirectBuffers.SEED, seed), seed.length,
+					buffers.output(HibeDirectBuffers.SECRET_KEY, getSizeOfEncodedSecretKey(level)));
+			if (sizeOfSecretKey == 0) {
+				return null;
+			}
+			return new HibeSecretKey(buffers.copy(HibeDirectBuffers.SECRET_KEY, sizeOfSecretKey),
+					secretKey.getEncapsulationKey());
+		}
 		byte[] delegatedSecretKey = delegate(secretKey.getEncodedHibeSecretKey(), encodedIdentities,
 				sizeOfCCAIdentityData, level, seed);
 
 		return new HibeSecretKey(delegatedSecretKey, secretKey.getEncapsulationKey());
 	}
 
+	/**
+	 * Delegates several secret keys to their identities with the same identity
+	 * appended. The whole batch is delegated with a single call into the native
+	 * library, which decodes the appended identity once and spreads the
+	 * delegations over 'numberOfThreads' native threads.
+	 * 
+	 * Every delegation uses its own seed, which is drawn from the randomness in
+	 * the order of the batch. So the delegated keys match those of consecutive
+	 * calls of delegate, independent of the number of threads.
+	 * 
+	 * @param secretKeys       - secret keys used for delegation
+	 * @param identities       - identity vectors of the secret keys
+	 * @param levels           - 'depth' of the secret keys
+	 * @param appendedIdentity - identity, which is appended to every identity
+	 *                         vector
+	 * @param randomness       - randomness used for delegation
+	 * @param numberOfThreads  - number of native threads used for the batch
+	 * @return delegated secret keys in the order of the secret keys, or null if a
+	 *         delegation failed
+	 */
+	public List<HibeSecretKey> delegateAll(List<HibeSecretKey> secretKeys, List<byte[]> identities, int[] levels,
+			byte[] appendedIdentity, SecureRandom randomness, int numberOfThreads) {
+		byte[][] encodedIdentities = new byte[identities.size()][];
+		for (int i = 0; i < encodedIdentities.length; i++) {
+			encodedIdentities[i] = encodeIdentities(identities.get(i), levels[i]);
+		}
+		return delegateAll(secretKeys, encodedIdentities, levels, appendedIdentity, randomness, numberOfThreads);
+	}
+
+	/**
+	 * Delegates several secret keys to their identity vectors with the same
+	 * identity appended, like delegateAll with identity information. The identity
+	 * vectors are already encoded, so they are passed without copying them.
+	 * 
+	 * @param secretKeys       - secret keys used for delegation
+	 * @param identities       - identity vectors of the secret keys
+	 * @param appendedIdentity - identity, which is appended to every identity
+	 *                         vector
+	 * @param randomness       - randomness used for delegation
+	 * @param numberOfThreads  - number of native threads used for the batch
+	 * @return delegated secret keys in the order of the secret keys, or null if a
+	 *         delegation failed
+	 */
+	public List<HibeSecretKey> delegateAll(List<HibeSecretKey> secretKeys, List<HibeIdentity> identities,
+			byte[] appendedIdentity, SecureRandom randomness, int numberOfThreads) {
+		byte[][] encodedIdentities = new byte[identities.size()][];
+		int[] levels = new int[identities.size()];
+		for (int i = 0; i < encodedIdentities.length; i++) {
+			encodedIdentities[i] = identities.get(i).getEncodedIdentities();
+			levels[i] = identities.get(i).getLevel();
+		}
+		return delegateAll(secretKeys, encodedIdentities, levels, appendedIdentity, randomness, numberOfThreads);
+	}
+
+	/**
+	 * Delegates the secret keys to the encoded identities with the appended
+	 * identity.
+	 * 
+	 * @param secretKeys        - secret keys used for delegation
+	 * @param encodedIdentities - encoded identities of the secret keys
+	 * @param levels            - 'depth' of the secret keys
+	 * @param appendedIdentity  - identity, which is appended to every identity
+	 *                          vector
+	 * @param randomness        - randomness used for delegation
+	 * @param numberOfThreads   - number of native threads used for the batch
+	 * @return delegated secret keys in the order of the secret keys, or null if a
+	 *         delegation failed
+	 */
+	private List<HibeSecretKey> delegateAll(List<HibeSecretKey> secretKeys, byte[][] encodedIdentities, int[] levels,
+			byte[] appendedIdentity, SecureRandom randomness, int numberOfThreads) {
+		int numberOfDelegations = secretKeys.size();
+		byte[] seeds = new byte[sizeOfSeed * numberOfDelegations];
+		byte[] seed = new byte[sizeOfSeed];
+		int[] delegatedLevels = new int[numberOfDelegations];
+		for (int i = 0; i < numberOfDelegations; i++) {
+			randomness.nextBytes(seed);
+			System.arraycopy(seed, 0, seeds, i * sizeOfSeed, sizeOfSeed);
+			delegatedLevels[i] = levels[i] + 1;
+		}
+		byte[] encodedAppendedIdentity = encodeIdentities(appendedIdentity, 1);
+		List<HibeSecretKey> delegatedSecretKeys = new ArrayList<HibeSecretKey>(numberOfDelegations);
+		if (keepKeysDecoded) {
+			long[] secretKeyHandles = new long[numberOfDelegations];
+			for (int i = 0; i < numberOfDelegations; i++) {
+				secretKeyHandles[i] = secretKeys.get(i).nativePointer();
+			}
+			long[] delegatedHandles = delegateBatchWithHandles(secretKeyHandles, encodedIdentities,
+					sizeOfCCAIdentityData, delegatedLevels, encodedAppendedIdentity, seeds, numberOfThreads);
+			NativeHandle.keepReachable(secretKeys);
+			if (delegatedHandles == null) {
+				return null;
+			}
+			for (int i = 0; i < numberOfDelegations; i++) {
+				delegatedSecretKeys
+						.add(new HibeSecretKey(delegatedHandles[i], secretKeys.get(i).getEncapsulationKey()));
+			}
+			return delegatedSecretKeys;
+		}
+		byte[][] encodedSecretKeys = new byte[numberOfDelegations][];
+		for (int i = 0; i < numberOfDelegations; i++) {
+			encodedSecretKeys[i] = secretKeys.get(i).getEncodedHibeSecretKey();
+		}
+		byte[][] delegatedEncodings = delegateBatch(encodedSecretKeys, encodedIdentities, sizeOfCCAIdentityData,
+				delegatedLevels, encodedAppendedIdentity, seeds, numberOfThreads);
+		if (delegatedEncodings == null) {
+			return null;
+		}
+		for (int i = 0; i < numberOfDelegations; i++) {
+			delegatedSecretKeys.add(new HibeSecretKey(delegatedEncodings[i], secretKeys.get(i).getEncapsulationKey()));
+		}
+		return delegatedSecretKeys;
+	}
+
+	/**
+	 * Checks, that a hash function can be copied for every thread.
+	 * 
+	 * @param digest - hash function
+	 * @param name   - name of the parameter for the exception
+	 * @throws IllegalArgumentException if the hash function does not implement
+	 *                                  ExtendedDigest and Memoable
+	 */
+	private static void checkCopyable(Digest digest, String name) {
+		if (!(digest instanceof ExtendedDigest) || !(digest instanceof Memoable)) {
+			throw new IllegalArgumentException(
+					name + " has to implement ExtendedDigest and Memoable, since it is copied for every thread.");
+		}
+	}
+
+	/**
+	 * Copies a hash function. Memoable.copy returns an instance of the same class.
+	 * 
+	 * @param digest - hash function
+	 * @return copy of the hash function
+	 */
+	@SuppressWarnings("unchecked")
+	private static <D extends ExtendedDigest & Memoable> D copyOf(D digest) {
+		return (D) digest.copy();
+	}
+
+	/**
+	 * Checks, that a direct buffer holds exactly the encoded size of an element,
+	 * before it is decoded by the native library.
+	 * 
+	 * @param buffer - direct buffer with the encoded element
+	 * @param size   - expected size of the encoded element
+	 * @param name   - name of the element for the exception
+	 * @return the buffer
+	 * @throws IllegalArgumentException if the buffer does not hold 'size' bytes
+	 */
+	private static ByteBuffer checkRemaining(ByteBuffer buffer, int size, String name) {
+		if (buffer.remaining() != size) {
+			throw new IllegalArgumentException(
+					"Encoded " + name + " has " + buffer.remaining() + " bytes instead of " + size + ".");
+		}
+		return buffer;
+	}
+
+	/**
+	 * Returns the size of encoded public parameters.
+	 * 
+	 * @return size of encoded public parameters
+	 */
+	public static int getSizeOfEncodedPublicParameter() {
+		return SIZE_OF_COMPRESSED_GT * 2 + SIZE_OF_G1 * (DPVS_DIMENSION * DPVS_DIMENSION);
+	}
+
+	/**
+	 * Returns the size of an encoded secret key.
+	 * 
+	 * @param level - level of the secret key
+	 * @return size of an encoded secret key at 'level'
+	 */
+	public static int getSizeOfEncodedSecretKey(int level) {
+		return SIZE_OF_G2 * (DPVS_DIMENSION * DPVS_DIMENSION) + SIZE_OF_G2 * DPVS_DIMENSION * level;
+	}
+
+	/**
+	 * Returns the level of an encoded secret key.
+	 * 
+	 * @param sizeOfEncodedSecretKey - size of the encoded secret key
+	 * @return level of the secret key
+	 */
+	static int getLevelOfEncodedSecretKey(int sizeOfEncodedSecretKey) {
+		return (sizeOfEncodedSecretKey - SIZE_OF_G2 * (DPVS_DIMENSION * DPVS_DIMENSION)) / (SIZE_OF_G2 * DPVS_DIMENSION);
+	}
+
+	/**
+	 * Returns the size of an encoded ciphertext.
+	 * 
+	 * @param level - level of the ciphertext
+	 * @return size of an encoded ciphertext at 'level'
+	 */
+	public static int getSizeOfEncodedCiphertext(int level) {
+		return SIZE_OF_UNCOMPRESSED_GT + SIZE_OF_G1 * DPVS_DIMENSION * level;
+	}
+
 }
@@ -0,0 +1,366 @@
+package de.rub.rkeinstantiation.hibewrapper;
+
+import java.security.SecureRandom;
+
+import org.bouncycastle.crypto.Digest;
+import org.bouncycastle.crypto.ExtendedDigest;
+import org.bouncycastle.crypto.digests.SHA256Digest;
+import org.bouncycastle.util.Arrays;
+import org.bouncycastle.util.Memoable;
+
+import de.rub.rkeinstantiation.utility.SecureRandomBuilder;
+
+/**
+ * State of the CPA -> CCA transformation[1] of the Hibe for a single thread.
+ *
+ * Computes 'com', the Mac Tag and the generated key like the HKDFBytesGenerator
+ * and HMac of bouncy castle, but feeds the digests directly from the offsets of
+ * the random element and the ciphertext and writes into preallocated buffers.
+ * The HMac states for the all-zero salt of the HKDF extraction are computed
+ * once and restored with Memoable.reset.
+ *
+ * The transformation is not free of allocations. These remain per call:
+ * <ul>
+ * <li>the generated key of deriveKey, which is returned to the caller of the
+ * Hibe and has to outlive the context's buffers,</li>
+ * <li>the results of the native library (random element, ciphertext or
+ * message), which are returned as new arrays or copied out of the direct
+ * buffers,</li>
+ * <li>the copies of 'com', the ciphertext and the Mac Tag, which are kept by
+ * the HibeCiphertext.</li>
+ * </ul>
+ *
+ * The seeds for the decryption in the decapsulation are drawn from a ChaCha20
+ * DRBG of the context, which is seeded once per thread with the system
+ * randomness. So the decapsulation neither creates a SecureRandom nor contends
+ * for the lock of the system randomness.
+ *
+ * Buffers returned by the functions are overwritten by the next call.
+ *
+ * [1]Chosen-Ciphertext Security from Identity-Based Encryption
+ * http://boneh.com/pubs/papers/ccaibejour.pdf
+ *
+ * @author Marco Smeets
+ *
+ */
+final class HibeCcaContext {
+
+	private static final byte IPAD = (byte) 0x36;
+	private static final byte OPAD = (byte) 0x5c;
+
+	private final int k;
+	private final int k1;
+	private final int generatedKeyLength;
+
+	/**
+	 * Digests of the HKDF for 'com', the HKDF for the key and the HMac for the Mac
+	 * Tag.
+	 */
+	private final ExtendedDigest keyedHash;
+	private final ExtendedDigest keyGenerator;
+	private final ExtendedDigest hmacAlgorithm;
+	private final Digest encapsulationHash;
+	/**
+	 * The digests of the HKDFs, which are reset to the states of the all-zero salt.
+	 */
+	private final Memoable resettableKeyedHash;
+	private final Memoable resettableKeyGenerator;
+	private final Memoable keyedHashInnerState;
+	private final Memoable keyedHashOuterState;
+	private final Memoable keyGeneratorInnerState;
+	private final Memoable keyGeneratorOuterState;
+
+	private final byte[] seed;
+	private SecureRandom delegationRandomness;
+	private byte[] identities;
+	private final byte[] com;
+	private final byte[] r;
+	private final byte[] macTag;
+	private final byte[] pseudorandomKey;
+	private final byte[] block;
+	private final byte[] innerPad;
+	private final byte[] outerPad;
+
+	/**
+	 * Creates the context. The digests are used exclusively by the context.
+	 *
+	 * @param keyedHash          - digest of the HKDF, which computes 'com'
+	 * @param keyGenerator       - digest of the HKDF, which generates the key
+	 * @param hmacAlgorithm      - digest of the HMac, which computes the Mac Tag
+	 * @param sizeOfSeed         - size of the seeds for the native library
+	 * @param k                  - size of 'com' and r
+	 * @param k1                 - size of 'dec'
+	 * @param generatedKeyLength - size of the generated key
+	 */
+	<K extends ExtendedDigest & Memoable, G extends ExtendedDigest & Memoable> HibeCcaContext(K keyedHash,
+			G keyGenerator, ExtendedDigest hmacAlgorithm, int sizeOfSeed, int k, int k1, int generatedKeyLength) {
+		this.keyedHash = keyedHash;
+		this.keyGenerator = keyGenerator;
+		this.hmacAlgorithm = hmacAlgorithm;
+		resettableKeyedHash = keyedHash;
+		resettableKeyGenerator = keyGenerator;
+		this.k = k;
+		this.k1 = k1;
+		this.generatedKeyLength = generatedKeyLength;
+		encapsulationHash = new SHA256Digest();
+
+		int maximumBlockLength = Math.max(blockLength(keyedHash),
+				Math.max(blockLength(keyGenerator), blockLength(hmacAlgorithm)));
+		int maximumDigestSize = Math.max(keyedHash.getDigestSize(),
+				Math.max(keyGenerator.getDigestSize(), hmacAlgorithm.getDigestSize()));
+		seed = new byte[sizeOfSeed];
+		identities = new byte[0];
+		com = new byte[k];
+		r = new byte[encapsulationHash.getDigestSize()];
+		macTag = new byte[hmacAlgorithm.getDigestSize()];
+		pseudorandomKey = new byte[maximumDigestSize];
+		block = new byte[Math.max(maximumBlockLength, maximumDigestSize)];
+		innerPad = new byte[maximumBlockLength];
+		outerPad = new byte[maximumBlockLength];
+
+		keyedHashInnerState = zeroKeyState(keyedHash, IPAD);
+		keyedHashOuterState = zeroKeyState(keyedHash, OPAD);
+		keyGeneratorInnerState = zeroKeyState(keyGenerator, IPAD);
+		keyGeneratorOuterState = zeroKeyState(keyGenerator, OPAD);
+	}
+
+	/**
+	 * Fills the seed buffer with the randomness.
+	 *
+	 * @param randomness
+	 * @return seed buffer
+	 */
+	byte[] nextSeed(SecureRandom randomness) {
+		randomness.nextBytes(seed);
+		return seed;
+	}
+
+	/**
+	 * Fills the seed buffer for the key component of a single decryption. The DRBG
+	 * is created at the first call.
+	 *
+	 * @return seed buffer
+	 */
+	byte[] nextDelegationSeed() {
+		if (delegationRandomness == null) {
+			byte[] drbgSeed = new byte[seed.length];
+			new SecureRandom().nextBytes(drbgSeed);
+			delegationRandomness = SecureRandomBuilder.createDeterministicRandomness(drbgSeed);
+			Arrays.fill(drbgSeed, (byte) 0);
+		}
+		return nextSeed(delegationRandomness);
+	}
+
+	/**
+	 * Encodes the identities for the encryption[1] without 'com'. The buffer may
+	 * be longer than the encoded identities and has room to append 'com'.
+	 *
+	 * @param identity              - identity vector
+	 * @param level                 - 'depth' of the user
+	 * @param sizeOfCCAIdentityData - size of an encoded identity
+	 * @return identity buffer
+	 */
+	byte[] encodeIdentities(byte[] identity, int level, int sizeOfCCAIdentityData) {
+		ensureIdentityCapacity(sizeOfCCAIdentityData * (level + 1));
+		for (int i = 0; i < level; i++) {
+			identities[i * sizeOfCCAIdentityData] = 0;
+			System.arraycopy(identity, i * (sizeOfCCAIdentityData - 1), identities, i * sizeOfCCAIdentityData + 1,
+					sizeOfCCAIdentityData - 1);
+		}
+		return identities;
+	}
+
+	/**
+	 * Appends 'com' as additional identity to the encoded identities[1]. The
+	 * encoded identities are copied into the identity buffer, unless they are
+	 * already stored there.
+	 *
+	 * @param encodedIdentities     - encoded identities
+	 * @param level                 - 'depth' of the user
+	 * @param sizeOfCCAIdentityData - size of an encoded identity
+	 * @param com                   - 'com'
+	 * @return identity buffer
+	 */
+	byte[] appendCom(byte[] encodedIdentities, int level, int sizeOfCCAIdentityData, byte[] com) {
+		int length = sizeOfCCAIdentityData * level;
+		if (encodedIdentities != identities) {
+			ensureIdentityCapacity(length + sizeOfCCAIdentityData);
+			System.arraycopy(encodedIdentities, 0, identities, 0, length);
+		}
+		identities[length] = 1;
+		System.arraycopy(com, 0, identities, length + 1, sizeOfCCAIdentityData - 1);
+		return identities;
+	}
+
+	/**
+	 * Encodes only 'com' as identity[1].
+	 *
+	 * @param sizeOfCCAIdentityData - size of an encoded identity
+	 * @param com                   - 'com'
+	 * @return identity buffer
+	 */
+	byte[] encodeCom(int sizeOfCCAIdentityData, byte[] com) {
+		ensureIdentityCapacity(sizeOfCCAIdentityData);
+		return appendCom(identities, 0, sizeOfCCAIdentityData, com);
+	}
+
+	private void ensureIdentityCapacity(int size) {
+		if (identities.length < size) {
+			identities = new byte[Math.max(size, identities.length * 2)];
+		}
+	}
+
+	/**
+	 * Computes 'com' from the encapsulation key and 'dec', the first 'k1' bytes of
+	 * the random element[1].
+	 *
+	 * @param encapsulationKey - encapsulation key of the public parameters
+	 * @param randomElement    - encoded random GT element
+	 * @return 'com' buffer
+	 */
+	byte[] computeCom(byte[] encapsulationKey, byte[] randomElement) {
+		extract(keyedHash, resettableKeyedHash, keyedHashInnerState, keyedHashOuterState, encapsulationKey, 0,
+				encapsulationKey.length, randomElement, 0, k1);
+		expand(keyedHash, com, 0, k);
+		return com;
+	}
+
+	/**
+	 * Checks if com' = com (from ciphertext)[1].
+	 *
+	 * @param encapsulationKey - encapsulation key of the secret key
+	 * @param message          - decrypted random GT element
+	 * @param expectedCom      - 'com' of the ciphertext
+	 * @return true, if 'com' matches
+	 */
+	boolean checkCom(byte[] encapsulationKey, byte[] message, byte[] expectedCom) {
+		return Arrays.constantTimeAreEqual(computeCom(encapsulationKey, message), expectedCom);
+	}
+
+	/**
+	 * Computes r from 'dec' and the Mac Tag of the ciphertext[1].
+	 *
+	 * @param randomElement    - encoded random GT element
+	 * @param ciphertext       - array, which holds the ciphertext
+	 * @param ciphertextOffset - offset of the ciphertext
+	 * @param ciphertextLength - length of the ciphertext
+	 * @return Mac Tag buffer
+	 */
+	byte[] computeMacTag(byte[] randomElement, byte[] ciphertext, int ciphertextOffset, int ciphertextLength) {
+		encapsulationHash.update(randomElement, 0, k1);
+		encapsulationHash.doFinal(r, 0);
+		initHmac(hmacAlgorithm, r, r.length);
+		hmacAlgorithm.update(ciphertext, ciphertextOffset, ciphertextLength);
+		finishHmac(hmacAlgorithm, macTag, 0);
+		return macTag;
+	}
+
+	/**
+	 * Checks the Mac Tag of the ciphertext[1].
+	 *
+	 * @param message        - decrypted random GT element
+	 * @param ciphertext     - Hibe ciphertext
+	 * @param expectedMacTag - Mac Tag of the ciphertext
+	 * @return true, if the Mac Tag matches
+	 */
+	boolean checkMacTag(byte[] message, byte[] ciphertext, byte[] expectedMacTag) {
+		return Arrays.constantTimeAreEqual(computeMacTag(message, ciphertext, 0, ciphertext.length), expectedMacTag);
+	}
+
+	/**
+	 * Generates the key from the remaining bytes of the random element. Unlike the
+	 * other buffers, the key is allocated for every call, since it is owned by the
+	 * caller of the Hibe.
+	 *
+	 * @param randomElement - array, which holds the random element
+	 * @param length        - length of the random element
+	 * @return generated key
+	 */
+	byte[] deriveKey(byte[] randomElement, int length) {
+		extract(keyGenerator, resettableKeyGenerator, keyGeneratorInnerState, keyGeneratorOuterState, randomElement,
+				k1, length - k1, null, 0, 0);
+		byte[] generatedKey = new byte[generatedKeyLength];
+		expand(keyGenerator, generatedKey, 0, generatedKeyLength);
+		return generatedKey;
+	}
+
+	/**
+	 * HKDF extraction without salt of the concatenation of two inputs. The
+	 * pseudorandom key is written to its buffer.
+	 */
+	private void extract(Digest digest, Memoable resettableDigest, Memoable innerState, Memoable outerState,
+			byte[] firstInput, int firstOffset, int firstLength, byte[] secondInput, int secondOffset,
+			int secondLength) {
+		int digestSize = digest.getDigestSize();
+		resettableDigest.reset(innerState);
+		digest.update(firstInput, firstOffset, firstLength);
+		if (secondInput != null) {
+			digest.update(secondInput, secondOffset, secondLength);
+		}
+		digest.doFinal(block, 0);
+		resettableDigest.reset(outerState);
+		digest.update(block, 0, digestSize);
+		digest.doFinal(pseudorandomKey, 0);
+	}
+
+	/**
+	 * HKDF expansion of the pseudorandom key without info.
+	 */
+	private void expand(ExtendedDigest digest, byte[] output, int outputOffset, int length) {
+		int digestSize = digest.getDigestSize();
+		int generatedBytes = 0;
+		for (int counter = 1; generatedBytes < length; counter++) {
+			initHmac(digest, pseudorandomKey, digestSize);
+			if (counter > 1) {
+				digest.update(block, 0, digestSize);
+			}
+			digest.update((byte) counter);
+			finishHmac(digest, block, 0);
+			int bytesOfBlock = Math.min(digestSize, length - generatedBytes);
+			System.arraycopy(block, 0, output, outputOffset + generatedBytes, bytesOfBlock);
+			generatedBytes += bytesOfBlock;
+		}
+	}
+
+	/**
+	 * Starts a HMac with the key, which is not longer than the block length.
+	 */
+	private void initHmac(ExtendedDigest digest, byte[] key, int keyLength) {
+		int blockLength = blockLength(digest);
+		for (int i = 0; i < blockLength; i++) {
+			byte keyByte = (i < keyLength) ? key[i] : 0;
+			innerPad[i] = (byte) (keyByte ^ IPAD);
+			outerPad[i] = (byte) (keyByte ^ OPAD);
+		}
+		digest.reset();
+		digest.update(innerPad, 0, blockLength);
+	}
+
+	/**
+	 * Finishes the HMac started by initHmac.
+	 */
+	private void finishHmac(ExtendedDigest digest, byte[] output, int outputOffset) {
+		int digestSize = digest.getDigestSize();
+		digest.doFinal(block, 0);
+		digest.update(outerPad, 0, blockLength(digest));
+		digest.update(block, 0, digestSize);
+		digest.doFinal(output, outputOffset);
+	}
+
+	/**
+	 * Computes the digest state after the padded all-zero key.
+	 */
+	private static <D extends ExtendedDigest & Memoable> Memoable zeroKeyState(D digest, byte pad) {
+		digest.reset();
+		for (int i = 0; i < digest.getByteLength(); i++) {
+			digest.update(pad);
+		}
+		Memoable state = digest.copy();
+		digest.reset();
+		return state;
+	}
+
+	private static int blockLength(ExtendedDigest digest) {
+		return digest.getByteLength();
+	}
+}
@@ -26,6 +26,21 @@ public class HibeCiphertext {
 		this.macTag = Arrays.copyOf(macTag, macTag.length);
 	}
 
+	/**
+	 * Copies 'com' and the ciphertext from the output of the native encapsulation,
+	 * which holds the ciphertext from 'ciphertextOffset' to its end.
+	 * 
+	 * @param encapsulation    - output of the native encapsulation
+	 * @param comOffset        - offset of 'com'
+	 * @param ciphertextOffset - offset of the ciphertext
+	 * @param macTag           - Mac Tag of the ciphertext
+	 */
+	HibeCiphertext(byte[] encapsulation, int comOffset, int ciphertextOffset, byte[] macTag) {
+		this.com = Arrays.copyOfRange(encapsulation, comOffset, ciphertextOffset);
+		this.ciphertext = Arrays.copyOfRange(encapsulation, ciphertextOffset, encapsulation.length);
+		this.macTag = Arrays.copyOf(macTag, macTag.length);
+	}
+
 	public byte[] getCom() {
 		return com;
 	}
@@ -0,0 +1,103 @@
+package de.rub.rkeinstantiation.hibewrapper;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Pool of direct buffers, which are passed to the native library without
+ * copying them. Every thread uses its own pool, since the buffers are
+ * overwritten in every call. A buffer is only reallocated, if it is too small
+ * for a higher level.
+ *
+ * Encoded keys are also copied into a buffer of the pool in every call, instead
+ * of allocating a direct buffer for every key, whose native memory is only
+ * released by the garbage collector.
+ *
+ * @author Marco Smeets
+ *
+ */
+final class HibeDirectBuffers {
+
+	static final int SEED = 0;
+	static final int MESSAGE = 1;
+	static final int IDENTITY = 2;
+	static final int CIPHERTEXT = 3;
+	static final int SECRET_KEY = 4;
+	static final int ENCAPSULATION_KEY = 5;
+	static final int KEY = 6;
+
+	private static final ThreadLocal<HibeDirectBuffers> buffersOfThread = ThreadLocal
+			.withInitial(HibeDirectBuffers::new);
+
+	private final ByteBuffer[] buffers = new ByteBuffer[7];
+
+	private HibeDirectBuffers() {
+	}
+
+	/**
+	 * @return buffers of the current thread
+	 */
+	static HibeDirectBuffers get() {
+		return buffersOfThread.get();
+	}
+
+	/**
+	 * Returns a buffer of the slot, which holds at least 'size' bytes.
+	 *
+	 * @param slot - slot of the buffer
+	 * @param size - required size
+	 * @return buffer positioned at 0
+	 */
+	ByteBuffer output(int slot, int size) {
+		ByteBuffer buffer = buffers[slot];
+		if (buffer == null || buffer.capacity() < size) {
+			buffer = ByteBuffer.allocateDirect(Math.max(size, buffer == null ? 0 : buffer.capacity() * 2));
+			buffers[slot] = buffer;
+		}
+		buffer.clear();
+		return buffer;
+	}
+
+	/**
+	 * Copies the data into the buffer of the slot.
+	 *
+	 * @param slot - slot of the buffer
+	 * @param data - data to copy
+	 * @return view of the copied bytes with a capacity of 'data.length'
+	 */
+	ByteBuffer input(int slot, byte[] data) {
+		return input(slot, data, data.length);
+	}
+
+	/**
+	 * Copies the first 'length' bytes of the data into the buffer of the slot.
+	 * The returned view holds exactly these bytes, so the native library cannot
+	 * read stale bytes of a larger pooled buffer.
+	 *
+	 * @param slot   - slot of the buffer
+	 * @param data   - data to copy
+	 * @param length - number of bytes
+	 * @return view of the copied bytes with a capacity of 'length'
+	 */
+	ByteBuffer input(int slot, byte[] data, int length) {
+		ByteBuffer buffer = output(slot, length);
+		buffer.put(data, 0, length);
+		buffer.flip();
+		return buffer.slice();
+	}
+
+	/**
+	 * Copies the first 'size' bytes of the buffer of the slot into a new array.
+	 *
+	 * @param slot - slot of the buffer
+	 * @param size - number of bytes
+	 * @return copy of the bytes
+	 */
+	byte[] copy(int slot, int size) {
+		byte[] data = new byte[size];
+		ByteBuffer buffer = buffers[slot];
+		buffer.clear();
+		buffer.get(data);
+		buffer.clear();
+		return data;
+	}
+}
@@ -0,0 +1,151 @@
+package de.rub.rkeinstantiation.hibewrapper;
+
+import java.util.Arrays;
+
+import org.bouncycastle.crypto.Digest;
+
+/**
+ * Append-only identity vector of the HIBE.
+ *
+ * The identities are stored in the encoding for the CCA transformation[1]:
+ * every identity is prefixed with 0. The encoding is passed to the native
+ * library without copying it.
+ *
+ * An identity is an immutable view on the first 'level' identities of a shared,
+ * growable buffer. Appending an identity writes it directly into the buffer, if
+ * no other identity extends the view yet. So a chain of updates appends in
+ * amortized constant time and all identities of the chain share the buffer.
+ * Only if a view is extended a second time, the encoding is copied.
+ *
+ * [1]Chosen-Ciphertext Security from Identity-Based Encryption
+ * http://boneh.com/pubs/papers/ccaibejour.pdf
+ *
+ * @author Marco Smeets
+ *
+ */
+public final class HibeIdentity {
+
+	/**
+	 * Shared buffer of the encoding. 'length' is the size of the longest identity,
+	 * which uses the buffer. Bytes before 'length' are never changed.
+	 */
+	private static final class Encoding {
+		private byte[] encodedIdentities;
+		private int length;
+
+		private Encoding(byte[] encodedIdentities, int length) {
+			this.encodedIdentities = encodedIdentities;
+			this.length = length;
+		}
+	}
+
+	private final Encoding encoding;
+	private final byte[] encodedIdentities;
+	private final int sizeOfIdentityData;
+	private final int level;
+
+	private HibeIdentity(Encoding encoding, byte[] encodedIdentities, int sizeOfIdentityData, int level) {
+		this.encoding = encoding;
+		this.encodedIdentities = encodedIdentities;
+		this.sizeOfIdentityData = sizeOfIdentityData;
+		this.level = level;
+	}
+
+	/**
+	 * Encodes the first 'level' identities of the identity information.
+	 *
+	 * @param identityInformation - identities, which are written in succession
+	 * @param sizeOfIdentityData  - size of a single identity
+	 * @param level               - number of identities
+	 * @return identity vector
+	 */
+	public static HibeIdentity fromIdentityInformation(byte[] identityInformation, int sizeOfIdentityData,
+			int level) {
+		int sizeOfEncodedIdentity = sizeOfIdentityData + 1;
+		byte[] encodedIdentities = new byte[sizeOfEncodedIdentity * level];
+		for (int i = 0; i < level; i++) {
+			System.arraycopy(identityInformation, i * sizeOfIdentityData, encodedIdentities,
+					i * sizeOfEncodedIdentity + 1, sizeOfIdentityData);
+		}
+		return new HibeIdentity(new Encoding(encodedIdentities, encodedIdentities.length), encodedIdentities,
+				sizeOfIdentityData, level);
+	}
+
+	/**
+	 * Appends an identity.
+	 *
+	 * @param identityData - identity with 'sizeOfIdentityData' bytes
+	 * @return identity vector at level + 1
+	 */
+	public HibeIdentity append(byte[] identityData) {
+		int sizeOfEncodedIdentity = sizeOfIdentityData + 1;
+		int length = sizeOfEncodedIdentity * level;
+		synchronized (encoding) {
+			if (encoding.length == length) {
+				if (encoding.encodedIdentities.length < length + sizeOfEncodedIdentity) {
+					encoding.encodedIdentities = Arrays.copyOf(encoding.encodedIdentities,
+							Math.max(length + sizeOfEncodedIdentity, 2 * encoding.encodedIdentities.length));
+				}
+				writeIdentity(encoding.encodedIdentities, length, identityData);
+				encoding.length = length + sizeOfEncodedIdentity;
+				return new HibeIdentity(encoding, encoding.encodedIdentities, sizeOfIdentityData, level + 1);
+			}
+		}
+		/**
+		 * Another identity already extends this identity, so the encoding is copied.
+		 */
+		byte[] copiedIdentities = Arrays.copyOf(encodedIdentities,
+				Math.max(length + sizeOfEncodedIdentity, 2 * length));
+		writeIdentity(copiedIdentities, length, identityData);
+		return new HibeIdentity(new Encoding(copiedIdentities, length + sizeOfEncodedIdentity), copiedIdentities,
+				sizeOfIdentityData, level + 1);
+	}
+
+	private void writeIdentity(byte[] encodedIdentities, int offset, byte[] identityData) {
+		encodedIdentities[offset] = 0;
+		System.arraycopy(identityData, 0, encodedIdentities, offset + 1, sizeOfIdentityData);
+	}
+
+	/**
+	 * Returns the identities without encoding, written in succession.
+	 *
+	 * @return identity information
+	 */
+	public byte[] getIdentityInformation() {
+		byte[] identityInformation = new byte[sizeOfIdentityData * level];
+		for (int i = 0; i < level; i++) {
+			System.arraycopy(encodedIdentities, i * (sizeOfIdentityData + 1) + 1, identityInformation,
+					i * sizeOfIdentityData, sizeOfIdentityData);
+		}
+		return identityInformation;
+	}
+
+	/**
+	 * Processes the identity information (without encoding) with the hash function.
+	 *
+	 * @param digest - hash function
+	 */
+	public void update(Digest digest) {
+		for (int i = 0; i < level; i++) {
+			digest.update(encodedIdentities, i * (sizeOfIdentityData + 1) + 1, sizeOfIdentityData);
+		}
+	}
+
+	public int getSizeOfIdentityData() {
+		return sizeOfIdentityData;
+	}
+
+	public int getLevel() {
+		return level;
+	}
+
+	/**
+	 * Returns the encoded identities. The array may be longer than the encoding of
+	 * 'level' identities and must not be changed.
+	 *
+	 * @return encoded identities
+	 */
+	byte[] getEncodedIdentities() {
+		return encodedIdentities;
+	}
+}
@@ -1,18 +1,53 @@
 package de.rub.rkeinstantiation.hibewrapper;
 
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.bouncycastle.crypto.Digest;
+import org.bouncycastle.crypto.digests.SHA256Digest;
+import org.bouncycastle.util.Pack;
 
 /**
  * Public Parameter of the HIBE.
- * 
+ *
+ * If the Hibe keeps keys decoded, the decoded public parameters are kept in
+ * native memory after their first use. The encoding stays the representation,
+ * which is persisted or sent.
+ *
+ * Public parameters are identified by the SHA-256 digest of their encodings.
+ * Interned public parameters are shared through a cache with weak values, so
+ * every copy of the same parameters (e.g. reconstructed from JSON) uses one
+ * object and its native handle or direct buffer, as long as it is reachable.
+ *
  * @author Marco Smeets
  *
  */
 public class HibePublicParameter {
 
+	/**
+	 * Interned public parameters by their digest. Entries of unreachable
+	 * parameters are removed, whenever parameters are interned.
+	 */
+	private static final ConcurrentHashMap<ByteBuffer, CacheEntry> internedParameters = new ConcurrentHashMap<>();
+	private static final ReferenceQueue<HibePublicParameter> unreachableParameters = new ReferenceQueue<>();
+
+	private static final class CacheEntry extends WeakReference<HibePublicParameter> {
+		private final ByteBuffer digest;
+
+		private CacheEntry(HibePublicParameter publicParameter, ByteBuffer digest) {
+			super(publicParameter, unreachableParameters);
+			this.digest = digest;
+		}
+	}
+
 	private byte[] encapsulationPublicParameter;
 	private byte[] encodedHibePublicParameter;
-	
+	private volatile byte[] digest;
+	private volatile NativeHandle nativeHandle;
+
 	/**
 	 * We need a empty constructor to reconstruct the objects from JSON.
 	 */
@@ -25,6 +60,70 @@ public class HibePublicParameter {
 		this.encodedHibePublicParameter = Arrays.copyOf(encodedHibePublicParameter, encodedHibePublicParameter.length);
 	}
 
+	/**
+	 * Returns the interned public parameters with the same encodings. If no such
+	 * parameters are interned, 'publicParameter' is interned.
+	 *
+	 * @param publicParameter - public parameters
+	 * @return shared public parameters with the same digest
+	 */
+	public static HibePublicParameter intern(HibePublicParameter publicParameter) {
+		CacheEntry entry;
+		while ((entry = (CacheEntry) unreachableParameters.poll()) != null) {
+			internedParameters.remove(entry.digest, entry);
+		}
+		ByteBuffer digest = ByteBuffer.wrap(publicParameter.digest());
+		while (true) {
+			entry = internedParameters.get(digest);
+			HibePublicParameter internedParameter = (entry == null) ? null : entry.get();
+			if (internedParameter != null) {
+				return internedParameter;
+			}
+			CacheEntry newEntry = new CacheEntry(publicParameter, digest);
+			if (entry == null ? internedParameters.putIfAbsent(digest, newEntry) == null
+					: internedParameters.replace(digest, entry, newEntry)) {
+				return publicParameter;
+			}
+		}
+	}
+
+	/**
+	 * Returns the SHA-256 digest of the encodings, which identifies the public
+	 * parameters. It is computed on the first call.
+	 *
+	 * @return digest of the public parameters
+	 */
+	public byte[] digest() {
+		byte[] output = internalDigest();
+		return Arrays.copyOf(output, output.length);
+	}
+
+	private byte[] internalDigest() {
+		byte[] output = digest;
+		if (output == null) {
+			SHA256Digest hash = new SHA256Digest();
+			byte[] length = Pack.intToBigEndian(encapsulationPublicParameter.length);
+			hash.update(length, 0, length.length);
+			hash.update(encapsulationPublicParameter, 0, encapsulationPublicParameter.length);
+			hash.update(encodedHibePublicParameter, 0, encodedHibePublicParameter.length);
+			output = new byte[hash.getDigestSize()];
+			hash.doFinal(output, 0);
+			digest = output;
+		}
+		return output;
+	}
+
+	/**
+	 * Processes the digest of the public parameters with the hash function, instead
+	 * of the whole encodings.
+	 *
+	 * @param hash - hash function
+	 */
+	public void update(Digest hash) {
+		byte[] output = internalDigest();
+		hash.update(output, 0, output.length);
+	}
+
 	public byte[] getEncodedHibePublicParameter() {
 		return encodedHibePublicParameter;
 	}
@@ -32,4 +131,25 @@ public class HibePublicParameter {
 	public byte[] getEncapsulationPublicParameter() {
 		return encapsulationPublicParameter;
 	}
+
+	/**
+	 * Returns the pointer to the decoded public parameters. The parameters are
+	 * decoded on the first call.
+	 *
+	 * @return pointer to the decoded public parameters
+	 */
+	long nativePointer() {
+		NativeHandle handle = nativeHandle;
+		if (handle == null) {
+			synchronized (this) {
+				handle = nativeHandle;
+				if (handle == null) {
+					handle = NativeHandle.register(this, Hibe.decodePublicParameterHandle(encodedHibePublicParameter),
+							Hibe::freePublicParameterHandle);
+					nativeHandle = handle;
+				}
+			}
+		}
+		return handle.getPointer();
+	}
 }
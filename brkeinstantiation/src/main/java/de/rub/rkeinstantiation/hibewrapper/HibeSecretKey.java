@@ -4,25 +4,71 @@ import java.util.Arrays;
 
 /**
  * Secret Key of the HIBE.
- * 
+ *
+ * If the Hibe keeps keys decoded, the secret key is kept in native memory.
+ * Delegated keys are then only encoded, when the encoding is requested.
+ *
  * @author Marco Smeets
  *
  */
 public class HibeSecretKey {
 
-	private byte[] encodedHibeSecretKey;
+	private volatile byte[] encodedHibeSecretKey;
 	private byte[] encapsulationKey;
+	private volatile NativeHandle nativeHandle;
 
 	public HibeSecretKey(byte[] encodedHibeSecretKey, byte[] encapsulationKey) {
 		this.encodedHibeSecretKey = Arrays.copyOf(encodedHibeSecretKey, encodedHibeSecretKey.length);
 		this.encapsulationKey = Arrays.copyOf(encapsulationKey, encapsulationKey.length);
 	}
 
+	/**
+	 * Constructs a secret key from a pointer to a decoded secret key.
+	 *
+	 * @param pointer          - pointer to the decoded secret key
+	 * @param encapsulationKey - key used for the encapsulation
+	 */
+	HibeSecretKey(long pointer, byte[] encapsulationKey) {
+		this.nativeHandle = NativeHandle.register(this, pointer, Hibe::freeSecretKeyHandle);
+		this.encapsulationKey = Arrays.copyOf(encapsulationKey, encapsulationKey.length);
+	}
+
 	public byte[] getEncodedHibeSecretKey() {
-		return encodedHibeSecretKey;
+		byte[] encoded = encodedHibeSecretKey;
+		if (encoded == null) {
+			synchronized (this) {
+				encoded = encodedHibeSecretKey;
+				if (encoded == null) {
+					encoded = Hibe.encodeSecretKeyHandle(nativeHandle.getPointer());
+					encodedHibeSecretKey = encoded;
+				}
+			}
+		}
+		return encoded;
 	}
 
 	public byte[] getEncapsulationKey() {
 		return encapsulationKey;
 	}
+
+	/**
+	 * Returns the pointer to the decoded secret key. The secret key is decoded on
+	 * the first call.
+	 *
+	 * @return pointer to the decoded secret key
+	 */
+	long nativePointer() {
+		NativeHandle handle = nativeHandle;
+		if (handle == null) {
+			synchronized (this) {
+				handle = nativeHandle;
+				if (handle == null) {
+					handle = NativeHandle.register(this, Hibe.decodeSecretKeyHandle(encodedHibeSecretKey,
+							Hibe.getLevelOfEncodedSecretKey(encodedHibeSecretKey.length)), Hibe::freeSecretKeyHandle);
+					nativeHandle = handle;
+				}
+			}
+		}
+		return handle.getPointer();
+	}
 }
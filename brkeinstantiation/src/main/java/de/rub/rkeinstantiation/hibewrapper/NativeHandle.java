@@ -0,0 +1,96 @@
+package de.rub.rkeinstantiation.hibewrapper;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongConsumer;
+
+/**
+ * Pointer to a decoded key struct in native memory.
+ *
+ * The native memory is released, once the key object which owns the handle is
+ * no longer reachable. Since we are on Java 8, we cannot use the Cleaner API.
+ * Instead the handle is a phantom reference to its owner. Unreachable handles
+ * are released whenever a new handle is registered.
+ *
+ * The owner may become unreachable while its pointer is still used by a native
+ * call, since the JIT does not keep unused locals alive. Then another thread
+ * could release the struct during the call. Callers therefore have to pass the
+ * owner to {@link #keepReachable(Object)} after every native call, which uses
+ * the pointer. Java 8 has no Reference.reachabilityFence.
+ *
+ * @author Marco Smeets
+ *
+ */
+final class NativeHandle extends PhantomReference<Object> {
+
+	private static final ReferenceQueue<Object> unreachableOwners = new ReferenceQueue<>();
+	/**
+	 * The phantom references have to stay reachable themselves, until they are
+	 * released.
+	 */
+	private static final Set<NativeHandle> liveHandles = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * Target of the volatile writes in {@link #keepReachable(Object)}. The writes
+	 * cannot be removed by the JIT, so the owner stays reachable until then.
+	 */
+	private static volatile Object reachableOwner;
+
+	private final long pointer;
+	private final LongConsumer release;
+
+	private NativeHandle(Object owner, long pointer, LongConsumer release) {
+		super(owner, unreachableOwners);
+		this.pointer = pointer;
+		this.release = release;
+	}
+
+	/**
+	 * Registers a native pointer for the owner.
+	 *
+	 * @param owner   - object which uses the pointer
+	 * @param pointer - pointer to the decoded struct
+	 * @param release - function which frees the struct
+	 * @return handle for the pointer
+	 */
+	static NativeHandle register(Object owner, long pointer, LongConsumer release) {
+		releaseUnreachableHandles();
+		NativeHandle handle = new NativeHandle(owner, pointer, release);
+		liveHandles.add(handle);
+		return handle;
+	}
+
+	/**
+	 * Frees the native memory of all handles, whose owners are no longer
+	 * reachable.
+	 */
+	static void releaseUnreachableHandles() {
+		NativeHandle handle;
+		while ((handle = (NativeHandle) unreachableOwners.poll()) != null) {
+			handle.release();
+		}
+	}
+
+	/**
+	 * Keeps the owner reachable until this call. Has to be called after a native
+	 * call, which uses the pointer of the owner.
+	 *
+	 * @param owner - object which owns the pointer
+	 */
+	static void keepReachable(Object owner) {
+		reachableOwner = owner;
+		reachableOwner = null;
+	}
+
+	long getPointer() {
+		return pointer;
+	}
+
+	private void release() {
+		if (liveHandles.remove(this)) {
+			release.accept(pointer);
+		}
+	}
+}
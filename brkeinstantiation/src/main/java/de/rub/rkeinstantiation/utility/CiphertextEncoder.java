@@ -1,10 +1,12 @@
 package de.rub.rkeinstantiation.utility;
 
 import java.io.IOException;
+import java.math.BigInteger;
 import java.util.Base64;
 import java.util.LinkedList;
 import java.util.Queue;
 
+import org.bouncycastle.crypto.Digest;
 import org.bouncycastle.crypto.digests.SHA512Digest;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
@@ -26,6 +28,8 @@ import de.rub.rkeinstantiation.brkekukem.BrkeKuKemCiphertext;
 import de.rub.rkeinstantiation.brkekukem.BrkeKuKemPublicKey;
 import de.rub.rkeinstantiation.brkesignature.DLPChameleonSignatureOutput;
 import de.rub.rkeinstantiation.brkesignature.DLPChameleonVerificationKey;
+import de.rub.rkeinstantiation.brkesignature.ECChameleonSignatureOutput;
+import de.rub.rkeinstantiation.brkesignature.ECChameleonVerificationKey;
 import de.rub.rkeinstantiation.hibewrapper.HibeCiphertext;
 import de.rub.rkeinstantiation.variables.BrkeAssociatedData;
 
@@ -35,11 +39,21 @@ import de.rub.rkeinstantiation.variables.BrkeAssociatedData;
  * the Signature), and one function hashes all parts (excluding the signature)
  * for Signing.
  * 
+ * Both hashes start with {@link #TRANSCRIPT_VERSION}. Version 1 processes the
+ * digest of the Hibe public parameters instead of their encodings, so its
+ * signatures are not compatible with peers, which hash the encodings without a
+ * version.
+ * 
  * @author Marco Smeets
  *
  */
 public class CiphertextEncoder {
 
+	/**
+	 * Version of the hashed transcript format.
+	 */
+	public static final byte TRANSCRIPT_VERSION = 1;
+
 	/**
 	 * Hashes an Ad|Ciphertext pair with SHA512.
 	 * 
@@ -50,13 +64,14 @@ public class CiphertextEncoder {
 	public static byte[] hashAdCiphertext(AssociatedData ad, BrkeCiphertext ciphertext) {
 		SHA512Digest hash = new SHA512Digest();
 		byte[] output = new byte[hash.getDigestSize()];
+		hash.update(TRANSCRIPT_VERSION);
 
 		byte associatedData[] = ((BrkeAssociatedData) ad).getAsBytes();
 		BrkeKuKemPublicKey kuKemPublicKey = (BrkeKuKemPublicKey) ciphertext.getPublicKey();
-		DLPChameleonVerificationKey verificationKey = (DLPChameleonVerificationKey) ciphertext.getVerificationKey();
+		SignatureVerificationKey verificationKey = ciphertext.getVerificationKey();
 		QueuedKuKemCiphertext queuedKuKemCiphertext = ciphertext.getCiphertext();
 		ECIESKemCiphertext kemCiphertext = (ECIESKemCiphertext) queuedKuKemCiphertext.getKemCiphertext();
-		DLPChameleonSignatureOutput signatureOutput = (DLPChameleonSignatureOutput) ciphertext.getSignature();
+		SignatureOutput signatureOutput = ciphertext.getSignature();
 		if (ciphertext.getNumberOfUsedKeys() > 1) {
 			Queue<KuKemCiphertext> kuKemCiphertexts = new LinkedList<KuKemCiphertext>(
 					queuedKuKemCiphertext.getKuKemCiphertexts());
@@ -74,24 +89,14 @@ public class CiphertextEncoder {
 			/**
 			 * Process BrkeKuKemPublicKey
 			 */
-			hash.update(kuKemPublicKey.getHibePublicParameter().getEncapsulationPublicParameter(), 0,
-					kuKemPublicKey.getHibePublicParameter().getEncapsulationPublicParameter().length);
-			hash.update(kuKemPublicKey.getHibePublicParameter().getEncodedHibePublicParameter(), 0,
-					kuKemPublicKey.getHibePublicParameter().getEncodedHibePublicParameter().length);
-			hash.update(kuKemPublicKey.getIdentityInformation(), 0, kuKemPublicKey.getIdentityInformation().length);
+			kuKemPublicKey.getHibePublicParameter().update(hash);
+			kuKemPublicKey.identity().update(hash);
 			hash.update((byte) kuKemPublicKey.getLevel());
 
 			/**
 			 * Process Signature Verification Key
 			 */
-			byte[] encodedBigInteger;
-			encodedBigInteger = verificationKey.getG1().toByteArray();
-			hash.update(encodedBigInteger, 0, encodedBigInteger.length);
-			encodedBigInteger = verificationKey.getG2().toByteArray();
-			hash.update(encodedBigInteger, 0, encodedBigInteger.length);
-			encodedBigInteger = verificationKey.getG3().toByteArray();
-			hash.update(encodedBigInteger, 0, encodedBigInteger.length);
-			hash.update(verificationKey.getZ0(), 0, verificationKey.getZ0().length);
+			hashVerificationKey(hash, verificationKey);
 
 			/**
 			 * Process number of used Keys
@@ -113,10 +118,7 @@ public class CiphertextEncoder {
 			/**
 			 * Process Signature
 			 */
-			encodedBigInteger = signatureOutput.getSign0().toByteArray();
-			hash.update(encodedBigInteger, 0, encodedBigInteger.length);
-			encodedBigInteger = signatureOutput.getSign1().toByteArray();
-			hash.update(encodedBigInteger, 0, encodedBigInteger.length);
+			hashSignature(hash, signatureOutput);
 		} else {
 			/**
 			 * Process AssociatedData
@@ -131,24 +133,14 @@ public class CiphertextEncoder {
 			/**
 			 * Process BrkeKuKemPublicKey
 			 */
-			hash.update(kuKemPublicKey.getHibePublicParameter().getEncapsulationPublicParameter(), 0,
-					kuKemPublicKey.getHibePublicParameter().getEncapsulationPublicParameter().length);
-			hash.update(kuKemPublicKey.getHibePublicParameter().getEncodedHibePublicParameter(), 0,
-					kuKemPublicKey.getHibePublicParameter().getEncodedHibePublicParameter().length);
-			hash.update(kuKemPublicKey.getIdentityInformation(), 0, kuKemPublicKey.getIdentityInformation().length);
+			kuKemPublicKey.getHibePublicParameter().update(hash);
+			kuKemPublicKey.identity().update(hash);
 			hash.update((byte) kuKemPublicKey.getLevel());
 
 			/**
 			 * Process Signature Verification Key
 			 */
-			byte[] encodedBigInteger;
-			encodedBigInteger = verificationKey.getG1().toByteArray();
-			hash.update(encodedBigInteger, 0, encodedBigInteger.length);
-			encodedBigInteger = verificationKey.getG2().toByteArray();
-			hash.update(encodedBigInteger, 0, encodedBigInteger.length);
-			encodedBigInteger = verificationKey.getG3().toByteArray();
-			hash.update(encodedBigInteger, 0, encodedBigInteger.length);
-			hash.update(verificationKey.getZ0(), 0, verificationKey.getZ0().length);
+			hashVerificationKey(hash, verificationKey);
 
 			/**
 			 * Process number of used Keys
@@ -163,10 +155,7 @@ public class CiphertextEncoder {
 			/**
 			 * Process Signature
 			 */
-			encodedBigInteger = signatureOutput.getSign0().toByteArray();
-			hash.update(encodedBigInteger, 0, encodedBigInteger.length);
-			encodedBigInteger = signatureOutput.getSign1().toByteArray();
-			hash.update(encodedBigInteger, 0, encodedBigInteger.length);
+			hashSignature(hash, signatureOutput);
 		}
 		hash.doFinal(output, 0);
 		return output;
@@ -188,10 +177,10 @@ public class CiphertextEncoder {
 			QueuedKuKemCiphertext queuedKuKemCiphertext) {
 		SHA512Digest hash = new SHA512Digest();
 		byte[] output = new byte[hash.getDigestSize()];
+		hash.update(TRANSCRIPT_VERSION);
 
 		byte associatedData[] = ((BrkeAssociatedData) ad).getAsBytes();
 		BrkeKuKemPublicKey kuKemPublicKey = (BrkeKuKemPublicKey) publicKey;
-		DLPChameleonVerificationKey dlpVerificationKey = (DLPChameleonVerificationKey) verificationKey;
 		ECIESKemCiphertext kemCiphertext = (ECIESKemCiphertext) queuedKuKemCiphertext.getKemCiphertext();
 		if (numberOfUsedKeys > 1) {
 			Queue<KuKemCiphertext> kuKemCiphertexts = new LinkedList<KuKemCiphertext>(
@@ -210,24 +199,14 @@ public class CiphertextEncoder {
 			/**
 			 * Process BrkeKuKemPublicKey
 			 */
-			hash.update(kuKemPublicKey.getHibePublicParameter().getEncapsulationPublicParameter(), 0,
-					kuKemPublicKey.getHibePublicParameter().getEncapsulationPublicParameter().length);
-			hash.update(kuKemPublicKey.getHibePublicParameter().getEncodedHibePublicParameter(), 0,
-					kuKemPublicKey.getHibePublicParameter().getEncodedHibePublicParameter().length);
-			hash.update(kuKemPublicKey.getIdentityInformation(), 0, kuKemPublicKey.getIdentityInformation().length);
+			kuKemPublicKey.getHibePublicParameter().update(hash);
+			kuKemPublicKey.identity().update(hash);
 			hash.update((byte) kuKemPublicKey.getLevel());
 
 			/**
 			 * Process Signature Verification Key
 			 */
-			byte[] encodedBigInteger;
-			encodedBigInteger = dlpVerificationKey.getG1().toByteArray();
-			hash.update(encodedBigInteger, 0, encodedBigInteger.length);
-			encodedBigInteger = dlpVerificationKey.getG2().toByteArray();
-			hash.update(encodedBigInteger, 0, encodedBigInteger.length);
-			encodedBigInteger = dlpVerificationKey.getG3().toByteArray();
-			hash.update(encodedBigInteger, 0, encodedBigInteger.length);
-			hash.update(dlpVerificationKey.getZ0(), 0, dlpVerificationKey.getZ0().length);
+			hashVerificationKey(hash, verificationKey);
 
 			/**
 			 * Process number of used Keys
@@ -259,24 +238,14 @@ public class CiphertextEncoder {
 			/**
 			 * Process BrkeKuKemPublicKey
 			 */
-			hash.update(kuKemPublicKey.getHibePublicParameter().getEncapsulationPublicParameter(), 0,
-					kuKemPublicKey.getHibePublicParameter().getEncapsulationPublicParameter().length);
-			hash.update(kuKemPublicKey.getHibePublicParameter().getEncodedHibePublicParameter(), 0,
-					kuKemPublicKey.getHibePublicParameter().getEncodedHibePublicParameter().length);
-			hash.update(kuKemPublicKey.getIdentityInformation(), 0, kuKemPublicKey.getIdentityInformation().length);
+			kuKemPublicKey.getHibePublicParameter().update(hash);
+			kuKemPublicKey.identity().update(hash);
 			hash.update((byte) kuKemPublicKey.getLevel());
 
 			/**
 			 * Process Signature Verification Key
 			 */
-			byte[] encodedBigInteger;
-			encodedBigInteger = dlpVerificationKey.getG1().toByteArray();
-			hash.update(encodedBigInteger, 0, encodedBigInteger.length);
-			encodedBigInteger = dlpVerificationKey.getG2().toByteArray();
-			hash.update(encodedBigInteger, 0, encodedBigInteger.length);
-			encodedBigInteger = dlpVerificationKey.getG3().toByteArray();
-			hash.update(encodedBigInteger, 0, encodedBigInteger.length);
-			hash.update(dlpVerificationKey.getZ0(), 0, dlpVerificationKey.getZ0().length);
+			hashVerificationKey(hash, verificationKey);
 
 			/**
 			 * Process number of used Keys
@@ -319,6 +288,34 @@ public class CiphertextEncoder {
 	 * @return
 	 */
 	public static BrkeCiphertext base64ToCiphertext(byte[] base64encoded) {
+		return base64ToCiphertext(base64encoded, DLPChameleonVerificationKey.class,
+				DLPChameleonSignatureOutput.class);
+	}
+
+	/**
+	 * Converts a BrkeCiphertext JSON object (Base64 encoded) to a BrkeCiphertext
+	 * (generated with Algorithm Set 1 and the EC-Based Signature).
+	 * 
+	 * @param base64encoded
+	 * @return
+	 */
+	public static BrkeCiphertext base64ToCiphertextWithECSignature(byte[] base64encoded) {
+		return base64ToCiphertext(base64encoded, ECChameleonVerificationKey.class,
+				ECChameleonSignatureOutput.class);
+	}
+
+	/**
+	 * Converts a BrkeCiphertext JSON object (Base64 encoded) to a BrkeCiphertext,
+	 * which uses the given implementations of the signature.
+	 * 
+	 * @param base64encoded
+	 * @param verificationKeyClass - implementation of the verification key
+	 * @param signatureOutputClass - implementation of the signature output
+	 * @return
+	 */
+	private static BrkeCiphertext base64ToCiphertext(byte[] base64encoded,
+			Class<? extends SignatureVerificationKey> verificationKeyClass,
+			Class<? extends SignatureOutput> signatureOutputClass) {
 		ObjectMapper ow = new ObjectMapper();
 		byte[] json = Base64.getDecoder().decode(base64encoded);
 		BrkeCiphertext ciphertext = null;
@@ -328,8 +325,8 @@ public class CiphertextEncoder {
 		SimpleModule module = new SimpleModule("CustomModel", Version.unknownVersion());
 		SimpleAbstractTypeResolver resolver = new SimpleAbstractTypeResolver();
 		resolver.addMapping(KuKemPublicKey.class, BrkeKuKemPublicKey.class);
-		resolver.addMapping(SignatureVerificationKey.class, DLPChameleonVerificationKey.class);
-		resolver.addMapping(SignatureOutput.class, DLPChameleonSignatureOutput.class);
+		resolver.addMapping(SignatureVerificationKey.class, verificationKeyClass);
+		resolver.addMapping(SignatureOutput.class, signatureOutputClass);
 		resolver.addMapping(KemCiphertext.class, ECIESKemCiphertext.class);
 		resolver.addMapping(KuKemCiphertext.class, BrkeKuKemCiphertext.class);
 		module.setAbstractTypes(resolver);
@@ -341,4 +338,52 @@ public class CiphertextEncoder {
 		}
 		return ciphertext;
 	}
+
+	/**
+	 * Hashes a verification key of the DLP-Based or the EC-Based Signature.
+	 * 
+	 * @param hash
+	 * @param verificationKey
+	 */
+	private static void hashVerificationKey(Digest hash, SignatureVerificationKey verificationKey) {
+		if (verificationKey instanceof ECChameleonVerificationKey) {
+			ECChameleonVerificationKey ecVerificationKey = (ECChameleonVerificationKey) verificationKey;
+			hash.update(ecVerificationKey.getG2(), 0, ecVerificationKey.getG2().length);
+			hash.update(ecVerificationKey.getG3(), 0, ecVerificationKey.getG3().length);
+			hash.update(ecVerificationKey.getZ0(), 0, ecVerificationKey.getZ0().length);
+			return;
+		}
+		DLPChameleonVerificationKey dlpVerificationKey = (DLPChameleonVerificationKey) verificationKey;
+		byte[] encodedBigInteger;
+		encodedBigInteger = dlpVerificationKey.getG1().toByteArray();
+		hash.update(encodedBigInteger, 0, encodedBigInteger.length);
+		encodedBigInteger = dlpVerificationKey.getG2().toByteArray();
+		hash.update(encodedBigInteger, 0, encodedBigInteger.length);
+		encodedBigInteger = dlpVerificationKey.getG3().toByteArray();
+		hash.update(encodedBigInteger, 0, encodedBigInteger.length);
+		hash.update(dlpVerificationKey.getZ0(), 0, dlpVerificationKey.getZ0().length);
+	}
+
+	/**
+	 * Hashes a signature of the DLP-Based or the EC-Based Signature.
+	 * 
+	 * @param hash
+	 * @param signatureOutput
+	 */
+	private static void hashSignature(Digest hash, SignatureOutput signatureOutput) {
+		BigInteger sign0;
+		BigInteger sign1;
+		if (signatureOutput instanceof ECChameleonSignatureOutput) {
+			sign0 = ((ECChameleonSignatureOutput) signatureOutput).getSign0();
+			sign1 = ((ECChameleonSignatureOutput) signatureOutput).getSign1();
+		} else {
+			sign0 = ((DLPChameleonSignatureOutput) signatureOutput).getSign0();
+			sign1 = ((DLPChameleonSignatureOutput) signatureOutput).getSign1();
+		}
+		byte[] encodedBigInteger;
+		encodedBigInteger = sign0.toByteArray();
+		hash.update(encodedBigInteger, 0, encodedBigInteger.length);
+		encodedBigInteger = sign1.toByteArray();
+		hash.update(encodedBigInteger, 0, encodedBigInteger.length);
+	}
 }
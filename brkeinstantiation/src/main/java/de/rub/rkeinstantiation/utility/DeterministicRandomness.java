@@ -0,0 +1,101 @@
+package de.rub.rkeinstantiation.utility;
+
+import java.security.SecureRandom;
+
+import org.bouncycastle.crypto.digests.SHA256Digest;
+import org.bouncycastle.crypto.engines.ChaCha7539Engine;
+import org.bouncycastle.crypto.params.KeyParameter;
+import org.bouncycastle.crypto.params.ParametersWithIV;
+import org.bouncycastle.util.Arrays;
+import org.bouncycastle.util.Pack;
+
+/**
+ * Deterministic randomness for the key generation from a KeySeed.
+ *
+ * The output is the keystream of ChaCha20[1], keyed with SHA256 of the seed and
+ * a zero nonce. Thus, the same seed always results in the same output. The
+ * object is created without a provider lookup and is not synchronized, so it
+ * should be used for a single derivation by a single thread.
+ *
+ * Calls to setSeed rekey the keystream with the hash of the current key and the
+ * additional seed.
+ *
+ * [1] RFC 7539: ChaCha20 and Poly1305 for IETF Protocols
+ * https://tools.ietf.org/html/rfc7539
+ *
+ * @author Marco Smeets
+ *
+ */
+public class DeterministicRandomness extends SecureRandom {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final int KEY_SIZE = 32;
+	private static final int NONCE_SIZE = 12;
+
+	private ChaCha7539Engine keyStream;
+	private byte[] key;
+
+	/**
+	 * Creates the randomness for the given seed.
+	 *
+	 * @param seed
+	 */
+	public DeterministicRandomness(byte[] seed) {
+		/**
+		 * No SecureRandomSpi is needed, since all functions are overwritten.
+		 */
+		super(null, null);
+		keyStream = new ChaCha7539Engine();
+		key = new byte[KEY_SIZE];
+		rekey(seed);
+	}
+
+	/**
+	 * Derives the new key from the current key and the seed and restarts the
+	 * keystream.
+	 *
+	 * @param seed
+	 */
+	private void rekey(byte[] seed) {
+		SHA256Digest hash = new SHA256Digest();
+		hash.update(key, 0, key.length);
+		hash.update(seed, 0, seed.length);
+		hash.doFinal(key, 0);
+		keyStream.init(true, new ParametersWithIV(new KeyParameter(key), new byte[NONCE_SIZE]));
+	}
+
+	@Override
+	public void nextBytes(byte[] bytes) {
+		Arrays.fill(bytes, (byte) 0);
+		keyStream.processBytes(bytes, 0, bytes.length, bytes, 0);
+	}
+
+	@Override
+	public void setSeed(byte[] seed) {
+		rekey(seed);
+	}
+
+	/**
+	 * Also called by the constructor of java.util.Random, before the keystream
+	 * exists.
+	 */
+	@Override
+	public void setSeed(long seed) {
+		if (keyStream != null) {
+			rekey(Pack.longToBigEndian(seed));
+		}
+	}
+
+	@Override
+	public byte[] generateSeed(int numBytes) {
+		byte[] seed = new byte[numBytes];
+		nextBytes(seed);
+		return seed;
+	}
+
+	@Override
+	public String getAlgorithm() {
+		return "ChaCha20";
+	}
+}
@@ -0,0 +1,154 @@
+package de.rub.rkeinstantiation.utility;
+
+import java.math.BigInteger;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.bouncycastle.crypto.params.DHParameters;
+
+/**
+ * Utility class for exponentiations with a fixed base.
+ *
+ * We use the fixed-base algorithm of Yao[1]: The powers base^(2^(w*i)) are
+ * precomputed once, so an exponentiation only needs one multiplication per
+ * non-zero w-bit digit of the exponent and 2^w - 1 multiplications to combine
+ * them. No squarings are performed. Products are reduced with the Barrett
+ * reduction, which is cheaper than BigInteger.mod.
+ *
+ * Tables for the generator of a Diffie Hellman group are built once and shared
+ * by all users of the group.
+ *
+ * [1] Handbook of Applied Cryptography, Algorithm 14.109
+ * http://cacr.uwaterloo.ca/hac/about/chap14.pdf
+ *
+ * @author Marco Smeets
+ *
+ */
+public class FixedBaseExponentiation {
+
+	/**
+	 * Size of the digits of the exponent.
+	 */
+	private static final int WINDOW_SIZE = 5;
+
+	private static final Map<DHParameters, FixedBaseExponentiation> generatorTables = new ConcurrentHashMap<DHParameters, FixedBaseExponentiation>();
+
+	private BigInteger base;
+	private BigInteger modulus;
+	private int maximumExponentBitLength;
+	/**
+	 * powers[i] = base^(2^(WINDOW_SIZE*i)) mod modulus
+	 */
+	private BigInteger[] powers;
+	/**
+	 * Precomputed value floor(4^k / modulus) of the Barrett reduction, where k is
+	 * the bit length of the modulus.
+	 */
+	private BigInteger barrettFactor;
+	private int modulusBitLength;
+
+	/**
+	 * Precomputes the powers of the base.
+	 *
+	 * @param base                     - fixed base
+	 * @param modulus                  - modulus
+	 * @param maximumExponentBitLength - maximum bit length of exponents, which use
+	 *                                 the precomputed powers
+	 */
+	public FixedBaseExponentiation(BigInteger base, BigInteger modulus, int maximumExponentBitLength) {
+		this.base = base;
+		this.modulus = modulus;
+		this.maximumExponentBitLength = maximumExponentBitLength;
+		modulusBitLength = modulus.bitLength();
+		barrettFactor = BigInteger.ONE.shiftLeft(2 * modulusBitLength).divide(modulus);
+		powers = new BigInteger[(maximumExponentBitLength + WINDOW_SIZE - 1) / WINDOW_SIZE];
+		powers[0] = base.mod(modulus);
+		for (int i = 1; i < powers.length; i++) {
+			BigInteger power = powers[i - 1];
+			for (int j = 0; j < WINDOW_SIZE; j++) {
+				power = multiply(power, power);
+			}
+			powers[i] = power;
+		}
+	}
+
+	/**
+	 * Returns the shared table for the generator of the group. Exponents up to the
+	 * bit length of the group order use the table.
+	 *
+	 * @param groupParameters - Diffie Hellman group parameter
+	 * @return table for the generator
+	 */
+	public static FixedBaseExponentiation forGroup(DHParameters groupParameters) {
+		return generatorTables.computeIfAbsent(groupParameters,
+				parameters -> new FixedBaseExponentiation(parameters.getG(), parameters.getP(),
+						parameters.getQ().bitLength()));
+	}
+
+	/**
+	 * Computes base^exponent mod modulus. Negative exponents and exponents, which
+	 * exceed the maximum bit length, are passed to BigInteger.modPow.
+	 *
+	 * @param exponent
+	 * @return base^exponent mod modulus
+	 */
+	public BigInteger modPow(BigInteger exponent) {
+		if (exponent.signum() < 0 || exponent.bitLength() > maximumExponentBitLength) {
+			return base.modPow(exponent, modulus);
+		}
+		int numberOfDigits = (exponent.bitLength() + WINDOW_SIZE - 1) / WINDOW_SIZE;
+		int[] digits = new int[numberOfDigits];
+		for (int i = 0; i < numberOfDigits; i++) {
+			int digit = 0;
+			for (int j = WINDOW_SIZE - 1; j >= 0; j--) {
+				digit = (digit << 1) | (exponent.testBit(i * WINDOW_SIZE + j) ? 1 : 0);
+			}
+			digits[i] = digit;
+		}
+		/**
+		 * After the iteration for digit d, accumulatedPowers holds the product of all
+		 * powers with a digit >= d. Multiplying it into the result in every iteration
+		 * raises each power to its digit.
+		 */
+		BigInteger result = null;
+		BigInteger accumulatedPowers = null;
+		for (int d = (1 << WINDOW_SIZE) - 1; d > 0; d--) {
+			for (int i = 0; i < numberOfDigits; i++) {
+				if (digits[i] == d) {
+					accumulatedPowers = (accumulatedPowers == null) ? powers[i]
+							: multiply(accumulatedPowers, powers[i]);
+				}
+			}
+			if (accumulatedPowers != null) {
+				result = (result == null) ? accumulatedPowers : multiply(result, accumulatedPowers);
+			}
+		}
+		return (result == null) ? BigInteger.ONE.mod(modulus) : result;
+	}
+
+	/**
+	 * @return the fixed base
+	 */
+	public BigInteger getBase() {
+		return base;
+	}
+
+	/**
+	 * Multiplies two reduced values and reduces the product with the Barrett
+	 * reduction.
+	 *
+	 * @param a
+	 * @param b
+	 * @return a*b mod modulus
+	 */
+	private BigInteger multiply(BigInteger a, BigInteger b) {
+		BigInteger product = a.multiply(b);
+		BigInteger quotient = product.shiftRight(modulusBitLength - 1).multiply(barrettFactor)
+				.shiftRight(modulusBitLength + 1);
+		BigInteger remainder = product.subtract(quotient.multiply(modulus));
+		while (remainder.compareTo(modulus) >= 0) {
+			remainder = remainder.subtract(modulus);
+		}
+		return remainder;
+	}
+}
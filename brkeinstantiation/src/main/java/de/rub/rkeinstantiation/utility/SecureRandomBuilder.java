@@ -35,4 +35,16 @@ public class SecureRandomBuilder {
 		return randomness;
 	}
 
+	/**
+	 * Create a deterministic SecureRandom object for the key generation from a
+	 * seed. Unlike the SHA1PRNG, it needs no provider lookup and is not
+	 * synchronized.
+	 * 
+	 * @param seed
+	 * @return
+	 */
+	public static SecureRandom createDeterministicRandomness(byte[] seed) {
+		return new DeterministicRandomness(seed);
+	}
+
 }
@@ -1,48 +1,95 @@
 package de.rub.rkeinstantiation;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.math.BigInteger;
 import java.security.SecureRandom;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
 
+import org.bouncycastle.crypto.AsymmetricCipherKeyPair;
+import org.bouncycastle.crypto.agreement.DHStandardGroups;
+import org.bouncycastle.crypto.digests.NullDigest;
+import org.bouncycastle.crypto.digests.SHA256Digest;
+import org.bouncycastle.crypto.generators.ECKeyPairGenerator;
+import org.bouncycastle.crypto.params.DHParameters;
+import org.bouncycastle.crypto.params.ECKeyGenerationParameters;
+import org.bouncycastle.crypto.params.ECPrivateKeyParameters;
+import org.bouncycastle.crypto.params.ECPublicKeyParameters;
+import org.bouncycastle.crypto.params.X25519PublicKeyParameters;
 import org.junit.jupiter.api.Test;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 import de.rub.rke.brke.BrkeCiphertext;
 import de.rub.rke.brke.BrkeConstruction;
 import de.rub.rke.brke.BrkeSendOutput;
+import de.rub.rke.factories.KemFactory;
+import de.rub.rke.kem.KemKeyPair;
+import de.rub.rke.kem.KemOutput;
+import de.rub.rke.kem.KemPublicKey;
+import de.rub.rke.kem.KeyEncapsulationMechanism;
+import de.rub.rke.kukem.KeyUpdateableKem;
 import de.rub.rke.kukem.KuKemKeyPair;
 import de.rub.rke.kukem.KuKemOutput;
+import de.rub.rke.kukem.PregeneratingKuKem;
 import de.rub.rke.queuedkukem.QueuedKuKemCiphertext;
+import de.rub.rke.signature.SignatureVerificationKey;
 import de.rub.rke.variables.SymmetricKey;
 import de.rub.rkeinstantiation.algorithmset.AlgorithmSet1;
+import de.rub.rkeinstantiation.brkekem.ECIESCurveContext;
 import de.rub.rkeinstantiation.brkekem.ECIESKemCiphertext;
 import de.rub.rkeinstantiation.brkekem.ECIESKemKeyPair;
 import de.rub.rkeinstantiation.brkekem.ECIESKemOutput;
+import de.rub.rkeinstantiation.brkekem.ECIESKemPublicKey;
+import de.rub.rkeinstantiation.brkekem.ECIESKemSecretKey;
 import de.rub.rkeinstantiation.brkekem.ECIESKeyEncapsulationMechanism;
+import de.rub.rkeinstantiation.brkekem.X25519KemPublicKey;
 import de.rub.rkeinstantiation.brkekukem.BrkeKuKem;
 import de.rub.rkeinstantiation.brkekukem.BrkeKuKemAssociatedData;
+import de.rub.rkeinstantiation.brkekukem.BrkeKuKemCiphertext;
 import de.rub.rkeinstantiation.brkekukem.BrkeKuKemOutput;
 import de.rub.rkeinstantiation.brkekukem.BrkeKuKemPublicKey;
 import de.rub.rkeinstantiation.brkekukem.BrkeKuKemSecretKey;
 import de.rub.rkeinstantiation.brkerandomoracle.HKDFRandomOracle;
 import de.rub.rkeinstantiation.brkerandomoracle.HKDFRandomOracleOutput;
+import de.rub.rkeinstantiation.brkesignature.DLPChameleonKeyPairPool;
 import de.rub.rkeinstantiation.brkesignature.DLPChameleonOTSignatureManager;
 import de.rub.rkeinstantiation.brkesignature.DLPChameleonVerificationKey;
+import de.rub.rkeinstantiation.brkesignature.ECChameleonOTSignatureManager;
+import de.rub.rkeinstantiation.brkesignature.ECChameleonVerificationKey;
 import de.rub.rkeinstantiation.factories.BrkeKuKemAssociatedDataFactory;
 import de.rub.rkeinstantiation.factories.BrkeKuKemFactory;
 import de.rub.rkeinstantiation.factories.BrkeTranscriptFactory;
 import de.rub.rkeinstantiation.factories.DLPChameleonSignatureFactory;
+import de.rub.rkeinstantiation.factories.ECChameleonSignatureFactory;
 import de.rub.rkeinstantiation.factories.ECIESKemFactory;
 import de.rub.rkeinstantiation.factories.HKDFRandomOracleFactory;
+import de.rub.rkeinstantiation.factories.X25519KemFactory;
+import de.rub.rkeinstantiation.hibewrapper.Hibe;
+import de.rub.rkeinstantiation.hibewrapper.HibeIdentity;
+import de.rub.rkeinstantiation.hibewrapper.HibeKeyPair;
+import de.rub.rkeinstantiation.hibewrapper.HibeOutput;
 import de.rub.rkeinstantiation.hibewrapper.HibePublicParameter;
+import de.rub.rkeinstantiation.hibewrapper.HibeSecretKey;
 import de.rub.rkeinstantiation.utility.CiphertextEncoder;
+import de.rub.rkeinstantiation.utility.FixedBaseExponentiation;
 import de.rub.rkeinstantiation.utility.SecureRandomBuilder;
 import de.rub.rkeinstantiation.variables.BrkeAssociatedData;
+import de.rub.rkeinstantiation.variables.BrkeKeySeed;
 import de.rub.rkeinstantiation.variables.BrkeSymmetricKey;
 import de.rub.rkeinstantiation.variables.BrkeTranscript;
 
@@ -95,6 +142,221 @@ public class TestBrkeInstantiation {
 		assertFalse(signatureAlgorithmB.verify(associatedData, ciphertextB));
 	}
 
+	/**
+	 * Tests that key pairs taken from the pool of the DLP-Based Signature are
+	 * valid, and that the signature falls back to inline generation, once the pool
+	 * is shut down and drained. The pool is filled, before the first key pair is
+	 * taken.
+	 */
+	@Test
+	void testDLPChameleonOTSignatureWithKeyPairPool() throws InterruptedException {
+		byte[] seed = { 1, 2, 3, 4, 5, 6, 7, 8, 9 };
+		SecureRandom randomness = SecureRandomBuilder.createSeedableRandomness();
+		randomness.setSeed(seed);
+		/**
+		 * The key pairs are generated inline by the executor, so the pool is filled,
+		 * when it is created and after every taken key pair.
+		 */
+		DLPChameleonSignatureFactory signatureFactory = new DLPChameleonSignatureFactory(2, Runnable::run);
+		DLPChameleonKeyPairPool keyPairPool = signatureFactory.getKeyPairPool();
+
+		DLPChameleonOTSignatureManager signatureAlgorithmA = (DLPChameleonOTSignatureManager) signatureFactory
+				.createSignatureManager();
+		DLPChameleonOTSignatureManager signatureAlgorithmB = (DLPChameleonOTSignatureManager) signatureFactory
+				.createSignatureManager();
+		byte[] adInput = { 1, 2, 3, 4, 5 };
+		BrkeAssociatedData associatedData = new BrkeAssociatedData(adInput);
+
+		assertEquals(2, keyPairPool.getPoolSize());
+		for (int i = 0; i < 2; i++) {
+			signatureAlgorithmB.setVerificationKey(signatureAlgorithmA.gen(randomness));
+			BrkeCiphertext ciphertext = createTestCiphertextForSigning(randomness);
+			ciphertext.computeSignature(signatureAlgorithmA, associatedData);
+			assertTrue(signatureAlgorithmB.verify(associatedData, ciphertext));
+		}
+		assertEquals(2L, keyPairPool.getPoolHits());
+		assertEquals(0L, keyPairPool.getPoolMisses());
+		assertEquals(2, keyPairPool.getPoolSize());
+
+		/**
+		 * After the shutdown, the remaining key pairs are taken from the pool and
+		 * the following ones are generated inline.
+		 */
+		signatureFactory.shutdownKeyPairPool();
+		int remainingKeyPairs = keyPairPool.getPoolSize();
+		assertEquals(2, remainingKeyPairs);
+		for (int i = 0; i < remainingKeyPairs + 2; i++) {
+			signatureAlgorithmB.setVerificationKey(signatureAlgorithmA.gen(randomness));
+			BrkeCiphertext ciphertext = createTestCiphertextForSigning(randomness);
+			ciphertext.computeSignature(signatureAlgorithmA, associatedData);
+			assertTrue(signatureAlgorithmB.verify(associatedData, ciphertext));
+		}
+		assertEquals(2L + remainingKeyPairs, keyPairPool.getPoolHits());
+		assertEquals(2L, keyPairPool.getPoolMisses());
+	}
+
+	/**
+	 * Waits, until the condition holds. Fails after 60 seconds.
+	 * 
+	 * @param condition
+	 * @throws InterruptedException
+	 */
+	private void waitUntil(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 60000;
+		while (!condition.getAsBoolean()) {
+			assertTrue(System.currentTimeMillis() < deadline, "Timed out waiting for the condition.");
+			Thread.sleep(10);
+		}
+	}
+
+	/**
+	 * Tests that the deterministic randomness outputs the same bytes for the same
+	 * seed, independent of how the output is requested.
+	 */
+	@Test
+	void testDeterministicRandomness() {
+		byte[] seed = { 1, 2, 3, 4, 5, 6, 7, 8, 9 };
+		byte[] otherSeed = { 9, 8, 7, 6, 5, 4, 3, 2, 1 };
+		SecureRandom randomness = SecureRandomBuilder.createDeterministicRandomness(seed);
+		byte[] output = new byte[100];
+		randomness.nextBytes(output);
+
+		SecureRandom sameRandomness = SecureRandomBuilder.createDeterministicRandomness(seed);
+		byte[] firstPart = new byte[37];
+		byte[] secondPart = new byte[63];
+		sameRandomness.nextBytes(firstPart);
+		sameRandomness.nextBytes(secondPart);
+		assertArrayEquals(Arrays.copyOfRange(output, 0, 37), firstPart);
+		assertArrayEquals(Arrays.copyOfRange(output, 37, 100), secondPart);
+
+		SecureRandom otherRandomness = SecureRandomBuilder.createDeterministicRandomness(otherSeed);
+		byte[] otherOutput = new byte[100];
+		otherRandomness.nextBytes(otherOutput);
+		assertFalse(Arrays.equals(output, otherOutput));
+
+		/**
+		 * Additional seeds change the output, but keep it deterministic.
+		 */
+		SecureRandom reseededRandomness = SecureRandomBuilder.createDeterministicRandomness(seed);
+		SecureRandom sameReseededRandomness = SecureRandomBuilder.createDeterministicRandomness(seed);
+		reseededRandomness.setSeed(otherSeed);
+		sameReseededRandomness.setSeed(otherSeed);
+		byte[] reseededOutput = new byte[100];
+		byte[] sameReseededOutput = new byte[100];
+		reseededRandomness.nextBytes(reseededOutput);
+		sameReseededRandomness.nextBytes(sameReseededOutput);
+		assertArrayEquals(reseededOutput, sameReseededOutput);
+		assertFalse(Arrays.equals(output, reseededOutput));
+	}
+
+	/**
+	 * Tests that the exponentiation with precomputed powers of the generator
+	 * matches BigInteger.modPow, also for exponents which are passed to modPow.
+	 */
+	@Test
+	void testFixedBaseExponentiation() {
+		byte[] seed = { 1, 2, 3, 4, 5, 6, 7, 8, 9 };
+		SecureRandom randomness = SecureRandomBuilder.createSeedableRandomness();
+		randomness.setSeed(seed);
+		DHParameters groupParameters = DHStandardGroups.rfc7919_ffdhe3072;
+		BigInteger p = groupParameters.getP();
+		BigInteger generator = groupParameters.getG();
+		FixedBaseExponentiation generatorPowers = FixedBaseExponentiation.forGroup(groupParameters);
+
+		List<BigInteger> exponents = new ArrayList<>();
+		exponents.add(BigInteger.ZERO);
+		exponents.add(BigInteger.ONE);
+		exponents.add(groupParameters.getQ().subtract(BigInteger.ONE));
+		exponents.add(new BigInteger(256, randomness).negate());
+		exponents.add(new BigInteger(p.bitLength(), randomness));
+		for (int bitLength : new int[] { 5, 256, 275, 3071 }) {
+			exponents.add(new BigInteger(bitLength, randomness));
+		}
+		for (BigInteger exponent : exponents) {
+			assertEquals(generator.modPow(exponent, p), generatorPowers.modPow(exponent));
+		}
+	}
+
+	/**
+	 * Tests the EC-Based Signature Algorithm. The signed ciphertexts are encoded to
+	 * JSON and back, before they are verified.
+	 */
+	@Test
+	void testECChameleonOTSignature() {
+		byte[] seed = { 1, 2, 3, 4, 5, 6, 7, 8, 9 };
+		SecureRandom randomness = SecureRandomBuilder.createSeedableRandomness();
+		SecureRandom randomnessA = SecureRandomBuilder.createSeedableRandomness();
+		SecureRandom randomnessB = SecureRandomBuilder.createSeedableRandomness();
+		randomness.setSeed(seed);
+		randomnessA.setSeed(seed);
+		randomnessB.setSeed(seed);
+		ECChameleonSignatureFactory signatureFactory = new ECChameleonSignatureFactory();
+
+		ECChameleonOTSignatureManager signatureAlgorithmA = (ECChameleonOTSignatureManager) signatureFactory
+				.createSignatureManager();
+		ECChameleonOTSignatureManager signatureAlgorithmB = (ECChameleonOTSignatureManager) signatureFactory
+				.createSignatureManager();
+
+		signatureAlgorithmA.init(randomnessA, true);
+		signatureAlgorithmB.init(randomnessB, false);
+
+		byte[] adInput = { 1, 2, 3, 4, 5 };
+		BrkeAssociatedData associatedData = new BrkeAssociatedData(adInput);
+		BrkeCiphertext ciphertextA = createTestCiphertextForSigning(randomness);
+		BrkeCiphertext ciphertextB = createTestCiphertextForSigning(randomness);
+		ciphertextA.computeSignature(signatureAlgorithmA, associatedData);
+		ciphertextB.computeSignature(signatureAlgorithmB, associatedData);
+
+		/**
+		 * Signatures should be only valid if used with the corresponding keys, thus,
+		 * only for the correct users.
+		 */
+		assertTrue(signatureAlgorithmA.verify(associatedData, ciphertextB));
+		assertTrue(signatureAlgorithmB.verify(associatedData, ciphertextA));
+		assertFalse(signatureAlgorithmA.verify(associatedData, ciphertextA));
+		assertFalse(signatureAlgorithmB.verify(associatedData, ciphertextB));
+
+		/**
+		 * Keys generated after the initialization are valid, also after the ciphertext
+		 * has been encoded.
+		 */
+		SignatureVerificationKey verificationKey = signatureAlgorithmA.gen(randomness);
+		signatureAlgorithmB.setVerificationKey(verificationKey);
+		BrkeCiphertext ciphertext = createTestCiphertextForSigning(randomness, verificationKey);
+		ciphertext.computeSignature(signatureAlgorithmA, associatedData);
+		BrkeCiphertext decodedCiphertext = CiphertextEncoder
+				.base64ToCiphertextWithECSignature(CiphertextEncoder.ciphertextToBase64(ciphertext));
+		assertTrue(signatureAlgorithmB.verify(associatedData, decodedCiphertext));
+		BrkeAssociatedData otherAssociatedData = new BrkeAssociatedData(new byte[] { 5, 4, 3, 2, 1 });
+		assertFalse(signatureAlgorithmB.verify(otherAssociatedData, decodedCiphertext));
+
+		/**
+		 * Keys generated from the same seed have to match. Signing without a key and
+		 * verification keys with invalid points are rejected.
+		 */
+		BrkeKeySeed keySeed = new BrkeKeySeed(seed);
+		ECChameleonVerificationKey seededVerificationKey = (ECChameleonVerificationKey) signatureAlgorithmA
+				.gen(keySeed);
+		ECChameleonVerificationKey reseededVerificationKey = (ECChameleonVerificationKey) signatureFactory
+				.createSignatureManager().gen(keySeed);
+		assertArrayEquals(seededVerificationKey.getG2(), reseededVerificationKey.getG2());
+		assertArrayEquals(seededVerificationKey.getG3(), reseededVerificationKey.getG3());
+		assertArrayEquals(seededVerificationKey.getZ0(), reseededVerificationKey.getZ0());
+		signatureAlgorithmB.setVerificationKey(seededVerificationKey);
+		BrkeCiphertext seededCiphertext = createTestCiphertextForSigning(randomness, seededVerificationKey);
+		seededCiphertext.computeSignature(signatureAlgorithmA, associatedData);
+		assertTrue(signatureAlgorithmB.verify(associatedData, seededCiphertext));
+		BrkeCiphertext unsignedCiphertext = createTestCiphertextForSigning(randomness);
+		assertThrows(IllegalStateException.class,
+				() -> unsignedCiphertext.computeSignature(signatureAlgorithmA, associatedData));
+		byte[] invalidPoint = new byte[seededVerificationKey.getG2().length];
+		invalidPoint[0] = 5;
+		signatureAlgorithmB.setVerificationKey(
+				new ECChameleonVerificationKey(invalidPoint, invalidPoint, seededVerificationKey.getZ0()));
+		assertThrows(IllegalArgumentException.class,
+				() -> signatureAlgorithmB.verify(associatedData, seededCiphertext));
+	}
+
 	/**
 	 * Tests the HKDF-Based RandomOracle.
 	 */
@@ -212,6 +474,461 @@ public class TestBrkeInstantiation {
 
 	}
 
+	/**
+	 * Tests that a BrkeKuKem which keeps the keys decoded in native memory is
+	 * compatible with a BrkeKuKem that works on encoded keys.
+	 */
+	@Test
+	void testBrkeKuKemWithDecodedKeys() {
+		testCompatibleBrkeKuKems(new BrkeKuKemFactory(), BrkeKuKemFactory.builder().keepKeysDecoded(true).build());
+	}
+
+	/**
+	 * Tests that a BrkeKuKem which passes data in direct buffers is compatible with
+	 * a BrkeKuKem that passes byte arrays. Keys kept decoded cannot be passed in
+	 * direct buffers.
+	 */
+	@Test
+	void testBrkeKuKemWithDirectBuffers() {
+		testCompatibleBrkeKuKems(new BrkeKuKemFactory(),
+				BrkeKuKemFactory.builder().useDirectBuffers(true).build());
+		assertThrows(IllegalArgumentException.class, () -> new Hibe(32, true, true));
+	}
+
+	/**
+	 * Tests that the key pairs, which a BrkeKuKem generates in the background, are
+	 * compatible with a BrkeKuKem that generates them inline. The pools are filled
+	 * synchronously, so the generated key pair is taken from the pool. With the
+	 * threads of the factory, the pool is filled up to the low watermark before a
+	 * key pair is taken.
+	 */
+	@Test
+	void testBrkeKuKemWithPregeneratedKeys() throws InterruptedException {
+		BrkeKuKemFactory synchronousKuKemFactory = BrkeKuKemFactory.builder().pregeneration(1, 2, Runnable::run)
+				.build();
+		PregeneratingKuKem synchronousKuKem = (PregeneratingKuKem) testCompatibleBrkeKuKems(new BrkeKuKemFactory(),
+				synchronousKuKemFactory);
+		assertEquals(1L, synchronousKuKem.getPoolHits());
+		assertEquals(0L, synchronousKuKem.getPoolMisses());
+
+		BrkeKuKemFactory pregeneratingKuKemFactory = BrkeKuKemFactory.builder().pregeneration(1, 2, 1).build();
+		PregeneratingKuKem pregeneratingKuKem = (PregeneratingKuKem) pregeneratingKuKemFactory
+				.createKuKemAlgorithm();
+		waitUntil(() -> pregeneratingKuKem.getPoolSize() >= 1);
+		pregeneratingKuKem.gen(new SecureRandom());
+		assertTrue(pregeneratingKuKem.getPoolHits() > 0);
+		pregeneratingKuKemFactory.shutdownPregeneration();
+	}
+
+	/**
+	 * Generates and updates keys with the tested kuKem, and checks that both kuKems
+	 * decapsulate the ciphertexts of each other.
+	 * 
+	 * @return tested kuKem
+	 */
+	private KeyUpdateableKem testCompatibleBrkeKuKems(BrkeKuKemFactory referenceKuKemFactory,
+			BrkeKuKemFactory testedKuKemFactory) {
+		byte[] seed = { 1, 2, 3, 4, 5, 6, 7, 8, 9 };
+		SecureRandom randomness = SecureRandomBuilder.createSeedableRandomness();
+		randomness.setSeed(seed);
+
+		KeyUpdateableKem referenceKuKem = referenceKuKemFactory.createKuKemAlgorithm();
+		KeyUpdateableKem testedKuKem = testedKuKemFactory.createKuKemAlgorithm();
+
+		KuKemKeyPair keyPair = testedKuKem.gen(randomness);
+
+		byte[] adInput = { 1, 2, 3, 4, 5 };
+		BrkeAssociatedData associatedData = new BrkeAssociatedData(adInput);
+		BrkeCiphertext ciphertext = createTestCiphertext(randomness, associatedData);
+		BrkeKuKemAssociatedData ad = (BrkeKuKemAssociatedData) new BrkeKuKemAssociatedDataFactory()
+				.createAssociatedData(associatedData, ciphertext);
+
+		BrkeKuKemPublicKey publicKey = (BrkeKuKemPublicKey) keyPair.getPublicKey();
+		BrkeKuKemSecretKey secretKey = (BrkeKuKemSecretKey) keyPair.getSecretKey();
+		for (int i = 0; i < 3; i++) {
+			publicKey = (BrkeKuKemPublicKey) testedKuKem.updatePublicKey(publicKey, ad);
+			secretKey = (BrkeKuKemSecretKey) testedKuKem.updateSecretKey(secretKey, ad);
+		}
+
+		/**
+		 * Keys delegated by the tested kuKem have to decapsulate the ciphertexts of both
+		 * kuKems.
+		 */
+		BrkeKuKemOutput testedOutput = (BrkeKuKemOutput) testedKuKem.encapsulate(publicKey);
+		BrkeKuKemOutput referenceOutput = (BrkeKuKemOutput) referenceKuKem.encapsulate(publicKey);
+		assertArrayEquals(((BrkeSymmetricKey) testedOutput.getKey()).getKeyBytes(),
+				((BrkeSymmetricKey) referenceKuKem.decapsulate(secretKey, testedOutput.getCiphertext())).getKeyBytes());
+		assertArrayEquals(((BrkeSymmetricKey) referenceOutput.getKey()).getKeyBytes(),
+				((BrkeSymmetricKey) testedKuKem.decapsulate(secretKey, referenceOutput.getCiphertext())).getKeyBytes());
+		return testedKuKem;
+	}
+
+	/**
+	 * Runs BrkeKuKem encapsulations and decapsulations on all cores and compares
+	 * the results with a single threaded run.
+	 */
+	@Test
+	void testConcurrentBrkeKuKem() throws Exception {
+		int numberOfThreads = Runtime.getRuntime().availableProcessors();
+		List<Callable<byte[][]>> tasks = new ArrayList<>();
+		for (int i = 0; i < 4 * numberOfThreads; i++) {
+			byte taskSeed = (byte) i;
+			tasks.add(() -> runBrkeKuKemTask(taskSeed));
+		}
+
+		List<byte[][]> expectedResults = new ArrayList<>();
+		for (Callable<byte[][]> task : tasks) {
+			expectedResults.add(task.call());
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+		try {
+			List<Future<byte[][]>> results = executor.invokeAll(tasks);
+			for (int i = 0; i < tasks.size(); i++) {
+				byte[][] result = results.get(i).get();
+				for (int j = 0; j < result.length; j++) {
+					assertArrayEquals(expectedResults.get(i)[j], result[j]);
+				}
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Generates a key pair, updates it once and encapsulates and decapsulates a
+	 * key at both levels. All randomness is derived from the task seed.
+	 * 
+	 * @param taskSeed - seed of the task
+	 * @return ciphertexts, encapsulated and decapsulated keys
+	 */
+	private byte[][] runBrkeKuKemTask(byte taskSeed) {
+		byte[] seed = { taskSeed, 1, 2, 3, 4, 5, 6, 7, 8 };
+		SecureRandom randomness = SecureRandomBuilder.createSeedableRandomness();
+		randomness.setSeed(seed);
+		BrkeKuKem kuKem = new BrkeKuKem(randomness, 32);
+
+		KuKemKeyPair keyPair = kuKem.gen(randomness);
+		byte[] adInput = new byte[32];
+		randomness.nextBytes(adInput);
+		BrkeKuKemAssociatedData ad = new BrkeKuKemAssociatedData(adInput);
+		BrkeKuKemPublicKey[] publicKeys = { (BrkeKuKemPublicKey) keyPair.getPublicKey(),
+				(BrkeKuKemPublicKey) kuKem.updatePublicKey(keyPair.getPublicKey(), ad) };
+		BrkeKuKemSecretKey[] secretKeys = { (BrkeKuKemSecretKey) keyPair.getSecretKey(),
+				(BrkeKuKemSecretKey) kuKem.updateSecretKey(keyPair.getSecretKey(), ad) };
+
+		byte[][] result = new byte[3 * publicKeys.length][];
+		for (int i = 0; i < publicKeys.length; i++) {
+			BrkeKuKemOutput output = (BrkeKuKemOutput) kuKem.encapsulate(publicKeys[i]);
+			result[3 * i] = ((BrkeKuKemCiphertext) output.getCiphertext()).getCiphertext().getCiphertext();
+			result[3 * i + 1] = ((BrkeSymmetricKey) output.getKey()).getKeyBytes();
+			result[3 * i + 2] = ((BrkeSymmetricKey) kuKem.decapsulate(secretKeys[i], output.getCiphertext()))
+					.getKeyBytes();
+		}
+		return result;
+	}
+
+	/**
+	 * Tests that the Hibe rejects hash functions, which cannot be copied for every
+	 * thread.
+	 */
+	@Test
+	void testHibeRejectsNonMemoableDigest() {
+		assertThrows(IllegalArgumentException.class,
+				() -> new Hibe(32, new NullDigest(), new SHA256Digest(), new SHA256Digest()));
+	}
+
+	/**
+	 * Tests that the encapsulation with a single native call is compatible with the
+	 * encapsulation, which samples and encrypts the random element in two calls.
+	 */
+	@Test
+	void testFusedHibeEncapsulation() {
+		byte[] seed = { 1, 2, 3, 4, 5, 6, 7, 8, 9 };
+		SecureRandom randomness = SecureRandomBuilder.createSeedableRandomness();
+		randomness.setSeed(seed);
+
+		Hibe fusedHibe = new Hibe(32);
+		Hibe hibe = new Hibe(32, new SHA256Digest(), new SHA256Digest(), new SHA256Digest());
+		byte[] identity = new byte[64];
+		randomness.nextBytes(identity);
+		HibeKeyPair keyPair = fusedHibe.setup(Arrays.copyOf(identity, 32), randomness);
+		HibeSecretKey secretKey = fusedHibe.delegate(keyPair.getHibeSecretKey(), identity, 2, randomness);
+
+		HibeOutput fusedOutput = fusedHibe.encapsulate(keyPair.getHibePublicParameter(), identity, 2, randomness);
+		HibeOutput output = hibe.encapsulate(keyPair.getHibePublicParameter(), identity, 2, randomness);
+		HibeIdentity hibeIdentity = HibeIdentity.fromIdentityInformation(identity, 32, 2);
+		assertArrayEquals(fusedOutput.getGeneratedKey(),
+				hibe.decapsulate(secretKey, fusedOutput.getCiphertext(), hibeIdentity));
+		assertArrayEquals(output.getGeneratedKey(),
+				fusedHibe.decapsulate(secretKey, output.getCiphertext(), hibeIdentity));
+		assertArrayEquals(output.getGeneratedKey(),
+				fusedHibe.decapsulate(secretKey, output.getCiphertext(), hibeIdentity, randomness));
+	}
+
+	/**
+	 * Tests the Hibe with identities, which do not have the size of 'com'. The
+	 * encapsulation then computes 'com' in Java, single and batched.
+	 */
+	@Test
+	void testHibeWithShortIdentities() {
+		byte[] seed = { 1, 2, 3, 4, 5, 6, 7, 8, 9 };
+		SecureRandom randomness = SecureRandomBuilder.createSeedableRandomness();
+		randomness.setSeed(seed);
+
+		Hibe hibe = new Hibe(16);
+		List<HibePublicParameter> publicParameters = new ArrayList<HibePublicParameter>();
+		List<HibeSecretKey> secretKeys = new ArrayList<HibeSecretKey>();
+		List<byte[]> identities = new ArrayList<byte[]>();
+		int[] levels = { 1, 2 };
+		for (int level : levels) {
+			byte[] identity = new byte[16 * level];
+			randomness.nextBytes(identity);
+			HibeKeyPair keyPair = hibe.setup(Arrays.copyOf(identity, 16), randomness);
+			HibeSecretKey secretKey = keyPair.getHibeSecretKey();
+			if (level > 1) {
+				secretKey = hibe.delegate(secretKey, identity, level, randomness);
+			}
+			publicParameters.add(keyPair.getHibePublicParameter());
+			secretKeys.add(secretKey);
+			identities.add(identity);
+		}
+
+		for (int i = 0; i < levels.length; i++) {
+			HibeOutput output = hibe.encapsulate(publicParameters.get(i), identities.get(i), levels[i], randomness);
+			assertArrayEquals(output.getGeneratedKey(), hibe.decapsulate(secretKeys.get(i), output.getCiphertext(),
+					HibeIdentity.fromIdentityInformation(identities.get(i), 16, levels[i])));
+		}
+		List<HibeOutput> outputs = hibe.encapsulateAll(publicParameters, identities, levels, randomness, 2);
+		for (int i = 0; i < levels.length; i++) {
+			assertArrayEquals(outputs.get(i).getGeneratedKey(), hibe.decapsulate(secretKeys.get(i),
+					outputs.get(i).getCiphertext(), HibeIdentity.fromIdentityInformation(identities.get(i), 16,
+							levels[i])));
+		}
+	}
+
+	/**
+	 * Tests the batched encapsulation of the Hibe. With the same randomness, the
+	 * batch has to match consecutive encapsulations, independent of the number of
+	 * native threads.
+	 */
+	@Test
+	void testBatchedHibeEncapsulation() {
+		byte[] seed = { 1, 2, 3, 4, 5, 6, 7, 8, 9 };
+		SecureRandom randomness = SecureRandomBuilder.createSeedableRandomness();
+		randomness.setSeed(seed);
+
+		Hibe hibe = new Hibe(32);
+		Hibe decodedKeysHibe = new Hibe(32, true);
+		List<HibePublicParameter> publicParameters = new ArrayList<HibePublicParameter>();
+		List<HibeSecretKey> secretKeys = new ArrayList<HibeSecretKey>();
+		List<byte[]> identities = new ArrayList<byte[]>();
+		int[] levels = { 1, 2, 3, 1, 2 };
+		for (int level : levels) {
+			byte[] identity = new byte[32 * level];
+			randomness.nextBytes(identity);
+			HibeKeyPair keyPair = hibe.setup(Arrays.copyOf(identity, 32), randomness);
+			HibeSecretKey secretKey = keyPair.getHibeSecretKey();
+			if (level > 1) {
+				secretKey = hibe.delegate(secretKey, identity, level, randomness);
+			}
+			publicParameters.add(keyPair.getHibePublicParameter());
+			secretKeys.add(secretKey);
+			identities.add(identity);
+		}
+
+		byte[] batchSeed = new byte[32];
+		randomness.nextBytes(batchSeed);
+		SecureRandom referenceRandomness = SecureRandomBuilder.createSeedableRandomness();
+		referenceRandomness.setSeed(batchSeed);
+		List<HibeOutput> referenceOutputs = new ArrayList<HibeOutput>();
+		for (int i = 0; i < levels.length; i++) {
+			referenceOutputs.add(hibe.encapsulate(publicParameters.get(i), identities.get(i), levels[i],
+					referenceRandomness));
+		}
+		for (int numberOfThreads : new int[] { 1, 3 }) {
+			for (Hibe batchHibe : new Hibe[] { hibe, decodedKeysHibe }) {
+				SecureRandom batchRandomness = SecureRandomBuilder.createSeedableRandomness();
+				batchRandomness.setSeed(batchSeed);
+				List<HibeOutput> outputs = batchHibe.encapsulateAll(publicParameters, identities, levels,
+						batchRandomness, numberOfThreads);
+				for (int i = 0; i < levels.length; i++) {
+					assertArrayEquals(referenceOutputs.get(i).getGeneratedKey(), outputs.get(i).getGeneratedKey());
+					assertArrayEquals(outputs.get(i).getGeneratedKey(),
+							hibe.decapsulate(secretKeys.get(i), outputs.get(i).getCiphertext(),
+									HibeIdentity.fromIdentityInformation(identities.get(i), 32, levels[i])));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Tests the batched delegation of the Hibe. With the same randomness, the batch
+	 * has to match consecutive delegations, independent of the number of native
+	 * threads.
+	 */
+	@Test
+	void testBatchedHibeDelegation() {
+		byte[] seed = { 1, 2, 3, 4, 5, 6, 7, 8, 9 };
+		SecureRandom randomness = SecureRandomBuilder.createSeedableRandomness();
+		randomness.setSeed(seed);
+
+		Hibe hibe = new Hibe(32);
+		Hibe decodedKeysHibe = new Hibe(32, true);
+		List<HibePublicParameter> publicParameters = new ArrayList<HibePublicParameter>();
+		List<HibeSecretKey> secretKeys = new ArrayList<HibeSecretKey>();
+		List<byte[]> identities = new ArrayList<byte[]>();
+		int[] levels = { 1, 2, 3, 1 };
+		for (int level : levels) {
+			byte[] identity = new byte[32 * level];
+			randomness.nextBytes(identity);
+			HibeKeyPair keyPair = hibe.setup(Arrays.copyOf(identity, 32), randomness);
+			HibeSecretKey secretKey = keyPair.getHibeSecretKey();
+			if (level > 1) {
+				secretKey = hibe.delegate(secretKey, identity, level, randomness);
+			}
+			publicParameters.add(keyPair.getHibePublicParameter());
+			secretKeys.add(secretKey);
+			identities.add(identity);
+		}
+		byte[] appendedIdentity = new byte[32];
+		randomness.nextBytes(appendedIdentity);
+
+		byte[] batchSeed = new byte[32];
+		randomness.nextBytes(batchSeed);
+		SecureRandom referenceRandomness = SecureRandomBuilder.createSeedableRandomness();
+		referenceRandomness.setSeed(batchSeed);
+		List<byte[]> delegatedIdentities = new ArrayList<byte[]>();
+		List<HibeSecretKey> referenceKeys = new ArrayList<HibeSecretKey>();
+		for (int i = 0; i < levels.length; i++) {
+			byte[] delegatedIdentity = Arrays.copyOf(identities.get(i), 32 * (levels[i] + 1));
+			System.arraycopy(appendedIdentity, 0, delegatedIdentity, 32 * levels[i], 32);
+			delegatedIdentities.add(delegatedIdentity);
+			referenceKeys.add(hibe.delegate(secretKeys.get(i), delegatedIdentity, levels[i] + 1, referenceRandomness));
+		}
+		for (int numberOfThreads : new int[] { 1, 3 }) {
+			for (Hibe batchHibe : new Hibe[] { hibe, decodedKeysHibe }) {
+				SecureRandom batchRandomness = SecureRandomBuilder.createSeedableRandomness();
+				batchRandomness.setSeed(batchSeed);
+				List<HibeSecretKey> delegatedKeys = batchHibe.delegateAll(secretKeys, identities, levels,
+						appendedIdentity, batchRandomness, numberOfThreads);
+				for (int i = 0; i < levels.length; i++) {
+					assertArrayEquals(referenceKeys.get(i).getEncodedHibeSecretKey(),
+							delegatedKeys.get(i).getEncodedHibeSecretKey());
+					HibeOutput output = hibe.encapsulate(publicParameters.get(i), delegatedIdentities.get(i),
+							levels[i] + 1, randomness);
+					assertArrayEquals(output.getGeneratedKey(),
+							batchHibe.decapsulate(delegatedKeys.get(i), output.getCiphertext(), HibeIdentity
+									.fromIdentityInformation(delegatedIdentities.get(i), 32, levels[i] + 1)));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Tests the append-only identity vector. Appending to an identity, which is
+	 * already extended, must not change the other identity.
+	 */
+	@Test
+	void testHibeIdentity() throws Exception {
+		SecureRandom randomness = SecureRandomBuilder.createSeedableRandomness();
+		randomness.setSeed(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9 });
+		byte[][] identityData = new byte[6][32];
+		for (byte[] data : identityData) {
+			randomness.nextBytes(data);
+		}
+		byte[] identityInformation = new byte[32 * identityData.length];
+		for (int i = 0; i < identityData.length; i++) {
+			System.arraycopy(identityData[i], 0, identityInformation, 32 * i, 32);
+		}
+
+		HibeIdentity identity = HibeIdentity.fromIdentityInformation(identityInformation, 32, 1);
+		List<HibeIdentity> chain = new ArrayList<HibeIdentity>();
+		chain.add(identity);
+		for (int i = 1; i < identityData.length; i++) {
+			identity = identity.append(identityData[i]);
+			chain.add(identity);
+		}
+		HibeIdentity fork = chain.get(2).append(identityData[0]);
+		for (int i = 0; i < chain.size(); i++) {
+			assertEquals(i + 1, chain.get(i).getLevel());
+			assertArrayEquals(Arrays.copyOf(identityInformation, 32 * (i + 1)),
+					chain.get(i).getIdentityInformation());
+		}
+		byte[] forkInformation = Arrays.copyOf(identityInformation, 32 * 4);
+		System.arraycopy(identityData[0], 0, forkInformation, 32 * 3, 32);
+		assertArrayEquals(forkInformation, fork.getIdentityInformation());
+
+		SHA256Digest expectedHash = new SHA256Digest();
+		expectedHash.update(identityInformation, 0, identityInformation.length);
+		SHA256Digest hash = new SHA256Digest();
+		identity.update(hash);
+		byte[] expectedOutput = new byte[32];
+		byte[] output = new byte[32];
+		expectedHash.doFinal(expectedOutput, 0);
+		hash.doFinal(output, 0);
+		assertArrayEquals(expectedOutput, output);
+
+		/**
+		 * A public key, which is reconstructed from JSON, has the same identities.
+		 */
+		BrkeKuKemPublicKey publicKey = new BrkeKuKemPublicKey(
+				new HibePublicParameter(identityData[0], identityData[1]), chain.get(1));
+		publicKey.appendIdentityInformation(identityData[2]);
+		ObjectMapper mapper = new ObjectMapper();
+		BrkeKuKemPublicKey decodedPublicKey = mapper.readValue(mapper.writeValueAsString(publicKey),
+				BrkeKuKemPublicKey.class);
+		assertEquals(3, decodedPublicKey.getLevel());
+		assertArrayEquals(chain.get(2).getIdentityInformation(), decodedPublicKey.getIdentityInformation());
+		assertArrayEquals(forkInformation, decodedPublicKey.identity().append(identityData[0]).getIdentityInformation());
+
+		/**
+		 * Concurrent first uses of the identity of a reconstructed key see the same
+		 * identities.
+		 */
+		BrkeKuKemPublicKey sharedPublicKey = mapper.readValue(mapper.writeValueAsString(publicKey),
+				BrkeKuKemPublicKey.class);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		List<Future<byte[]>> identities = new ArrayList<Future<byte[]>>();
+		for (int i = 0; i < 8; i++) {
+			identities.add(executor.submit(() -> sharedPublicKey.identity().getIdentityInformation()));
+		}
+		for (Future<byte[]> identityInformationOfThread : identities) {
+			assertArrayEquals(chain.get(2).getIdentityInformation(), identityInformationOfThread.get());
+		}
+		executor.shutdown();
+	}
+
+	/**
+	 * Tests the interning of the Hibe public parameters. Copies of the same
+	 * parameters, also from JSON, have to resolve to the interned object.
+	 */
+	@Test
+	void testInternedHibePublicParameter() throws Exception {
+		SecureRandom randomness = SecureRandomBuilder.createSeedableRandomness();
+		randomness.setSeed(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9 });
+		byte[] encodedParameter = new byte[4096];
+		byte[] encapsulationParameter = new byte[32];
+		randomness.nextBytes(encodedParameter);
+		randomness.nextBytes(encapsulationParameter);
+
+		HibePublicParameter publicParameter = HibePublicParameter
+				.intern(new HibePublicParameter(encodedParameter, encapsulationParameter));
+		HibePublicParameter copy = new HibePublicParameter(encodedParameter, encapsulationParameter);
+		assertArrayEquals(publicParameter.digest(), copy.digest());
+		assertTrue(publicParameter == HibePublicParameter.intern(copy));
+		encapsulationParameter[0]++;
+		HibePublicParameter otherParameter = new HibePublicParameter(encodedParameter, encapsulationParameter);
+		assertFalse(Arrays.equals(publicParameter.digest(), otherParameter.digest()));
+		assertTrue(otherParameter == HibePublicParameter.intern(otherParameter));
+
+		BrkeKuKemPublicKey publicKey = new BrkeKuKemPublicKey(publicParameter, encapsulationParameter, 1);
+		ObjectMapper mapper = new ObjectMapper();
+		BrkeKuKemPublicKey decodedPublicKey = mapper.readValue(mapper.writeValueAsString(publicKey),
+				BrkeKuKemPublicKey.class);
+		assertTrue(publicParameter == decodedPublicKey.getHibePublicParameter());
+	}
+
 	/**
 	 * Tests the ECIES-Kem
 	 */
@@ -237,6 +954,93 @@ public class TestBrkeInstantiation {
 						.getKeyBytes()));
 	}
 
+	/**
+	 * Tests that the key generation with the shared curve context samples the same
+	 * key pairs as the key pair generator of bouncy castle.
+	 */
+	@Test
+	void testEciesKemKeyGeneration() {
+		byte[] seed = { 1, 2, 3, 4, 5, 6, 7, 8, 9 };
+		SecureRandom randomness = SecureRandomBuilder.createSeedableRandomness();
+		SecureRandom referenceRandomness = SecureRandomBuilder.createSeedableRandomness();
+		randomness.setSeed(seed);
+		referenceRandomness.setSeed(seed);
+		ECIESKemFactory kemFactory = new ECIESKemFactory();
+		ECIESKeyEncapsulationMechanism eciesKem = (ECIESKeyEncapsulationMechanism) kemFactory.createKem();
+		ECKeyPairGenerator referenceGenerator = new ECKeyPairGenerator();
+		referenceGenerator.init(new ECKeyGenerationParameters(ECIESCurveContext.getBrainpoolP256r1().getParameters(),
+				referenceRandomness));
+		for (int i = 0; i < 10; i++) {
+			ECIESKemKeyPair keyPair = (ECIESKemKeyPair) eciesKem.gen(randomness);
+			AsymmetricCipherKeyPair referenceKeyPair = referenceGenerator.generateKeyPair();
+			assertEquals(((ECPrivateKeyParameters) referenceKeyPair.getPrivate()).getD(),
+					((ECIESKemSecretKey) keyPair.getSecretKey()).getECSecretParameter().getD());
+			assertEquals(((ECPublicKeyParameters) referenceKeyPair.getPublic()).getQ(),
+					((ECIESKemPublicKey) keyPair.getPublicKey()).getECPublicParameter().getQ());
+		}
+	}
+
+	/**
+	 * Tests the Kem profiles: ECIES over brainpoolp256r1 and secp256r1 and the
+	 * X25519 based Kem.
+	 */
+	@Test
+	void testKemProfiles() {
+		byte[] seed = { 1, 2, 3, 4, 5, 6, 7, 8, 9 };
+		SecureRandom randomness = SecureRandomBuilder.createSeedableRandomness();
+		randomness.setSeed(seed);
+		KemFactory[] kemFactories = { new ECIESKemFactory(),
+				new ECIESKemFactory(ECIESCurveContext.getSecp256r1()), new X25519KemFactory() };
+		for (KemFactory kemFactory : kemFactories) {
+			KeyEncapsulationMechanism kem = kemFactory.createKem();
+			KemKeyPair keyPair1 = kem.gen(randomness);
+			KemKeyPair keyPair2 = kem.gen(randomness);
+			KemOutput output = kem.encapsulate(keyPair1.getPublicKey());
+			byte[] key = ((BrkeSymmetricKey) output.getKey()).getKeyBytes();
+			assertArrayEquals(key,
+					((BrkeSymmetricKey) kem.decapsulate(keyPair1.getSecretKey(), output.getCiphertext())).getKeyBytes());
+			assertFalse(Arrays.equals(key,
+					((BrkeSymmetricKey) kem.decapsulate(keyPair2.getSecretKey(), output.getCiphertext())).getKeyBytes()));
+
+			/**
+			 * Key pairs generated from the same seed have to match, also for Kems of
+			 * different factories.
+			 */
+			BrkeKeySeed keySeed = new BrkeKeySeed(seed);
+			KemKeyPair seededKeyPair = kem.gen(keySeed);
+			output = kem.encapsulate(seededKeyPair.getPublicKey());
+			KemKeyPair reseededKeyPair = kemFactory.createKem().gen(keySeed);
+			assertArrayEquals(((BrkeSymmetricKey) output.getKey()).getKeyBytes(),
+					((BrkeSymmetricKey) kem.decapsulate(reseededKeyPair.getSecretKey(), output.getCiphertext()))
+							.getKeyBytes());
+		}
+	}
+
+	/**
+	 * Tests, that the X25519 Kem derives the public key from the secret key and
+	 * rejects points of small order and malformed ciphertexts.
+	 */
+	@Test
+	void testX25519KemInvalidPoints() {
+		byte[] seed = { 1, 2, 3, 4, 5, 6, 7, 8, 9 };
+		SecureRandom randomness = SecureRandomBuilder.createSeedableRandomness();
+		randomness.setSeed(seed);
+		KeyEncapsulationMechanism kem = new X25519KemFactory().createKem();
+		KemKeyPair keyPair = kem.gen(randomness);
+		KemPublicKey publicKey = kem.gen(keyPair.getSecretKey());
+		KemOutput output = kem.encapsulate(publicKey);
+		assertArrayEquals(((BrkeSymmetricKey) output.getKey()).getKeyBytes(),
+				((BrkeSymmetricKey) kem.decapsulate(keyPair.getSecretKey(), output.getCiphertext())).getKeyBytes());
+
+		byte[] smallOrderPoint = new byte[X25519PublicKeyParameters.KEY_SIZE];
+		assertThrows(IllegalArgumentException.class,
+				() -> kem.encapsulate(new X25519KemPublicKey(new X25519PublicKeyParameters(smallOrderPoint, 0))));
+		assertThrows(IllegalArgumentException.class,
+				() -> kem.decapsulate(keyPair.getSecretKey(), new ECIESKemCiphertext(smallOrderPoint)));
+		assertThrows(IllegalArgumentException.class, () -> kem.decapsulate(keyPair.getSecretKey(),
+				new ECIESKemCiphertext(new byte[X25519PublicKeyParameters.KEY_SIZE - 1])));
+	}
+
 	/**
 	 * Tests the BrkeInstantiation.
 	 */
@@ -253,6 +1057,28 @@ public class TestBrkeInstantiation {
 		HKDFRandomOracleFactory randomOracleFactory = new HKDFRandomOracleFactory();
 		AlgorithmSet1 algorithmSet = new AlgorithmSet1(kuKemFactory, kemFactory, randomOracleFactory,
 				associatedDataFactory, signatureFactory, transcriptFactory);
+		testBrkeInstantiation(algorithmSet, CiphertextEncoder::base64ToCiphertext);
+	}
+
+	/**
+	 * Tests the BrkeInstantiation with the EC-Based Signature.
+	 */
+	@Test
+	void testBrkeInstantiationWithECSignature() {
+		AlgorithmSet1 algorithmSet = new AlgorithmSet1(new BrkeKuKemFactory(), new ECIESKemFactory(),
+				new HKDFRandomOracleFactory(), new BrkeKuKemAssociatedDataFactory(), new ECChameleonSignatureFactory(),
+				new BrkeTranscriptFactory());
+		testBrkeInstantiation(algorithmSet, CiphertextEncoder::base64ToCiphertextWithECSignature);
+	}
+
+	/**
+	 * Lets two users send messages asynchronously and checks that they establish the
+	 * same session keys.
+	 * 
+	 * @param algorithmSet      - algorithm set of both users
+	 * @param ciphertextDecoder - decodes the Base64 encoded ciphertexts
+	 */
+	private void testBrkeInstantiation(AlgorithmSet1 algorithmSet, Function<byte[], BrkeCiphertext> ciphertextDecoder) {
 		byte[] seed = { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10 };
 		SecureRandom randomness = SecureRandomBuilder.createSeedableRandomness();
 		SecureRandom randomnessA = SecureRandomBuilder.createSeedableRandomness();
@@ -300,7 +1126,7 @@ public class TestBrkeInstantiation {
 			if (rng.nextBoolean()) {
 				for (int j = lastReceivedMessageB + 1; j <= i; j++) {
 					byte[] encodedCiphertext = CiphertextEncoder.ciphertextToBase64(sendOutputA[j].getCiphertext());
-					BrkeCiphertext ciphertext = CiphertextEncoder.base64ToCiphertext(encodedCiphertext);
+					BrkeCiphertext ciphertext = ciphertextDecoder.apply(encodedCiphertext);
 					receiveOutputB[j] = brkeUserB.receive(associatedData, ciphertext);
 				}
 				lastReceivedMessageB = i;
@@ -309,7 +1135,7 @@ public class TestBrkeInstantiation {
 			if (rng.nextBoolean()) {
 				for (int j = lastReceivedMessageA + 1; j <= i; j++) {
 					byte[] encodedCiphertext = CiphertextEncoder.ciphertextToBase64(sendOutputB[j].getCiphertext());
-					BrkeCiphertext ciphertext = CiphertextEncoder.base64ToCiphertext(encodedCiphertext);
+					BrkeCiphertext ciphertext = ciphertextDecoder.apply(encodedCiphertext);
 					receiveOutputA[j] = brkeUserA.receive(associatedData, ciphertext);
 				}
 				lastReceivedMessageA = i;
@@ -363,14 +1189,30 @@ public class TestBrkeInstantiation {
 		byte content[] = new byte[32];
 		randomness.nextBytes(content);
 
-		HibePublicParameter hibeParameter = new HibePublicParameter(content, content);
-		BrkeKuKemPublicKey kukemPublicKey = new BrkeKuKemPublicKey(hibeParameter, content, 1);
-
 		BigInteger g1 = new BigInteger(content);
 		BigInteger g2 = new BigInteger(content);
 		BigInteger g3 = new BigInteger(content);
 		DLPChameleonVerificationKey verificationKey = new DLPChameleonVerificationKey(g1, g2, g3, content);
 
+		return createTestCiphertextForSigning(randomness, verificationKey);
+	}
+
+	/**
+	 * Function to create a BrkeCiphertext with the given verification key, that
+	 * can be signed.
+	 * 
+	 * @param randomness
+	 * @param verificationKey
+	 * @return
+	 */
+	public BrkeCiphertext createTestCiphertextForSigning(SecureRandom randomness,
+			SignatureVerificationKey verificationKey) {
+		byte content[] = new byte[32];
+		randomness.nextBytes(content);
+
+		HibePublicParameter hibeParameter = new HibePublicParameter(content, content);
+		BrkeKuKemPublicKey kukemPublicKey = new BrkeKuKemPublicKey(hibeParameter, content, 1);
+
 		ECIESKemCiphertext ciphertext = new ECIESKemCiphertext(content);
 
 		QueuedKuKemCiphertext queuedKuKemCiphertext = new QueuedKuKemCiphertext(ciphertext, 1, null);
@@ -0,0 +1,78 @@
+package de.rub.rkeinstantiation.benchmark;
+
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.rub.rkeinstantiation.hibewrapper.Hibe;
+import de.rub.rkeinstantiation.hibewrapper.HibeIdentity;
+import de.rub.rkeinstantiation.hibewrapper.HibeKeyPair;
+import de.rub.rkeinstantiation.hibewrapper.HibeOutput;
+import de.rub.rkeinstantiation.utility.SecureRandomBuilder;
+
+/**
+ * Benchmark for the encapsulation and decapsulation of the Hibe.
+ *
+ * Run it on two revisions to compare the cost per call, e.g. before and after
+ * a change to the native library. 'keyHandling' compares keys that are
+ * decoded in every call ('encoded') with keys that are kept decoded in native
+ * memory ('decoded') and with byte arrays passed in pooled direct buffers
+ * ('directBuffers'). Keys kept decoded are not passed in direct buffers.
+ *
+ * @author Marco Smeets
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class HibeBenchmark {
+
+	private final int identitySize = 32;
+
+	@Param({ "encoded", "decoded", "directBuffers" })
+	private String keyHandling;
+
+	private Hibe hibe;
+	private SecureRandom randomness;
+	private byte[] identity;
+	private HibeIdentity hibeIdentity;
+	private HibeKeyPair keyPair;
+	private HibeOutput output;
+
+	@Setup
+	public void prepare() {
+		byte[] seed = { 1, 2, 3, 4, 5, 6, 7, 8, 9 };
+		randomness = SecureRandomBuilder.createSeedableRandomness();
+		randomness.setSeed(seed);
+		hibe = new Hibe(identitySize, keyHandling.equals("decoded"), keyHandling.equals("directBuffers"));
+		identity = new byte[identitySize];
+		randomness.nextBytes(identity);
+		keyPair = hibe.setup(identity, randomness);
+		output = hibe.encapsulate(keyPair.getHibePublicParameter(), identity, 1, randomness);
+		hibeIdentity = HibeIdentity.fromIdentityInformation(identity, identitySize, 1);
+	}
+
+	@Benchmark
+	public HibeOutput encapsulate() {
+		return hibe.encapsulate(keyPair.getHibePublicParameter(), identity, 1, randomness);
+	}
+
+	@Benchmark
+	public byte[] decapsulate() {
+		return hibe.decapsulate(keyPair.getHibeSecretKey(), output.getCiphertext(), hibeIdentity);
+	}
+}
@@ -0,0 +1,86 @@
+package de.rub.rkeinstantiation.benchmark;
+
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.rub.rkeinstantiation.hibewrapper.Hibe;
+import de.rub.rkeinstantiation.hibewrapper.HibeIdentity;
+import de.rub.rkeinstantiation.hibewrapper.HibeKeyPair;
+import de.rub.rkeinstantiation.hibewrapper.HibeOutput;
+import de.rub.rkeinstantiation.hibewrapper.HibeSecretKey;
+import de.rub.rkeinstantiation.utility.SecureRandomBuilder;
+
+/**
+ * Benchmark for the throughput of the decapsulation of the Hibe, if many
+ * threads decapsulate concurrently.
+ *
+ * With 'drbg' the seed for the decryption is drawn from the DRBG of the thread.
+ * With 'newSecureRandom' every decapsulation creates a new SecureRandom, like
+ * the previous implementation, and all threads contend for the system
+ * randomness. Change the number of threads with '-t'.
+ *
+ * @author Marco Smeets
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Threads(8)
+@Fork(1)
+public class HibeDecapsulationBenchmark {
+
+	private final int identitySize = 32;
+
+	@Param({ "1", "8" })
+	private int level;
+
+	@Param({ "drbg", "newSecureRandom" })
+	private String randomness;
+
+	private Hibe hibe;
+	private byte[] identity;
+	private HibeIdentity hibeIdentity;
+	private HibeSecretKey secretKey;
+	private HibeOutput output;
+
+	@Setup
+	public void prepare() {
+		byte[] seed = { 1, 2, 3, 4, 5, 6, 7, 8, 9 };
+		SecureRandom setupRandomness = SecureRandomBuilder.createSeedableRandomness();
+		setupRandomness.setSeed(seed);
+		hibe = new Hibe(identitySize);
+		identity = new byte[identitySize * level];
+		setupRandomness.nextBytes(identity);
+		HibeKeyPair keyPair = hibe.setup(Arrays.copyOf(identity, identitySize), setupRandomness);
+		secretKey = keyPair.getHibeSecretKey();
+		for (int i = 2; i <= level; i++) {
+			secretKey = hibe.delegate(secretKey, identity, i, setupRandomness);
+		}
+		output = hibe.encapsulate(keyPair.getHibePublicParameter(), identity, level, setupRandomness);
+		hibeIdentity = HibeIdentity.fromIdentityInformation(identity, identitySize, level);
+	}
+
+	@Benchmark
+	public byte[] decapsulate() {
+		if (randomness.equals("newSecureRandom")) {
+			return hibe.decapsulate(secretKey, output.getCiphertext(), hibeIdentity, new SecureRandom());
+		}
+		return hibe.decapsulate(secretKey, output.getCiphertext(), hibeIdentity);
+	}
+}
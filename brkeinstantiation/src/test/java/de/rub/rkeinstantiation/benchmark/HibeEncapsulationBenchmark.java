@@ -0,0 +1,75 @@
+package de.rub.rkeinstantiation.benchmark;
+
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.bouncycastle.crypto.digests.SHA256Digest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.rub.rkeinstantiation.hibewrapper.Hibe;
+import de.rub.rkeinstantiation.hibewrapper.HibeKeyPair;
+import de.rub.rkeinstantiation.hibewrapper.HibeOutput;
+import de.rub.rkeinstantiation.utility.SecureRandomBuilder;
+
+/**
+ * Benchmark for the encapsulation of the Hibe at different levels.
+ *
+ * With 'fused' the encapsulation is performed with a single call into the
+ * native library. Otherwise the Hibe is constructed with explicit hash
+ * functions, which samples the random element and encrypts it in two calls.
+ *
+ * @author Marco Smeets
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class HibeEncapsulationBenchmark {
+
+	private final int identitySize = 32;
+
+	@Param({ "1", "2", "4", "8", "16", "32" })
+	private int level;
+
+	@Param({ "false", "true" })
+	private boolean fused;
+
+	private Hibe hibe;
+	private SecureRandom randomness;
+	private byte[] identity;
+	private HibeKeyPair keyPair;
+
+	@Setup
+	public void prepare() {
+		byte[] seed = { 1, 2, 3, 4, 5, 6, 7, 8, 9 };
+		randomness = SecureRandomBuilder.createSeedableRandomness();
+		randomness.setSeed(seed);
+		if (fused) {
+			hibe = new Hibe(identitySize);
+		} else {
+			hibe = new Hibe(identitySize, new SHA256Digest(), new SHA256Digest(), new SHA256Digest());
+		}
+		identity = new byte[identitySize * level];
+		randomness.nextBytes(identity);
+		keyPair = hibe.setup(Arrays.copyOf(identity, identitySize), randomness);
+	}
+
+	@Benchmark
+	public HibeOutput encapsulate() {
+		return hibe.encapsulate(keyPair.getHibePublicParameter(), identity, level, randomness);
+	}
+}
@@ -0,0 +1,89 @@
+package de.rub.rkeinstantiation.benchmark;
+
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.rub.rkeinstantiation.hibewrapper.Hibe;
+import de.rub.rkeinstantiation.hibewrapper.HibeIdentity;
+import de.rub.rkeinstantiation.hibewrapper.HibeKeyPair;
+import de.rub.rkeinstantiation.hibewrapper.HibeOutput;
+import de.rub.rkeinstantiation.hibewrapper.HibeSecretKey;
+import de.rub.rkeinstantiation.utility.SecureRandomBuilder;
+
+/**
+ * Benchmark for the operations of the Hibe at different levels.
+ *
+ * The cost of the encryption grows with the level of the ciphertext, the cost
+ * of the delegation and decryption with the level of the secret key. Run it on
+ * two revisions to compare the cost per operation and level, e.g. before and
+ * after a change to the arithmetic of the native library.
+ *
+ * @author Marco Smeets
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class HibeOperationBenchmark {
+
+	private final int identitySize = 32;
+
+	@Param({ "1", "2", "4", "8", "16", "32" })
+	private int level;
+
+	private Hibe hibe;
+	private SecureRandom randomness;
+	private byte[] identity;
+	private HibeIdentity hibeIdentity;
+	private HibeKeyPair keyPair;
+	private HibeSecretKey secretKey;
+	private HibeOutput output;
+
+	@Setup
+	public void prepare() {
+		byte[] seed = { 1, 2, 3, 4, 5, 6, 7, 8, 9 };
+		randomness = SecureRandomBuilder.createSeedableRandomness();
+		randomness.setSeed(seed);
+		hibe = new Hibe(identitySize);
+		identity = new byte[identitySize * (level + 1)];
+		randomness.nextBytes(identity);
+		keyPair = hibe.setup(Arrays.copyOf(identity, identitySize), randomness);
+		secretKey = keyPair.getHibeSecretKey();
+		for (int i = 2; i <= level; i++) {
+			secretKey = hibe.delegate(secretKey, identity, i, randomness);
+		}
+		output = hibe.encapsulate(keyPair.getHibePublicParameter(), identity, level, randomness);
+		hibeIdentity = HibeIdentity.fromIdentityInformation(identity, identitySize, level);
+	}
+
+	@Benchmark
+	public HibeOutput encapsulate() {
+		return hibe.encapsulate(keyPair.getHibePublicParameter(), identity, level, randomness);
+	}
+
+	@Benchmark
+	public HibeSecretKey delegate() {
+		return hibe.delegate(secretKey, identity, level + 1, randomness);
+	}
+
+	@Benchmark
+	public byte[] decapsulate() {
+		return hibe.decapsulate(secretKey, output.getCiphertext(), hibeIdentity);
+	}
+}
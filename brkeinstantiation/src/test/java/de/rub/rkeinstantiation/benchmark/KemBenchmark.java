@@ -0,0 +1,93 @@
+package de.rub.rkeinstantiation.benchmark;
+
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.rub.rke.factories.KemFactory;
+import de.rub.rke.kem.KemKeyPair;
+import de.rub.rke.kem.KemOutput;
+import de.rub.rke.kem.KeyEncapsulationMechanism;
+import de.rub.rke.variables.SymmetricKey;
+import de.rub.rkeinstantiation.brkekem.ECIESCurveContext;
+import de.rub.rkeinstantiation.factories.ECIESKemFactory;
+import de.rub.rkeinstantiation.factories.X25519KemFactory;
+import de.rub.rkeinstantiation.utility.SecureRandomBuilder;
+import de.rub.rkeinstantiation.variables.BrkeKeySeed;
+
+/**
+ * Benchmark for the Kem profiles, which can be used in Algorithm Set 1.
+ *
+ * 'genFromSeed' is the key generation used by the Brke construction, when new
+ * keys are derived from the random oracle.
+ *
+ * @author Marco Smeets
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class KemBenchmark {
+
+	@Param({ "brainpoolp256r1", "secp256r1", "x25519" })
+	private String profile;
+
+	private KeyEncapsulationMechanism kem;
+	private SecureRandom randomness;
+	private BrkeKeySeed seed;
+	private KemKeyPair keyPair;
+	private KemOutput output;
+
+	@Setup
+	public void prepare() {
+		byte[] seedBytes = { 1, 2, 3, 4, 5, 6, 7, 8, 9 };
+		randomness = SecureRandomBuilder.createSeedableRandomness();
+		randomness.setSeed(seedBytes);
+		KemFactory kemFactory;
+		if (profile.equals("x25519")) {
+			kemFactory = new X25519KemFactory();
+		} else if (profile.equals("secp256r1")) {
+			kemFactory = new ECIESKemFactory(ECIESCurveContext.getSecp256r1());
+		} else {
+			kemFactory = new ECIESKemFactory();
+		}
+		kem = kemFactory.createKem();
+		seed = new BrkeKeySeed(seedBytes);
+		keyPair = kem.gen(randomness);
+		output = kem.encapsulate(keyPair.getPublicKey());
+	}
+
+	@Benchmark
+	public KemKeyPair gen() {
+		return kem.gen(randomness);
+	}
+
+	@Benchmark
+	public KemKeyPair genFromSeed() {
+		return kem.gen(seed);
+	}
+
+	@Benchmark
+	public KemOutput encapsulate() {
+		return kem.encapsulate(keyPair.getPublicKey());
+	}
+
+	@Benchmark
+	public SymmetricKey decapsulate() {
+		return kem.decapsulate(keyPair.getSecretKey(), output.getCiphertext());
+	}
+}
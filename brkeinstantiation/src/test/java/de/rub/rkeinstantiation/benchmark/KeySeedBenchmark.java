@@ -0,0 +1,127 @@
+package de.rub.rkeinstantiation.benchmark;
+
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.rub.rke.kem.KemCiphertext;
+import de.rub.rke.kem.KemKeyPair;
+import de.rub.rke.kem.KemOutput;
+import de.rub.rke.kem.KemPublicKey;
+import de.rub.rke.kem.KemSecretKey;
+import de.rub.rke.kem.KeyEncapsulationMechanism;
+import de.rub.rke.queuedkukem.QueuedKuKem;
+import de.rub.rke.variables.KeySeed;
+import de.rub.rke.variables.SymmetricKey;
+import de.rub.rkeinstantiation.factories.BrkeKuKemAssociatedDataFactory;
+import de.rub.rkeinstantiation.factories.ECIESKemFactory;
+import de.rub.rkeinstantiation.factories.X25519KemFactory;
+import de.rub.rkeinstantiation.utility.SecureRandomBuilder;
+import de.rub.rkeinstantiation.variables.BrkeKeySeed;
+
+/**
+ * Benchmark for the key generation from a KeySeed in the QueuedKuKem.
+ *
+ * With 'sha1prng' the Kem derives the keys with a seeded SHA1PRNG, like before
+ * the deterministic randomness was introduced. The queue of kuKem secret keys
+ * is empty, so updateSecretKeys only derives the Kem secret key.
+ *
+ * @author Marco Smeets
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class KeySeedBenchmark {
+
+	@Param({ "sha1prng", "chacha" })
+	private String randomness;
+
+	@Param({ "brainpoolp256r1", "x25519" })
+	private String profile;
+
+	private QueuedKuKem queuedKuKem;
+	private BrkeKeySeed seed;
+
+	@Setup
+	public void prepare() {
+		byte[] seedBytes = new byte[32];
+		SecureRandom seedRandomness = SecureRandomBuilder.createSeedableRandomness();
+		seedRandomness.setSeed(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9 });
+		seedRandomness.nextBytes(seedBytes);
+		seed = new BrkeKeySeed(seedBytes);
+		KeyEncapsulationMechanism kem;
+		if (profile.equals("x25519")) {
+			kem = new X25519KemFactory().createKem();
+		} else {
+			kem = new ECIESKemFactory().createKem();
+		}
+		if (randomness.equals("sha1prng")) {
+			kem = new SHA1PRNGSeededKem(kem);
+		}
+		queuedKuKem = new QueuedKuKem(null, kem, new BrkeKuKemAssociatedDataFactory());
+	}
+
+	@Benchmark
+	public void addMatchingPublicKey() {
+		queuedKuKem.addMatchingPublicKey(seed);
+	}
+
+	@Benchmark
+	public void updateSecretKeys() {
+		queuedKuKem.updateSecretKeys(seed, null, null);
+	}
+
+	/**
+	 * Kem, which derives the keys from a KeySeed with a seeded SHA1PRNG.
+	 */
+	private static class SHA1PRNGSeededKem implements KeyEncapsulationMechanism {
+
+		private KeyEncapsulationMechanism kem;
+
+		public SHA1PRNGSeededKem(KeyEncapsulationMechanism kem) {
+			this.kem = kem;
+		}
+
+		@Override
+		public KemKeyPair gen(SecureRandom randomness) {
+			return kem.gen(randomness);
+		}
+
+		@Override
+		public KemKeyPair gen(KeySeed seed) {
+			SecureRandom randomness = SecureRandomBuilder.createSeedableRandomness();
+			randomness.setSeed(seed.getSeedAsBytes());
+			return kem.gen(randomness);
+		}
+
+		@Override
+		public KemPublicKey gen(KemSecretKey secretKey) {
+			return kem.gen(secretKey);
+		}
+
+		@Override
+		public KemOutput encapsulate(KemPublicKey publicKey) {
+			return kem.encapsulate(publicKey);
+		}
+
+		@Override
+		public SymmetricKey decapsulate(KemSecretKey secretKey, KemCiphertext ciphertext) {
+			return kem.decapsulate(secretKey, ciphertext);
+		}
+	}
+}
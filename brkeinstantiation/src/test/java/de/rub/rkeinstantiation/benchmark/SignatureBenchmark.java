@@ -0,0 +1,114 @@
+package de.rub.rkeinstantiation.benchmark;
+
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.rub.rke.brke.BrkeCiphertext;
+import de.rub.rke.factories.SignatureFactory;
+import de.rub.rke.queuedkukem.QueuedKuKemCiphertext;
+import de.rub.rke.signature.SignatureManager;
+import de.rub.rke.signature.SignatureOutput;
+import de.rub.rke.signature.SignatureVerificationKey;
+import de.rub.rkeinstantiation.brkekem.ECIESKemCiphertext;
+import de.rub.rkeinstantiation.brkekukem.BrkeKuKemPublicKey;
+import de.rub.rkeinstantiation.factories.DLPChameleonSignatureFactory;
+import de.rub.rkeinstantiation.factories.ECChameleonSignatureFactory;
+import de.rub.rkeinstantiation.hibewrapper.HibePublicParameter;
+import de.rub.rkeinstantiation.utility.SecureRandomBuilder;
+import de.rub.rkeinstantiation.variables.BrkeAssociatedData;
+
+/**
+ * Benchmark for the DLP-Based and the EC-Based Signature.
+ *
+ * Since every signing key is only used once, signing is measured together with
+ * the generation of its key pair ('genAndSign'). The managers are reset for
+ * every iteration, so the keys generated by 'gen' do not pile up.
+ *
+ * @author Marco Smeets
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class SignatureBenchmark {
+
+	@Param({ "dlp", "ec" })
+	private String signature;
+
+	private SignatureFactory signatureFactory;
+	private SignatureManager signer;
+	private SignatureManager verifier;
+	private SecureRandom randomness;
+	private BrkeAssociatedData associatedData;
+	private BrkeCiphertext ciphertext;
+	private BrkeCiphertext signedCiphertext;
+
+	@Setup
+	public void prepare() {
+		byte[] seed = { 1, 2, 3, 4, 5, 6, 7, 8, 9 };
+		randomness = SecureRandomBuilder.createSeedableRandomness();
+		randomness.setSeed(seed);
+		if (signature.equals("ec")) {
+			signatureFactory = new ECChameleonSignatureFactory();
+		} else {
+			signatureFactory = new DLPChameleonSignatureFactory();
+		}
+		associatedData = new BrkeAssociatedData(new byte[] { 1, 2, 3, 4, 5 });
+	}
+
+	@Setup(Level.Iteration)
+	public void resetManagers() {
+		byte[] seed = { 9, 8, 7, 6, 5, 4, 3, 2, 1 };
+		SecureRandom randomnessSigner = SecureRandomBuilder.createSeedableRandomness();
+		SecureRandom randomnessVerifier = SecureRandomBuilder.createSeedableRandomness();
+		randomnessSigner.setSeed(seed);
+		randomnessVerifier.setSeed(seed);
+		signer = signatureFactory.createSignatureManager();
+		verifier = signatureFactory.createSignatureManager();
+		signer.init(randomnessSigner, true);
+		verifier.init(randomnessVerifier, false);
+
+		byte[] content = new byte[32];
+		randomness.nextBytes(content);
+		BrkeKuKemPublicKey publicKey = new BrkeKuKemPublicKey(new HibePublicParameter(content, content), content, 1);
+		QueuedKuKemCiphertext queuedKuKemCiphertext = new QueuedKuKemCiphertext(new ECIESKemCiphertext(content), 1,
+				null);
+		SignatureVerificationKey verificationKey = signer.gen(randomness);
+		ciphertext = new BrkeCiphertext(1, publicKey, verificationKey, 1, queuedKuKemCiphertext);
+		signedCiphertext = new BrkeCiphertext(1, publicKey, verificationKey, 1, queuedKuKemCiphertext);
+		signedCiphertext.computeSignature(signer, associatedData);
+	}
+
+	@Benchmark
+	public SignatureVerificationKey gen() {
+		return signer.gen(randomness);
+	}
+
+	@Benchmark
+	public SignatureOutput genAndSign() {
+		signer.gen(randomness);
+		return signer.sign(associatedData, 1, ciphertext.getPublicKey(), ciphertext.getVerificationKey(), 1,
+				ciphertext.getCiphertext());
+	}
+
+	@Benchmark
+	public boolean verify() {
+		return verifier.verify(associatedData, signedCiphertext);
+	}
+}
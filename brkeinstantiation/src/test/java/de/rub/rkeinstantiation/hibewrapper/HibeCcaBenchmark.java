@@ -0,0 +1,84 @@
+package de.rub.rkeinstantiation.hibewrapper;
+
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.bouncycastle.crypto.digests.SHA256Digest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark for the CCA transformation of the Hibe, without the native library.
+ *
+ * Uses the random element and ciphertext sizes of a level 2 encapsulation. Run
+ * it with the gc profiler ('-prof gc'): gc.alloc.rate.norm should be about 0
+ * bytes per operation, except for the generated key in deriveKey.
+ *
+ * @author Marco Smeets
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class HibeCcaBenchmark {
+
+	private final int k = 32;
+	private final int k1 = 96;
+	private final int sizeOfRandomElement = 384;
+	private final int sizeOfCiphertext = 1600;
+
+	private HibeCcaContext context;
+	private byte[] encapsulationKey;
+	private byte[] randomElement;
+	private byte[] ciphertext;
+	private byte[] com;
+	private byte[] macTag;
+
+	@Setup
+	public void prepare() {
+		SecureRandom randomness = new SecureRandom();
+		context = new HibeCcaContext(new SHA256Digest(), new SHA256Digest(), new SHA256Digest(), 32, k, k1, 32);
+		encapsulationKey = new byte[32];
+		randomElement = new byte[sizeOfRandomElement];
+		ciphertext = new byte[sizeOfCiphertext];
+		randomness.nextBytes(encapsulationKey);
+		randomness.nextBytes(randomElement);
+		randomness.nextBytes(ciphertext);
+		com = Arrays.copyOf(context.computeCom(encapsulationKey, randomElement), k);
+		byte[] computedMacTag = context.computeMacTag(randomElement, ciphertext, 0, ciphertext.length);
+		macTag = Arrays.copyOf(computedMacTag, computedMacTag.length);
+	}
+
+	@Benchmark
+	public byte[] computeCom() {
+		return context.computeCom(encapsulationKey, randomElement);
+	}
+
+	@Benchmark
+	public byte[] computeMacTag() {
+		return context.computeMacTag(randomElement, ciphertext, 0, ciphertext.length);
+	}
+
+	@Benchmark
+	public boolean checkCiphertext() {
+		return context.checkCom(encapsulationKey, randomElement, com)
+				&& context.checkMacTag(randomElement, ciphertext, macTag);
+	}
+
+	@Benchmark
+	public byte[] deriveKey() {
+		return context.deriveKey(randomElement, randomElement.length);
+	}
+}
@@ -87,6 +87,158 @@ JNIEXPORT jbyteArray JNICALL Java_de_rub_rkeinstantiation_hibewrapper_Hibe_decry
 JNIEXPORT jbyteArray JNICALL Java_de_rub_rkeinstantiation_hibewrapper_Hibe_delegate
   (JNIEnv *, jclass, jbyteArray, jbyteArray, jint, jint, jbyteArray);
 
+/*
+ * Class:     de_rub_rkeinstantiation_hibewrapper_Hibe
+ * Method:    decodePublicParameterHandle
+ * Signature: ([B)J
+ */
+JNIEXPORT jlong JNICALL Java_de_rub_rkeinstantiation_hibewrapper_Hibe_decodePublicParameterHandle
+  (JNIEnv *, jclass, jbyteArray);
+
+/*
+ * Class:     de_rub_rkeinstantiation_hibewrapper_Hibe
+ * Method:    freePublicParameterHandle
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_de_rub_rkeinstantiation_hibewrapper_Hibe_freePublicParameterHandle
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     de_rub_rkeinstantiation_hibewrapper_Hibe
+ * Method:    decodeSecretKeyHandle
+ * Signature: ([BI)J
+ */
+JNIEXPORT jlong JNICALL Java_de_rub_rkeinstantiation_hibewrapper_Hibe_decodeSecretKeyHandle
+  (JNIEnv *, jclass, jbyteArray, jint);
+
+/*
+ * Class:     de_rub_rkeinstantiation_hibewrapper_Hibe
+ * Method:    encodeSecretKeyHandle
+ * Signature: (J)[B
+ */
+JNIEXPORT jbyteArray JNICALL Java_de_rub_rkeinstantiation_hibewrapper_Hibe_encodeSecretKeyHandle
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     de_rub_rkeinstantiation_hibewrapper_Hibe
+ * Method:    freeSecretKeyHandle
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_de_rub_rkeinstantiation_hibewrapper_Hibe_freeSecretKeyHandle
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     de_rub_rkeinstantiation_hibewrapper_Hibe
+ * Method:    encryptWithHandle
+ * Signature: (J[B[BII[B)[B
+ */
+JNIEXPORT jbyteArray JNICALL Java_de_rub_rkeinstantiation_hibewrapper_Hibe_encryptWithHandle
+  (JNIEnv *, jclass, jlong, jbyteArray, jbyteArray, jint, jint, jbyteArray);
+
+/*
+ * Class:     de_rub_rkeinstantiation_hibewrapper_Hibe
+ * Method:    delegateWithHandle
+ * Signature: (J[BII[B)J
+ */
+JNIEXPORT jlong JNICALL Java_de_rub_rkeinstantiation_hibewrapper_Hibe_delegateWithHandle
+  (JNIEnv *, jclass, jlong, jbyteArray, jint, jint, jbyteArray);
+
+/*
+ * Class:     de_rub_rkeinstantiation_hibewrapper_Hibe
+ * Method:    encryptDirect
+ * Signature: (Ljava/nio/ByteBuffer;Ljava/nio/ByteBuffer;ILjava/nio/ByteBuffer;IILjava/nio/ByteBuffer;ILjava/nio/ByteBuffer;)I
+ */
+JNIEXPORT jint JNICALL Java_de_rub_rkeinstantiation_hibewrapper_Hibe_encryptDirect
+  (JNIEnv *, jclass, jobject, jobject, jint, jobject, jint, jint, jobject, jint, jobject);
+
+/*
+ * Class:     de_rub_rkeinstantiation_hibewrapper_Hibe
+ * Method:    delegateDirect
+ * Signature: (Ljava/nio/ByteBuffer;Ljava/nio/ByteBuffer;IILjava/nio/ByteBuffer;ILjava/nio/ByteBuffer;)I
+ */
+JNIEXPORT jint JNICALL Java_de_rub_rkeinstantiation_hibewrapper_Hibe_delegateDirect
+  (JNIEnv *, jclass, jobject, jobject, jint, jint, jobject, jint, jobject);
+
+/*
+ * Class:     de_rub_rkeinstantiation_hibewrapper_Hibe
+ * Method:    encapsulate
+ * Signature: ([B[B[BII[B)[B
+ */
+JNIEXPORT jbyteArray JNICALL Java_de_rub_rkeinstantiation_hibewrapper_Hibe_encapsulate
+  (JNIEnv *, jclass, jbyteArray, jbyteArray, jbyteArray, jint, jint, jbyteArray);
+
+/*
+ * Class:     de_rub_rkeinstantiation_hibewrapper_Hibe
+ * Method:    encapsulateWithHandle
+ * Signature: (J[B[BII[B)[B
+ */
+JNIEXPORT jbyteArray JNICALL Java_de_rub_rkeinstantiation_hibewrapper_Hibe_encapsulateWithHandle
+  (JNIEnv *, jclass, jlong, jbyteArray, jbyteArray, jint, jint, jbyteArray);
+
+/*
+ * Class:     de_rub_rkeinstantiation_hibewrapper_Hibe
+ * Method:    encapsulateDirect
+ * Signature: (Ljava/nio/ByteBuffer;Ljava/nio/ByteBuffer;ILjava/nio/ByteBuffer;IILjava/nio/ByteBuffer;ILjava/nio/ByteBuffer;)I
+ */
+JNIEXPORT jint JNICALL Java_de_rub_rkeinstantiation_hibewrapper_Hibe_encapsulateDirect
+  (JNIEnv *, jclass, jobject, jobject, jint, jobject, jint, jint, jobject, jint, jobject);
+
+/*
+ * Class:     de_rub_rkeinstantiation_hibewrapper_Hibe
+ * Method:    encapsulateBatch
+ * Signature: ([[B[[B[[BI[I[BI)[[B
+ */
+JNIEXPORT jobjectArray JNICALL Java_de_rub_rkeinstantiation_hibewrapper_Hibe_encapsulateBatch
+  (JNIEnv *, jclass, jobjectArray, jobjectArray, jobjectArray, jint, jintArray, jbyteArray, jint);
+
+/*
+ * Class:     de_rub_rkeinstantiation_hibewrapper_Hibe
+ * Method:    encapsulateBatchWithHandles
+ * Signature: ([J[[B[[BI[I[BI)[[B
+ */
+JNIEXPORT jobjectArray JNICALL Java_de_rub_rkeinstantiation_hibewrapper_Hibe_encapsulateBatchWithHandles
+  (JNIEnv *, jclass, jlongArray, jobjectArray, jobjectArray, jint, jintArray, jbyteArray, jint);
+
+/*
+ * Class:     de_rub_rkeinstantiation_hibewrapper_Hibe
+ * Method:    delegateBatch
+ * Signature: ([[B[[BI[I[B[BI)[[B
+ */
+JNIEXPORT jobjectArray JNICALL Java_de_rub_rkeinstantiation_hibewrapper_Hibe_delegateBatch
+  (JNIEnv *, jclass, jobjectArray, jobjectArray, jint, jintArray, jbyteArray, jbyteArray, jint);
+
+/*
+ * Class:     de_rub_rkeinstantiation_hibewrapper_Hibe
+ * Method:    delegateBatchWithHandles
+ * Signature: ([J[[BI[I[B[BI)[J
+ */
+JNIEXPORT jlongArray JNICALL Java_de_rub_rkeinstantiation_hibewrapper_Hibe_delegateBatchWithHandles
+  (JNIEnv *, jclass, jlongArray, jobjectArray, jint, jintArray, jbyteArray, jbyteArray, jint);
+
+/*
+ * Class:     de_rub_rkeinstantiation_hibewrapper_Hibe
+ * Method:    decryptAtExtendedIdentity
+ * Signature: ([B[BII[B[B)[B
+ */
+JNIEXPORT jbyteArray JNICALL Java_de_rub_rkeinstantiation_hibewrapper_Hibe_decryptAtExtendedIdentity
+  (JNIEnv *, jclass, jbyteArray, jbyteArray, jint, jint, jbyteArray, jbyteArray);
+
+/*
+ * Class:     de_rub_rkeinstantiation_hibewrapper_Hibe
+ * Method:    decryptAtExtendedIdentityWithHandle
+ * Signature: (J[BII[B[B)[B
+ */
+JNIEXPORT jbyteArray JNICALL Java_de_rub_rkeinstantiation_hibewrapper_Hibe_decryptAtExtendedIdentityWithHandle
+  (JNIEnv *, jclass, jlong, jbyteArray, jint, jint, jbyteArray, jbyteArray);
+
+/*
+ * Class:     de_rub_rkeinstantiation_hibewrapper_Hibe
+ * Method:    decryptAtExtendedIdentityDirect
+ * Signature: (Ljava/nio/ByteBuffer;Ljava/nio/ByteBuffer;IILjava/nio/ByteBuffer;Ljava/nio/ByteBuffer;ILjava/nio/ByteBuffer;)I
+ */
+JNIEXPORT jint JNICALL Java_de_rub_rkeinstantiation_hibewrapper_Hibe_decryptAtExtendedIdentityDirect
+  (JNIEnv *, jclass, jobject, jobject, jint, jint, jobject, jobject, jint, jobject);
+
 #ifdef __cplusplus
 }
 #endif
@@ -96,13 +96,13 @@ struct hibeSecretKey{
 			g2_null(dS3theta[i]);
 			g2_null(dS4theta[i]);
 			g2_null(dS5sigma[i]);
-			g2_null(dS6sigmaS1[i]);
+			g2_null(dS6sigma[i]);
 			g2_new(dS1gamma[i]);
 			g2_new(dS2epsilon[i]);
 			g2_new(dS3theta[i]);
 			g2_new(dS4theta[i]);
 			g2_new(dS5sigma[i]);
-			g2_new(dS6sigmaS1[i]);
+			g2_new(dS6sigma[i]);
 		}
 	}
 
@@ -116,9 +116,9 @@ struct hibeSecretKey{
 			g2_free(dS3theta[i]);
 			g2_free(dS4theta[i]);
 			g2_free(dS5sigma[i]);
-			g2_free(dS6sigmaS1[i]);
+			g2_free(dS6sigma[i]);
 		}
-		delete[] k;
+		free(k);
 	}
 };
 
@@ -136,10 +136,10 @@ struct hibePublicParameter{
 	g1_t d6[dimension];
 
 	hibePublicParameter(){
-		gt_null(pairing1);
-		gt_new(pairing1);
-		gt_null(pairing2);
-		gt_new(pairing2);
+		gt_null(pairingd1);
+		gt_new(pairingd1);
+		gt_null(pairingd2);
+		gt_new(pairingd2);
 		for(int i=0; i<dimension; i++){
 			g1_null(d1[i]);
 			g1_null(d2[i]);
@@ -157,8 +157,8 @@ struct hibePublicParameter{
 	}
 
 	~hibePublicParameter(){
-		gt_free(pairing1);
-		gt_free(pairing2);
+		gt_free(pairingd1);
+		gt_free(pairingd2);
 		for(int i=0; i<dimension; i++){
 			g1_free(d1[i]);
 			g1_free(d2[i]);
@@ -194,22 +194,30 @@ struct hibeCiphertext{
 			g1_free(c[i]);
 		}
 		gt_free(c0);
-		delete[] c;
+		free(c);
 	}
 };
 
 
 
+int initEncodingSizes();
+
 int setup(struct hibeMasterSecretKey *msk, struct hibePublicParameter *publicParameters);
 
 int keyGen(struct hibeSecretKey *secretKey, struct hibeMasterSecretKey *msk, uint8_t *id, int idLength, int numberOfIdentities);
 
 int keyDelegation(struct hibeSecretKey *delegatedSecretKey, struct hibeSecretKey *delegatorSecretKey, uint8_t *id, int idLength, int numberOfIdentities);
 
+int keyDelegationWithDecodedIds(struct hibeSecretKey *delegatedSecretKey, struct hibeSecretKey *delegatorSecretKey, bn_t *encodedIds, int numberOfIdentities);
+
+void decodeIdentities(bn_t *encodedIds, uint8_t *id, int idLength, int numberOfIdentities);
+
 int encrypt(struct hibeCiphertext *ciphertext, struct hibePublicParameter *publicParameter, gt_t message, uint8_t *id, int idLength, int numberOfIdentities);
 
 int decrypt(gt_t message, struct hibeSecretKey *secretKey, struct hibeCiphertext *ciphertext);
 
+int decryptAtExtendedIdentity(gt_t message, struct hibeSecretKey *secretKey, struct hibeCiphertext *ciphertext, bn_t lastId);
+
 void encodeMasterKey(uint8_t *encodedMasterKey, struct hibeMasterSecretKey *msk);
 
 void decodeMasterKey(struct hibeMasterSecretKey *msk, uint8_t *encodedMsk);
@@ -226,6 +234,14 @@ void encodeCiphertext(uint8_t *encodedCiphertext, struct hibeCiphertext *ciphert
 
 void decodeCiphertext(struct hibeCiphertext *ciphertext, uint8_t *encodedCiphertext);
 
+int getSizeOfEncodedBn();
+
+int getSizeOfEncodedG1();
+
+int getSizeOfEncodedG2();
+
+int getSizeOfEncodedGT(int compressed);
+
 int getSizeOfEncodedPublicParameter();
 
 int getSizeOfEncodedSecretKeyAtLevel(int level);
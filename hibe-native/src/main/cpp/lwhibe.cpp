@@ -39,74 +39,105 @@ extern "C" {
 }
 #include "lwhibe11.h"
 
+/**
+ * Sizes of the encoded elements. They only depend on the parameters of the curve, so
+ * they are computed once by initEncodingSizes() instead of encoding random elements.
+ */
+static int sizeOfEncodedBn = 0;
+static int sizeOfEncodedG1 = 0;
+static int sizeOfEncodedG2 = 0;
+static int sizeOfEncodedCompressedGT = 0;
+static int sizeOfEncodedUncompressedGT = 0;
+
+/**
+ * This function computes the sizes of encoded elements from the order and the generators
+ * of the curve. It has to be called once after the curve parameters are set.
+ */
+int initEncodingSizes(){
+	int result = STS_OK;
+	bn_t modulus;
+	g1_t g1Element;
+	g2_t g2Element;
+	gt_t gtElement;
+
+	bn_null(modulus);
+	g1_null(g1Element);
+	g2_null(g2Element);
+	gt_null(gtElement);
+	TRY{
+		bn_new(modulus);
+		g1_new(g1Element);
+		g2_new(g2Element);
+		gt_new(gtElement);
+		g1_get_ord(modulus);
+		g1_get_gen(g1Element);
+		g2_get_gen(g2Element);
+		pc_map(gtElement, g1Element, g2Element);
+		sizeOfEncodedBn = bn_size_bin(modulus);
+		sizeOfEncodedG1 = g1_size_bin(g1Element, 1);
+		sizeOfEncodedG2 = g2_size_bin(g2Element, 1);
+		sizeOfEncodedCompressedGT = gt_size_bin(gtElement, 1);
+		sizeOfEncodedUncompressedGT = gt_size_bin(gtElement, 0);
+	}
+	CATCH_ANY{
+		result = STS_ERR;
+	}
+	FINALLY{
+		bn_free(modulus);
+		g1_free(g1Element);
+		g2_free(g2Element);
+		gt_free(gtElement);
+	}
+	return result;
+}
 
 /**
  * This function samples random dual orthonormal bases. These are directly used for the dual pairing vector
  * spaces. Construction of the DPVS (or dual orthonormal bases) are described in [3,4].
+ *
+ * The canonical base A only holds the generator on its diagonal, so every entry of B (resp. BStar) is the
+ * generator raised to an entry of X (resp. the inverse of the transposed X). These entries are computed with
+ * the precomputed tables of the generators. The inversion is performed in Montgomery form.
  */
 static int sampleRandomDualOrthonormalBases(g1_t d1[6], g1_t d2[6], g1_t d3[6], g1_t d4[6], g1_t d5[6], g1_t d6[6], g2_t dS1[6], g2_t dS2[6], g2_t dS3[6], g2_t dS4[6], g2_t dS5[6], g2_t dS6[6]) {
 	int result = STS_OK;
 	bn_t linearTrans[dimension][dimension];
-	bn_t invLinearTrans[dimension][dimension];
 	bn_t tempArray[dimension][dimension*2];
 	bn_t elementA, elementB, elementC;
-	bn_t modulus;
-	g1_t basisA1[dimension][dimension];
-	g2_t basisA2[dimension][dimension];
-	g1_t basisB[dimension][dimension];
-	g2_t basisBStar[dimension][dimension];
-	g1_t intermediateResult1[dimension];
-	g2_t intermediateResult2[dimension];
+	bn_t modulus, montgomeryFactor;
+	g1_t *basisB[dimension] = {d1, d2, d3, d4, d5, d6};
+	g2_t *basisBStar[dimension] = {dS1, dS2, dS3, dS4, dS5, dS6};
 
 	bn_null(elementA);
 	bn_null(elementB);
 	bn_null(elementC);
 	bn_null(modulus);
+	bn_null(montgomeryFactor);
 	for(int i=0; i<dimension; i++){
-		g1_null(intermediateResult1[i]);
-		g2_null(intermediateResult2[i]);
 		for(int j=0; j<dimension; j++){
 			bn_null(linearTrans[i][j]);
-			bn_null(invLinearTrans[i][j]);
+		}
+		for(int j=0; j<dimension*2; j++){
 			bn_null(tempArray[i][j]);
-			g1_null(basisA1[i][j]);
-			g2_null(basisA2[i][j]);
-			g1_null(basisB[i][j]);
-			g2_null(basisBStar[i][j]);
-		}
-		bn_null(tempArray[i][6]);
-		bn_null(tempArray[i][7]);
-		bn_null(tempArray[i][8]);
-		bn_null(tempArray[i][9]);
-		bn_null(tempArray[i][10]);
-		bn_null(tempArray[i][11]);
+		}
 	}
 	TRY {
 		bn_new(elementA);
 		bn_new(elementB);
 		bn_new(elementC);
 		bn_new(modulus);
+		bn_new(montgomeryFactor);
 		for(int i=0; i<dimension; i++){
-			g1_new(intermediateResult1[i]);
-			g2_new(intermediateResult2[i]);
 			for(int j=0; j<dimension; j++){
 				bn_new(linearTrans[i][j]);
-				bn_new(invLinearTrans[i][j]);
+			}
+			for(int j=0; j<dimension*2; j++){
 				bn_new(tempArray[i][j]);
-				g1_new(basisA1[i][j]);
-				g2_new(basisA2[i][j]);
-				g1_new(basisB[i][j]);
-				g2_new(basisBStar[i][j]);
 			}
-			bn_new(tempArray[i][6]);
-			bn_new(tempArray[i][7]);
-			bn_new(tempArray[i][8]);
-			bn_new(tempArray[i][9]);
-			bn_new(tempArray[i][10]);
-			bn_new(tempArray[i][11]);
 		}
 		// Get order p of the Curve
 		g1_get_ord(modulus);
+		bn_mod_pre_monty(montgomeryFactor, modulus);
 		// Create random X [3,4]
 		// X is a invertible matrix uniformly chosen from the general linear
 		// group of degree 6 over F_p
@@ -119,107 +150,58 @@ static int sampleRandomDualOrthonormalBases(g1_t d1[6], g1_t d2[6], g1_t d3[6],
 			}
 		}
 		//Prepare tempArray for Inversion (using gauss-jordan elimination)
+		//and convert it into Montgomery form
 		for(int i=0; i<dimension; i++){
+			for(int j=dimension; j<dimension*2; j++){
+				bn_zero(tempArray[i][j]);
+			}
 			bn_set_dig(tempArray[i][i+dimension],1);
+			for(int j=0; j<dimension*2; j++){
+				bn_mod_monty_conv(tempArray[i][j], tempArray[i][j], modulus);
+			}
 		}
 		//Inverse tempArray using gauss-jordan elimination in group Z_p
+		//Left of column i, row i only holds zeros, so these columns are skipped
 		for(int i=0; i<dimension; i++){
+			/** The inverse of the pivot aR is a^-1R^-1, two conversions give a^-1R */
 			bn_gcd_ext_basic(elementB, elementA, elementC, tempArray[i][i], modulus);
-			for(int j = 0; j<dimension*2; j++){
-				bn_mul_basic(tempArray[i][j], tempArray[i][j], elementA);
-				bn_mod_basic(tempArray[i][j], tempArray[i][j], modulus);
+			if(bn_sign(elementA) == BN_NEG){
+				bn_add(elementA, elementA, modulus);
+			}
+			bn_mod_monty_conv(elementA, elementA, modulus);
+			bn_mod_monty_conv(elementA, elementA, modulus);
+			for(int j = i; j<dimension*2; j++){
+				bn_mul(tempArray[i][j], tempArray[i][j], elementA);
+				bn_mod_monty(tempArray[i][j], tempArray[i][j], modulus, montgomeryFactor);
 			}
 			for(int k=0; k<dimension; k++){
 				if((k-i)!=0){
 					bn_copy(elementB, tempArray[k][i]);
-					for(int j=0; j<dimension*2;j++){
-						bn_mul_basic(elementC, elementB, tempArray[i][j]);
-						bn_mod_basic(elementC, elementC, modulus);
+					for(int j=i; j<dimension*2;j++){
+						bn_mul(elementC, elementB, tempArray[i][j]);
+						bn_mod_monty(elementC, elementC, modulus, montgomeryFactor);
 						bn_sub(tempArray[k][j], tempArray[k][j], elementC);
-						bn_mod_basic(tempArray[k][j], tempArray[k][j], modulus);
+						if(bn_sign(tempArray[k][j]) == BN_NEG){
+							bn_add(tempArray[k][j], tempArray[k][j], modulus);
+						}
 					}
 				}
 			}
 		}
-		//Save inversed Array in invLinearTrans[x][y]
+		//Convert inversed Array back from Montgomery form
 		for(int i=0; i<dimension;i++){
-			for(int j=0; j<dimension; j++){
-				bn_copy(invLinearTrans[i][j], tempArray[i][j+6]);
-			}
-		}
-		// Create canonical base A [3,4]
-		for(int i=0 ; i<dimension; i++){
-			for(int j=0; j<dimension; j++){
-				if(i==j){
-					g1_get_gen(basisA1[i][i]);
-					g2_get_gen(basisA2[i][i]);
-				} else {
-					g1_set_infty(basisA1[i][j]);
-					g2_set_infty(basisA2[i][j]);
-				}
+			for(int j=dimension; j<dimension*2; j++){
+				bn_mod_monty_back(tempArray[i][j], tempArray[i][j], modulus);
 			}
 		}
-		// Compute matrix B [3,4]
+		// Compute matrix B and BStar [3,4] and save them in d1-d6,dS1-dS6
+		// d(i+1)[j] = g1^X[i][j], dS(i+1)[j] = g2^(X^-1)^T[i][j]
 		for(int i=0; i<dimension; i++){
-			g1_mul(basisB[0][i], basisA1[0][0], linearTrans[i][0]);
-			g1_mul(basisB[1][i], basisA1[1][0], linearTrans[i][0]);
-			g1_mul(basisB[2][i], basisA1[2][0], linearTrans[i][0]);
-			g1_mul(basisB[3][i], basisA1[3][0], linearTrans[i][0]);
-			g1_mul(basisB[4][i], basisA1[4][0], linearTrans[i][0]);
-			g1_mul(basisB[5][i], basisA1[5][0], linearTrans[i][0]);
-			for(int j=1; j<dimension; j++){
-				g1_mul(intermediateResult1[0], basisA1[0][j], linearTrans[i][j]);
-				g1_mul(intermediateResult1[1], basisA1[1][j], linearTrans[i][j]);
-				g1_mul(intermediateResult1[2], basisA1[2][j], linearTrans[i][j]);
-				g1_mul(intermediateResult1[3], basisA1[3][j], linearTrans[i][j]);
-				g1_mul(intermediateResult1[4], basisA1[4][j], linearTrans[i][j]);
-				g1_mul(intermediateResult1[5], basisA1[5][j], linearTrans[i][j]);
-				g1_add(basisB[0][i], basisB[0][i],intermediateResult1[0]);
-				g1_add(basisB[1][i], basisB[1][i],intermediateResult1[1]);
-				g1_add(basisB[2][i], basisB[2][i],intermediateResult1[2]);
-				g1_add(basisB[3][i], basisB[3][i],intermediateResult1[3]);
-				g1_add(basisB[4][i], basisB[4][i],intermediateResult1[4]);
-				g1_add(basisB[5][i], basisB[5][i],intermediateResult1[5]);
-			}
-		}
-		//Compute matrix BStar[3,4]
-		for(int i=0; i<dimension; i++){
-			g2_mul(basisBStar[0][i], basisA2[0][0], invLinearTrans[i][0]);
-			g2_mul(basisBStar[1][i], basisA2[1][0], invLinearTrans[i][0]);
-			g2_mul(basisBStar[2][i], basisA2[2][0], invLinearTrans[i][0]);
-			g2_mul(basisBStar[3][i], basisA2[3][0], invLinearTrans[i][0]);
-			g2_mul(basisBStar[4][i], basisA2[4][0], invLinearTrans[i][0]);
-			g2_mul(basisBStar[5][i], basisA2[5][0], invLinearTrans[i][0]);
-			for(int j=1; j<dimension; j++){
-				g2_mul(intermediateResult2[0], basisA2[0][j], invLinearTrans[i][j]);
-				g2_mul(intermediateResult2[1], basisA2[1][j], invLinearTrans[i][j]);
-				g2_mul(intermediateResult2[2], basisA2[2][j], invLinearTrans[i][j]);
-				g2_mul(intermediateResult2[3], basisA2[3][j], invLinearTrans[i][j]);
-				g2_mul(intermediateResult2[4], basisA2[4][j], invLinearTrans[i][j]);
-				g2_mul(intermediateResult2[5], basisA2[5][j], invLinearTrans[i][j]);
-				g2_add(basisBStar[0][i], basisBStar[0][i],intermediateResult2[0]);
-				g2_add(basisBStar[1][i], basisBStar[1][i],intermediateResult2[1]);
-				g2_add(basisBStar[2][i], basisBStar[2][i],intermediateResult2[2]);
-				g2_add(basisBStar[3][i], basisBStar[3][i],intermediateResult2[3]);
-				g2_add(basisBStar[4][i], basisBStar[4][i],intermediateResult2[4]);
-				g2_add(basisBStar[5][i], basisBStar[5][i],intermediateResult2[5]);
+			for(int j=0; j<dimension; j++){
+				g1_mul_gen(basisB[i][j], linearTrans[i][j]);
+				g2_mul_gen(basisBStar[i][j], tempArray[i][j+dimension]);
 			}
 		}
-		// Save B and BStar in d1-d6,dS1-dS6
-		for(int i=0; i<dimension; i++){
-			g1_copy(d1[i], basisB[i][0]);
-			g1_copy(d2[i], basisB[i][1]);
-			g1_copy(d3[i], basisB[i][2]);
-			g1_copy(d4[i], basisB[i][3]);
-			g1_copy(d5[i], basisB[i][4]);
-			g1_copy(d6[i], basisB[i][5]);
-			g2_copy(dS1[i], basisBStar[i][0]);
-			g2_copy(dS2[i], basisBStar[i][1]);
-			g2_copy(dS3[i], basisBStar[i][2]);
-			g2_copy(dS4[i], basisBStar[i][3]);
-			g2_copy(dS5[i], basisBStar[i][4]);
-			g2_copy(dS6[i], basisBStar[i][5]);
-		}
 	}
 	CATCH_ANY {
 		result = STS_ERR;
@@ -229,24 +211,14 @@ static int sampleRandomDualOrthonormalBases(g1_t d1[6], g1_t d2[6], g1_t d3[6],
 		bn_free(elementB);
 		bn_free(elementC);
 		bn_free(modulus);
+		bn_free(montgomeryFactor);
 		for(int i=0; i<dimension; i++){
-			g1_free(intermediateResult1[i]);
-			g2_free(intermediateResult2[i]);
 			for(int j=0; j<dimension; j++){
 				bn_free(linearTrans[i][j]);
-				bn_free(invLinearTrans[i][j]);
+			}
+			for(int j=0; j<dimension*2; j++){
 				bn_free(tempArray[i][j]);
-				g1_free(basisA1[i][j]);
-				g2_free(basisA2[i][j]);
-				g1_free(basisB[i][j]);
-				g2_free(basisBStar[i][j]);
 			}
-			bn_free(tempArray[i][6]);
-			bn_free(tempArray[i][7]);
-			bn_free(tempArray[i][8]);
-			bn_free(tempArray[i][9]);
-			bn_free(tempArray[i][10]);
-			bn_free(tempArray[i][11]);
 		}
 	}
 	return result;
@@ -406,6 +378,33 @@ int setup(struct hibeMasterSecretKey *msk, struct hibePublicParameter *publicPar
 	return result;
 }
 
+/**
+ * Folds an identity into the random scalar r of a key component. The products are computed
+ * in Z_p, so every basis point of the component is only multiplied once: rId = r*ID and negR = -r.
+ */
+static void foldIdentityIntoScalar(bn_t rId, bn_t negR, bn_t r, bn_t encodedId, bn_t modulus){
+	bn_mul(rId, r, encodedId);
+	bn_mod_basic(rId, rId, modulus);
+	bn_sub(negR, modulus, r);
+	bn_mod_basic(negR, negR, modulus);
+}
+
+/**
+ * Computes the key component b1*y + b2*w + b3*r1Id + b4*negR1 + b5*r2Id + b6*negR2. The basis points
+ * are multiplied pairwise with simultaneous scalar multiplications, which share their point doublings.
+ */
+static void computeKeyComponent(g2_t component, g2_t b1, bn_t y, g2_t b2, bn_t w, g2_t b3, bn_t r1Id, g2_t b4, bn_t negR1, g2_t b5, bn_t r2Id, g2_t b6, bn_t negR2){
+	g2_t intermediateResult;
+	g2_null(intermediateResult);
+	g2_new(intermediateResult);
+	g2_mul_sim(component, b1, y, b2, w);
+	g2_mul_sim(intermediateResult, b3, r1Id, b4, negR1);
+	g2_add(component, component, intermediateResult);
+	g2_mul_sim(intermediateResult, b5, r2Id, b6, negR2);
+	g2_add(component, component, intermediateResult);
+	g2_free(intermediateResult);
+}
+
 /**
  * This function performs the key generation algorithm described in [2]. Variable names are
  * the same as the descriptions in [2].
@@ -415,26 +414,31 @@ int setup(struct hibeMasterSecretKey *msk, struct hibePublicParameter *publicPar
  */
 int keyGen(struct hibeSecretKey *secretKey, struct hibeMasterSecretKey *msk, uint8_t *id, int idLength, int level){
 	int result = STS_OK;
-	bn_t encodedId, y, w, r1, r2, modulus, ySum, wSum;
-	g2_t intermediateResult;
+	bn_t encodedId, y, w, r1, r2, r1Id, r2Id, negR1, negR2, modulus, ySum, wSum;
 
-	g2_null(intermediateResult);
 	bn_null(modulus);
 	bn_null(encodedId);
 	bn_null(y);
 	bn_null(w);
 	bn_null(r1);
 	bn_null(r2);
+	bn_null(r1Id);
+	bn_null(r2Id);
+	bn_null(negR1);
+	bn_null(negR2);
 	bn_null(ySum);
 	bn_null(wSum);
 	TRY {
-		g2_new(intermediateResult);
 		bn_new(modulus);
 		bn_new(encodedId);
 		bn_new(y);
 		bn_new(w);
 		bn_new(r1);
 		bn_new(r2);
+		bn_new(r1Id);
+		bn_new(r2Id);
+		bn_new(negR1);
+		bn_new(negR2);
 		bn_new(ySum);
 		bn_new(wSum);
 		g1_get_ord(modulus);
@@ -454,21 +458,11 @@ int keyGen(struct hibeSecretKey *secretKey, struct hibeMasterSecretKey *msk, uin
 			bn_mod_basic(ySum, ySum, modulus);
 			bn_add(wSum, wSum, w);
 			bn_mod_basic(wSum, wSum, modulus);
+			foldIdentityIntoScalar(r1Id, negR1, r1, encodedId, modulus);
+			foldIdentityIntoScalar(r2Id, negR2, r2, encodedId, modulus);
 
 			for(int i=0; i<dimension; i++){
-				g2_mul(secretKey->k[i+j*dimension], msk->dS1[i], y);
-				g2_mul(intermediateResult, msk->dS2[i], w);
-				g2_add(secretKey->k[i+j*dimension], secretKey->k[i+j*dimension], intermediateResult);
-				g2_mul(intermediateResult, msk->dS3theta[i], r1);
-				g2_mul(intermediateResult, intermediateResult, encodedId);
-				g2_add(secretKey->k[i+j*dimension], secretKey->k[i+j*dimension], intermediateResult);
-				g2_mul(intermediateResult, msk->dS4theta[i], r1);
-				g2_sub(secretKey->k[i+j*dimension], secretKey->k[i+j*dimension], intermediateResult);
-				g2_mul(intermediateResult, msk->dS5sigma[i], r2);
-				g2_mul(intermediateResult, intermediateResult, encodedId);
-				g2_add(secretKey->k[i+j*dimension], secretKey->k[i+j*dimension], intermediateResult);
-				g2_mul(intermediateResult, msk->dS6sigma[i], r2);
-				g2_sub(secretKey->k[i+j*dimension], secretKey->k[i+j*dimension], intermediateResult);
+				computeKeyComponent(secretKey->k[i+j*dimension], msk->dS1[i], y, msk->dS2[i], w, msk->dS3theta[i], r1Id, msk->dS4theta[i], negR1, msk->dS5sigma[i], r2Id, msk->dS6sigma[i], negR2);
 			}
 		}
 		uint8_t identity[idLength];
@@ -483,20 +477,10 @@ int keyGen(struct hibeSecretKey *secretKey, struct hibeMasterSecretKey *msk, uin
 		bn_mod_basic(y, y, modulus);
 		bn_sub(w, msk->alpha2, wSum);
 		bn_mod_basic(w, w, modulus);
+		foldIdentityIntoScalar(r1Id, negR1, r1, encodedId, modulus);
+		foldIdentityIntoScalar(r2Id, negR2, r2, encodedId, modulus);
 		for(int i=0; i<dimension; i++){
-			g2_mul(secretKey->k[i+(level-1)*dimension], msk->dS1[i], y);
-			g2_mul(intermediateResult, msk->dS2[i], w);
-			g2_add(secretKey->k[i+(level-1)*dimension], secretKey->k[i+(level-1)*dimension], intermediateResult);
-			g2_mul(intermediateResult, msk->dS3theta[i], r1);
-			g2_mul(intermediateResult, intermediateResult, encodedId);
-			g2_add(secretKey->k[i+(level-1)*dimension], secretKey->k[i+(level-1)*dimension], intermediateResult);
-			g2_mul(intermediateResult, msk->dS4theta[i], r1);
-			g2_sub(secretKey->k[i+(level-1)*dimension], secretKey->k[i+(level-1)*dimension], intermediateResult);
-			g2_mul(intermediateResult, msk->dS5sigma[i], r2);
-			g2_mul(intermediateResult, intermediateResult, encodedId);
-			g2_add(secretKey->k[i+(level-1)*dimension], secretKey->k[i+(level-1)*dimension], intermediateResult);
-			g2_mul(intermediateResult, msk->dS6sigma[i], r2);
-			g2_sub(secretKey->k[i+(level-1)*dimension], secretKey->k[i+(level-1)*dimension], intermediateResult);
+			computeKeyComponent(secretKey->k[i+(level-1)*dimension], msk->dS1[i], y, msk->dS2[i], w, msk->dS3theta[i], r1Id, msk->dS4theta[i], negR1, msk->dS5sigma[i], r2Id, msk->dS6sigma[i], negR2);
 			g2_copy(secretKey->dS1gamma[i], msk->dS1gamma[i]);
 			g2_copy(secretKey->dS2epsilon[i], msk->dS2epsilon[i]);
 			g2_copy(secretKey->dS3theta[i], msk->dS3theta[i]);
@@ -510,19 +494,40 @@ int keyGen(struct hibeSecretKey *secretKey, struct hibeMasterSecretKey *msk, uin
 		result = STS_ERR;
 	}
 	FINALLY {
-		g2_free(intermediateResult);
 		bn_free(modulus);
 		bn_free(encodedId);
 		bn_free(y);
 		bn_free(w);
 		bn_free(r1);
 		bn_free(r2);
+		bn_free(r1Id);
+		bn_free(r2Id);
+		bn_free(negR1);
+		bn_free(negR2);
 		bn_free(ySum);
 		bn_free(wSum);
 	}
 	return result;
 }
 
+/**
+ * Decodes identities into integers modulo the group order, as they are used by the
+ * key delegation and the encryption.
+ * The id array has to have a minimum size of 'idLength*numberOfIdentities'. It is interpreted
+ * as if all identites are written in succession.
+ */
+void decodeIdentities(bn_t *encodedIds, uint8_t *id, int idLength, int numberOfIdentities){
+	bn_t modulus;
+	bn_null(modulus);
+	bn_new(modulus);
+	g1_get_ord(modulus);
+	for(int j=0; j<numberOfIdentities; j++){
+		bn_read_bin(encodedIds[j], id + idLength*j, idLength);
+		bn_mod_basic(encodedIds[j], encodedIds[j], modulus);
+	}
+	bn_free(modulus);
+}
+
 /**
  * This function performs the key delegation algorithm described in [2]. Variable names are
  * the same as the descriptions in [2].
@@ -532,36 +537,62 @@ int keyGen(struct hibeSecretKey *secretKey, struct hibeMasterSecretKey *msk, uin
  */
 int keyDelegation(struct hibeSecretKey *delegatedSecretKey, struct hibeSecretKey *delegatorSecretKey, uint8_t *id, int idLength, int level){
 	int result = STS_OK;
-	bn_t encodedId, y, w, omega1, omega2, modulus, ySum, wSum;
-	g2_t intermediateResult;
+	bn_t encodedIds[level];
+
+	for(int j=0; j<level; j++){
+		bn_null(encodedIds[j]);
+	}
+	TRY{
+		for(int j=0; j<level; j++){
+			bn_new(encodedIds[j]);
+		}
+		decodeIdentities(encodedIds, id, idLength, level);
+		result = keyDelegationWithDecodedIds(delegatedSecretKey, delegatorSecretKey, encodedIds, level);
+	}
+	CATCH_ANY{
+		result = STS_ERR;
+	}
+	FINALLY{
+		for(int j=0; j<level; j++){
+			bn_free(encodedIds[j]);
+		}
+	}
+	return result;
+}
+
+/**
+ * Performs the key delegation with identities, which are already decoded by decodeIdentities.
+ * This way, callers which delegate several keys for the same identity only decode it once.
+ */
+int keyDelegationWithDecodedIds(struct hibeSecretKey *delegatedSecretKey, struct hibeSecretKey *delegatorSecretKey, bn_t *encodedIds, int level){
+	int result = STS_OK;
+	bn_t y, w, omega1, omega2, omega1Id, omega2Id, negOmega1, negOmega2, modulus, ySum, wSum;
 
-	g2_null(intermediateResult);
 	bn_null(modulus);
-	bn_null(encodedId);
 	bn_null(y);
 	bn_null(w);
 	bn_null(omega1);
 	bn_null(omega2);
+	bn_null(omega1Id);
+	bn_null(omega2Id);
+	bn_null(negOmega1);
+	bn_null(negOmega2);
 	bn_null(ySum);
 	bn_null(wSum);
 	TRY{
-		g2_new(intermediateResult);
 		bn_new(modulus);
-		bn_new(encodedId);
 		bn_new(y);
 		bn_new(w);
 		bn_new(omega1);
 		bn_new(omega2);
+		bn_new(omega1Id);
+		bn_new(omega2Id);
+		bn_new(negOmega1);
+		bn_new(negOmega2);
 		bn_new(ySum);
 		bn_new(wSum);
 		g1_get_ord(modulus);
 		for(int j=0; j<level-1; j++){
-			uint8_t identity[idLength];
-			for(int i=idLength*j; i<(idLength*j)+idLength; i++){
-				identity[i-(idLength*j)] = id[i];
-			}
-			bn_read_bin(encodedId, identity, idLength);
-			bn_mod_basic(encodedId, encodedId, modulus);
 			bn_rand_mod(y, modulus);
 			bn_rand_mod(w, modulus);
 			bn_rand_mod(omega1, modulus);
@@ -571,50 +602,24 @@ int keyDelegation(struct hibeSecretKey *delegatedSecretKey, struct hibeSecretKey
 			bn_mod_basic(ySum, ySum, modulus);
 			bn_add(wSum, wSum, w);
 			bn_mod_basic(wSum, wSum, modulus);
+			foldIdentityIntoScalar(omega1Id, negOmega1, omega1, encodedIds[j], modulus);
+			foldIdentityIntoScalar(omega2Id, negOmega2, omega2, encodedIds[j], modulus);
 
 			for(int i=0; i<dimension; i++){
-				g2_mul(delegatedSecretKey->k[i+j*dimension], delegatorSecretKey->dS1gamma[i], y);
-				g2_mul(intermediateResult, delegatorSecretKey->dS2epsilon[i], w);
-				g2_add(delegatedSecretKey->k[i+j*dimension], delegatedSecretKey->k[i+j*dimension], intermediateResult);
-				g2_mul(intermediateResult, delegatorSecretKey->dS3theta[i], omega1);
-				g2_mul(intermediateResult, intermediateResult, encodedId);
-				g2_add(delegatedSecretKey->k[i+j*dimension], delegatedSecretKey->k[i+j*dimension], intermediateResult);
-				g2_mul(intermediateResult, delegatorSecretKey->dS4theta[i], omega1);
-				g2_sub(delegatedSecretKey->k[i+j*dimension], delegatedSecretKey->k[i+j*dimension], intermediateResult);
-				g2_mul(intermediateResult, delegatorSecretKey->dS5sigma[i], omega2);
-				g2_mul(intermediateResult, intermediateResult, encodedId);
-				g2_add(delegatedSecretKey->k[i+j*dimension], delegatedSecretKey->k[i+j*dimension], intermediateResult);
-				g2_mul(intermediateResult, delegatorSecretKey->dS6sigma[i], omega2);
-				g2_sub(delegatedSecretKey->k[i+j*dimension], delegatedSecretKey->k[i+j*dimension], intermediateResult);
+				computeKeyComponent(delegatedSecretKey->k[i+j*dimension], delegatorSecretKey->dS1gamma[i], y, delegatorSecretKey->dS2epsilon[i], w, delegatorSecretKey->dS3theta[i], omega1Id, delegatorSecretKey->dS4theta[i], negOmega1, delegatorSecretKey->dS5sigma[i], omega2Id, delegatorSecretKey->dS6sigma[i], negOmega2);
 				g2_add(delegatedSecretKey->k[i+j*dimension], delegatedSecretKey->k[i+j*dimension], delegatorSecretKey->k[i+j*dimension]);
 			}
 		}
-		uint8_t identity[idLength];
-		for(int i=idLength*(level-1); i<(idLength*(level-1))+idLength; i++){
-			identity[i-(idLength*(level-1))] = id[i];
-		}
-		bn_read_bin(encodedId, identity, idLength);
-		bn_mod_basic(encodedId, encodedId, modulus);
 		bn_rand_mod(omega1, modulus);
 		bn_rand_mod(omega2, modulus);
 		bn_neg(y,ySum);
 		bn_mod_basic(y, y, modulus);
 		bn_neg(w,wSum);
 		bn_mod_basic(w, w, modulus);
+		foldIdentityIntoScalar(omega1Id, negOmega1, omega1, encodedIds[level-1], modulus);
+		foldIdentityIntoScalar(omega2Id, negOmega2, omega2, encodedIds[level-1], modulus);
 		for(int i=0; i<dimension; i++){
-			g2_mul(delegatedSecretKey->k[i+(level-1)*dimension], delegatorSecretKey->dS1gamma[i], y);
-			g2_mul(intermediateResult, delegatorSecretKey->dS2epsilon[i], w);
-			g2_add(delegatedSecretKey->k[i+(level-1)*dimension], delegatedSecretKey->k[i+(level-1)*dimension], intermediateResult);
-			g2_mul(intermediateResult, delegatorSecretKey->dS3theta[i], omega1);
-			g2_mul(intermediateResult, intermediateResult, encodedId);
-			g2_add(delegatedSecretKey->k[i+(level-1)*dimension], delegatedSecretKey->k[i+(level-1)*dimension], intermediateResult);
-			g2_mul(intermediateResult, delegatorSecretKey->dS4theta[i], omega1);
-			g2_sub(delegatedSecretKey->k[i+(level-1)*dimension], delegatedSecretKey->k[i+(level-1)*dimension], intermediateResult);
-			g2_mul(intermediateResult, delegatorSecretKey->dS5sigma[i], omega2);
-			g2_mul(intermediateResult, intermediateResult, encodedId);
-			g2_add(delegatedSecretKey->k[i+(level-1)*dimension], delegatedSecretKey->k[i+(level-1)*dimension], intermediateResult);
-			g2_mul(intermediateResult, delegatorSecretKey->dS6sigma[i], omega2);
-			g2_sub(delegatedSecretKey->k[i+(level-1)*dimension], delegatedSecretKey->k[i+(level-1)*dimension], intermediateResult);
+			computeKeyComponent(delegatedSecretKey->k[i+(level-1)*dimension], delegatorSecretKey->dS1gamma[i], y, delegatorSecretKey->dS2epsilon[i], w, delegatorSecretKey->dS3theta[i], omega1Id, delegatorSecretKey->dS4theta[i], negOmega1, delegatorSecretKey->dS5sigma[i], omega2Id, delegatorSecretKey->dS6sigma[i], negOmega2);
 			g2_copy(delegatedSecretKey->dS1gamma[i], delegatorSecretKey->dS1gamma[i]);
 			g2_copy(delegatedSecretKey->dS2epsilon[i], delegatorSecretKey->dS2epsilon[i]);
 			g2_copy(delegatedSecretKey->dS3theta[i], delegatorSecretKey->dS3theta[i]);
@@ -627,13 +632,15 @@ int keyDelegation(struct hibeSecretKey *delegatedSecretKey, struct hibeSecretKey
 		result = STS_ERR;
 	}
 	FINALLY{
-		g2_free(intermediateResult);
 		bn_free(modulus);
-		bn_free(encodedId);
 		bn_free(y);
 		bn_free(w);
 		bn_free(omega1);
 		bn_free(omega2);
+		bn_free(omega1Id);
+		bn_free(omega2Id);
+		bn_free(negOmega1);
+		bn_free(negOmega2);
 		bn_free(ySum);
 		bn_free(wSum);
 	}
@@ -649,28 +656,45 @@ int keyDelegation(struct hibeSecretKey *delegatedSecretKey, struct hibeSecretKey
  */
 int encrypt(struct hibeCiphertext *ciphertext, struct hibePublicParameter *publicParameter, gt_t message, uint8_t *id, int idLength, int level){
 	int result = STS_OK;
-	bn_t modulus, s1, s2, t1, t2, encodedId;
+	bn_t modulus, s1, s2, t1, t2, t1Id, t2Id;
+	bn_t encodedIds[level];
 	gt_t intermediateResultGT;
 	g1_t intermediateResultG1;
+	g1_t sharedTerm[dimension];
 
 	bn_null(modulus);
 	bn_null(s1);
 	bn_null(s2);
 	bn_null(t1);
 	bn_null(t2);
-	bn_null(encodedId);
+	bn_null(t1Id);
+	bn_null(t2Id);
+	for(int j=0; j<level; j++){
+		bn_null(encodedIds[j]);
+	}
 	gt_null(intermediateResultGT);
 	g1_null(intermediateResultG1);
+	for(int i=0; i<dimension; i++){
+		g1_null(sharedTerm[i]);
+	}
 	TRY{
 		bn_new(modulus);
 		bn_new(s1);
 		bn_new(s2);
 		bn_new(t1);
 		bn_new(t2);
-		bn_new(encodedId);
+		bn_new(t1Id);
+		bn_new(t2Id);
+		for(int j=0; j<level; j++){
+			bn_new(encodedIds[j]);
+		}
 		gt_new(intermediateResultGT);
 		g1_new(intermediateResultG1);
+		for(int i=0; i<dimension; i++){
+			g1_new(sharedTerm[i]);
+		}
 		g1_get_ord(modulus);
+		decodeIdentities(encodedIds, id, idLength, level);
 		bn_rand_mod(s1, modulus);
 		bn_rand_mod(s2, modulus);
 		gt_exp(intermediateResultGT, publicParameter->pairingd1, s1);
@@ -678,28 +702,30 @@ int encrypt(struct hibeCiphertext *ciphertext, struct hibePublicParameter *publi
 		gt_exp(intermediateResultGT, publicParameter->pairingd2, s2);
 		gt_mul(ciphertext->c0, ciphertext->c0, intermediateResultGT);
 
+		/**
+		 * s1*d1 + s2*d2 does not depend on the level, so it is computed once for all levels.
+		 * The basis points are multiplied pairwise with simultaneous scalar multiplications,
+		 * which share their point doublings.
+		 */
+		for(int i=0; i<dimension; i++){
+			g1_mul_sim(sharedTerm[i], publicParameter->d1[i], s1, publicParameter->d2[i], s2);
+		}
+
 		for(int j=0; j<level; j++){
-			uint8_t identity[idLength];
-			for(int i=idLength*j; i<(idLength*j)+idLength; i++){
-				identity[i-(idLength*j)] = id[i];
-			}
-			bn_read_bin(encodedId, identity, idLength);
-			bn_mod_basic(encodedId, encodedId, modulus);
 			bn_rand_mod(t1, modulus);
 			bn_rand_mod(t2, modulus);
+			/**
+			 * The products t1*ID and t2*ID are computed in Z_p, so d4 and d6 are only
+			 * multiplied once.
+			 */
+			bn_mul(t1Id, t1, encodedIds[j]);
+			bn_mod_basic(t1Id, t1Id, modulus);
+			bn_mul(t2Id, t2, encodedIds[j]);
+			bn_mod_basic(t2Id, t2Id, modulus);
 			for(int i=0; i<dimension; i++){
-				g1_mul(ciphertext->c[i+j*dimension], publicParameter->d1[i], s1);
-				g1_mul(intermediateResultG1, publicParameter->d2[i], s2);
-				g1_add(ciphertext->c[i+j*dimension], ciphertext->c[i+j*dimension], intermediateResultG1);
-				g1_mul(intermediateResultG1, publicParameter->d3[i], t1);
-				g1_add(ciphertext->c[i+j*dimension], ciphertext->c[i+j*dimension], intermediateResultG1);
-				g1_mul(intermediateResultG1, publicParameter->d4[i], t1);
-				g1_mul(intermediateResultG1, intermediateResultG1, encodedId);
-				g1_add(ciphertext->c[i+j*dimension], ciphertext->c[i+j*dimension], intermediateResultG1);
-				g1_mul(intermediateResultG1, publicParameter->d5[i], t2);
-				g1_add(ciphertext->c[i+j*dimension], ciphertext->c[i+j*dimension], intermediateResultG1);
-				g1_mul(intermediateResultG1, publicParameter->d6[i], t2);
-				g1_mul(intermediateResultG1, intermediateResultG1, encodedId);
+				g1_mul_sim(intermediateResultG1, publicParameter->d3[i], t1, publicParameter->d4[i], t1Id);
+				g1_add(ciphertext->c[i+j*dimension], sharedTerm[i], intermediateResultG1);
+				g1_mul_sim(intermediateResultG1, publicParameter->d5[i], t2, publicParameter->d6[i], t2Id);
 				g1_add(ciphertext->c[i+j*dimension], ciphertext->c[i+j*dimension], intermediateResultG1);
 			}
 		}
@@ -713,9 +739,16 @@ int encrypt(struct hibeCiphertext *ciphertext, struct hibePublicParameter *publi
 		bn_free(s2);
 		bn_free(t1);
 		bn_free(t2);
-		bn_free(encodedId);
+		bn_free(t1Id);
+		bn_free(t2Id);
+		for(int j=0; j<level; j++){
+			bn_free(encodedIds[j]);
+		}
 		gt_free(intermediateResultGT);
 		g1_free(intermediateResultG1);
+		for(int i=0; i<dimension; i++){
+			g1_free(sharedTerm[i]);
+		}
 	}
 	return result;
 }
@@ -725,18 +758,88 @@ int encrypt(struct hibeCiphertext *ciphertext, struct hibePublicParameter *publi
 */
 int decrypt(gt_t message, struct hibeSecretKey *secretKey, struct hibeCiphertext *ciphertext){
 	int result = STS_OK;
-	gt_t intermediatePairingResult, b;
+	gt_t b;
 
-	gt_null(intermediatePairingResult);
 	gt_null(b);
 	TRY{
-		gt_new(intermediatePairingResult);
 		gt_new(b);
-		pc_map(b, ciphertext->c[0], secretKey->k[0]);
-		for(int i=1; i<dimension*ciphertext->level; i++){
-			pc_map(intermediatePairingResult, ciphertext->c[i], secretKey->k[i]);
-			gt_mul(b, b, intermediatePairingResult);
+		/**
+		 * The product of all pairings is computed with a single multi-pairing. The Miller loops
+		 * are accumulated and share one final exponentiation, instead of one per pairing.
+		 */
+		pc_map_sim(b, ciphertext->c, secretKey->k, dimension*ciphertext->level);
+		gt_inv(b, b);
+		gt_mul(message, ciphertext->c0, b);
+	}
+	CATCH_ANY{
+		result = STS_ERR;
+	}
+	FINALLY{
+		gt_free(b);
+	}
+	return result;
+}
+
+/**
+ * Decrypts a ciphertext for the identities of the secret key, extended by the identity
+ * 'lastId', without delegating a secret key for the extended identities.
+ * A delegated key would re-randomize all components of the secret key, but the random
+ * shares of alpha1 and alpha2 cancel out in the decryption. So the components of the secret
+ * key are used as they are, and only the component for the last level is derived with fresh
+ * omega1 and omega2: omega1*(ID*dS3theta - dS4theta) + omega2*(ID*dS5sigma - dS6sigma).
+ * The ciphertext has to be at the level of the secret key plus one.
+ */
+int decryptAtExtendedIdentity(gt_t message, struct hibeSecretKey *secretKey, struct hibeCiphertext *ciphertext, bn_t lastId){
+	int result = STS_OK;
+	int level = secretKey->level + 1;
+	bn_t modulus, omega1, omega2, omega1Id, omega2Id, negOmega1, negOmega2;
+	g2_t intermediateResult;
+	g2_t *k = NULL;
+	gt_t b;
+
+	if(ciphertext->level != level){
+		return STS_ERR;
+	}
+	bn_null(modulus);
+	bn_null(omega1);
+	bn_null(omega2);
+	bn_null(omega1Id);
+	bn_null(omega2Id);
+	bn_null(negOmega1);
+	bn_null(negOmega2);
+	g2_null(intermediateResult);
+	gt_null(b);
+	TRY{
+		bn_new(modulus);
+		bn_new(omega1);
+		bn_new(omega2);
+		bn_new(omega1Id);
+		bn_new(omega2Id);
+		bn_new(negOmega1);
+		bn_new(negOmega2);
+		g2_new(intermediateResult);
+		gt_new(b);
+		k = (g2_t*)malloc(sizeof(g2_t)*dimension*level);
+		for(int i=0; i<dimension*level; i++){
+			g2_null(k[i]);
+			g2_new(k[i]);
+		}
+		for(int i=0; i<dimension*(level-1); i++){
+			g2_copy(k[i], secretKey->k[i]);
+		}
+
+		g1_get_ord(modulus);
+		bn_rand_mod(omega1, modulus);
+		bn_rand_mod(omega2, modulus);
+		foldIdentityIntoScalar(omega1Id, negOmega1, omega1, lastId, modulus);
+		foldIdentityIntoScalar(omega2Id, negOmega2, omega2, lastId, modulus);
+		for(int i=0; i<dimension; i++){
+			g2_mul_sim(k[i+(level-1)*dimension], secretKey->dS3theta[i], omega1Id, secretKey->dS4theta[i], negOmega1);
+			g2_mul_sim(intermediateResult, secretKey->dS5sigma[i], omega2Id, secretKey->dS6sigma[i], negOmega2);
+			g2_add(k[i+(level-1)*dimension], k[i+(level-1)*dimension], intermediateResult);
 		}
+
+		pc_map_sim(b, ciphertext->c, k, dimension*level);
 		gt_inv(b, b);
 		gt_mul(message, ciphertext->c0, b);
 	}
@@ -744,8 +847,21 @@ int decrypt(gt_t message, struct hibeSecretKey *secretKey, struct hibeCiphertext
 		result = STS_ERR;
 	}
 	FINALLY{
-		gt_free(intermediatePairingResult);
+		bn_free(modulus);
+		bn_free(omega1);
+		bn_free(omega2);
+		bn_free(omega1Id);
+		bn_free(omega2Id);
+		bn_free(negOmega1);
+		bn_free(negOmega2);
+		g2_free(intermediateResult);
 		gt_free(b);
+		if(k != NULL){
+			for(int i=0; i<dimension*level; i++){
+				g2_free(k[i]);
+			}
+			free(k);
+		}
 	}
 	return result;
 }
@@ -755,8 +871,8 @@ int decrypt(gt_t message, struct hibeSecretKey *secretKey, struct hibeCiphertext
  */
 void encodeMasterKey(uint8_t *encodedMasterKey, struct hibeMasterSecretKey *msk){
 	int lengthBN, lengthG2, index = 0;
-	lengthBN = bn_size_bin(msk->alpha1);
-	lengthG2 = g2_size_bin(msk->dS1[0],1);
+	lengthBN = sizeOfEncodedBn;
+	lengthG2 = sizeOfEncodedG2;
 	uint8_t bnElement[lengthBN];
 	uint8_t g2Element[lengthG2];
 	bn_write_bin(bnElement, lengthBN, msk->alpha1);
@@ -825,18 +941,9 @@ void encodeMasterKey(uint8_t *encodedMasterKey, struct hibeMasterSecretKey *msk)
  */
 void decodeMasterKey(struct hibeMasterSecretKey *msk, uint8_t *encodedMsk){
 	int lengthBN, lengthG2, index = 0;
-	bn_t bnElement, modulus;
-	g2_t g2Element;
 
-	bn_new(bnElement);
-	bn_new(modulus);
-	g2_new(g2Element);
-	g2_get_ord(modulus);
-	bn_rand_mod(bnElement, modulus);
-	g2_rand(g2Element);
-
-	lengthBN = bn_size_bin(bnElement);
-	lengthG2 = g2_size_bin(g2Element,1);
+	lengthBN = sizeOfEncodedBn;
+	lengthG2 = sizeOfEncodedG2;
 	uint8_t encodedBnElement[lengthBN];
 	uint8_t encodedG2Element[lengthG2];
 
@@ -901,10 +1008,6 @@ void decodeMasterKey(struct hibeMasterSecretKey *msk, uint8_t *encodedMsk){
 		index += lengthG2;
 		g2_read_bin(msk->dS6sigma[j], encodedG2Element, lengthG2);
 	}
-
-	bn_free(bnElement);
-	bn_free(modulus);
-	g2_free(g2Element);
 }
 
 /**
@@ -912,7 +1015,7 @@ void decodeMasterKey(struct hibeMasterSecretKey *msk, uint8_t *encodedMsk){
  */
 void encodeSecretKey(uint8_t *encodedSecretKey, struct hibeSecretKey *secretKey){
 	int lengthG2, index = 0;
-	lengthG2 = g2_size_bin(secretKey->dS1gamma[0],1);
+	lengthG2 = sizeOfEncodedG2;
 	uint8_t g2Element[lengthG2];
 	for(int j=0; j<dimension; j++){
 		g2_write_bin(g2Element, lengthG2, secretKey->dS1gamma[j],1);
@@ -965,12 +1068,8 @@ void encodeSecretKey(uint8_t *encodedSecretKey, struct hibeSecretKey *secretKey)
  */
 void decodeSecretKey(struct hibeSecretKey *secretKey, uint8_t *encodedSecretKey){
 	int  lengthG2, index = 0;
-	g2_t g2Element;
 
-	g2_new(g2Element);
-	g2_rand(g2Element);
-
-	lengthG2 = g2_size_bin(g2Element,1);
+	lengthG2 = sizeOfEncodedG2;
 	uint8_t encodedG2Element[lengthG2];
 
 	for(int j=0; j<dimension; j++){
@@ -1018,7 +1117,6 @@ void decodeSecretKey(struct hibeSecretKey *secretKey, uint8_t *encodedSecretKey)
 		g2_read_bin(secretKey->k[j], encodedG2Element, lengthG2);
 		index += lengthG2;
 	}
-	g2_free(g2Element);
 }
 
 /**
@@ -1026,8 +1124,8 @@ void decodeSecretKey(struct hibeSecretKey *secretKey, uint8_t *encodedSecretKey)
  */
 void encodePublicParameter(uint8_t *encodedPublicParameter, struct hibePublicParameter *publicParameter){
 	int lengthG1, lengthGT, index = 0;
-	lengthG1 = g1_size_bin(publicParameter->d1[0],1);
-	lengthGT = gt_size_bin(publicParameter->pairingd1, 1);
+	lengthG1 = sizeOfEncodedG1;
+	lengthGT = sizeOfEncodedCompressedGT;
 	uint8_t g1Element[lengthG1];
 	uint8_t gtElement[lengthGT];
 
@@ -1083,17 +1181,9 @@ void encodePublicParameter(uint8_t *encodedPublicParameter, struct hibePublicPar
  */
 void decodePublicParameter(struct hibePublicParameter *publicParameter, uint8_t *encodedPublicParameter){
 	int lengthG1, lengthGT, index = 0;
-	g1_t g1Element;
-	gt_t gtElement;
-
-	g1_new(g1Element);
-	gt_new(gtElement);
-
-	g1_rand(g1Element);
-	gt_rand(gtElement);
 
-	lengthG1 = g1_size_bin(g1Element,1);
-	lengthGT = gt_size_bin(gtElement,1);
+	lengthG1 = sizeOfEncodedG1;
+	lengthGT = sizeOfEncodedCompressedGT;
 	uint8_t encodedG1Element[lengthG1];
 	uint8_t encodedGTElement[lengthGT];
 
@@ -1146,8 +1236,6 @@ void decodePublicParameter(struct hibePublicParameter *publicParameter, uint8_t
 		g1_read_bin(publicParameter->d6[j], encodedG1Element, lengthG1);
 		index += lengthG1;
 	}
-	g1_free(g1Element);
-	gt_free(gtElement);
 }
 
 /**
@@ -1155,8 +1243,8 @@ void decodePublicParameter(struct hibePublicParameter *publicParameter, uint8_t
  */
 void encodeCiphertext(uint8_t *encodedCiphertext, struct hibeCiphertext *ciphertext){
 	int sizeOfGT, sizeOfG1, index=0;
-	sizeOfG1 = g1_size_bin(ciphertext->c[0],1);
-	sizeOfGT = gt_size_bin(ciphertext->c0, 0);
+	sizeOfG1 = sizeOfEncodedG1;
+	sizeOfGT = sizeOfEncodedUncompressedGT;
 	uint8_t g1Element[sizeOfG1];
 	uint8_t gtElement[sizeOfGT];
 
@@ -1180,17 +1268,9 @@ void encodeCiphertext(uint8_t *encodedCiphertext, struct hibeCiphertext *ciphert
  */
 void decodeCiphertext(struct hibeCiphertext *ciphertext, uint8_t *encodedCiphertext){
 	int sizeOfGT, sizeOfG1, index=0;
-	gt_t gtElement;
-	g1_t g1Element;
-
-	gt_new(gtElement);
-	g1_new(g1Element);
-
-	gt_rand(gtElement);
-	g1_rand(g1Element);
 
-	sizeOfG1 = g1_size_bin(g1Element, 1);
-	sizeOfGT = gt_size_bin(gtElement, 0);
+	sizeOfG1 = sizeOfEncodedG1;
+	sizeOfGT = sizeOfEncodedUncompressedGT;
 
 	uint8_t encodedG1Element[sizeOfG1];
 	uint8_t encodedGtElement[sizeOfGT];
@@ -1208,101 +1288,61 @@ void decodeCiphertext(struct hibeCiphertext *ciphertext, uint8_t *encodedCiphert
 		index += sizeOfG1;
 		g1_read_bin(ciphertext->c[j], encodedG1Element, sizeOfG1);
 	}
-
-	g1_free(g1Element);
-	gt_free(gtElement);
 }
 
 /**
- * This function computes the size of encoded public parameters.
+ * This function returns the size of an encoded integer modulo the group order.
  */
-int getSizeOfEncodedPublicParameter(){
-	int lengthG1, lengthGT;
-	g1_t g1Element;
-	gt_t gtElement;
-
-	g1_new(g1Element);
-	gt_new(gtElement);
+int getSizeOfEncodedBn(){
+	return sizeOfEncodedBn;
+}
 
-	g1_rand(g1Element);
-	gt_rand(gtElement);
+/**
+ * This function returns the size of an encoded (compressed) G1 element.
+ */
+int getSizeOfEncodedG1(){
+	return sizeOfEncodedG1;
+}
 
-	lengthG1 = g1_size_bin(g1Element,1);
-	lengthGT = gt_size_bin(gtElement,1);
+/**
+ * This function returns the size of an encoded (compressed) G2 element.
+ */
+int getSizeOfEncodedG2(){
+	return sizeOfEncodedG2;
+}
 
-	g1_free(g1Element);
-	gt_free(gtElement);
+/**
+ * This function returns the size of an encoded GT element.
+ */
+int getSizeOfEncodedGT(int compressed){
+	return compressed ? sizeOfEncodedCompressedGT : sizeOfEncodedUncompressedGT;
+}
 
-	int size = lengthG1*(dimension*dimension)+lengthGT*2;
-	return size;
+/**
+ * This function computes the size of encoded public parameters.
+ */
+int getSizeOfEncodedPublicParameter(){
+	return sizeOfEncodedG1*(dimension*dimension)+sizeOfEncodedCompressedGT*2;
 }
 
 /**
  * This function computes the size of a secret key at level i.
  */
 int getSizeOfEncodedSecretKeyAtLevel(int level){
-	int  lengthG2;
-	g2_t g2Element;
-
-	g2_new(g2Element);
-	g2_rand(g2Element);
-
-	lengthG2 = g2_size_bin(g2Element,1);
-
-	g2_free(g2Element);
-
-	int size = lengthG2*(dimension*dimension) + (level*dimension)*lengthG2;
-	return size;
+	return sizeOfEncodedG2*(dimension*dimension) + (level*dimension)*sizeOfEncodedG2;
 }
 
 /**
  * This function computes the size of a master secret key.
  */
 int getSizeOfEncodedMasterSecret(){
-	int lengthBN, lengthG2;
-	bn_t bnElement, modulus;
-	g2_t g2Element;
-
-	bn_new(bnElement);
-	bn_new(modulus);
-	g2_new(g2Element);
-	g2_get_ord(modulus);
-
-	bn_rand_mod(bnElement, modulus);
-	g2_rand(g2Element);
-
-	lengthBN = bn_size_bin(bnElement);
-	lengthG2 = g2_size_bin(g2Element,1);
-
-	bn_free(modulus);
-	bn_free(bnElement);
-	g2_free(g2Element);
-
-	int size = lengthG2*(dimension*(dimension+2))+2*lengthBN;
-	return size;
+	return sizeOfEncodedG2*(dimension*(dimension+2))+2*sizeOfEncodedBn;
 }
 
 /**
  * This function computes the size of a ciphertext at level i.
  */
 int getSizeOfEncodedCiphertextAtLevel(int level){
-	int lengthGt;
-	int lengthG1;
-	g1_t g1Element;
-	gt_t gtElement
-
-	g1_new(g1Element);
-	gt_new(gtElement);
-	g1_rand(g1Element);
-	gt_rand(gtElement);
-
-	lengthG1 = g1_size_bin(g1Element,1);
-	lengthGt = gt_size_bin(gtElement,0);
-
-	g1_free(g1Element);
-	gt_free(gtElement);
-
-	int size = lengthGt + (level*dimension)*lengthG1;
-	return size;
+	return sizeOfEncodedUncompressedGT + (level*dimension)*sizeOfEncodedG1;
 }
 
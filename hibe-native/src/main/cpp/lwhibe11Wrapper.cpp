@@ -17,6 +17,10 @@
 //============================================================================
 
 #include <iostream>
+#include <cstdio>
+#include <cstring>
+#include <pthread.h>
+#include <unistd.h>
 #include "de_rub_rkeinstantiation_hibewrapper_Hibe.h"
 extern "C"{
 #include <relic.h>
@@ -26,121 +30,103 @@ extern "C"{
 using namespace std;
 
 /**
- * Computes and returns size of an encoded integer modulo Z_p
+ * Relic is built with MULTI=PTHREAD, so every thread has its own relic context,
+ * including the parameters of the curve and the state of the random number generator.
+ * The context of a thread is initialized by its first call and kept alive for all
+ * following calls. The destructor of this key releases the context, when the thread exits.
  */
-JNIEXPORT jint JNICALL Java_de_rub_rkeinstantiation_hibewrapper_Hibe_getSizeOfBnModZp
-  (JNIEnv *, jclass){
+static pthread_key_t relicContextKey;
+
+static void releaseRelicContext(void *){
+	core_clean();
+}
+
+/**
+ * Initializes the relic context of the calling thread, if it has none yet.
+ */
+static int initRelicContext(){
+	if (core_get() != NULL) {
+		return STS_OK;
+	}
 	if (core_init() != STS_OK) {
 		core_clean();
-		return 0;
+		return STS_ERR;
 	}
 	if (ep_param_set_any_pairf() == STS_ERR) {
-		THROW(ERR_NO_CURVE);
 		core_clean();
-		return 0;
+		return STS_ERR;
 	}
-	bn_t bnElement, modulus;
-	bn_new(bnElement);
-	bn_new(modulus);
-	g1_get_ord(modulus);
-	bn_rand_mod(bnElement, modulus);
-	int size = bn_size_bin(bnElement);
-	bn_free(bnElement);
-	bn_free(modulus);
-	core_clean();
-	return size;
+	pthread_setspecific(relicContextKey, &relicContextKey);
+	return STS_OK;
 }
 
 /**
- * Computes and returns size of an encoded G1 curve point
+ * Initializes the relic context of the loading thread and the sizes of encoded elements,
+ * when the library is loaded.
  */
-JNIEXPORT jint JNICALL Java_de_rub_rkeinstantiation_hibewrapper_Hibe_getSizeOfG1
-  (JNIEnv *, jclass){
-	if (core_init() != STS_OK) {
-		core_clean();
-		return 0;
+JNIEXPORT jint JNICALL JNI_OnLoad(JavaVM *, void *){
+	if (pthread_key_create(&relicContextKey, releaseRelicContext) != 0) {
+		return JNI_ERR;
 	}
-	if (ep_param_set_any_pairf() == STS_ERR) {
-		THROW(ERR_NO_CURVE);
-		core_clean();
-		return 0;
+	if (initRelicContext() != STS_OK) {
+		return JNI_ERR;
 	}
-	g1_t g1Element;
-	g1_new(g1Element);
-	g1_rand(g1Element);
-	int size = g1_size_bin(g1Element,1);
-	g1_free(g1Element);
+	if (initEncodingSizes() == STS_ERR) {
+		return JNI_ERR;
+	}
+	return JNI_VERSION_1_6;
+}
+
+static void stopPool();
+
+/**
+ * Releases the relic context of the unloading thread, when the library is unloaded. The
+ * threads of the batch pool are stopped.
+ */
+JNIEXPORT void JNICALL JNI_OnUnload(JavaVM *, void *){
+	stopPool();
 	core_clean();
-	return size;
+	pthread_key_delete(relicContextKey);
+}
+
+/**
+ * Returns size of an encoded integer modulo Z_p
+ */
+JNIEXPORT jint JNICALL Java_de_rub_rkeinstantiation_hibewrapper_Hibe_getSizeOfBnModZp
+  (JNIEnv *, jclass){
+	return getSizeOfEncodedBn();
 }
 
 /**
- * Computes and returns size of an encoded G2 curve point
+ * Returns size of an encoded G1 curve point
+ */
+JNIEXPORT jint JNICALL Java_de_rub_rkeinstantiation_hibewrapper_Hibe_getSizeOfG1
+  (JNIEnv *, jclass){
+	return getSizeOfEncodedG1();
+}
+
+/**
+ * Returns size of an encoded G2 curve point
  */
 JNIEXPORT jint JNICALL Java_de_rub_rkeinstantiation_hibewrapper_Hibe_getSizeOfG2
   (JNIEnv *, jclass){
-	if (core_init() != STS_OK) {
-		core_clean();
-		return 0;
-	}
-	if (ep_param_set_any_pairf() == STS_ERR) {
-		THROW(ERR_NO_CURVE);
-		core_clean();
-		return 0;
-	}
-	g2_t g2Element;
-	g2_new(g2Element);
-	g2_rand(g2Element);
-	int size = g2_size_bin(g2Element,1);
-	g2_free(g2Element);
-	core_clean();
-	return size;
+	return getSizeOfEncodedG2();
 }
 
 /**
- * Computes and returns size of an encoded compressed GT curve point
+ * Returns size of an encoded compressed GT curve point
  */
 JNIEXPORT jint JNICALL Java_de_rub_rkeinstantiation_hibewrapper_Hibe_getSizeOfGT
   (JNIEnv *, jclass){
-	if (core_init() != STS_OK) {
-		core_clean();
-		return 0;
-	}
-	if (ep_param_set_any_pairf() == STS_ERR) {
-		THROW(ERR_NO_CURVE);
-		core_clean();
-		return 0;
-	}
-	gt_t gtElement;
-	gt_new(gtElement);
-	gt_rand(gtElement);
-	int size = gt_size_bin(gtElement,1);
-	gt_free(gtElement);
-	core_clean();
-	return size;
+	return getSizeOfEncodedGT(1);
 }
 
 /**
- * Computes and returns size of an encoded uncompressed GT curve point
+ * Returns size of an encoded uncompressed GT curve point
  */
 JNIEXPORT jint JNICALL Java_de_rub_rkeinstantiation_hibewrapper_Hibe_getSizeOfuncompressedGT
   (JNIEnv *, jclass){
-	if (core_init() != STS_OK) {
-		core_clean();
-		return 0;
-	}
-	if (ep_param_set_any_pairf() == STS_ERR) {
-		THROW(ERR_NO_CURVE);
-		core_clean();
-		return 0;
-	}
-	gt_t gtElement;
-	gt_new(gtElement);
-	gt_rand(gtElement);
-	int size = gt_size_bin(gtElement,0);
-	gt_free(gtElement);
-	core_clean();
-	return size;
+	return getSizeOfEncodedGT(0);
 }
 
 /**
@@ -148,13 +134,7 @@ JNIEXPORT jint JNICALL Java_de_rub_rkeinstantiation_hibewrapper_Hibe_getSizeOfun
  */
 JNIEXPORT jbyteArray JNICALL Java_de_rub_rkeinstantiation_hibewrapper_Hibe_getRandomGtElement
   (JNIEnv *env, jclass, jbyteArray javaSeed){
-	if (core_init() != STS_OK) {
-		core_clean();
-		return NULL;
-	}
-	if (ep_param_set_any_pairf() == STS_ERR) {
-		THROW(ERR_NO_CURVE);
-		core_clean();
+	if (initRelicContext() != STS_OK) {
 		return NULL;
 	}
 	jsize lengthOfSeedArray = env->GetArrayLength(javaSeed);
@@ -166,7 +146,7 @@ JNIEXPORT jbyteArray JNICALL Java_de_rub_rkeinstantiation_hibewrapper_Hibe_getRa
 	gt_new(randomElement);
 	gt_rand(randomElement);
 
-	int sizeOfGt = gt_size_bin(randomElement,1);
+	int sizeOfGt = getSizeOfEncodedGT(1);
 	uint8_t encodedGt[sizeOfGt];
 	gt_write_bin(encodedGt, sizeOfGt, randomElement,1);
 	gt_free(randomElement);
@@ -178,7 +158,6 @@ JNIEXPORT jbyteArray JNICALL Java_de_rub_rkeinstantiation_hibewrapper_Hibe_getRa
 
 	env->SetByteArrayRegion(encodedElement,0,sizeOfGt,(jbyte*) encodedGt);
 
-	core_clean();
 	return encodedElement;
 }
 
@@ -188,16 +167,9 @@ JNIEXPORT jbyteArray JNICALL Java_de_rub_rkeinstantiation_hibewrapper_Hibe_getRa
  */
 JNIEXPORT jbyteArray JNICALL Java_de_rub_rkeinstantiation_hibewrapper_Hibe_setup
   (JNIEnv *env, jclass, jbyteArray javaIdentity, jint javaIdentityLength, jbyteArray javaSeed){
-	if (core_init() != STS_OK) {
-		core_clean();
-		return NULL;
-	}
-	if (ep_param_set_any_pairf() == STS_ERR) {
-		THROW(ERR_NO_CURVE);
-		core_clean();
+	if (initRelicContext() != STS_OK) {
 		return NULL;
 	}
-
 	jsize lengthOfSeedArray = env->GetArrayLength(javaSeed);
 	jbyte *seedArray = env->GetByteArrayElements(javaSeed,0);
 
@@ -215,7 +187,6 @@ JNIEXPORT jbyteArray JNICALL Java_de_rub_rkeinstantiation_hibewrapper_Hibe_setup
 	struct hibePublicParameter *publicParameter = new hibePublicParameter();
 
 	if (setup(msk,publicParameter) != STS_OK) {
-		core_clean();
 		return NULL;
 	}
 
@@ -223,7 +194,6 @@ JNIEXPORT jbyteArray JNICALL Java_de_rub_rkeinstantiation_hibewrapper_Hibe_setup
 
 	jbyte *identityArray = env->GetByteArrayElements(javaIdentity, NULL);
 	if(keyGen(secretKey, msk, (uint8_t*)identityArray, javaIdentityLength, 1)!= STS_OK){
-		core_clean();
 		return NULL;
 	}
 	env->ReleaseByteArrayElements(javaIdentity, identityArray ,JNI_ABORT);
@@ -239,40 +209,80 @@ JNIEXPORT jbyteArray JNICALL Java_de_rub_rkeinstantiation_hibewrapper_Hibe_setup
 	env->SetByteArrayRegion(encodedKeys,0,sizePublicParameter,(jbyte*) encodedPP);
 	env->SetByteArrayRegion(encodedKeys,sizePublicParameter, sizeSecretKey,(jbyte*) encodedSecretKey);
 
-	core_clean();
 	return encodedKeys;
 }
 
 /**
- * Performs the Hibe encryption algorithm.
+ * Seeds the random number generator of relic with a seed provided by the caller.
  */
-JNIEXPORT jbyteArray JNICALL Java_de_rub_rkeinstantiation_hibewrapper_Hibe_encrypt
-(JNIEnv *env, jclass, jbyteArray javaPublicParameter, jbyteArray javaMessage, jbyteArray javaIdentity, jint javaIdentityLength, jint javaLevel, jbyteArray javaSeed){
-	if (core_init() != STS_OK) {
-		core_clean();
-		return NULL;
-	}
-	if (ep_param_set_any_pairf() == STS_ERR) {
-		THROW(ERR_NO_CURVE);
-		core_clean();
-		return NULL;
-	}
+static void seedRandomness(JNIEnv *env, jbyteArray javaSeed){
 	jsize lengthOfSeedArray = env->GetArrayLength(javaSeed);
 	jbyte *seedArray = env->GetByteArrayElements(javaSeed,NULL);
-
 	rand_seed((uint8_t*)seedArray, lengthOfSeedArray);
 	env->ReleaseByteArrayElements(javaSeed,seedArray ,JNI_ABORT);
+}
 
-	jbyte *publicParameterArray = env->GetByteArrayElements(javaPublicParameter, NULL);
-	jsize messageArrayLength = env->GetArrayLength(javaMessage);
-	jbyte *messageArray = env->GetByteArrayElements(javaMessage, NULL);
+/**
+ * Throws an IllegalArgumentException with the message to the caller.
+ */
+static void throwIllegalArgument(JNIEnv *env, const char *message){
+	jclass exceptionClass = env->FindClass("java/lang/IllegalArgumentException");
+	if (exceptionClass != NULL) {
+		env->ThrowNew(exceptionClass, message);
+	}
+}
 
-	struct hibePublicParameter *publicParameter = new hibePublicParameter;
+/**
+ * Checks, that the direct buffer holds exactly 'size' bytes. The elements are decoded from the
+ * address of the buffer, so relic would read beyond a shorter buffer, or stale bytes of a pooled
+ * buffer that is longer. Throws an IllegalArgumentException and returns false, if the size does
+ * not match.
+ */
+static bool checkDirectBuffer(JNIEnv *env, jobject buffer, jlong size, const char *name){
+	if (buffer == NULL || env->GetDirectBufferAddress(buffer) == NULL || env->GetDirectBufferCapacity(buffer) != size) {
+		char message[128];
+		snprintf(message, sizeof(message), "Direct buffer of the %s does not hold %lld bytes.", name, (long long) size);
+		throwIllegalArgument(env, message);
+		return false;
+	}
+	return true;
+}
 
-	decodePublicParameter(publicParameter, (uint8_t*) publicParameterArray);
-	env->ReleaseByteArrayElements(javaPublicParameter,publicParameterArray ,JNI_ABORT);
+/**
+ * Checks, that the array holds exactly 'size' bytes. Throws an IllegalArgumentException
+ * and returns false otherwise.
+ */
+static bool checkArray(JNIEnv *env, jbyteArray array, jlong size, const char *name){
+	if (array == NULL || env->GetArrayLength(array) != size) {
+		char message[128];
+		snprintf(message, sizeof(message), "Array of the %s does not hold %lld bytes.", name, (long long) size);
+		throwIllegalArgument(env, message);
+		return false;
+	}
+	return true;
+}
+
+/**
+ * Checks, that the level and the size of an identity are positive. Throws an
+ * IllegalArgumentException and returns false otherwise.
+ */
+static bool checkIdentities(JNIEnv *env, jint identityLength, jint level, jint minimumLevel){
+	if (identityLength <= 0 || level < minimumLevel) {
+		throwIllegalArgument(env, "Invalid identity length or level.");
+		return false;
+	}
+	return true;
+}
+
+/**
+ * Encrypts the encoded message under decoded public parameters and returns the encoded ciphertext.
+ */
+static jbyteArray encryptAndEncode(JNIEnv *env, struct hibePublicParameter *publicParameter, jbyteArray javaMessage, jbyteArray javaIdentity, jint javaIdentityLength, jint javaLevel){
+	jsize messageArrayLength = env->GetArrayLength(javaMessage);
+	jbyte *messageArray = env->GetByteArrayElements(javaMessage, NULL);
 
 	gt_t message;
+	gt_null(message);
 	gt_new(message);
 	gt_read_bin(message, (uint8_t*)messageArray, messageArrayLength);
 	env->ReleaseByteArrayElements(javaMessage, messageArray ,JNI_ABORT);
@@ -280,129 +290,1229 @@ JNIEXPORT jbyteArray JNICALL Java_de_rub_rkeinstantiation_hibewrapper_Hibe_encry
 	struct hibeCiphertext *ciphertext = new hibeCiphertext(javaLevel);
 
 	jbyte *identityArray = env->GetByteArrayElements(javaIdentity, NULL);
-
-	if(encrypt(ciphertext, publicParameter, message, (uint8_t*)identityArray, javaIdentityLength, javaLevel) == STS_ERR) {
-		core_clean();
+	int result = encrypt(ciphertext, publicParameter, message, (uint8_t*)identityArray, javaIdentityLength, javaLevel);
+	env->ReleaseByteArrayElements(javaIdentity, identityArray ,JNI_ABORT);
+	gt_free(message);
+	if(result == STS_ERR) {
+		delete ciphertext;
 		return NULL;
 	}
-	env->ReleaseByteArrayElements(javaIdentity, identityArray ,JNI_ABORT);
 
 	int sizeOfCiphertext = getSizeOfEncodedCiphertextAtLevel(javaLevel);
-
 	uint8_t encodedCiphertext[sizeOfCiphertext];
-
 	encodeCiphertext(encodedCiphertext, ciphertext);
+	delete ciphertext;
 
 	jbyteArray javaencodedCiphertext = (jbyteArray)env->NewByteArray(sizeOfCiphertext);
 	if(javaencodedCiphertext==NULL){
 		return NULL;
 	}
-
 	env->SetByteArrayRegion(javaencodedCiphertext,0,sizeOfCiphertext,(jbyte*) encodedCiphertext);
-
-	core_clean();
 	return javaencodedCiphertext;
 }
 
 /**
- * Performs the Hibe decryption algorithm.
+ * Decrypts the encoded ciphertext with a decoded secret key and returns the encoded message.
  */
-JNIEXPORT jbyteArray JNICALL Java_de_rub_rkeinstantiation_hibewrapper_Hibe_decrypt
-(JNIEnv *env, jclass, jbyteArray javaSecretKey, jbyteArray javaCiphertext, jint javaLevel){
-	if (core_init() != STS_OK) {
-		core_clean();
-		return NULL;
-	}
-	if (ep_param_set_any_pairf() == STS_ERR) {
-		THROW(ERR_NO_CURVE);
-		core_clean();
-		return NULL;
-	}
-	jbyte *javaSecretKeyArray = env->GetByteArrayElements(javaSecretKey, 0);
-	jbyte *javaCiphertextArray = env->GetByteArrayElements(javaCiphertext, 0);
-
-	struct hibeSecretKey *secretKey = new hibeSecretKey(javaLevel);
+static jbyteArray decryptAndEncode(JNIEnv *env, struct hibeSecretKey *secretKey, jbyteArray javaCiphertext, jint javaLevel){
+	jbyte *javaCiphertextArray = env->GetByteArrayElements(javaCiphertext, NULL);
 	struct hibeCiphertext *ciphertext = new hibeCiphertext(javaLevel);
-
-	decodeSecretKey(secretKey, (uint8_t*) javaSecretKeyArray);
-	env->ReleaseByteArrayElements(javaSecretKey,javaSecretKeyArray ,JNI_ABORT);
-
 	decodeCiphertext(ciphertext, (uint8_t*) javaCiphertextArray);
 	env->ReleaseByteArrayElements(javaCiphertext,javaCiphertextArray ,JNI_ABORT);
 
 	gt_t message;
+	gt_null(message);
 	gt_new(message);
 
-	if(decrypt(message, secretKey, ciphertext)==STS_ERR){
-		core_clean();
+	int result = decrypt(message, secretKey, ciphertext);
+	delete ciphertext;
+	if(result == STS_ERR){
+		gt_free(message);
 		return NULL;
 	}
-	int size = gt_size_bin(message,1);
-
+	int size = getSizeOfEncodedGT(1);
 	uint8_t messageArray[size];
 	gt_write_bin(messageArray, size, message, 1);
+	gt_free(message);
 
 	jbyteArray javamessage = (jbyteArray)env->NewByteArray(size);
 	if(javamessage==NULL){
 		return NULL;
 	}
-
 	env->SetByteArrayRegion(javamessage,0,size,(jbyte*) messageArray);
-
-	gt_free(message);
-	core_clean();
 	return javamessage;
 }
 
 /**
- * Performs the Hibe delegate algorithm.
+ * Delegates a decoded secret key for the identity. Returns NULL, if the delegation fails.
  */
-JNIEXPORT jbyteArray JNICALL Java_de_rub_rkeinstantiation_hibewrapper_Hibe_delegate
-  (JNIEnv *env, jclass, jbyteArray javaDelegatorKey, jbyteArray javaIdentity, jint javaIdentityLength, jint javaLevel, jbyteArray javaSeed){
-	if (core_init() != STS_OK) {
-		core_clean();
+static struct hibeSecretKey *delegateKey(JNIEnv *env, struct hibeSecretKey *secretKey, jbyteArray javaIdentity, jint javaIdentityLength, jint javaLevel){
+	jbyte *identityArray = env->GetByteArrayElements(javaIdentity, NULL);
+	struct hibeSecretKey *delegatedKey = new hibeSecretKey(javaLevel);
+	int result = keyDelegation(delegatedKey, secretKey, (uint8_t*)identityArray, javaIdentityLength, javaLevel);
+	env->ReleaseByteArrayElements(javaIdentity, identityArray ,JNI_ABORT);
+	if(result == STS_ERR) {
+		delete delegatedKey;
 		return NULL;
 	}
+	return delegatedKey;
+}
 
-	if (ep_param_set_any_pairf() == STS_ERR) {
-		THROW(ERR_NO_CURVE);
-		core_clean();
+/**
+ * Encodes a decoded secret key into a Java byte array.
+ */
+static jbyteArray encodeSecretKeyToJava(JNIEnv *env, struct hibeSecretKey *secretKey){
+	int sizeOfSecretKey = getSizeOfEncodedSecretKeyAtLevel(secretKey->level);
+	uint8_t encodedSecretKey[sizeOfSecretKey];
+	encodeSecretKey(encodedSecretKey, secretKey);
+
+	jbyteArray javaSecretKey = (jbyteArray)env->NewByteArray(sizeOfSecretKey);
+	if(javaSecretKey==NULL){
 		return NULL;
 	}
+	env->SetByteArrayRegion(javaSecretKey,0,sizeOfSecretKey,(jbyte*) encodedSecretKey);
+	return javaSecretKey;
+}
 
-	jsize lengthOfSeedArray = env->GetArrayLength(javaSeed);
-	jbyte *seedArray = env->GetByteArrayElements(javaSeed,0);
-	rand_seed((uint8_t*)seedArray, lengthOfSeedArray);
-	env->ReleaseByteArrayElements(javaSeed,seedArray ,JNI_ABORT);
+/**
+ * Decodes a Java byte array into a secret key. Returns NULL, if the array can not be read.
+ */
+static struct hibeSecretKey *decodeSecretKeyFromJava(JNIEnv *env, jbyteArray javaSecretKey, jint javaLevel){
+	if (javaSecretKey == NULL) {
+		return NULL;
+	}
+	jbyte *javaSecretKeyArray = env->GetByteArrayElements(javaSecretKey, NULL);
+	if (javaSecretKeyArray == NULL) {
+		return NULL;
+	}
+	struct hibeSecretKey *secretKey = new hibeSecretKey(javaLevel);
+	decodeSecretKey(secretKey, (uint8_t*) javaSecretKeyArray);
+	env->ReleaseByteArrayElements(javaSecretKey,javaSecretKeyArray ,JNI_ABORT);
+	return secretKey;
+}
+
+/**
+ * Performs the Hibe encryption algorithm.
+ */
+JNIEXPORT jbyteArray JNICALL Java_de_rub_rkeinstantiation_hibewrapper_Hibe_encrypt
+(JNIEnv *env, jclass, jbyteArray javaPublicParameter, jbyteArray javaMessage, jbyteArray javaIdentity, jint javaIdentityLength, jint javaLevel, jbyteArray javaSeed){
+	if (initRelicContext() != STS_OK) {
+		return NULL;
+	}
+	seedRandomness(env, javaSeed);
 
-	jbyte *javaSecretKeyArray = env->GetByteArrayElements(javaDelegatorKey, 0);
+	jbyte *publicParameterArray = env->GetByteArrayElements(javaPublicParameter, NULL);
+	struct hibePublicParameter *publicParameter = new hibePublicParameter();
+	decodePublicParameter(publicParameter, (uint8_t*) publicParameterArray);
+	env->ReleaseByteArrayElements(javaPublicParameter,publicParameterArray ,JNI_ABORT);
 
-	struct hibeSecretKey *secretKey = new hibeSecretKey(javaLevel-1);
-	decodeSecretKey(secretKey, (uint8_t*) javaSecretKeyArray);
-	env->ReleaseByteArrayElements(javaDelegatorKey,javaSecretKeyArray ,JNI_ABORT);
+	jbyteArray javaencodedCiphertext = encryptAndEncode(env, publicParameter, javaMessage, javaIdentity, javaIdentityLength, javaLevel);
+	delete publicParameter;
+	return javaencodedCiphertext;
+}
 
-	jbyte *identityArray = env->GetByteArrayElements(javaIdentity, NULL);
+/**
+ * Performs the Hibe decryption algorithm.
+ */
+JNIEXPORT jbyteArray JNICALL Java_de_rub_rkeinstantiation_hibewrapper_Hibe_decrypt
+(JNIEnv *env, jclass, jbyteArray javaSecretKey, jbyteArray javaCiphertext, jint javaLevel){
+	if (initRelicContext() != STS_OK) {
+		return NULL;
+	}
+	struct hibeSecretKey *secretKey = decodeSecretKeyFromJava(env, javaSecretKey, javaLevel);
+	if (secretKey == NULL) {
+		return NULL;
+	}
+	jbyteArray javamessage = decryptAndEncode(env, secretKey, javaCiphertext, javaLevel);
+	delete secretKey;
+	return javamessage;
+}
 
-	struct hibeSecretKey *delegatedKey = new hibeSecretKey(javaLevel);
-	if(keyDelegation(delegatedKey, secretKey, (uint8_t*)identityArray, javaIdentityLength, javaLevel) == STS_ERR) {
-		core_clean();
+/**
+ * Performs the Hibe delegate algorithm.
+ */
+JNIEXPORT jbyteArray JNICALL Java_de_rub_rkeinstantiation_hibewrapper_Hibe_delegate
+  (JNIEnv *env, jclass, jbyteArray javaDelegatorKey, jbyteArray javaIdentity, jint javaIdentityLength, jint javaLevel, jbyteArray javaSeed){
+	if (initRelicContext() != STS_OK) {
 		return NULL;
 	}
+	seedRandomness(env, javaSeed);
 
-	env->ReleaseByteArrayElements(javaIdentity, identityArray ,JNI_ABORT);
+	struct hibeSecretKey *secretKey = decodeSecretKeyFromJava(env, javaDelegatorKey, javaLevel-1);
+	if (secretKey == NULL) {
+		return NULL;
+	}
+	struct hibeSecretKey *delegatedKey = delegateKey(env, secretKey, javaIdentity, javaIdentityLength, javaLevel);
+	delete secretKey;
+	if(delegatedKey == NULL) {
+		return NULL;
+	}
+	jbyteArray javaDelegatedKey = encodeSecretKeyToJava(env, delegatedKey);
+	delete delegatedKey;
+	return javaDelegatedKey;
+}
 
-	int sizeOfSecretKey = getSizeOfEncodedSecretKeyAtLevel(javaLevel);
-	uint8_t encodedSecretKey[sizeOfSecretKey];
+/**
+ * Decodes public parameters and returns a handle to the decoded struct. The handle
+ * stays valid until it is released with freePublicParameterHandle.
+ */
+JNIEXPORT jlong JNICALL Java_de_rub_rkeinstantiation_hibewrapper_Hibe_decodePublicParameterHandle
+  (JNIEnv *env, jclass, jbyteArray javaPublicParameter){
+	if (initRelicContext() != STS_OK) {
+		return 0;
+	}
+	jbyte *publicParameterArray = env->GetByteArrayElements(javaPublicParameter, NULL);
+	struct hibePublicParameter *publicParameter = new hibePublicParameter();
+	decodePublicParameter(publicParameter, (uint8_t*) publicParameterArray);
+	env->ReleaseByteArrayElements(javaPublicParameter,publicParameterArray ,JNI_ABORT);
+	return (jlong) publicParameter;
+}
 
-	encodeSecretKey(encodedSecretKey, delegatedKey);
+/**
+ * Releases decoded public parameters.
+ */
+JNIEXPORT void JNICALL Java_de_rub_rkeinstantiation_hibewrapper_Hibe_freePublicParameterHandle
+  (JNIEnv *, jclass, jlong handle){
+	delete (struct hibePublicParameter*) handle;
+}
+
+/**
+ * Decodes a secret key and returns a handle to the decoded struct. The handle
+ * stays valid until it is released with freeSecretKeyHandle.
+ */
+JNIEXPORT jlong JNICALL Java_de_rub_rkeinstantiation_hibewrapper_Hibe_decodeSecretKeyHandle
+  (JNIEnv *env, jclass, jbyteArray javaSecretKey, jint javaLevel){
+	if (initRelicContext() != STS_OK) {
+		return 0;
+	}
+	return (jlong) decodeSecretKeyFromJava(env, javaSecretKey, javaLevel);
+}
 
-	jbyteArray javaDelegatedKey = (jbyteArray)env->NewByteArray(sizeOfSecretKey);
-	if(javaDelegatedKey==NULL){
+/**
+ * Encodes the secret key behind a handle.
+ */
+JNIEXPORT jbyteArray JNICALL Java_de_rub_rkeinstantiation_hibewrapper_Hibe_encodeSecretKeyHandle
+  (JNIEnv *env, jclass, jlong handle){
+	if (initRelicContext() != STS_OK) {
 		return NULL;
 	}
-	env->SetByteArrayRegion(javaDelegatedKey,0,sizeOfSecretKey,(jbyte*) encodedSecretKey);
-	core_clean();
-	return javaDelegatedKey;
+	return encodeSecretKeyToJava(env, (struct hibeSecretKey*) handle);
+}
+
+/**
+ * Releases a decoded secret key.
+ */
+JNIEXPORT void JNICALL Java_de_rub_rkeinstantiation_hibewrapper_Hibe_freeSecretKeyHandle
+  (JNIEnv *, jclass, jlong handle){
+	delete (struct hibeSecretKey*) handle;
+}
+
+/**
+ * Performs the Hibe encryption algorithm with decoded public parameters.
+ */
+JNIEXPORT jbyteArray JNICALL Java_de_rub_rkeinstantiation_hibewrapper_Hibe_encryptWithHandle
+  (JNIEnv *env, jclass, jlong publicParameterHandle, jbyteArray javaMessage, jbyteArray javaIdentity, jint javaIdentityLength, jint javaLevel, jbyteArray javaSeed){
+	if (initRelicContext() != STS_OK) {
+		return NULL;
+	}
+	seedRandomness(env, javaSeed);
+	return encryptAndEncode(env, (struct hibePublicParameter*) publicParameterHandle, javaMessage, javaIdentity, javaIdentityLength, javaLevel);
+}
+
+/**
+ * Performs the Hibe delegate algorithm with a decoded secret key. The delegated key
+ * is not encoded, instead a handle to it is returned. Returns 0, if the delegation fails.
+ */
+JNIEXPORT jlong JNICALL Java_de_rub_rkeinstantiation_hibewrapper_Hibe_delegateWithHandle
+  (JNIEnv *env, jclass, jlong delegatorKeyHandle, jbyteArray javaIdentity, jint javaIdentityLength, jint javaLevel, jbyteArray javaSeed){
+	if (initRelicContext() != STS_OK) {
+		return 0;
+	}
+	seedRandomness(env, javaSeed);
+	return (jlong) delegateKey(env, (struct hibeSecretKey*) delegatorKeyHandle, javaIdentity, javaIdentityLength, javaLevel);
+}
+
+/**
+ * Performs the Hibe encryption algorithm on direct buffers. The encoded ciphertext is
+ * written into the ciphertext buffer. Returns the size of the encoded ciphertext, or 0
+ * if the encryption fails or the ciphertext buffer is too small. Throws an
+ * IllegalArgumentException, if an input buffer does not hold exactly its encoded size.
+ */
+JNIEXPORT jint JNICALL Java_de_rub_rkeinstantiation_hibewrapper_Hibe_encryptDirect
+  (JNIEnv *env, jclass, jobject javaPublicParameter, jobject javaMessage, jint messageLength, jobject javaIdentity, jint javaIdentityLength, jint javaLevel, jobject javaSeed, jint seedLength, jobject javaCiphertext){
+	if (initRelicContext() != STS_OK) {
+		return 0;
+	}
+	if (messageLength != getSizeOfEncodedGT(1)) {
+		throwIllegalArgument(env, "The message is not an encoded element of GT.");
+		return 0;
+	}
+	if (!checkIdentities(env, javaIdentityLength, javaLevel, 1)
+			|| !checkDirectBuffer(env, javaPublicParameter, getSizeOfEncodedPublicParameter(), "public parameter")
+			|| !checkDirectBuffer(env, javaMessage, messageLength, "message")
+			|| !checkDirectBuffer(env, javaIdentity, (jlong) javaIdentityLength * javaLevel, "identities")
+			|| !checkDirectBuffer(env, javaSeed, seedLength, "seed")) {
+		return 0;
+	}
+	int sizeOfCiphertext = getSizeOfEncodedCiphertextAtLevel(javaLevel);
+	if(env->GetDirectBufferCapacity(javaCiphertext) < sizeOfCiphertext){
+		return 0;
+	}
+	rand_seed((uint8_t*)env->GetDirectBufferAddress(javaSeed), seedLength);
+
+	struct hibePublicParameter *publicParameter = new hibePublicParameter();
+	decodePublicParameter(publicParameter, (uint8_t*)env->GetDirectBufferAddress(javaPublicParameter));
+
+	gt_t message;
+	gt_null(message);
+	gt_new(message);
+	gt_read_bin(message, (uint8_t*)env->GetDirectBufferAddress(javaMessage), messageLength);
+
+	struct hibeCiphertext *ciphertext = new hibeCiphertext(javaLevel);
+	int result = encrypt(ciphertext, publicParameter, message, (uint8_t*)env->GetDirectBufferAddress(javaIdentity), javaIdentityLength, javaLevel);
+	if(result != STS_ERR){
+		encodeCiphertext((uint8_t*)env->GetDirectBufferAddress(javaCiphertext), ciphertext);
+	}
+
+	gt_free(message);
+	delete ciphertext;
+	delete publicParameter;
+	return result == STS_ERR ? 0 : sizeOfCiphertext;
+}
+
+/**
+ * Performs the Hibe delegate algorithm on direct buffers. The encoded delegated key is
+ * written into the delegated key buffer. Returns the size of the encoded delegated key,
+ * or 0 if the delegation fails or the delegated key buffer is too small. Throws an
+ * IllegalArgumentException, if an input buffer does not hold exactly its encoded size.
+ */
+JNIEXPORT jint JNICALL Java_de_rub_rkeinstantiation_hibewrapper_Hibe_delegateDirect
+  (JNIEnv *env, jclass, jobject javaDelegatorKey, jobject javaIdentity, jint javaIdentityLength, jint javaLevel, jobject javaSeed, jint seedLength, jobject javaDelegatedKey){
+	if (initRelicContext() != STS_OK) {
+		return 0;
+	}
+	if (!checkIdentities(env, javaIdentityLength, javaLevel, 2)
+			|| !checkDirectBuffer(env, javaDelegatorKey, getSizeOfEncodedSecretKeyAtLevel(javaLevel-1), "delegator secret key")
+			|| !checkDirectBuffer(env, javaIdentity, (jlong) javaIdentityLength * javaLevel, "identities")
+			|| !checkDirectBuffer(env, javaSeed, seedLength, "seed")) {
+		return 0;
+	}
+	int sizeOfSecretKey = getSizeOfEncodedSecretKeyAtLevel(javaLevel);
+	if(env->GetDirectBufferCapacity(javaDelegatedKey) < sizeOfSecretKey){
+		return 0;
+	}
+	rand_seed((uint8_t*)env->GetDirectBufferAddress(javaSeed), seedLength);
+
+	struct hibeSecretKey *secretKey = new hibeSecretKey(javaLevel-1);
+	decodeSecretKey(secretKey, (uint8_t*)env->GetDirectBufferAddress(javaDelegatorKey));
+
+	struct hibeSecretKey *delegatedKey = new hibeSecretKey(javaLevel);
+	int result = keyDelegation(delegatedKey, secretKey, (uint8_t*)env->GetDirectBufferAddress(javaIdentity), javaIdentityLength, javaLevel);
+	if(result != STS_ERR){
+		encodeSecretKey((uint8_t*)env->GetDirectBufferAddress(javaDelegatedKey), delegatedKey);
+	}
+
+	delete delegatedKey;
+	delete secretKey;
+	return result == STS_ERR ? 0 : sizeOfSecretKey;
+}
+
+/**
+ * Sizes of 'dec' and 'com' of the CCA transformation, which is performed by the Java side.
+ * They have to match 'k1' and 'k' in Hibe.java.
+ */
+const int sizeOfDec = 96;
+const int sizeOfCom = 32;
+
+/**
+ * HKDF (RFC 5869) with the hash function of relic (SHA-256), an empty salt and no info.
+ * This matches the HKDFBytesGenerator with SHA-256, which is used by the Java side.
+ * Only the first block of the output is computed, so outputLength has to be at most MD_LEN.
+ */
+static void hkdf(uint8_t *output, int outputLength, uint8_t *input, int inputLength){
+	uint8_t salt[MD_LEN];
+	uint8_t pseudoRandomKey[MD_LEN];
+	uint8_t block[MD_LEN];
+	uint8_t counter = 1;
+
+	memset(salt, 0, MD_LEN);
+	md_hmac(pseudoRandomKey, input, inputLength, salt, MD_LEN);
+	md_hmac(block, &counter, 1, pseudoRandomKey, MD_LEN);
+	memcpy(output, block, outputLength);
+}
+
+/**
+ * Returns the size of the output of the encapsulation for identities at 'level'.
+ */
+static int getSizeOfEncapsulation(int level){
+	return getSizeOfEncodedGT(1) + sizeOfCom + getSizeOfEncodedCiphertextAtLevel(level+1);
+}
+
+/**
+ * Samples a random GT element, computes 'com' from the encapsulation key and 'dec' and
+ * encrypts the element under the identities with 0x01||com appended. The output contains
+ * the encoded element, 'com' and the encoded ciphertext.
+ */
+static int encapsulateToBuffer(uint8_t *output, struct hibePublicParameter *publicParameter, uint8_t *encapsulationKey, int encapsulationKeyLength, uint8_t *identity, int identityLength, int level){
+	if (identityLength - 1 != sizeOfCom || MD_LEN < sizeOfCom) {
+		return STS_ERR;
+	}
+	int sizeOfMessage = getSizeOfEncodedGT(1);
+	uint8_t *com = output + sizeOfMessage;
+
+	gt_t message;
+	gt_null(message);
+	gt_new(message);
+	gt_rand(message);
+	gt_write_bin(output, sizeOfMessage, message, 1);
+
+	uint8_t inputForCom[encapsulationKeyLength + sizeOfDec];
+	memcpy(inputForCom, encapsulationKey, encapsulationKeyLength);
+	memcpy(inputForCom + encapsulationKeyLength, output, sizeOfDec);
+	hkdf(com, sizeOfCom, inputForCom, encapsulationKeyLength + sizeOfDec);
+
+	uint8_t encodedIdentities[identityLength*(level+1)];
+	memcpy(encodedIdentities, identity, identityLength*level);
+	encodedIdentities[identityLength*level] = 1;
+	memcpy(encodedIdentities + identityLength*level + 1, com, sizeOfCom);
+
+	struct hibeCiphertext *ciphertext = new hibeCiphertext(level+1);
+	int result = encrypt(ciphertext, publicParameter, message, encodedIdentities, identityLength, level+1);
+	if (result != STS_ERR) {
+		encodeCiphertext(output + sizeOfMessage + sizeOfCom, ciphertext);
+	}
+
+	delete ciphertext;
+	gt_free(message);
+	return result;
+}
+
+/**
+ * Performs the encapsulation with decoded public parameters and returns its output in a Java byte array.
+ */
+static jbyteArray encapsulateToJava(JNIEnv *env, struct hibePublicParameter *publicParameter, jbyteArray javaEncapsulationKey, jbyteArray javaIdentity, jint javaIdentityLength, jint javaLevel){
+	int size = getSizeOfEncapsulation(javaLevel);
+	uint8_t output[size];
+
+	jsize encapsulationKeyLength = env->GetArrayLength(javaEncapsulationKey);
+	jbyte *encapsulationKey = env->GetByteArrayElements(javaEncapsulationKey, NULL);
+	jbyte *identityArray = env->GetByteArrayElements(javaIdentity, NULL);
+	int result = encapsulateToBuffer(output, publicParameter, (uint8_t*)encapsulationKey, encapsulationKeyLength, (uint8_t*)identityArray, javaIdentityLength, javaLevel);
+	env->ReleaseByteArrayElements(javaIdentity, identityArray, JNI_ABORT);
+	env->ReleaseByteArrayElements(javaEncapsulationKey, encapsulationKey, JNI_ABORT);
+	if (result == STS_ERR) {
+		return NULL;
+	}
+
+	jbyteArray javaOutput = (jbyteArray)env->NewByteArray(size);
+	if(javaOutput==NULL){
+		return NULL;
+	}
+	env->SetByteArrayRegion(javaOutput,0,size,(jbyte*) output);
+	return javaOutput;
+}
+
+/**
+ * Performs the Hibe encapsulation in a single call: Samples a random GT element, computes
+ * 'com' and encrypts the element under the identities and 'com'. Returns the encoded element,
+ * 'com' and the encoded ciphertext.
+ */
+JNIEXPORT jbyteArray JNICALL Java_de_rub_rkeinstantiation_hibewrapper_Hibe_encapsulate
+  (JNIEnv *env, jclass, jbyteArray javaPublicParameter, jbyteArray javaEncapsulationKey, jbyteArray javaIdentity, jint javaIdentityLength, jint javaLevel, jbyteArray javaSeed){
+	if (initRelicContext() != STS_OK) {
+		return NULL;
+	}
+	seedRandomness(env, javaSeed);
+
+	jbyte *publicParameterArray = env->GetByteArrayElements(javaPublicParameter, NULL);
+	struct hibePublicParameter *publicParameter = new hibePublicParameter();
+	decodePublicParameter(publicParameter, (uint8_t*) publicParameterArray);
+	env->ReleaseByteArrayElements(javaPublicParameter,publicParameterArray ,JNI_ABORT);
+
+	jbyteArray javaOutput = encapsulateToJava(env, publicParameter, javaEncapsulationKey, javaIdentity, javaIdentityLength, javaLevel);
+	delete publicParameter;
+	return javaOutput;
+}
+
+/**
+ * Performs the Hibe encapsulation in a single call with decoded public parameters.
+ */
+JNIEXPORT jbyteArray JNICALL Java_de_rub_rkeinstantiation_hibewrapper_Hibe_encapsulateWithHandle
+  (JNIEnv *env, jclass, jlong publicParameterHandle, jbyteArray javaEncapsulationKey, jbyteArray javaIdentity, jint javaIdentityLength, jint javaLevel, jbyteArray javaSeed){
+	if (initRelicContext() != STS_OK) {
+		return NULL;
+	}
+	seedRandomness(env, javaSeed);
+	return encapsulateToJava(env, (struct hibePublicParameter*) publicParameterHandle, javaEncapsulationKey, javaIdentity, javaIdentityLength, javaLevel);
+}
+
+/**
+ * Performs the Hibe encapsulation in a single call on direct buffers. Returns the size of
+ * the output, or 0 if the encapsulation fails or the output buffer is too small. Throws an
+ * IllegalArgumentException, if an input buffer does not hold exactly its encoded size.
+ */
+JNIEXPORT jint JNICALL Java_de_rub_rkeinstantiation_hibewrapper_Hibe_encapsulateDirect
+  (JNIEnv *env, jclass, jobject javaPublicParameter, jobject javaEncapsulationKey, jint encapsulationKeyLength, jobject javaIdentity, jint javaIdentityLength, jint javaLevel, jobject javaSeed, jint seedLength, jobject javaOutput){
+	if (initRelicContext() != STS_OK) {
+		return 0;
+	}
+	if (!checkIdentities(env, javaIdentityLength, javaLevel, 1)
+			|| !checkDirectBuffer(env, javaPublicParameter, getSizeOfEncodedPublicParameter(), "public parameter")
+			|| !checkDirectBuffer(env, javaEncapsulationKey, encapsulationKeyLength, "encapsulation key")
+			|| !checkDirectBuffer(env, javaIdentity, (jlong) javaIdentityLength * javaLevel, "identities")
+			|| !checkDirectBuffer(env, javaSeed, seedLength, "seed")) {
+		return 0;
+	}
+	int size = getSizeOfEncapsulation(javaLevel);
+	if(env->GetDirectBufferCapacity(javaOutput) < size){
+		return 0;
+	}
+	rand_seed((uint8_t*)env->GetDirectBufferAddress(javaSeed), seedLength);
+
+	struct hibePublicParameter *publicParameter = new hibePublicParameter();
+	decodePublicParameter(publicParameter, (uint8_t*)env->GetDirectBufferAddress(javaPublicParameter));
+	int result = encapsulateToBuffer((uint8_t*)env->GetDirectBufferAddress(javaOutput), publicParameter, (uint8_t*)env->GetDirectBufferAddress(javaEncapsulationKey), encapsulationKeyLength, (uint8_t*)env->GetDirectBufferAddress(javaIdentity), javaIdentityLength, javaLevel);
+	delete publicParameter;
+	return result == STS_ERR ? 0 : size;
+}
+
+/**
+ * Returns the number of workers for a batch, which is at least 1 and at most the number of tasks
+ * and the number of available cores. More workers than cores only add context switches.
+ */
+static int getNumberOfWorkers(int numberOfThreads, int numberOfTasks){
+	long numberOfCores = sysconf(_SC_NPROCESSORS_ONLN);
+	if (numberOfCores > 0 && numberOfThreads > numberOfCores) {
+		numberOfThreads = (int) numberOfCores;
+	}
+	if (numberOfThreads < 1) {
+		return 1;
+	}
+	return numberOfThreads > numberOfTasks ? numberOfTasks : numberOfThreads;
+}
+
+/**
+ * The workers of the batches are run by a persistent pool of native threads. A pool thread
+ * initializes its relic context once, when it is started, and keeps it for all following
+ * batches. The pool grows on demand up to MAX_POOL_THREADS threads.
+ */
+#define MAX_POOL_THREADS 64
+
+/**
+ * A worker, which waits in the queue of the pool. 'pendingJobs' counts the jobs of its batch,
+ * which are not finished yet.
+ */
+struct poolJob {
+	void *(*work)(void *);
+	void *argument;
+	int *pendingJobs;
+	struct poolJob *next;
+};
+
+static pthread_mutex_t poolMutex = PTHREAD_MUTEX_INITIALIZER;
+static pthread_cond_t jobAvailable = PTHREAD_COND_INITIALIZER;
+static pthread_cond_t jobFinished = PTHREAD_COND_INITIALIZER;
+static struct poolJob *firstJob = NULL;
+static struct poolJob *lastJob = NULL;
+static int numberOfPoolThreads = 0;
+static bool poolShutdown = false;
+
+/**
+ * Removes the first job from the queue. The caller has to hold the pool mutex.
+ */
+static struct poolJob *takeJob(){
+	struct poolJob *job = firstJob;
+	if (job != NULL) {
+		firstJob = job->next;
+		if (firstJob == NULL) {
+			lastJob = NULL;
+		}
+	}
+	return job;
+}
+
+/**
+ * Removes the first job of a batch from the queue, or returns NULL if all jobs of the batch
+ * are taken. The caller has to hold the pool mutex.
+ */
+static struct poolJob *takeJobOfBatch(int *pendingJobs){
+	struct poolJob *previous = NULL;
+	for (struct poolJob *job = firstJob; job != NULL; previous = job, job = job->next) {
+		if (job->pendingJobs != pendingJobs) {
+			continue;
+		}
+		if (previous == NULL) {
+			firstJob = job->next;
+		} else {
+			previous->next = job->next;
+		}
+		if (lastJob == job) {
+			lastJob = previous;
+		}
+		return job;
+	}
+	return NULL;
+}
+
+/**
+ * Runs a job without holding the pool mutex. The job belongs to the thread waiting for
+ * its batch, so it must not be used after it is marked as finished.
+ */
+static void runJob(struct poolJob *job){
+	int *pendingJobs = job->pendingJobs;
+	job->work(job->argument);
+	pthread_mutex_lock(&poolMutex);
+	(*pendingJobs)--;
+	pthread_cond_broadcast(&jobFinished);
+	pthread_mutex_unlock(&poolMutex);
+}
+
+/**
+ * Main loop of a pool thread.
+ */
+static void *runPoolThread(void *){
+	if (initRelicContext() != STS_OK) {
+		pthread_mutex_lock(&poolMutex);
+		numberOfPoolThreads--;
+		pthread_mutex_unlock(&poolMutex);
+		return NULL;
+	}
+	pthread_mutex_lock(&poolMutex);
+	while (!poolShutdown) {
+		struct poolJob *job = takeJob();
+		if (job == NULL) {
+			pthread_cond_wait(&jobAvailable, &poolMutex);
+			continue;
+		}
+		pthread_mutex_unlock(&poolMutex);
+		runJob(job);
+		pthread_mutex_lock(&poolMutex);
+	}
+	numberOfPoolThreads--;
+	pthread_mutex_unlock(&poolMutex);
+	return NULL;
+}
+
+/**
+ * Starts pool threads, until the pool has 'numberOfThreads' threads. The caller has to hold
+ * the pool mutex. If a thread can not be created, the pool stays smaller.
+ */
+static void ensurePoolThreads(int numberOfThreads){
+	if (numberOfThreads > MAX_POOL_THREADS) {
+		numberOfThreads = MAX_POOL_THREADS;
+	}
+	pthread_attr_t attributes;
+	pthread_attr_init(&attributes);
+	pthread_attr_setdetachstate(&attributes, PTHREAD_CREATE_DETACHED);
+	while (numberOfPoolThreads < numberOfThreads) {
+		pthread_t thread;
+		if (pthread_create(&thread, &attributes, runPoolThread, NULL) != 0) {
+			break;
+		}
+		numberOfPoolThreads++;
+	}
+	pthread_attr_destroy(&attributes);
+}
+
+/**
+ * Stops the idle pool threads. Threads, which currently run a job, stop after it.
+ */
+static void stopPool(){
+	pthread_mutex_lock(&poolMutex);
+	poolShutdown = true;
+	pthread_cond_broadcast(&jobAvailable);
+	pthread_mutex_unlock(&poolMutex);
+}
+
+/**
+ * Runs the workers of a batch in parallel. The calling thread runs the first worker, the
+ * other workers are queued for the pool. While the calling thread waits for the batch, it
+ * runs the queued jobs of its own batch, so the batch finishes even if the pool has no
+ * threads. Jobs of other batches are left to the pool, so a caller never waits for the
+ * work of another caller.
+ */
+static void runWorkers(void *(*work)(void *), void **workers, int numberOfWorkers){
+	int pendingJobs = numberOfWorkers - 1;
+	struct poolJob jobs[numberOfWorkers];
+	pthread_mutex_lock(&poolMutex);
+	ensurePoolThreads(numberOfWorkers - 1);
+	for (int i = 1; i < numberOfWorkers; i++) {
+		jobs[i].work = work;
+		jobs[i].argument = workers[i];
+		jobs[i].pendingJobs = &pendingJobs;
+		jobs[i].next = NULL;
+		if (lastJob == NULL) {
+			firstJob = &jobs[i];
+		} else {
+			lastJob->next = &jobs[i];
+		}
+		lastJob = &jobs[i];
+	}
+	pthread_cond_broadcast(&jobAvailable);
+	pthread_mutex_unlock(&poolMutex);
+
+	work(workers[0]);
+
+	pthread_mutex_lock(&poolMutex);
+	while (pendingJobs > 0) {
+		struct poolJob *job = takeJobOfBatch(&pendingJobs);
+		if (job == NULL) {
+			pthread_cond_wait(&jobFinished, &poolMutex);
+			continue;
+		}
+		pthread_mutex_unlock(&poolMutex);
+		runJob(job);
+		pthread_mutex_lock(&poolMutex);
+	}
+	pthread_mutex_unlock(&poolMutex);
+}
+
+/**
+ * A single encapsulation of a batch. The inputs are copied out of the Java arrays before
+ * the batch is processed, so the worker threads never use the JNIEnv.
+ */
+struct encapsulationTask {
+	struct hibePublicParameter *publicParameter;
+	uint8_t *encapsulationKey;
+	int encapsulationKeyLength;
+	uint8_t *identity;
+	int level;
+	uint8_t *seed;
+	int seedLength;
+	uint8_t *output;
+	int result;
+};
+
+/**
+ * A worker performs every 'numberOfWorkers'-th task of the batch, starting at 'firstTask'.
+ */
+struct encapsulationWorker {
+	struct encapsulationTask *tasks;
+	int numberOfTasks;
+	int identityLength;
+	int firstTask;
+	int numberOfWorkers;
+};
+
+/**
+ * Performs the tasks of a worker. Every task reseeds the random number generator of the
+ * thread with its own seed, so the outputs do not depend on the number of workers.
+ */
+static void *encapsulateTasks(void *argument){
+	struct encapsulationWorker *worker = (struct encapsulationWorker*) argument;
+	if (initRelicContext() != STS_OK) {
+		return NULL;
+	}
+	for (int i = worker->firstTask; i < worker->numberOfTasks; i += worker->numberOfWorkers) {
+		struct encapsulationTask *task = &worker->tasks[i];
+		rand_seed(task->seed, task->seedLength);
+		task->result = encapsulateToBuffer(task->output, task->publicParameter, task->encapsulationKey, task->encapsulationKeyLength, task->identity, worker->identityLength, task->level);
+	}
+	return NULL;
+}
+
+/**
+ * Copies the Java byte array into a new native array.
+ */
+static uint8_t *copyFromJava(JNIEnv *env, jbyteArray javaArray, int *length){
+	*length = env->GetArrayLength(javaArray);
+	uint8_t *array = new uint8_t[*length];
+	env->GetByteArrayRegion(javaArray, 0, *length, (jbyte*)array);
+	return array;
+}
+
+/**
+ * Performs a batch of encapsulations with decoded public parameters. The tasks are spread
+ * over 'numberOfThreads' threads, the calling thread included. Returns the outputs of the
+ * encapsulations in a Java array, or NULL if any encapsulation fails.
+ */
+static jobjectArray encapsulateBatchToJava(JNIEnv *env, struct hibePublicParameter **publicParameters, jobjectArray javaEncapsulationKeys, jobjectArray javaIdentities, jint javaIdentityLength, jintArray javaLevels, jbyteArray javaSeeds, jint numberOfThreads){
+	int numberOfTasks = env->GetArrayLength(javaIdentities);
+	jclass byteArrayClass = env->FindClass("[B");
+	if (byteArrayClass == NULL) {
+		return NULL;
+	}
+	if (numberOfTasks == 0) {
+		return env->NewObjectArray(0, byteArrayClass, NULL);
+	}
+
+	int seedLength = env->GetArrayLength(javaSeeds) / numberOfTasks;
+	uint8_t *seeds = new uint8_t[seedLength * numberOfTasks];
+	env->GetByteArrayRegion(javaSeeds, 0, seedLength * numberOfTasks, (jbyte*)seeds);
+	jint *levels = env->GetIntArrayElements(javaLevels, NULL);
+
+	struct encapsulationTask *tasks = new encapsulationTask[numberOfTasks];
+	for (int i = 0; i < numberOfTasks; i++) {
+		int identityArrayLength;
+		jbyteArray javaEncapsulationKey = (jbyteArray)env->GetObjectArrayElement(javaEncapsulationKeys, i);
+		jbyteArray javaIdentity = (jbyteArray)env->GetObjectArrayElement(javaIdentities, i);
+		tasks[i].publicParameter = publicParameters[i];
+		tasks[i].encapsulationKey = copyFromJava(env, javaEncapsulationKey, &tasks[i].encapsulationKeyLength);
+		tasks[i].identity = copyFromJava(env, javaIdentity, &identityArrayLength);
+		tasks[i].level = levels[i];
+		tasks[i].seed = seeds + i * seedLength;
+		tasks[i].seedLength = seedLength;
+		tasks[i].output = new uint8_t[getSizeOfEncapsulation(levels[i])];
+		tasks[i].result = STS_ERR;
+		env->DeleteLocalRef(javaEncapsulationKey);
+		env->DeleteLocalRef(javaIdentity);
+	}
+	env->ReleaseIntArrayElements(javaLevels, levels, JNI_ABORT);
+
+	int numberOfWorkers = getNumberOfWorkers(numberOfThreads, numberOfTasks);
+	struct encapsulationWorker workers[numberOfWorkers];
+	void *workerArguments[numberOfWorkers];
+	for (int i = 0; i < numberOfWorkers; i++) {
+		workers[i].tasks = tasks;
+		workers[i].numberOfTasks = numberOfTasks;
+		workers[i].identityLength = javaIdentityLength;
+		workers[i].firstTask = i;
+		workers[i].numberOfWorkers = numberOfWorkers;
+		workerArguments[i] = &workers[i];
+	}
+	runWorkers(encapsulateTasks, workerArguments, numberOfWorkers);
+
+	jobjectArray javaOutputs = env->NewObjectArray(numberOfTasks, byteArrayClass, NULL);
+	for (int i = 0; i < numberOfTasks && javaOutputs != NULL; i++) {
+		if (tasks[i].result == STS_ERR) {
+			javaOutputs = NULL;
+			break;
+		}
+		int size = getSizeOfEncapsulation(tasks[i].level);
+		jbyteArray javaOutput = env->NewByteArray(size);
+		if (javaOutput == NULL) {
+			javaOutputs = NULL;
+			break;
+		}
+		env->SetByteArrayRegion(javaOutput, 0, size, (jbyte*)tasks[i].output);
+		env->SetObjectArrayElement(javaOutputs, i, javaOutput);
+		env->DeleteLocalRef(javaOutput);
+	}
+
+	for (int i = 0; i < numberOfTasks; i++) {
+		delete[] tasks[i].encapsulationKey;
+		delete[] tasks[i].identity;
+		delete[] tasks[i].output;
+	}
+	delete[] tasks;
+	delete[] seeds;
+	return javaOutputs;
+}
+
+/**
+ * Performs a batch of Hibe encapsulations in a single call. Every encapsulation uses its own
+ * public parameters, encapsulation key, identities, level and seed. The seeds are concatenated
+ * in 'javaSeeds'. Returns the output of every encapsulation as by encapsulate, or NULL if any
+ * encapsulation fails.
+ *
+ * Tasks often share their public parameters, so every distinct encoding is decoded only once.
+ * Callers, which keep the public parameters decoded, should use encapsulateBatchWithHandles,
+ * which does not decode at all.
+ */
+JNIEXPORT jobjectArray JNICALL Java_de_rub_rkeinstantiation_hibewrapper_Hibe_encapsulateBatch
+  (JNIEnv *env, jclass, jobjectArray javaPublicParameters, jobjectArray javaEncapsulationKeys, jobjectArray javaIdentities, jint javaIdentityLength, jintArray javaLevels, jbyteArray javaSeeds, jint numberOfThreads){
+	if (initRelicContext() != STS_OK) {
+		return NULL;
+	}
+	int numberOfTasks = env->GetArrayLength(javaPublicParameters);
+	int sizeOfPublicParameter = getSizeOfEncodedPublicParameter();
+	struct hibePublicParameter *publicParameters[numberOfTasks + 1];
+	struct hibePublicParameter *distinctPublicParameters[numberOfTasks + 1];
+	uint8_t *encodedPublicParameters = new uint8_t[(numberOfTasks + 1) * sizeOfPublicParameter];
+	int numberOfDistinctPublicParameters = 0;
+	bool valid = true;
+	for (int i = 0; i < numberOfTasks; i++) {
+		jbyteArray javaPublicParameter = (jbyteArray)env->GetObjectArrayElement(javaPublicParameters, i);
+		if (!checkArray(env, javaPublicParameter, sizeOfPublicParameter, "public parameter")) {
+			env->DeleteLocalRef(javaPublicParameter);
+			valid = false;
+			break;
+		}
+		uint8_t *encodedPublicParameter = encodedPublicParameters + numberOfDistinctPublicParameters * sizeOfPublicParameter;
+		env->GetByteArrayRegion(javaPublicParameter, 0, sizeOfPublicParameter, (jbyte*) encodedPublicParameter);
+		env->DeleteLocalRef(javaPublicParameter);
+
+		int j = 0;
+		while (j < numberOfDistinctPublicParameters && memcmp(encodedPublicParameters + j * sizeOfPublicParameter, encodedPublicParameter, sizeOfPublicParameter) != 0) {
+			j++;
+		}
+		if (j == numberOfDistinctPublicParameters) {
+			distinctPublicParameters[j] = new hibePublicParameter();
+			decodePublicParameter(distinctPublicParameters[j], encodedPublicParameter);
+			numberOfDistinctPublicParameters++;
+		}
+		publicParameters[i] = distinctPublicParameters[j];
+	}
+
+	jobjectArray javaOutputs = NULL;
+	if (valid) {
+		javaOutputs = encapsulateBatchToJava(env, publicParameters, javaEncapsulationKeys, javaIdentities, javaIdentityLength, javaLevels, javaSeeds, numberOfThreads);
+	}
+	for (int j = 0; j < numberOfDistinctPublicParameters; j++) {
+		delete distinctPublicParameters[j];
+	}
+	delete[] encodedPublicParameters;
+	return javaOutputs;
+}
+
+/**
+ * Performs a batch of Hibe encapsulations in a single call with decoded public parameters.
+ */
+JNIEXPORT jobjectArray JNICALL Java_de_rub_rkeinstantiation_hibewrapper_Hibe_encapsulateBatchWithHandles
+  (JNIEnv *env, jclass, jlongArray publicParameterHandles, jobjectArray javaEncapsulationKeys, jobjectArray javaIdentities, jint javaIdentityLength, jintArray javaLevels, jbyteArray javaSeeds, jint numberOfThreads){
+	if (initRelicContext() != STS_OK) {
+		return NULL;
+	}
+	int numberOfTasks = env->GetArrayLength(publicParameterHandles);
+	struct hibePublicParameter *publicParameters[numberOfTasks + 1];
+	jlong *handles = env->GetLongArrayElements(publicParameterHandles, NULL);
+	for (int i = 0; i < numberOfTasks; i++) {
+		publicParameters[i] = (struct hibePublicParameter*) handles[i];
+	}
+	env->ReleaseLongArrayElements(publicParameterHandles, handles, JNI_ABORT);
+	return encapsulateBatchToJava(env, publicParameters, javaEncapsulationKeys, javaIdentities, javaIdentityLength, javaLevels, javaSeeds, numberOfThreads);
+}
+
+/**
+ * A single delegation of a batch. The delegated key is at 'level', its last identity is
+ * appended to the identities of the delegator and shared by the whole batch.
+ */
+struct delegationTask {
+	struct hibeSecretKey *delegatorSecretKey;
+	uint8_t *identity;
+	int level;
+	uint8_t *seed;
+	int seedLength;
+	struct hibeSecretKey *delegatedSecretKey;
+	int result;
+};
+
+/**
+ * A worker performs every 'numberOfWorkers'-th task of the batch, starting at 'firstTask'.
+ */
+struct delegationWorker {
+	struct delegationTask *tasks;
+	int numberOfTasks;
+	int identityLength;
+	bn_t *appendedIdentity;
+	int firstTask;
+	int numberOfWorkers;
+};
+
+/**
+ * Performs the tasks of a worker. The appended identity is decoded once for the whole batch,
+ * only the identities of the delegators are decoded per task.
+ */
+static void *delegateTasks(void *argument){
+	struct delegationWorker *worker = (struct delegationWorker*) argument;
+	if (initRelicContext() != STS_OK) {
+		return NULL;
+	}
+	for (int i = worker->firstTask; i < worker->numberOfTasks; i += worker->numberOfWorkers) {
+		struct delegationTask *task = &worker->tasks[i];
+		bn_t encodedIds[task->level];
+		for (int j = 0; j < task->level; j++) {
+			bn_null(encodedIds[j]);
+			bn_new(encodedIds[j]);
+		}
+		decodeIdentities(encodedIds, task->identity, worker->identityLength, task->level-1);
+		bn_copy(encodedIds[task->level-1], *worker->appendedIdentity);
+
+		rand_seed(task->seed, task->seedLength);
+		task->delegatedSecretKey = new hibeSecretKey(task->level);
+		task->result = keyDelegationWithDecodedIds(task->delegatedSecretKey, task->delegatorSecretKey, encodedIds, task->level);
+		for (int j = 0; j < task->level; j++) {
+			bn_free(encodedIds[j]);
+		}
+	}
+	return NULL;
+}
+
+/**
+ * Performs a batch of delegations of decoded secret keys. The tasks are spread over
+ * 'numberOfThreads' threads, the calling thread included. The caller has to release
+ * the returned tasks, their identities and their delegated keys.
+ */
+static struct delegationTask *delegateBatch(JNIEnv *env, struct hibeSecretKey **delegatorSecretKeys, int numberOfTasks, jobjectArray javaIdentities, jint javaIdentityLength, jintArray javaLevels, jbyteArray javaAppendedIdentity, jbyteArray javaSeeds, jint numberOfThreads){
+	int seedLength = numberOfTasks == 0 ? 0 : env->GetArrayLength(javaSeeds) / numberOfTasks;
+	uint8_t *seeds = new uint8_t[seedLength * numberOfTasks];
+	env->GetByteArrayRegion(javaSeeds, 0, seedLength * numberOfTasks, (jbyte*)seeds);
+	jint *levels = env->GetIntArrayElements(javaLevels, NULL);
+
+	struct delegationTask *tasks = new delegationTask[numberOfTasks];
+	for (int i = 0; i < numberOfTasks; i++) {
+		int identityArrayLength;
+		jbyteArray javaIdentity = (jbyteArray)env->GetObjectArrayElement(javaIdentities, i);
+		tasks[i].delegatorSecretKey = delegatorSecretKeys[i];
+		tasks[i].identity = copyFromJava(env, javaIdentity, &identityArrayLength);
+		tasks[i].level = levels[i];
+		tasks[i].seed = seeds + i * seedLength;
+		tasks[i].seedLength = seedLength;
+		tasks[i].delegatedSecretKey = NULL;
+		tasks[i].result = STS_ERR;
+		env->DeleteLocalRef(javaIdentity);
+	}
+	env->ReleaseIntArrayElements(javaLevels, levels, JNI_ABORT);
+
+	int appendedIdentityLength;
+	uint8_t *appendedIdentityArray = copyFromJava(env, javaAppendedIdentity, &appendedIdentityLength);
+	bn_t appendedIdentity;
+	bn_null(appendedIdentity);
+	bn_new(appendedIdentity);
+	decodeIdentities(&appendedIdentity, appendedIdentityArray, appendedIdentityLength, 1);
+	delete[] appendedIdentityArray;
+
+	int numberOfWorkers = getNumberOfWorkers(numberOfThreads, numberOfTasks);
+	struct delegationWorker workers[numberOfWorkers];
+	void *workerArguments[numberOfWorkers];
+	for (int i = 0; i < numberOfWorkers; i++) {
+		workers[i].tasks = tasks;
+		workers[i].numberOfTasks = numberOfTasks;
+		workers[i].identityLength = javaIdentityLength;
+		workers[i].appendedIdentity = &appendedIdentity;
+		workers[i].firstTask = i;
+		workers[i].numberOfWorkers = numberOfWorkers;
+		workerArguments[i] = &workers[i];
+	}
+	if (numberOfTasks > 0) {
+		runWorkers(delegateTasks, workerArguments, numberOfWorkers);
+	}
+
+	bn_free(appendedIdentity);
+	delete[] seeds;
+	return tasks;
+}
+
+/**
+ * Releases the tasks of a delegation batch. If 'releaseKeys' is set, the delegated keys are
+ * released as well.
+ */
+static void releaseDelegationTasks(struct delegationTask *tasks, int numberOfTasks, bool releaseKeys){
+	for (int i = 0; i < numberOfTasks; i++) {
+		delete[] tasks[i].identity;
+		if (releaseKeys) {
+			delete tasks[i].delegatedSecretKey;
+		}
+	}
+	delete[] tasks;
+}
+
+/**
+ * Performs a batch of Hibe delegations in a single call. Every delegator key is delegated
+ * to its identities with 'javaAppendedIdentity' appended, which is shared by the whole batch.
+ * 'javaLevels' are the levels of the delegated keys and the seeds of the delegations are
+ * concatenated in 'javaSeeds'. Returns the encoded delegated keys, or NULL if any delegation fails.
+ */
+JNIEXPORT jobjectArray JNICALL Java_de_rub_rkeinstantiation_hibewrapper_Hibe_delegateBatch
+  (JNIEnv *env, jclass, jobjectArray javaDelegatorKeys, jobjectArray javaIdentities, jint javaIdentityLength, jintArray javaLevels, jbyteArray javaAppendedIdentity, jbyteArray javaSeeds, jint numberOfThreads){
+	if (initRelicContext() != STS_OK) {
+		return NULL;
+	}
+	jclass byteArrayClass = env->FindClass("[B");
+	if (byteArrayClass == NULL) {
+		return NULL;
+	}
+	int numberOfTasks = env->GetArrayLength(javaDelegatorKeys);
+	struct hibeSecretKey *delegatorSecretKeys[numberOfTasks + 1];
+	jint *levels = env->GetIntArrayElements(javaLevels, NULL);
+	for (int i = 0; i < numberOfTasks; i++) {
+		jbyteArray javaDelegatorKey = (jbyteArray)env->GetObjectArrayElement(javaDelegatorKeys, i);
+		delegatorSecretKeys[i] = decodeSecretKeyFromJava(env, javaDelegatorKey, levels[i]-1);
+		env->DeleteLocalRef(javaDelegatorKey);
+		if (delegatorSecretKeys[i] == NULL) {
+			for (int j = 0; j < i; j++) {
+				delete delegatorSecretKeys[j];
+			}
+			env->ReleaseIntArrayElements(javaLevels, levels, JNI_ABORT);
+			return NULL;
+		}
+	}
+	env->ReleaseIntArrayElements(javaLevels, levels, JNI_ABORT);
+
+	struct delegationTask *tasks = delegateBatch(env, delegatorSecretKeys, numberOfTasks, javaIdentities, javaIdentityLength, javaLevels, javaAppendedIdentity, javaSeeds, numberOfThreads);
+	jobjectArray javaDelegatedKeys = env->NewObjectArray(numberOfTasks, byteArrayClass, NULL);
+	for (int i = 0; i < numberOfTasks && javaDelegatedKeys != NULL; i++) {
+		if (tasks[i].result == STS_ERR) {
+			javaDelegatedKeys = NULL;
+			break;
+		}
+		jbyteArray javaDelegatedKey = encodeSecretKeyToJava(env, tasks[i].delegatedSecretKey);
+		if (javaDelegatedKey == NULL) {
+			javaDelegatedKeys = NULL;
+			break;
+		}
+		env->SetObjectArrayElement(javaDelegatedKeys, i, javaDelegatedKey);
+		env->DeleteLocalRef(javaDelegatedKey);
+	}
+
+	releaseDelegationTasks(tasks, numberOfTasks, true);
+	for (int i = 0; i < numberOfTasks; i++) {
+		delete delegatorSecretKeys[i];
+	}
+	return javaDelegatedKeys;
+}
+
+/**
+ * Performs a batch of Hibe delegations in a single call with decoded secret keys. The
+ * delegated keys are not encoded, instead handles to them are returned. Returns NULL,
+ * if any delegation fails.
+ */
+JNIEXPORT jlongArray JNICALL Java_de_rub_rkeinstantiation_hibewrapper_Hibe_delegateBatchWithHandles
+  (JNIEnv *env, jclass, jlongArray delegatorKeyHandles, jobjectArray javaIdentities, jint javaIdentityLength, jintArray javaLevels, jbyteArray javaAppendedIdentity, jbyteArray javaSeeds, jint numberOfThreads){
+	if (initRelicContext() != STS_OK) {
+		return NULL;
+	}
+	int numberOfTasks = env->GetArrayLength(delegatorKeyHandles);
+	struct hibeSecretKey *delegatorSecretKeys[numberOfTasks + 1];
+	jlong *handles = env->GetLongArrayElements(delegatorKeyHandles, NULL);
+	for (int i = 0; i < numberOfTasks; i++) {
+		delegatorSecretKeys[i] = (struct hibeSecretKey*) handles[i];
+	}
+	env->ReleaseLongArrayElements(delegatorKeyHandles, handles, JNI_ABORT);
+
+	struct delegationTask *tasks = delegateBatch(env, delegatorSecretKeys, numberOfTasks, javaIdentities, javaIdentityLength, javaLevels, javaAppendedIdentity, javaSeeds, numberOfThreads);
+	jlong delegatedKeyHandles[numberOfTasks + 1];
+	for (int i = 0; i < numberOfTasks; i++) {
+		if (tasks[i].result == STS_ERR) {
+			releaseDelegationTasks(tasks, numberOfTasks, true);
+			return NULL;
+		}
+		delegatedKeyHandles[i] = (jlong) tasks[i].delegatedSecretKey;
+	}
+	jlongArray javaDelegatedKeyHandles = env->NewLongArray(numberOfTasks);
+	if (javaDelegatedKeyHandles == NULL) {
+		releaseDelegationTasks(tasks, numberOfTasks, true);
+		return NULL;
+	}
+	env->SetLongArrayRegion(javaDelegatedKeyHandles, 0, numberOfTasks, delegatedKeyHandles);
+	releaseDelegationTasks(tasks, numberOfTasks, false);
+	return javaDelegatedKeyHandles;
+}
+
+/**
+ * Decrypts the encoded ciphertext for the identities (at 'level'), which extend the identities
+ * of the secret key by the last identity. Only the key component for the last identity is
+ * derived, no transient key is delegated. The encoded message is written into 'message'.
+ */
+static int decryptAtExtendedIdentityToBuffer(uint8_t *message, struct hibeSecretKey *secretKey, uint8_t *identity, int identityLength, int level, uint8_t *encodedCiphertext){
+	bn_t lastId;
+	bn_null(lastId);
+	bn_new(lastId);
+	decodeIdentities(&lastId, identity, identityLength, 1);
+
+	struct hibeCiphertext *ciphertext = new hibeCiphertext(level);
+	decodeCiphertext(ciphertext, encodedCiphertext);
+
+	gt_t decryptedMessage;
+	gt_null(decryptedMessage);
+	gt_new(decryptedMessage);
+	int result = decryptAtExtendedIdentity(decryptedMessage, secretKey, ciphertext, lastId);
+	if (result != STS_ERR) {
+		gt_write_bin(message, getSizeOfEncodedGT(1), decryptedMessage, 1);
+	}
+
+	gt_free(decryptedMessage);
+	delete ciphertext;
+	bn_free(lastId);
+	return result;
+}
+
+/**
+ * Performs decryptAtExtendedIdentityToBuffer and returns the message in a Java byte array.
+ */
+static jbyteArray decryptAtExtendedIdentityToJava(JNIEnv *env, struct hibeSecretKey *secretKey, jbyteArray javaIdentity, jint javaIdentityLength, jint javaLevel, jbyteArray javaCiphertext){
+	if (!checkArray(env, javaIdentity, javaIdentityLength, "identity")
+			|| !checkArray(env, javaCiphertext, getSizeOfEncodedCiphertextAtLevel(javaLevel), "ciphertext")) {
+		return NULL;
+	}
+	int size = getSizeOfEncodedGT(1);
+	uint8_t message[size];
+
+	jbyte *identityArray = env->GetByteArrayElements(javaIdentity, NULL);
+	jbyte *ciphertextArray = env->GetByteArrayElements(javaCiphertext, NULL);
+	int result = decryptAtExtendedIdentityToBuffer(message, secretKey, (uint8_t*)identityArray, javaIdentityLength, javaLevel, (uint8_t*)ciphertextArray);
+	env->ReleaseByteArrayElements(javaCiphertext, ciphertextArray, JNI_ABORT);
+	env->ReleaseByteArrayElements(javaIdentity, identityArray, JNI_ABORT);
+	if (result == STS_ERR) {
+		return NULL;
+	}
+
+	jbyteArray javaMessage = (jbyteArray)env->NewByteArray(size);
+	if(javaMessage==NULL){
+		return NULL;
+	}
+	env->SetByteArrayRegion(javaMessage,0,size,(jbyte*) message);
+	return javaMessage;
+}
+
+/**
+ * Decrypts the ciphertext for the identities (at 'level'), which extend the identities of the
+ * secret key by one identity. The identity array only contains the appended identity, since the
+ * identities of the secret key are already part of its key components. Only the encoded message
+ * is returned.
+ */
+JNIEXPORT jbyteArray JNICALL Java_de_rub_rkeinstantiation_hibewrapper_Hibe_decryptAtExtendedIdentity
+  (JNIEnv *env, jclass, jbyteArray javaSecretKey, jbyteArray javaIdentity, jint javaIdentityLength, jint javaLevel, jbyteArray javaCiphertext, jbyteArray javaSeed){
+	if (initRelicContext() != STS_OK) {
+		return NULL;
+	}
+	if (!checkIdentities(env, javaIdentityLength, javaLevel, 2)
+			|| !checkArray(env, javaSecretKey, getSizeOfEncodedSecretKeyAtLevel(javaLevel-1), "secret key")) {
+		return NULL;
+	}
+	seedRandomness(env, javaSeed);
+
+	struct hibeSecretKey *secretKey = decodeSecretKeyFromJava(env, javaSecretKey, javaLevel-1);
+	if (secretKey == NULL) {
+		return NULL;
+	}
+	jbyteArray javaMessage = decryptAtExtendedIdentityToJava(env, secretKey, javaIdentity, javaIdentityLength, javaLevel, javaCiphertext);
+	delete secretKey;
+	return javaMessage;
+}
+
+/**
+ * Decrypts the ciphertext at the extended identities with a decoded secret key.
+ */
+JNIEXPORT jbyteArray JNICALL Java_de_rub_rkeinstantiation_hibewrapper_Hibe_decryptAtExtendedIdentityWithHandle
+  (JNIEnv *env, jclass, jlong secretKeyHandle, jbyteArray javaIdentity, jint javaIdentityLength, jint javaLevel, jbyteArray javaCiphertext, jbyteArray javaSeed){
+	if (initRelicContext() != STS_OK) {
+		return NULL;
+	}
+	seedRandomness(env, javaSeed);
+	return decryptAtExtendedIdentityToJava(env, (struct hibeSecretKey*) secretKeyHandle, javaIdentity, javaIdentityLength, javaLevel, javaCiphertext);
+}
+
+/**
+ * Decrypts the ciphertext at the extended identities on direct buffers. Returns the size
+ * of the encoded message, or 0 if the decryption fails or the message buffer is too small.
+ * The ciphertext is received from the peer, and its size decides how many components are
+ * decoded. So the secret key (at 'level'-1), the ciphertext (at 'level') and the identity
+ * have to hold exactly their encoded sizes, otherwise an IllegalArgumentException is thrown.
+ */
+JNIEXPORT jint JNICALL Java_de_rub_rkeinstantiation_hibewrapper_Hibe_decryptAtExtendedIdentityDirect
+  (JNIEnv *env, jclass, jobject javaSecretKey, jobject javaIdentity, jint javaIdentityLength, jint javaLevel, jobject javaCiphertext, jobject javaSeed, jint seedLength, jobject javaMessage){
+	if (initRelicContext() != STS_OK) {
+		return 0;
+	}
+	if (!checkIdentities(env, javaIdentityLength, javaLevel, 2)
+			|| !checkDirectBuffer(env, javaSecretKey, getSizeOfEncodedSecretKeyAtLevel(javaLevel-1), "secret key")
+			|| !checkDirectBuffer(env, javaIdentity, javaIdentityLength, "identity")
+			|| !checkDirectBuffer(env, javaCiphertext, getSizeOfEncodedCiphertextAtLevel(javaLevel), "ciphertext")
+			|| !checkDirectBuffer(env, javaSeed, seedLength, "seed")) {
+		return 0;
+	}
+	int size = getSizeOfEncodedGT(1);
+	if(env->GetDirectBufferCapacity(javaMessage) < size){
+		return 0;
+	}
+	rand_seed((uint8_t*)env->GetDirectBufferAddress(javaSeed), seedLength);
+
+	struct hibeSecretKey *secretKey = new hibeSecretKey(javaLevel-1);
+	decodeSecretKey(secretKey, (uint8_t*)env->GetDirectBufferAddress(javaSecretKey));
+	int result = decryptAtExtendedIdentityToBuffer((uint8_t*)env->GetDirectBufferAddress(javaMessage), secretKey, (uint8_t*)env->GetDirectBufferAddress(javaIdentity), javaIdentityLength, javaLevel, (uint8_t*)env->GetDirectBufferAddress(javaCiphertext));
+	delete secretKey;
+	return result == STS_ERR ? 0 : size;
 }
 
 int main() {